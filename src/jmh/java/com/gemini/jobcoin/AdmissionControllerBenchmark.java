@@ -0,0 +1,48 @@
+package com.gemini.jobcoin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static com.gemini.jobcoin.constant.Routes.SEND_V1;
+
+/**
+ * Cost admission control adds to every limited request, acquiring and releasing a
+ * permit, alone and with every HTTP server instance admitting on the same route.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdmissionControllerBenchmark {
+
+    private final AdmissionController.Permits permits =
+            new AdmissionController(Collections.singletonMap(SEND_V1, 256), 1).permits(SEND_V1);
+
+    @Benchmark
+    public boolean admit() {
+        final boolean admitted = permits.tryAcquire();
+        if (admitted) {
+            permits.release();
+        }
+        return admitted;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean admitContended() {
+        return admit();
+    }
+}
@@ -0,0 +1,59 @@
+package com.gemini.jobcoin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost the idempotency cache adds to a send carrying a key, storing a new key into a
+ * full cache, which evicts the oldest, and looking up a key already held.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdempotencyCacheBenchmark {
+
+    private static final int KEYS = 100_000;
+
+    private final IdempotencyCache cache = new IdempotencyCache(1, TimeUnit.DAYS, KEYS);
+
+    private final String[] held = new String[KEYS];
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < KEYS; i++) {
+            held[i] = "held-" + i;
+            cache.putIfAbsent(held[i], new IdempotencyCache.Entry(i));
+        }
+    }
+
+    @Benchmark
+    public IdempotencyCache.Entry store() {
+        return cache.putIfAbsent(Long.toString(ThreadLocalRandom.current().nextLong()), new IdempotencyCache.Entry(0));
+    }
+
+    @Benchmark
+    public IdempotencyCache.Entry replay() {
+        return cache.putIfAbsent(held[ThreadLocalRandom.current().nextInt(KEYS)], new IdempotencyCache.Entry(0));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public IdempotencyCache.Entry storeContended() {
+        return store();
+    }
+}
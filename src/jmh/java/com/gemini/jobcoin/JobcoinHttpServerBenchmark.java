@@ -0,0 +1,117 @@
+package com.gemini.jobcoin;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.gemini.jobcoin.message.JobcoinResponse;
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the replies every handler sends, and of the HTTP server encoding a success
+ * reply into the json returned to the client.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobcoinHttpServerBenchmark {
+
+    private final JsonNode requestId = JsonNodeFactory.instance.objectNode()
+            .put("requestId", "4c5f1a8e-8a8e-4b5e-9d3c-2f0c8f6e7b1a");
+
+    private BlackholeMessage message;
+
+    @Setup
+    public void setup(final Blackhole bh) {
+        message = new BlackholeMessage(bh);
+    }
+
+    private final JobcoinResponse response = new JobcoinResponse(requestId);
+
+    @Benchmark
+    public void successResponse() {
+        JobcoinHttpServer.successResponse(message, requestId);
+    }
+
+    @Benchmark
+    public String encodeResponse() {
+        return response.encode();
+    }
+
+    @Benchmark
+    public void errorResponse() {
+        JobcoinHttpServer.errorResponse(message, "[TO456] is not an address registered to Jobcoin", 422);
+    }
+
+    /**
+     * Message which hands whatever is replied with to the Blackhole instead of the
+     * event bus, so only the cost of building the reply is measured.
+     */
+    static class BlackholeMessage implements Message<String> {
+
+        private final Blackhole bh;
+
+        BlackholeMessage(final Blackhole bh) {
+            this.bh = bh;
+        }
+
+        @Override
+        public String address() {
+            return null;
+        }
+
+        @Override
+        public MultiMap headers() {
+            return null;
+        }
+
+        @Override
+        public String body() {
+            return null;
+        }
+
+        @Override
+        public String replyAddress() {
+            return null;
+        }
+
+        @Override
+        public boolean isSend() {
+            return true;
+        }
+
+        @Override
+        public void reply(final Object message, final DeliveryOptions options) {
+            bh.consume(message);
+        }
+
+        @Override
+        public <R> Future<Message<R>> replyAndRequest(final Object message, final DeliveryOptions options) {
+            bh.consume(message);
+            return null;
+        }
+
+        @Override
+        public void fail(int failureCode, final String message) {
+            bh.consume(failureCode);
+            bh.consume(message);
+        }
+    }
+}
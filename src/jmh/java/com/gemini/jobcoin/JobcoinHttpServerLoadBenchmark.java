@@ -0,0 +1,105 @@
+package com.gemini.jobcoin;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.SocketAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.gemini.jobcoin.constant.Routes.STATUS;
+
+/**
+ * Load test of the HTTP server, requests/sec against GET /status as the number of
+ * JobcoinHttpServer instances (and so event loops) grows.
+ *
+ * The client runs in its own Vertx instance, every benchmark thread keeps one request
+ * in flight on each of its keep alive connections per invocation. Scaling is only
+ * visible when the machine has spare cores for both the server's event loops and the
+ * client.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobcoinHttpServerLoadBenchmark {
+
+    private static final int PORT = 18111;
+
+    private static final int CONNECTIONS = 32;
+
+    private static final Buffer REQUEST = RawHttpClient.get(STATUS);
+
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        @Param({"1", "2", "4"})
+        public int instances;
+
+        private Vertx serverVertx;
+
+        private Vertx clientVertx;
+
+        @Setup
+        public void setup() throws Exception {
+            serverVertx = Vertx.vertx();
+            serverVertx.deployVerticle(() -> new JobcoinHttpServer(PORT), new DeploymentOptions().setInstances(instances))
+                    .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+            clientVertx = Vertx.vertx();
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            clientVertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+            serverVertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Connections {
+
+        private final RawHttpClient[] clients = new RawHttpClient[CONNECTIONS];
+
+        private final CompletableFuture<?>[] responses = new CompletableFuture<?>[CONNECTIONS];
+
+        @Setup
+        public void setup(final Server server) throws Exception {
+            for (int i = 0; i < CONNECTIONS; i++) {
+                clients[i] = RawHttpClient.connect(server.clientVertx, SocketAddress.inetSocketAddress(PORT, "localhost"));
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            for (RawHttpClient client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(2)
+    @OperationsPerInvocation(CONNECTIONS)
+    public void status(final Connections connections) throws Exception {
+        for (int i = 0; i < CONNECTIONS; i++) {
+            connections.responses[i] = connections.clients[i].send(REQUEST);
+        }
+        CompletableFuture.allOf(connections.responses).get(10, TimeUnit.SECONDS);
+    }
+}
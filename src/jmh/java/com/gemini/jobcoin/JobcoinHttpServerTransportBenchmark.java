@@ -0,0 +1,93 @@
+package com.gemini.jobcoin;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.SocketAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static com.gemini.jobcoin.constant.Routes.STATUS;
+
+/**
+ * Round trip latency of GET /status over the default NIO transport, the native epoll
+ * transport on TCP and the native transport on a Unix domain socket.
+ *
+ * Sample mode reports the latency distribution, p99 is printed per transport. The
+ * client uses the same transport as the server. To compare syscall overhead run on
+ * Linux with the perf profiler, e.g.
+ *   -Pbenchmarks="JobcoinHttpServerTransportBenchmark -prof perfnorm"
+ * which normalizes context switches, cycles and instructions per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobcoinHttpServerTransportBenchmark {
+
+    private static final int PORT = 18113;
+
+    private static final Buffer REQUEST = RawHttpClient.get(STATUS);
+
+    @Param({"nio", "epoll", "uds"})
+    public String transport;
+
+    private Vertx serverVertx;
+
+    private Vertx clientVertx;
+
+    private RawHttpClient client;
+
+    private Path socket;
+
+    @Setup
+    public void setup() throws Exception {
+        final boolean nativeTransport = !"nio".equals(transport);
+        socket = Files.createTempDirectory("jobcoin").resolve("jobcoin.sock");
+        final HttpServerConfig config = new HttpServerConfig(
+                PORT, 1, nativeTransport, "uds".equals(transport) ? socket.toString() : null);
+
+        serverVertx = Vertx.vertx(new VertxOptions().setPreferNativeTransport(nativeTransport));
+        clientVertx = Vertx.vertx(new VertxOptions().setPreferNativeTransport(nativeTransport));
+        if (nativeTransport && !serverVertx.isNativeTransportEnabled()) {
+            throw new IllegalStateException("Native transport is not available on this machine");
+        }
+        serverVertx.deployVerticle(() -> JobcoinHttpServer.builder(config).build(), new DeploymentOptions())
+                .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        client = RawHttpClient.connect(clientVertx, "uds".equals(transport)
+                ? SocketAddress.domainSocketAddress(socket.toString())
+                : SocketAddress.inetSocketAddress(PORT, "localhost"));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        clientVertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        serverVertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        Files.deleteIfExists(socket);
+        Files.deleteIfExists(socket.getParent());
+    }
+
+    @Benchmark
+    public int status() throws Exception {
+        return client.send(REQUEST).get(10, TimeUnit.SECONDS);
+    }
+}
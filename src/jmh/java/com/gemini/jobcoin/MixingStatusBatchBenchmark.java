@@ -0,0 +1,98 @@
+package com.gemini.jobcoin;
+
+import com.gemini.jobcoin.external.persistence.RequestStatusStore;
+import com.gemini.jobcoin.external.persistence.TimeOrderedIdGenerator;
+import com.gemini.jobcoin.verticles.MixingStatusHandler;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.SocketAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.gemini.jobcoin.constant.Routes.MIXING_STATUS_BATCH_V1;
+import static com.gemini.jobcoin.constant.Routes.MIXING_STATUS_V1;
+
+/**
+ * Time to look up the status of a number of mixing requests through the HTTP server, one
+ * GET per request id against a single POST to the bulk endpoint. Both go over one keep
+ * alive connection and the same MixingStatusHandler worker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MixingStatusBatchBenchmark {
+
+    private static final int PORT = 18118;
+
+    @Param({"100"})
+    public int requests;
+
+    private Vertx vertx;
+
+    private RawHttpClient client;
+
+    private Buffer[] polls;
+
+    private Buffer batch;
+
+    @Setup
+    public void setup() throws Exception {
+        final RequestStatusStore requestStore = new RequestStatusStore();
+        final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+        final StringBuilder requestIds = new StringBuilder("[");
+        polls = new Buffer[requests];
+        for (int i = 0; i < requests; i++) {
+            final String requestId = generator.generateId();
+            requestStore.put(requestId, i % 2 == 0);
+            requestIds.append(i == 0 ? "\"" : ",\"").append(requestId).append('"');
+            polls[i] = RawHttpClient.get(MIXING_STATUS_V1 + "?requestId=" + requestId);
+        }
+        batch = RawHttpClient.post(MIXING_STATUS_BATCH_V1, requestIds.append("]").toString());
+
+        vertx = Vertx.vertx();
+        vertx.deployVerticle(new MixingStatusHandler(requestStore), new DeploymentOptions().setWorker(true))
+                .compose(id -> vertx.deployVerticle(new JobcoinHttpServer(PORT)))
+                .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        client = RawHttpClient.connect(vertx, SocketAddress.inetSocketAddress(PORT, "localhost"));
+        if (client.send(polls[0]).get(10, TimeUnit.SECONDS) != 200
+                || client.send(batch).get(10, TimeUnit.SECONDS) != 200) {
+            throw new IllegalStateException("Mixing status requests are rejected");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public int pollEach() throws Exception {
+        int status = 0;
+        for (Buffer poll : polls) {
+            status |= client.send(poll).get(10, TimeUnit.SECONDS);
+        }
+        return status;
+    }
+
+    @Benchmark
+    public int pollBatch() throws Exception {
+        return client.send(batch).get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,109 @@
+package com.gemini.jobcoin;
+
+import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.external.persistence.RequestStatusStore;
+import com.gemini.jobcoin.external.persistence.SendStage;
+import com.gemini.jobcoin.verticles.MixingStatusHandler;
+import com.gemini.jobcoin.verticles.MixingStatusLookup;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.SocketAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.gemini.jobcoin.constant.Routes.MIXING_STATUS_V1;
+
+/**
+ * GET /v1/mixingStatus answered through the MixingStatusHandler on a worker, one event
+ * bus round trip per request, against answered on the event loop from the stores with a
+ * pre-encoded body.
+ *
+ * latency keeps a single request in flight, throughput one on each of CONNECTIONS keep
+ * alive connections. The client runs in its own Vertx instance.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MixingStatusRouteBenchmark {
+
+    private static final int PORT = 18112;
+
+    private static final int CONNECTIONS = 16;
+
+    private static final Buffer REQUEST = RawHttpClient.get(MIXING_STATUS_V1 + "?requestId=requestId1");
+
+    @Param({"eventBus", "eventLoop"})
+    public String path;
+
+    private Vertx serverVertx;
+
+    private Vertx clientVertx;
+
+    private final RawHttpClient[] clients = new RawHttpClient[CONNECTIONS];
+
+    private final CompletableFuture<?>[] responses = new CompletableFuture<?>[CONNECTIONS];
+
+    @Setup
+    public void setup() throws Exception {
+        final KVStore<String, Boolean> requestStore = new RequestStatusStore();
+        requestStore.put("requestId1", false);
+        final ConcurrentMap<String, SendStage> sendStages = new ConcurrentHashMap<>();
+
+        serverVertx = Vertx.vertx();
+        serverVertx.deployVerticle(new MixingStatusHandler(requestStore, sendStages),
+                WorkerPools.options(WorkerPools.MIXING_STATUS, 2, 1))
+                .compose(id -> serverVertx.deployVerticle(JobcoinHttpServer.builder(HttpServerConfig.tcp(PORT))
+                        .statusLookup("eventLoop".equals(path) ? new MixingStatusLookup(requestStore, sendStages) : null)
+                        .build()))
+                .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        clientVertx = Vertx.vertx();
+        for (int i = 0; i < CONNECTIONS; i++) {
+            clients[i] = RawHttpClient.connect(clientVertx, SocketAddress.inetSocketAddress(PORT, "localhost"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (RawHttpClient client : clients) {
+            client.close();
+        }
+        clientVertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        serverVertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Integer latency() throws Exception {
+        return clients[0].send(REQUEST).get(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(CONNECTIONS)
+    public void throughput() throws Exception {
+        for (int i = 0; i < CONNECTIONS; i++) {
+            responses[i] = clients[i].send(REQUEST);
+        }
+        CompletableFuture.allOf(responses).get(10, TimeUnit.SECONDS);
+    }
+}
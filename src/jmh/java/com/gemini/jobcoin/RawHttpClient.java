@@ -0,0 +1,106 @@
+package com.gemini.jobcoin;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetClientOptions;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.net.SocketAddress;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal keep alive HTTP/1.1 client over a single connection, used to load the server
+ * in benchmarks with as little client overhead as possible. Works over TCP and Unix
+ * domain sockets.
+ *
+ * One request is in flight at a time, the response is complete once its headers and
+ * Content-Length bytes of body have arrived. Only what the mixer's responses need is
+ * parsed, chunked responses are not supported.
+ */
+final class RawHttpClient implements AutoCloseable {
+
+    private static final byte[] HEADER_END = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final NetSocket socket;
+
+    private Buffer pending = Buffer.buffer();     // event loop only
+
+    private volatile CompletableFuture<Integer> response;
+
+    private RawHttpClient(final NetSocket socket) {
+        this.socket = socket;
+        socket.handler(this::onData);
+    }
+
+    static RawHttpClient connect(final Vertx vertx, final SocketAddress address) throws Exception {
+        final NetSocket socket = vertx.createNetClient(new NetClientOptions().setTcpNoDelay(true))
+                .connect(address)
+                .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        return new RawHttpClient(socket);
+    }
+
+    /**
+     * @return future completed with the status code of the response
+     */
+    CompletableFuture<Integer> send(final Buffer request) {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        response = future;
+        socket.write(request);
+        return future;
+    }
+
+    static Buffer get(final String uri) {
+        return Buffer.buffer("GET " + uri + " HTTP/1.1\r\nHost: localhost\r\n\r\n");
+    }
+
+    static Buffer post(final String uri, final String json) {
+        final byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        return Buffer.buffer("POST " + uri + " HTTP/1.1\r\nHost: localhost\r\n"
+                + "Content-Type: application/json\r\nContent-Length: " + body.length + "\r\n\r\n")
+                .appendBytes(body);
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+    }
+
+    private void onData(final Buffer data) {
+        pending.appendBuffer(data);
+        final int headerEnd = indexOf(pending, HEADER_END);
+        if (headerEnd < 0) {
+            return;
+        }
+        final String headers = pending.getString(0, headerEnd, "US-ASCII");
+        final int complete = headerEnd + HEADER_END.length + contentLength(headers);
+        if (pending.length() < complete) {
+            return;
+        }
+        pending = pending.getBuffer(complete, pending.length());
+        response.complete(Integer.parseInt(headers.substring(9, 12)));
+    }
+
+    private static int contentLength(final String headers) {
+        for (String line : headers.split("\r\n")) {
+            if (line.regionMatches(true, 0, "content-length:", 0, 15)) {
+                return Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        return 0;
+    }
+
+    private static int indexOf(final Buffer buffer, final byte[] target) {
+        outer:
+        for (int i = 0; i <= buffer.length() - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (buffer.getByte(i + j) != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,96 @@
+package com.gemini.jobcoin;
+
+import com.gemini.jobcoin.external.blockchain.JobcoinAddressGenerator;
+import com.gemini.jobcoin.external.persistence.InMemoryKVStore;
+import com.gemini.jobcoin.verticles.RegisterHandler;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.SocketAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.gemini.jobcoin.constant.Routes.REGISTER_BATCH_V1;
+import static com.gemini.jobcoin.constant.Routes.REGISTER_V1;
+
+/**
+ * Time to register a number of address lists through the HTTP server, one POST per list
+ * against a single POST to the batch endpoint. Both go over one keep alive connection
+ * and the same RegisterHandler worker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegisterBatchBenchmark {
+
+    private static final int PORT = 18116;
+
+    private static final String ADDRESSES = "[\"5gJkRk2eYVeWZPvuw9v3u9XuKzFbS1Qa\",\"qV2Ko8m2aXsQ9v7fQzJ4r0WcL1hN6tBy\"]";
+
+    @Param({"100"})
+    public int lists;
+
+    private Vertx vertx;
+
+    private RawHttpClient client;
+
+    private Buffer register;
+
+    private Buffer registerBatch;
+
+    @Setup
+    public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        vertx.deployVerticle(new RegisterHandler(new InMemoryKVStore<>(), new JobcoinAddressGenerator()),
+                new DeploymentOptions().setWorker(true))
+                .compose(id -> vertx.deployVerticle(new JobcoinHttpServer(PORT)))
+                .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        client = RawHttpClient.connect(vertx, SocketAddress.inetSocketAddress(PORT, "localhost"));
+
+        final StringBuilder batch = new StringBuilder("[");
+        for (int i = 0; i < lists; i++) {
+            batch.append(i == 0 ? "" : ",").append(ADDRESSES);
+        }
+        register = RawHttpClient.post(REGISTER_V1, ADDRESSES);
+        registerBatch = RawHttpClient.post(REGISTER_BATCH_V1, batch.append("]").toString());
+        if (client.send(register).get(10, TimeUnit.SECONDS) != 200
+                || client.send(registerBatch).get(10, TimeUnit.SECONDS) != 200) {
+            throw new IllegalStateException("Register requests are rejected");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public int registerEach() throws Exception {
+        int status = 0;
+        for (int i = 0; i < lists; i++) {
+            status |= client.send(register).get(10, TimeUnit.SECONDS);
+        }
+        return status;
+    }
+
+    @Benchmark
+    public int registerBatch() throws Exception {
+        return client.send(registerBatch).get(10, TimeUnit.SECONDS);
+    }
+}
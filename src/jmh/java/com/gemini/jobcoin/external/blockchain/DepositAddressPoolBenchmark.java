@@ -0,0 +1,59 @@
+package com.gemini.jobcoin.external.blockchain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Popping deposit addresses from the pool, compare with JobcoinAddressGeneratorBenchmark.
+ *
+ * When pops outrun the filler the pool falls back to generating inline, the exhausted
+ * count printed at the end of each trial shows how often that happened.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DepositAddressPoolBenchmark {
+
+    private DepositAddressPool pool;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        pool = new DepositAddressPool(65536, 16384);
+        while (pool.available() < 65536) {
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%npool exhausted %d times, %d low watermark breaches%n",
+                pool.exhausted(), pool.lowWatermarkBreaches());
+        pool.close();
+    }
+
+    @Benchmark
+    public String pop() {
+        return pool.generateAddress();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String popContended() {
+        return pool.generateAddress();
+    }
+}
@@ -0,0 +1,40 @@
+package com.gemini.jobcoin.external.blockchain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposit address generation, run single threaded and with 4 threads since every
+ * generator shares one SecureRandom.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobcoinAddressGeneratorBenchmark {
+
+    private final AddressGenerator generator = new JobcoinAddressGenerator();
+
+    @Benchmark
+    public String generateAddress() {
+        return generator.generateAddress();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateAddressContended() {
+        return generator.generateAddress();
+    }
+}
@@ -0,0 +1,66 @@
+package com.gemini.jobcoin.external.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mixed read/write load against a shared store, shaped like the requestStore where
+ * status lookups are frequent and the engine flips a request's flag as parts complete.
+ *
+ * Each group runs 3 reader threads against 1 writer thread over the same key set.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryKVStoreBenchmark {
+
+    @Param({"1024", "65536"})
+    public int keys;
+
+    private KVStore<String, Boolean> store;
+
+    private String[] ids;
+
+    @Setup
+    public void setup() {
+        store = new InMemoryKVStore<>();
+        ids = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            ids[i] = UUID.randomUUID().toString();
+            store.put(ids[i], false);
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public Boolean get() {
+        return store.get(ids[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public Boolean put() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return store.put(ids[random.nextInt(keys)], random.nextBoolean());
+    }
+}
@@ -0,0 +1,141 @@
+package com.gemini.jobcoin.external.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the overhead the journal adds to the mixing hot path and how long recovery
+ * takes on startup.
+ *
+ * appendPayout only hands the record to the journal (what MixingTask does after each
+ * transfer), appendPayoutDurable additionally waits for the group commit, which shows
+ * the latency a caller waiting on durability pays. Both are compared against the
+ * NoOpMixingJournal baseline.
+ *
+ * recover opens (scans) and replays a journal holding the given number of requests,
+ * each with 10 parts of which half have been paid out.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MixingJournalBenchmark {
+
+    private static final List<String> ADDRESSES = Arrays.asList("USERADDRESS1", "USERADDRESS2", "USERADDRESS3");
+
+    @State(Scope.Benchmark)
+    public static class AppendState {
+
+        @Param({"mapped", "none"})
+        public String journalType;
+
+        final AtomicLong requests = new AtomicLong();
+
+        MixingJournal journal;
+
+        Path path;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            if ("mapped".equals(journalType)) {
+                path = Files.createTempFile("jobcoin-journal", ".bench");
+                journal = new MappedMixingJournal(path);
+            } else {
+                journal = new NoOpMixingJournal();
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            journal.close();
+            if (path != null) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CompletableFuture<Void> appendPayout(final AppendState state) {
+        return state.journal.paidOut("0f8fad5b-d9cb-469f-a165-70867728950e", 3);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Void appendPayoutDurable(final AppendState state) {
+        return state.journal.paidOut("0f8fad5b-d9cb-469f-a165-70867728950e", 3).join();
+    }
+
+    @State(Scope.Benchmark)
+    public static class RecoveryState {
+
+        @Param({"10000", "100000"})
+        public int requestCount;
+
+        Path path;
+
+        MixingJournal journal;
+
+        @Setup(Level.Trial)
+        public void writeJournal() throws IOException {
+            path = Files.createTempFile("jobcoin-journal", ".bench");
+            final long[] parts = {
+                    101_000_000L, 202_000_000L, 303_000_000L, 404_000_000L, 505_000_000L,
+                    606_000_000L, 707_000_000L, 808_000_000L, 909_000_000L, 1_010_000_000L};
+            try (MixingJournal writer = new MappedMixingJournal(path)) {
+                for (int i = 0; i < requestCount; i++) {
+                    final String requestId = "request-" + i;
+                    writer.created(requestId, ADDRESSES, parts, parts.length);
+                    for (int p = 0; p < 5; p++) {
+                        writer.paidOut(requestId, p);
+                    }
+                }
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() throws IOException {
+            journal.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 10, batchSize = 1)
+    public Collection<JournaledRequest> recover(final RecoveryState state) throws IOException {
+        state.journal = new MappedMixingJournal(state.path);
+        return state.journal.recover();
+    }
+}
@@ -0,0 +1,53 @@
+package com.gemini.jobcoin.external.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request id generation, one id is created for every send accepted by the mixer.
+ * The UUID based RequestIdGenerator is compared against the TimeOrderedIdGenerator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestIdGeneratorBenchmark {
+
+    private final UUIDGenerator generator = new RequestIdGenerator();
+
+    private final UUIDGenerator timeOrderedGenerator = new TimeOrderedIdGenerator();
+
+    @Benchmark
+    public String generateId() {
+        return generator.generateId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateIdContended() {
+        return generator.generateId();
+    }
+
+    @Benchmark
+    public String generateTimeOrderedId() {
+        return timeOrderedGenerator.generateId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateTimeOrderedIdContended() {
+        return timeOrderedGenerator.generateId();
+    }
+}
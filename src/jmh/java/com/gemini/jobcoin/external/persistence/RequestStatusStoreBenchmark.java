@@ -0,0 +1,91 @@
+package com.gemini.jobcoin.external.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RequestStatusStore against InMemoryKVStore as the requestStore.
+ *
+ * Lookup latency is measured for known and unknown request ids. Memory per entry is
+ * measured once per trial as the heap retained by the filled store, divided by the
+ * number of requests, and printed as "memory per entry". Each store owns its own copy
+ * of the id Strings, as it would when ids arrive over the event bus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class RequestStatusStoreBenchmark {
+
+    @Param({"inMemory", "requestStatus"})
+    public String store;
+
+    @Param({"1000000"})
+    public int requests;
+
+    private KVStore<String, Boolean> requestStore;
+
+    private String[] ids;
+
+    private String[] unknownIds;
+
+    @Setup
+    public void setup() {
+        ids = new String[requests];
+        unknownIds = new String[1024];
+        for (int i = 0; i < requests; i++) {
+            ids[i] = UUID.randomUUID().toString();
+        }
+        for (int i = 0; i < unknownIds.length; i++) {
+            unknownIds[i] = UUID.randomUUID().toString();
+        }
+
+        final long before = usedHeap();
+        requestStore = "inMemory".equals(store) ? new InMemoryKVStore<>() : new RequestStatusStore();
+        for (int i = 0; i < requests; i++) {
+            requestStore.put(String.valueOf(ids[i].toCharArray()), false);
+        }
+        final long after = usedHeap();
+        System.out.printf("%n%s memory per entry: %.1f bytes%n", store, (after - before) / (double) requests);
+    }
+
+    @Benchmark
+    public Boolean getKnown() {
+        return requestStore.get(ids[ThreadLocalRandom.current().nextInt(requests)]);
+    }
+
+    @Benchmark
+    public boolean containsUnknown() {
+        return requestStore.containsKey(unknownIds[ThreadLocalRandom.current().nextInt(unknownIds.length)]);
+    }
+
+    @Benchmark
+    public Boolean putExisting() {
+        return requestStore.put(ids[ThreadLocalRandom.current().nextInt(requests)], true);
+    }
+
+    private static long usedHeap() {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,53 @@
+package com.gemini.jobcoin.helper;
+
+import com.gemini.jobcoin.exception.JobcoinException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of splitting a single request's amount into the parts which are paid out, this
+ * runs once for every request the MixingEngine accepts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobcoinMathBenchmark {
+
+    @Param({"100", "125.014", "0.014"})
+    public String amount;
+
+    @Param({"3", "10"})
+    public int partCount;
+
+    private long units;
+
+    private long[] parts;
+
+    @Setup
+    public void setup() throws JobcoinException {
+        units = Amount.of(new BigDecimal(amount)).units();
+        parts = new long[partCount];
+    }
+
+    @Benchmark
+    public void breakUpAmount(final Blackhole bh) throws JobcoinException {
+        bh.consume(JobcoinMath.breakUpAmount(units, partCount, parts));
+        bh.consume(parts);
+    }
+}
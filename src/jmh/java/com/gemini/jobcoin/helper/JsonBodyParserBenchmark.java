@@ -0,0 +1,77 @@
+package com.gemini.jobcoin.helper;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gemini.jobcoin.exception.JsonRequestException;
+import io.vertx.core.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A /v1/register body arriving in 8KB chunks, as Netty hands them to the request,
+ * buffered whole and parsed with readTree against parsed as the chunks arrive. Run with
+ * -prof gc for the bytes allocated per request (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBodyParserBenchmark {
+
+    private static final int CHUNK = 8192;
+
+    @Param({"3", "1000"})
+    public int addresses;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    private final List<Buffer> chunks = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        final StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < addresses; i++) {
+            body.append(i == 0 ? "" : ",").append("\"5gJkRk2eYVeWZPvuw9v3u9XuKzFb").append(i).append('"');
+        }
+        final Buffer buffer = Buffer.buffer(body.append(']').toString());
+        for (int from = 0; from < buffer.length(); from += CHUNK) {
+            chunks.add(buffer.getBuffer(from, Math.min(from + CHUNK, buffer.length())));
+        }
+    }
+
+    @Benchmark
+    public JsonNode buffered() throws IOException {
+        final Buffer body = Buffer.buffer();
+        for (Buffer chunk : chunks) {
+            body.appendBuffer(chunk);
+        }
+        return mapper.readTree(body.getBytes());
+    }
+
+    @Benchmark
+    public JsonNode streamed() throws JsonRequestException {
+        final JsonBodyParser parser = new JsonBodyParser(mapper, Long.MAX_VALUE, null);
+        for (Buffer chunk : chunks) {
+            parser.feed(chunk);
+        }
+        return parser.end();
+    }
+}
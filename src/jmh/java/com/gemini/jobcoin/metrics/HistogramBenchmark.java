@@ -0,0 +1,60 @@
+package com.gemini.jobcoin.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of timing a request, recording a duration into a shared histogram alone and with
+ * every HTTP server instance recording into the same route, and of a full scrape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramBenchmark {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    private final Histogram histogram = registry.histogram("jobcoin_latency_seconds", "Latency", "route", "/v1/send");
+
+    @Setup
+    public void setup() {
+        for (int route = 0; route < 10; route++) {
+            final Histogram h = registry.histogram("jobcoin_http_request_duration_seconds", "Latency",
+                    "route", "/v1/route" + route);
+            for (long v = 1; v < 100_000; v++) {
+                h.record(v * 1000);
+            }
+        }
+    }
+
+    @Benchmark
+    public void recordSince() {
+        histogram.recordSince(System.nanoTime() - 250_000);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordSinceContended() {
+        recordSince();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String scrape() {
+        return registry.scrape();
+    }
+}
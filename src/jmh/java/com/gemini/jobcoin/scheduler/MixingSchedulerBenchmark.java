@@ -0,0 +1,143 @@
+package com.gemini.jobcoin.scheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the timing wheel used by the MixingEngine against the scheduling path it
+ * replaced, a LinkedBlockingQueue drained by a dedicated thread which forwards every
+ * task into a 2 thread ScheduledExecutorService.
+ *
+ * scheduleWithBacklog measures the cost of a single insert while a large number of
+ * parts are already pending, scheduleAndExpire measures end to end throughput of
+ * inserting a batch of tasks and waiting for all of them to fire.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MixingSchedulerBenchmark {
+
+    private static final int BATCH = 10_000;
+
+    interface Scheduler {
+
+        void schedule(Runnable task, long delayMs);
+
+        void stop();
+    }
+
+    static class WheelScheduler implements Scheduler {
+
+        private final HashedWheelTimer timer = new HashedWheelTimer();
+
+        @Override
+        public void schedule(final Runnable task, long delayMs) {
+            timer.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void stop() {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Replica of the scheduling path the MixingEngine used before the timing wheel.
+     */
+    static class QueueAndExecutorScheduler implements Scheduler {
+
+        private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(2);
+
+        private final BlockingQueue<Object[]> queue = new LinkedBlockingQueue<>();
+
+        private final Thread forwarder = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    final Object[] next = queue.take();
+                    executorService.schedule((Runnable) next[0], (Long) next[1], TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        QueueAndExecutorScheduler() {
+            forwarder.setDaemon(true);
+            forwarder.start();
+        }
+
+        @Override
+        public void schedule(final Runnable task, long delayMs) {
+            queue.add(new Object[]{task, delayMs});
+        }
+
+        @Override
+        public void stop() {
+            forwarder.interrupt();
+            executorService.shutdownNow();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SchedulerState {
+
+        @Param({"wheel", "queueAndExecutor"})
+        public String scheduler;
+
+        @Param({"0", "200000"})
+        public int backlog;
+
+        Scheduler instance;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            instance = "wheel".equals(scheduler) ? new WheelScheduler() : new QueueAndExecutorScheduler();
+            for (int i = 0; i < backlog; i++) {
+                instance.schedule(() -> { }, TimeUnit.HOURS.toMillis(1) + i);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            instance.stop();
+        }
+    }
+
+    @Benchmark
+    public void scheduleWithBacklog(final SchedulerState state) {
+        state.instance.schedule(() -> { }, TimeUnit.HOURS.toMillis(1));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void scheduleAndExpire(final SchedulerState state) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(BATCH);
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < BATCH; i++) {
+            state.instance.schedule(latch::countDown, random.nextInt(1, 20));
+        }
+        latch.await();
+    }
+}
@@ -0,0 +1,185 @@
+package com.gemini.jobcoin.scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates the mixing engine under each scheduling policy and prints how long requests
+ * took to complete, for small depositors and for a whale.
+ *
+ * Time is simulated, a run takes a couple of seconds. Small requests of 3 to 9 parts
+ * arrive from distinct depositors as a Poisson process, in the burst scenario a single
+ * whale depositor also sends a burst of 9 part requests a minute in. Payouts are served
+ * one at a time in the order they fall due at a fixed rate, the capacity of Gemini, so a
+ * burst queues up behind the payouts it falls due with. Parts wait 1 to 20s as they do
+ * in MixerEntry.
+ *
+ * Run with ./gradlew simulateScheduling
+ */
+public class SchedulingPolicySimulation {
+
+    private static final int MIN_INTERVAL_MS = 1000;
+
+    private static final int MAX_INTERVAL_MS = 20000;
+
+    private static final int PAYOUTS_PER_SECOND = 5;
+
+    private static final double SMALL_REQUESTS_PER_SECOND = 0.5;
+
+    private static final long ARRIVALS_NANOS = TimeUnit.MINUTES.toNanos(30);
+
+    private static final long WHALE_AT_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final long MAX_COMPLETION_MS = TimeUnit.MINUTES.toMillis(2);
+
+    public static void main(String[] args) {
+        System.out.printf("%d payouts/s, small requests %.1f/s for %d minutes, deadline SLA %ds%n",
+                PAYOUTS_PER_SECOND, SMALL_REQUESTS_PER_SECOND, TimeUnit.NANOSECONDS.toMinutes(ARRIVALS_NANOS),
+                TimeUnit.MILLISECONDS.toSeconds(MAX_COMPLETION_MS));
+        for (int whaleRequests : new int[]{0, 100}) {
+            System.out.printf("%n%s%n", whaleRequests == 0
+                    ? "steady, small requests only"
+                    : String.format("burst, whale sends %d requests at %ds", whaleRequests,
+                            TimeUnit.NANOSECONDS.toSeconds(WHALE_AT_NANOS)));
+            System.out.printf("%-10s %-6s %6s %9s %9s %9s %9s %9s%n",
+                    "policy", "class", "count", "p50 s", "p90 s", "p99 s", "max s", "> SLA");
+
+            run("uniform", new UniformPolicy(MIN_INTERVAL_MS, MAX_INTERVAL_MS, new Random(7)), whaleRequests);
+            run("fairShare", new FairSharePolicy(MIN_INTERVAL_MS, MAX_INTERVAL_MS, PAYOUTS_PER_SECOND,
+                    new Random(7)), whaleRequests);
+            run("deadline", new DeadlinePolicy(MIN_INTERVAL_MS, MAX_INTERVAL_MS, MAX_COMPLETION_MS,
+                    new Random(7)), whaleRequests);
+        }
+    }
+
+    private static void run(final String name, final SchedulingPolicy policy, int whaleRequests) {
+        final PriorityQueue<Event> events = new PriorityQueue<>();
+        final List<Simulated> requests = workload(whaleRequests);
+        for (Simulated request : requests) {
+            events.add(new Event(request.registeredAt, Event.ARRIVED, request));
+        }
+
+        long gemini = 0;        // when Gemini is done with the payouts handed to it so far
+        final long payoutNanos = TimeUnit.SECONDS.toNanos(1) / PAYOUTS_PER_SECOND;
+        Event event;
+        while ((event = events.poll()) != null) {
+            final Simulated request = event.request;
+            switch (event.type) {
+                case Event.ARRIVED:
+                    policy.admitted(request);
+                    events.add(new Event(event.at + delay(policy, request, event.at), Event.DUE, request));
+                    break;
+                case Event.DUE:
+                    gemini = Math.max(gemini, event.at) + payoutNanos;
+                    events.add(new Event(gemini, Event.PAID, request));
+                    break;
+                default:
+                    request.paid++;
+                    policy.paidOut(request);
+                    if (request.remainingParts() > 0) {
+                        events.add(new Event(event.at + delay(policy, request, event.at), Event.DUE, request));
+                    } else {
+                        request.completedAt = event.at;
+                    }
+            }
+        }
+
+        report(name, "small", requests, false);
+        if (whaleRequests > 0) {
+            report(name, "whale", requests, true);
+        }
+    }
+
+    private static long delay(final SchedulingPolicy policy, final Simulated request, long now) {
+        return TimeUnit.MILLISECONDS.toNanos(policy.delayMillis(request, now));
+    }
+
+    private static List<Simulated> workload(int whaleRequests) {
+        final Random random = new Random(42);
+        final List<Simulated> requests = new ArrayList<>();
+        int depositor = 0;
+        for (long at = 0; at < ARRIVALS_NANOS; ) {
+            // exponential inter arrival times make the arrivals a Poisson process
+            at += (long) (-Math.log(1 - random.nextDouble()) / SMALL_REQUESTS_PER_SECOND * TimeUnit.SECONDS.toNanos(1));
+            requests.add(new Simulated("small-" + depositor++, at, random.nextInt(7) + 3, false));
+        }
+        for (int i = 0; i < whaleRequests; i++) {
+            requests.add(new Simulated("whale", WHALE_AT_NANOS + i * TimeUnit.MILLISECONDS.toNanos(100), 9, true));
+        }
+        return requests;
+    }
+
+    private static void report(final String policy, final String type, final List<Simulated> requests, boolean whale) {
+        final long[] seconds = requests.stream()
+                .filter(r -> r.whale == whale)
+                .mapToLong(r -> TimeUnit.NANOSECONDS.toSeconds(r.completedAt - r.registeredAt))
+                .sorted()
+                .toArray();
+        final long late = Arrays.stream(seconds).filter(s -> s * 1000 > MAX_COMPLETION_MS).count();
+        System.out.printf("%-10s %-6s %6d %9d %9d %9d %9d %8.1f%%%n", policy, type, seconds.length,
+                percentile(seconds, 0.5), percentile(seconds, 0.9), percentile(seconds, 0.99),
+                seconds[seconds.length - 1], late * 100.0 / seconds.length);
+    }
+
+    private static long percentile(final long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static final class Simulated implements SchedulingPolicy.Request {
+
+        private final String depositor;
+        private final long registeredAt;
+        private final int parts;
+        private final boolean whale;
+        private int paid;
+        private long completedAt;
+
+        private Simulated(final String depositor, long registeredAt, int parts, boolean whale) {
+            this.depositor = depositor;
+            this.registeredAt = registeredAt;
+            this.parts = parts;
+            this.whale = whale;
+        }
+
+        @Override
+        public String depositor() {
+            return depositor;
+        }
+
+        @Override
+        public long registeredAt() {
+            return registeredAt;
+        }
+
+        @Override
+        public int remainingParts() {
+            return parts - paid;
+        }
+    }
+
+    private static final class Event implements Comparable<Event> {
+
+        private static final int ARRIVED = 0;
+        private static final int DUE = 1;
+        private static final int PAID = 2;
+
+        private final long at;
+        private final int type;
+        private final Simulated request;
+
+        private Event(long at, int type, final Simulated request) {
+            this.at = at;
+            this.type = type;
+            this.request = request;
+        }
+
+        @Override
+        public int compareTo(final Event o) {
+            return Long.compare(at, o.at);
+        }
+    }
+}
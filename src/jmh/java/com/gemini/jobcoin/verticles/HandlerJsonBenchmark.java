@@ -0,0 +1,56 @@
+package com.gemini.jobcoin.verticles;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson readTree on the payloads parsed for each handler, configured the same way as
+ * the HTTP server's and handlers' mappers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerJsonBenchmark {
+
+    private static final String REGISTER = "[\"5gJkRk2eYVeWZPvuw9v3u9XuKzFbS1Qa\",\"qV2Ko8m2aXsQ9v7fQzJ4r0WcL1hN6tBy\",\"Zk8dP3sE1nR5yT2uW9vX4aB7cD0fG6hJ\"]";
+
+    private static final String SEND = "{\"fromAddress\":\"Alice\",\"toAddress\":\"5gJkRk2eYVeWZPvuw9v3u9XuKzFbS1Qa\",\"amount\":125.014}";
+
+    private static final String PARAMS = "{\"requestId\":\"4c5f1a8e-8a8e-4b5e-9d3c-2f0c8f6e7b1a\"}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final ObjectMapper sendMapper = new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    @Benchmark
+    public JsonNode register() throws JsonProcessingException {
+        return mapper.readTree(REGISTER);
+    }
+
+    @Benchmark
+    public JsonNode send() throws JsonProcessingException {
+        return sendMapper.readTree(SEND);
+    }
+
+    @Benchmark
+    public JsonNode queryParams() throws JsonProcessingException {
+        return mapper.readTree(PARAMS);
+    }
+}
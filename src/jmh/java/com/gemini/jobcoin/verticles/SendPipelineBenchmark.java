@@ -0,0 +1,101 @@
+package com.gemini.jobcoin.verticles;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.gemini.jobcoin.external.http.GeminiClient;
+import com.gemini.jobcoin.external.persistence.InMemoryKVStore;
+import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.external.persistence.TimeOrderedIdGenerator;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.gemini.jobcoin.constant.Routes.SEND_VERTX_V1;
+
+/**
+ * Time until a send is answered, with the default pipeline which answers once both
+ * transfers are done and the engine registered the send, and with early
+ * acknowledgement which answers once the send is journaled. Gemini transfers are
+ * stubbed to take GEMINI_MS each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SendPipelineBenchmark {
+
+    private static final long GEMINI_MS = 5;
+
+    private static final String SEND = JsonNodeFactory.instance.objectNode()
+            .put("fromAddress", "Alice")
+            .put("toAddress", "DEPOSIT")
+            .put("amount", 1.5)
+            .toString();
+
+    @Param({"false", "true"})
+    public boolean earlyAck;
+
+    private Vertx vertx;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        final GeminiClient geminiClient = new GeminiClient(HttpClient.newHttpClient()) {
+            @Override
+            public CompletableFuture<HttpResponse<String>> transferAmountAsync(final String fromAddress,
+                                                                               final String toAddress,
+                                                                               long amount) {
+                return CompletableFuture.supplyAsync(() -> null,
+                        CompletableFuture.delayedExecutor(GEMINI_MS, TimeUnit.MILLISECONDS));
+            }
+        };
+        final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
+        depositAddressStore.put("DEPOSIT", Arrays.asList("Bob", "Carol"));
+        final TimeOrderedIdGenerator requestIdGenerator = new TimeOrderedIdGenerator(0);
+
+        // payouts are scheduled far enough out not to run during the benchmark
+        vertx.deployVerticle(new MixingEngine(depositAddressStore, new InMemoryKVStore<>(), requestIdGenerator,
+                geminiClient, 600_000, 300_000, 3, 2))
+                .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        vertx.deployVerticle(earlyAck
+                        ? SendHandler.builder(geminiClient, depositAddressStore)
+                                .earlyAck(true)
+                                .requestIdGenerator(requestIdGenerator)
+                                .build()
+                        : new SendHandler(geminiClient, depositAddressStore),
+                new DeploymentOptions().setWorker(true))
+                .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public Object send() throws Exception {
+        return vertx.eventBus().request(SEND_VERTX_V1, SEND)
+                .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+                .body();
+    }
+}
@@ -0,0 +1,148 @@
+package com.gemini.jobcoin;
+
+import com.gemini.jobcoin.metrics.MetricsRegistry;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.gemini.jobcoin.constant.Routes.BALANCE_V1;
+import static com.gemini.jobcoin.constant.Routes.MIXING_STATUS_V1;
+import static com.gemini.jobcoin.constant.Routes.REGISTER_V1;
+import static com.gemini.jobcoin.constant.Routes.SEND_V1;
+
+/**
+ * Bounds the number of requests in flight per route, shared by every HTTP server
+ * instance. A request over the limit is rejected straight away with a 503 and a
+ * Retry-After header instead of being queued on the event bus, so under a burst latency
+ * stays bounded and clients back off.
+ *
+ * Limits are read from system properties, 0 disables the limit of a route:
+ *
+ *   -Djobcoin.admission.send=256
+ *   -Djobcoin.admission.register=1024            also covers /v1/register/batch
+ *   -Djobcoin.admission.balance=256
+ *   -Djobcoin.admission.mixingStatus=1024        also covers /v1/mixingStatus/batch
+ *   -Djobcoin.admission.retryAfter=1             seconds sent in Retry-After
+ *
+ * Rejections are counted per route, a route which keeps rejecting while its handler
+ * has spare capacity needs a higher limit.
+ */
+public class AdmissionController {
+
+    private final Map<String, Permits> permits;
+
+    private final int retryAfterSeconds;
+
+    /**
+     * @param limits in flight requests allowed per route, routes without a limit are not bounded
+     * @param retryAfterSeconds sent to rejected clients
+     */
+    public AdmissionController(final Map<String, Integer> limits, int retryAfterSeconds) {
+        final Map<String, Permits> permits = new HashMap<>();
+        for (Map.Entry<String, Integer> e : limits.entrySet()) {
+            if (e.getValue() < 0) {
+                throw new IllegalArgumentException(String.format("Limit of %s must not be negative", e.getKey()));
+            }
+            permits.put(e.getKey(), new Permits(e.getValue() == 0 ? Integer.MAX_VALUE : e.getValue()));
+        }
+        this.permits = Collections.unmodifiableMap(permits);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return controller which admits every request
+     */
+    public static AdmissionController unlimited() {
+        return new AdmissionController(Collections.emptyMap(), 1);
+    }
+
+    public static AdmissionController fromSystemProperties() {
+        final Map<String, Integer> limits = new HashMap<>();
+        limits.put(SEND_V1, Integer.getInteger("jobcoin.admission.send", 256));
+        limits.put(REGISTER_V1, Integer.getInteger("jobcoin.admission.register", 1024));
+        limits.put(BALANCE_V1, Integer.getInteger("jobcoin.admission.balance", 256));
+        limits.put(MIXING_STATUS_V1, Integer.getInteger("jobcoin.admission.mixingStatus", 1024));
+        return new AdmissionController(limits, Integer.getInteger("jobcoin.admission.retryAfter", 1));
+    }
+
+    /**
+     * Resolved once when the routes are built, so admitting a request is a single CAS.
+     *
+     * @return permits of the route, unbounded if the route has no limit
+     */
+    public Permits permits(final String route) {
+        return permits.getOrDefault(route, new Permits(Integer.MAX_VALUE));
+    }
+
+    public int retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Exports the in flight count and rejections of every route with a limit.
+     *
+     * @param metrics to export to
+     */
+    public void exportTo(final MetricsRegistry metrics) {
+        for (Map.Entry<String, Permits> e : permits.entrySet()) {
+            final Permits routePermits = e.getValue();
+            metrics.gauge("jobcoin_admission_in_flight", "Requests in flight by route",
+                    routePermits::inFlight, "route", e.getKey());
+            metrics.counter("jobcoin_admission_rejected_total", "Requests shed by route",
+                    routePermits::rejected, "route", e.getKey());
+        }
+    }
+
+    /**
+     * In flight counter of a single route.
+     */
+    public static final class Permits {
+
+        private final int limit;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final LongAdder rejected = new LongAdder();
+
+        Permits(int limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * @return true if the request is admitted, it must then be released once answered
+         */
+        public boolean tryAcquire() {
+            int current;
+            do {
+                current = inFlight.get();
+                if (current >= limit) {
+                    rejected.increment();
+                    return false;
+                }
+            } while (!inFlight.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        public void release() {
+            inFlight.decrementAndGet();
+        }
+
+        public int limit() {
+            return limit;
+        }
+
+        public int inFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * @return number of requests rejected since startup
+         */
+        public long rejected() {
+            return rejected.sum();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.gemini.jobcoin;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.gemini.jobcoin.constant.Routes.MIXING_STATUS_BATCH_V1;
+import static com.gemini.jobcoin.constant.Routes.REGISTER_BATCH_V1;
+import static com.gemini.jobcoin.constant.Routes.REGISTER_V1;
+import static com.gemini.jobcoin.constant.Routes.SEND_V1;
+
+/**
+ * Startup configuration of the HTTP server.
+ *
+ * Read from system properties so the transport can be changed per host without
+ * recompiling:
+ *
+ *   -Djobcoin.http.port=8111             TCP port to listen on
+ *   -Djobcoin.http.instances=<n>         HTTP server instances, defaults to the core count
+ *   -Djobcoin.http.native=true           use the native epoll transport (Linux only) and
+ *                                        enable TCP_FASTOPEN / TCP_QUICKACK
+ *   -Djobcoin.http.socket=<path>         also listen on a Unix domain socket, for a local
+ *                                        sidecar proxy (requires jobcoin.http.native)
+ *
+ * Request bodies larger then the limit of their route are rejected with a 413, as soon
+ * as the Content-Length or the bytes received so far are over it:
+ *
+ *   -Djobcoin.http.maxBody.send=16384
+ *   -Djobcoin.http.maxBody.register=262144
+ *   -Djobcoin.http.maxBody.registerBatch=8388608
+ *   -Djobcoin.http.maxBody.mixingStatusBatch=8388608
+ *
+ * A request whose handler has not replied within the reply timeout is answered with a
+ * 504, a send with an Idempotency-Key keeps waiting on its handler after that so a retry
+ * gets the send's actual outcome:
+ *
+ *   -Djobcoin.http.replyTimeoutMs=30000
+ */
+public class HttpServerConfig {
+
+    public static final long DEFAULT_MAX_BODY_BYTES = 64L * 1024;
+
+    public static final long DEFAULT_REPLY_TIMEOUT_MS = 30_000;
+
+    private final int port;
+
+    private final int instances;
+
+    private final boolean nativeTransport;
+
+    private final String domainSocketPath;
+
+    private final Map<String, Long> maxBodyBytes;
+
+    private final long replyTimeoutMs;
+
+    /**
+     * @param port to listen on
+     * @param instances of the HTTP server to deploy
+     * @param nativeTransport true to prefer the native transport
+     * @param domainSocketPath of the Unix domain socket to also listen on, null for none
+     */
+    public HttpServerConfig(int port,
+                            int instances,
+                            boolean nativeTransport,
+                            final String domainSocketPath) {
+        this(port, instances, nativeTransport, domainSocketPath, defaultMaxBodyBytes(), DEFAULT_REPLY_TIMEOUT_MS);
+    }
+
+    /**
+     * @param port to listen on
+     * @param instances of the HTTP server to deploy
+     * @param nativeTransport true to prefer the native transport
+     * @param domainSocketPath of the Unix domain socket to also listen on, null for none
+     * @param maxBodyBytes request body limit by route, routes left out get DEFAULT_MAX_BODY_BYTES
+     * @param replyTimeoutMs how long a request waits on its handler before it is answered with a 504
+     */
+    public HttpServerConfig(int port,
+                            int instances,
+                            boolean nativeTransport,
+                            final String domainSocketPath,
+                            final Map<String, Long> maxBodyBytes,
+                            long replyTimeoutMs) {
+        if (instances <= 0) {
+            throw new IllegalArgumentException("instances must be greater then 0");
+        }
+        if (domainSocketPath != null && !nativeTransport) {
+            throw new IllegalArgumentException("A Unix domain socket requires the native transport");
+        }
+        if (replyTimeoutMs <= 0) {
+            throw new IllegalArgumentException("replyTimeoutMs must be greater then 0");
+        }
+        this.port = port;
+        this.instances = instances;
+        this.nativeTransport = nativeTransport;
+        this.domainSocketPath = domainSocketPath;
+        for (Map.Entry<String, Long> e : maxBodyBytes.entrySet()) {
+            if (e.getValue() <= 0) {
+                throw new IllegalArgumentException(String.format("Body limit of %s must be greater then 0", e.getKey()));
+            }
+        }
+        this.maxBodyBytes = Collections.unmodifiableMap(new HashMap<>(maxBodyBytes));
+        this.replyTimeoutMs = replyTimeoutMs;
+    }
+
+    /**
+     * @return TCP only configuration on the given port, using the default NIO transport
+     */
+    public static HttpServerConfig tcp(int port) {
+        return new HttpServerConfig(port, 1, false, null);
+    }
+
+    public static HttpServerConfig fromSystemProperties() {
+        final Map<String, Long> maxBodyBytes = defaultMaxBodyBytes();
+        maxBodyBytes.put(SEND_V1, Long.getLong("jobcoin.http.maxBody.send", maxBodyBytes.get(SEND_V1)));
+        maxBodyBytes.put(REGISTER_V1, Long.getLong("jobcoin.http.maxBody.register", maxBodyBytes.get(REGISTER_V1)));
+        maxBodyBytes.put(REGISTER_BATCH_V1,
+                Long.getLong("jobcoin.http.maxBody.registerBatch", maxBodyBytes.get(REGISTER_BATCH_V1)));
+        maxBodyBytes.put(MIXING_STATUS_BATCH_V1,
+                Long.getLong("jobcoin.http.maxBody.mixingStatusBatch", maxBodyBytes.get(MIXING_STATUS_BATCH_V1)));
+        return new HttpServerConfig(
+                Integer.getInteger("jobcoin.http.port", JobcoinHttpServer.DEFAULT_PORT),
+                Integer.getInteger("jobcoin.http.instances", Runtime.getRuntime().availableProcessors()),
+                Boolean.getBoolean("jobcoin.http.native"),
+                System.getProperty("jobcoin.http.socket"),
+                maxBodyBytes,
+                Long.getLong("jobcoin.http.replyTimeoutMs", DEFAULT_REPLY_TIMEOUT_MS));
+    }
+
+    /**
+     * @return body limits sized for the largest valid payload of each route, a batch of
+     * 100000 request ids or 1000 address lists fits in 8MB
+     */
+    public static Map<String, Long> defaultMaxBodyBytes() {
+        final Map<String, Long> maxBodyBytes = new HashMap<>();
+        maxBodyBytes.put(SEND_V1, 16L * 1024);
+        maxBodyBytes.put(REGISTER_V1, 256L * 1024);
+        maxBodyBytes.put(REGISTER_BATCH_V1, 8L * 1024 * 1024);
+        maxBodyBytes.put(MIXING_STATUS_BATCH_V1, 8L * 1024 * 1024);
+        return maxBodyBytes;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    public int instances() {
+        return instances;
+    }
+
+    public boolean nativeTransport() {
+        return nativeTransport;
+    }
+
+    /**
+     * @return largest request body accepted on the route
+     */
+    public long maxBodyBytes(final String route) {
+        return maxBodyBytes.getOrDefault(route, DEFAULT_MAX_BODY_BYTES);
+    }
+
+    /**
+     * @return ms a request waits on its handler before it is answered with a 504
+     */
+    public long replyTimeoutMs() {
+        return replyTimeoutMs;
+    }
+
+    /**
+     * @return path of the Unix domain socket, null if not enabled
+     */
+    public String domainSocketPath() {
+        return domainSocketPath;
+    }
+}
@@ -0,0 +1,193 @@
+package com.gemini.jobcoin;
+
+import com.gemini.jobcoin.metrics.MetricsRegistry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Responses of requests sent with an Idempotency-Key header, shared by every HTTP server
+ * instance. A client retrying a request with the same key gets the stored response
+ * instead of the request running again, a retry arriving while the first request is
+ * still in flight waits for its response.
+ *
+ * Keys are spread over striped maps kept in insertion order, so every operation is a
+ * hash lookup under the lock of one stripe. Entries expire after the TTL and each stripe
+ * holds at most its share of maxEntries, the oldest entries are dropped first.
+ *
+ * Limits are read from system properties:
+ *
+ *   -Djobcoin.idempotency.ttlSeconds=86400
+ *   -Djobcoin.idempotency.maxEntries=100000
+ */
+public class IdempotencyCache {
+
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final long ttlNanos;
+
+    private final int maxEntriesPerStripe;
+
+    private final LongAdder replayed = new LongAdder();
+
+    /**
+     * @param ttl how long a response is replayed for
+     * @param unit of the ttl
+     * @param maxEntries maximum number of keys held
+     */
+    public IdempotencyCache(long ttl, final TimeUnit unit, int maxEntries) {
+        if (maxEntries < STRIPES) {
+            throw new IllegalArgumentException(String.format("maxEntries must be at least %d", STRIPES));
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.ttlNanos = unit.toNanos(ttl);
+        this.maxEntriesPerStripe = maxEntries / STRIPES;
+    }
+
+    public static IdempotencyCache fromSystemProperties() {
+        return new IdempotencyCache(
+                Long.getLong("jobcoin.idempotency.ttlSeconds", TimeUnit.DAYS.toSeconds(1)), TimeUnit.SECONDS,
+                Integer.getInteger("jobcoin.idempotency.maxEntries", 100_000));
+    }
+
+    /**
+     * Stores the entry unless the key already has one which has not expired.
+     *
+     * @param key sent by the client
+     * @param entry to store, the caller then runs the request and completes it
+     * @return the entry already stored, null if the caller's entry was stored
+     */
+    public Entry putIfAbsent(final String key, final Entry entry) {
+        final Stripe stripe = stripes[spread(key.hashCode()) & (STRIPES - 1)];
+        final long now = System.nanoTime();
+        synchronized (stripe) {
+            stripe.expire(now, ttlNanos);
+            final Entry existing = stripe.entries.get(key);
+            if (existing != null) {
+                replayed.increment();
+                return existing;
+            }
+            if (stripe.entries.size() >= maxEntriesPerStripe) {
+                final Iterator<Entry> eldest = stripe.entries.values().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+            entry.storedAt = now;
+            stripe.entries.put(key, entry);
+            return null;
+        }
+    }
+
+    /**
+     * Removes the entry of a key, only if it is still the one stored, so a request whose
+     * outcome is not final can be retried with its key.
+     *
+     * @return true if the entry was removed
+     */
+    public boolean remove(final String key, final Entry entry) {
+        final Stripe stripe = stripes[spread(key.hashCode()) & (STRIPES - 1)];
+        synchronized (stripe) {
+            return stripe.entries.remove(key, entry);
+        }
+    }
+
+    /**
+     * @return requests answered with a response stored under their key, or still waiting on it
+     */
+    public long replayed() {
+        return replayed.sum();
+    }
+
+    /**
+     * @return number of keys currently held
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public void exportTo(final MetricsRegistry metrics) {
+        metrics.gauge("jobcoin_idempotency_keys", "Idempotency keys held", this::size);
+        metrics.counter("jobcoin_idempotency_replayed_total",
+                "Requests answered with the response stored under their Idempotency-Key", this::replayed);
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Response stored under a key, completed once the request which stored it has been
+     * answered.
+     */
+    public static final class Entry {
+
+        private final long fingerprint;
+
+        private final CompletableFuture<Response> response = new CompletableFuture<>();
+
+        private long storedAt;      // guarded by the stripe
+
+        /**
+         * @param fingerprint of the request payload, a key reused with another payload is rejected
+         */
+        public Entry(long fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * @return true if the other entry was built from the same payload
+         */
+        public boolean matches(final Entry other) {
+            return fingerprint == other.fingerprint;
+        }
+
+        public CompletableFuture<Response> response() {
+            return response;
+        }
+
+        public void complete(final Response response) {
+            this.response.complete(response);
+        }
+    }
+
+    /**
+     * Status code and body written to the client.
+     */
+    public static final class Response {
+
+        public final int statusCode;
+
+        public final String body;
+
+        public Response(int statusCode, final String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+    }
+
+    private static final class Stripe {
+
+        // insertion order is also expiry order as every entry lives for the same TTL
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+        void expire(long now, long ttlNanos) {
+            final Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext() && now - it.next().storedAt >= ttlNanos) {
+                it.remove();
+            }
+        }
+    }
+}
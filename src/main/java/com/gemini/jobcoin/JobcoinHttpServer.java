@@ -1,104 +1,542 @@
 package com.gemini.jobcoin;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gemini.jobcoin.exception.JobcoinException;
+import com.gemini.jobcoin.exception.JsonRequestException;
+import com.gemini.jobcoin.helper.JsonBodyParser;
+import com.gemini.jobcoin.message.Codecs;
+import com.gemini.jobcoin.message.JobcoinResponse;
+import com.gemini.jobcoin.message.MixingEvent;
+import com.gemini.jobcoin.message.MixingStatuses;
+import com.gemini.jobcoin.metrics.Histogram;
+import com.gemini.jobcoin.metrics.MetricsRegistry;
+import com.gemini.jobcoin.verticles.MixingStatusLookup;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.eventbus.ReplyException;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.net.SocketAddress;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
 
 import static com.gemini.jobcoin.constant.Routes.BALANCE_V1;
 import static com.gemini.jobcoin.constant.Routes.COMMANDS_V1;
+import static com.gemini.jobcoin.constant.Routes.METRICS;
+import static com.gemini.jobcoin.constant.Routes.MIXING_EVENTS_V1;
+import static com.gemini.jobcoin.constant.Routes.MIXING_STATUS_BATCH_V1;
+import static com.gemini.jobcoin.constant.Routes.MIXING_STATUS_BATCH_VERTX_V1;
 import static com.gemini.jobcoin.constant.Routes.MIXING_STATUS_V1;
 import static com.gemini.jobcoin.constant.Routes.MIXING_STATUS_VERTX_V1;
+import static com.gemini.jobcoin.constant.Routes.REGISTER_BATCH_V1;
 import static com.gemini.jobcoin.constant.Routes.REGISTER_V1;
 import static com.gemini.jobcoin.constant.Routes.SEND_V1;
 
 import static com.gemini.jobcoin.constant.Routes.BALANCE_VERTX_V1;
+import static com.gemini.jobcoin.constant.Routes.REGISTER_BATCH_VERTX_V1;
 import static com.gemini.jobcoin.constant.Routes.REGISTER_VERTX_V1;
 import static com.gemini.jobcoin.constant.Routes.SEND_VERTX_V1;
 import static com.gemini.jobcoin.constant.Routes.STATUS;
 import static com.gemini.jobcoin.constant.Web.APPLICATION_JSON;
+import static com.gemini.jobcoin.constant.Web.CONNECTION;
+import static com.gemini.jobcoin.constant.Web.CONTENT_LENGTH;
 import static com.gemini.jobcoin.constant.Web.CONTENT_TYPE;
+import static com.gemini.jobcoin.constant.Web.IDEMPOTENCY_KEY;
+import static com.gemini.jobcoin.constant.Web.IDEMPOTENT_REPLAYED;
+import static com.gemini.jobcoin.constant.Web.RETRY_AFTER;
 
-
+/**
+ * HTTP front end of the mixer, requests are parsed and routed onto the event bus.
+ *
+ * The verticle is meant to be deployed as several instances which all listen on the
+ * same port, Vert.x then spreads connections round robin across the instances so each
+ * runs on its own event loop. Every instance builds its own Router and ObjectMapper in
+ * start, the only state shared between instances are the immutable pre-encoded status
+ * and commands payloads and the lock free counters of the AdmissionController, which
+ * bounds the requests in flight per route.
+ *
+ * Sends carrying an Idempotency-Key header are answered from the IdempotencyCache when
+ * the key was seen before, so a client retrying a timed out send does not move funds
+ * twice.
+ *
+ * Status checks of a single request only read in memory stores, given a
+ * MixingStatusLookup they are answered on the event loop with a pre-encoded Buffer
+ * instead of an event bus round trip to a worker. The status and commands payloads are
+ * encoded once as well.
+ *
+ * Every route but the mixing event streams is timed into a per route latency
+ * histogram, shed requests included, and the whole MetricsRegistry is served in the
+ * Prometheus text format on /metrics.
+ *
+ * With the native transport TCP_FASTOPEN and TCP_QUICKACK are enabled, and the same
+ * router can also be served on a Unix domain socket for a local sidecar proxy, see
+ * HttpServerConfig.
+ */
 public class JobcoinHttpServer extends AbstractVerticle {
 
+    public static final int DEFAULT_PORT = 8111;
+
+    private static final Buffer STATUS_UP_JSON = Buffer.buffer(JsonNodeFactory.instance.objectNode()
+            .put("Jobcoin Mixer", "All Systems Operational").toString());
+
+    private static final Buffer COMMANDS_JSON = Buffer.buffer(commandsJson());
+
+    // request ids per chunk of a streamed bulk mixing status response
+    static final int STATUS_CHUNK = 1024;
+
+    // comment sent on idle mixing event streams so proxies do not time them out
+    private static final long HEARTBEAT_MS = 15_000;
+
+    private static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    // how long a send with an Idempotency-Key is still waited on after its client got a 504,
+    // past it the send is given up on and the key can be retried
+    private static final long IDEMPOTENT_SEND_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+
+    // floats are read as BigDecimal so amounts are converted to minor units exactly
+    private final ObjectMapper mapper = new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    private final HttpServerConfig config;
+
+    private final AdmissionController admission;
+
+    private final MetricsRegistry metrics;
+
+    private final IdempotencyCache idempotency;
+
+    private final MixingStatusLookup statusLookup;
+
+    private final DeliveryOptions delivery;
+
+    private final DeliveryOptions idempotentDelivery;
+
+    public JobcoinHttpServer() {
+        this(DEFAULT_PORT);
+    }
+
+    /**
+     * @param port to listen on, shared by every instance deployed
+     */
+    public JobcoinHttpServer(int port) {
+        this(builder(HttpServerConfig.tcp(port)));
+    }
+
+    private JobcoinHttpServer(final Builder builder) {
+        this.config = builder.config;
+        this.admission = builder.admission;
+        this.metrics = builder.metrics;
+        this.idempotency = builder.idempotency;
+        this.statusLookup = builder.statusLookup;
+        this.delivery = new DeliveryOptions(Codecs.JSON).setSendTimeout(config.replyTimeoutMs());
+        this.idempotentDelivery = new DeliveryOptions(Codecs.JSON)
+                .setSendTimeout(Math.max(IDEMPOTENT_SEND_TIMEOUT_MS, config.replyTimeoutMs()));
+    }
+
+    /**
+     * @param config of the listeners, shared by every instance deployed
+     * @return builder of a server without admission limits, with its own metrics and
+     * idempotency keys, which sends mixing status checks to the MixingStatusHandler
+     */
+    public static Builder builder(final HttpServerConfig config) {
+        return new Builder(config);
+    }
+
+    /**
+     * Optional collaborators of a server. The server is deployed once per instance, anything
+     * passed here is shared by every instance built from the same builder arguments.
+     */
+    public static final class Builder {
+
+        private final HttpServerConfig config;
+
+        private AdmissionController admission = AdmissionController.unlimited();
+
+        private MetricsRegistry metrics = new MetricsRegistry();
+
+        private IdempotencyCache idempotency = IdempotencyCache.fromSystemProperties();
+
+        private MixingStatusLookup statusLookup;
+
+        private Builder(final HttpServerConfig config) {
+            this.config = config;
+        }
+
+        /**
+         * @param admission in flight limits per route
+         */
+        public Builder admission(final AdmissionController admission) {
+            this.admission = admission;
+            return this;
+        }
+
+        /**
+         * @param metrics to record request latency in and to serve on /metrics
+         */
+        public Builder metrics(final MetricsRegistry metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @param idempotency responses of sends by Idempotency-Key, shared by every instance
+         *                    so a retry landing on another event loop is still deduplicated
+         */
+        public Builder idempotency(final IdempotencyCache idempotency) {
+            this.idempotency = idempotency;
+            return this;
+        }
+
+        /**
+         * @param statusLookup to answer mixing status checks on the event loop, null to send
+         *                     them to the MixingStatusHandler
+         */
+        public Builder statusLookup(final MixingStatusLookup statusLookup) {
+            this.statusLookup = statusLookup;
+            return this;
+        }
+
+        public JobcoinHttpServer build() {
+            return new JobcoinHttpServer(this);
+        }
+    }
+
     @Override
-    public void start() {
+    public void start(final Promise<Void> startPromise) {
+        Codecs.register(vertx);
 
-        final HttpServer httpServer = vertx.createHttpServer();
+        if (config.domainSocketPath() != null && !vertx.isNativeTransportEnabled()) {
+            startPromise.fail("Unix domain socket requested but the native transport is not available");
+            return;
+        }
+        final HttpServerOptions options = new HttpServerOptions();
+        if (vertx.isNativeTransportEnabled()) {
+            options.setTcpFastOpen(true).setTcpQuickAck(true);
+        }
 
         final Router router = Router.router(vertx);
 
-        router.route(HttpMethod.GET, STATUS).handler(this::jobcoinUp);
-        router.route(HttpMethod.GET, COMMANDS_V1).handler(this::getCommands);
-        router.route(HttpMethod.GET, BALANCE_V1).handler(ctx -> getHandler(ctx, BALANCE_VERTX_V1));
-        router.route(HttpMethod.GET, MIXING_STATUS_V1).handler(ctx -> getHandler(ctx, MIXING_STATUS_VERTX_V1));
-        router.route(HttpMethod.POST, REGISTER_V1).handler(ctx -> postHandler(ctx, REGISTER_VERTX_V1));
-        router.route(HttpMethod.POST, SEND_V1).handler(ctx -> postHandler(ctx, SEND_VERTX_V1));
+        router.route(HttpMethod.GET, STATUS).handler(timed(HttpMethod.GET, STATUS, this::jobcoinUp));
+        router.route(HttpMethod.GET, METRICS).handler(this::getMetrics);
+        router.route(HttpMethod.GET, COMMANDS_V1).handler(timed(HttpMethod.GET, COMMANDS_V1, this::getCommands));
+        // streams stay open until the request completes, their duration is not a latency
+        router.route(HttpMethod.GET, MIXING_EVENTS_V1).handler(this::mixingEvents);
 
-        httpServer
+        // batch routes count against the limit of their single request route
+        final AdmissionController.Permits balance = admission.permits(BALANCE_V1);
+        final AdmissionController.Permits mixingStatus = admission.permits(MIXING_STATUS_V1);
+        final AdmissionController.Permits register = admission.permits(REGISTER_V1);
+        final AdmissionController.Permits send = admission.permits(SEND_V1);
+        router.route(HttpMethod.GET, BALANCE_V1).handler(timed(HttpMethod.GET, BALANCE_V1,
+                admitted(balance, ctx -> getHandler(ctx, BALANCE_VERTX_V1))));
+        router.route(HttpMethod.GET, MIXING_STATUS_V1).handler(timed(HttpMethod.GET, MIXING_STATUS_V1,
+                admitted(mixingStatus, statusLookup != null
+                        ? this::getMixingStatus
+                        : ctx -> getHandler(ctx, MIXING_STATUS_VERTX_V1))));
+        router.route(HttpMethod.GET, MIXING_STATUS_BATCH_V1).handler(timed(HttpMethod.GET, MIXING_STATUS_BATCH_V1,
+                admitted(mixingStatus, this::getMixingStatuses)));
+        router.route(HttpMethod.POST, MIXING_STATUS_BATCH_V1).handler(timed(HttpMethod.POST, MIXING_STATUS_BATCH_V1,
+                admitted(mixingStatus, this::postMixingStatuses)));
+        router.route(HttpMethod.POST, REGISTER_V1).handler(timed(HttpMethod.POST, REGISTER_V1,
+                admitted(register, ctx -> postHandler(ctx, REGISTER_VERTX_V1))));
+        router.route(HttpMethod.POST, REGISTER_BATCH_V1).handler(timed(HttpMethod.POST, REGISTER_BATCH_V1,
+                admitted(register, ctx -> postHandler(ctx, REGISTER_BATCH_VERTX_V1))));
+        router.route(HttpMethod.POST, SEND_V1).handler(timed(HttpMethod.POST, SEND_V1,
+                admitted(send, ctx -> idempotentPostHandler(ctx, SEND_VERTX_V1))));
+
+        final Future<HttpServer> tcp = vertx.createHttpServer(options)
                 .requestHandler(router)
-                .listen(8111);
-    }
+                .listen(config.port());
 
-    public static void successResponse(final Message<?> message,
-                                       final String msg) {
-        final ObjectNode response = JsonNodeFactory.instance.objectNode()
-                .put("status", "succeeded")
-                .put("message", msg);
-        message.reply(response.toString());
+        if (config.domainSocketPath() == null) {
+            tcp.<Void>mapEmpty().onComplete(startPromise);
+            return;
+        }
+        final Future<HttpServer> domainSocket = vertx.createHttpServer()
+                .requestHandler(router)
+                .listen(SocketAddress.domainSocketAddress(config.domainSocketPath()));
+
+        CompositeFuture.all(tcp, domainSocket).<Void>mapEmpty().onComplete(startPromise);
     }
 
     public static void successResponse(final Message<?> message,
                                        final JsonNode msg) {
-        final ObjectNode response = JsonNodeFactory.instance.objectNode()
-                .put("status", "succeeded")
-                .set("message", msg);
-        message.reply(response.toString());
+        message.reply(new JobcoinResponse(msg));
+    }
+
+    /**
+     * Replies with a 202, the request was durably queued but has not been processed yet.
+     *
+     * @param message to reply to
+     * @param msg returned to the client
+     */
+    public static void acceptedResponse(final Message<?> message,
+                                        final JsonNode msg) {
+        message.reply(new JobcoinResponse(msg, 202));
     }
 
+    /**
+     * Fails the message with a plain text error, the HTTP server wraps it into the json
+     * error payload returned to the client.
+     *
+     * @param message to fail
+     * @param errorMsg returned to the client
+     * @param errorCode HTTP status code returned to the client
+     */
     public static void errorResponse(final Message<?> message,
                                      final String errorMsg,
                                      int errorCode) {
-        final ObjectNode response = JsonNodeFactory.instance.objectNode()
-                .put("message", errorMsg)
-                .put("status", "failed");
-        message.fail(errorCode, response.toString());
+        message.fail(errorCode, errorMsg);
+    }
+
+    /**
+     * Wraps a route's handler to record the time from routing the request until its
+     * response ends, or the connection closes, into the route's latency histogram. The
+     * histogram is looked up once per route, not per request.
+     *
+     * @param method of the route
+     * @param route path of the route
+     * @param handler to time
+     * @return handler to register on the route
+     */
+    private Handler<RoutingContext> timed(final HttpMethod method,
+                                          final String route,
+                                          final Handler<RoutingContext> handler) {
+        final Histogram latency = metrics.histogram("jobcoin_http_request_duration_seconds",
+                "Latency of HTTP requests by route", "method", method.name(), "route", route);
+        return ctx -> {
+            final long start = System.nanoTime();
+            ctx.addEndHandler(v -> latency.recordSince(start));
+            handler.handle(ctx);
+        };
+    }
+
+    /**
+     * Wraps a route's handler so requests over the route's in flight limit are rejected
+     * with a 503 before anything is parsed or sent on the event bus. The permit is
+     * released once the response ends or the connection closes.
+     *
+     * @param permits of the route
+     * @param handler of admitted requests
+     * @return handler to register on the route
+     */
+    private Handler<RoutingContext> admitted(final AdmissionController.Permits permits,
+                                             final Handler<RoutingContext> handler) {
+        final String retryAfter = String.valueOf(admission.retryAfterSeconds());
+        return ctx -> {
+            if (!permits.tryAcquire()) {
+                ctx.response()
+                        .putHeader(RETRY_AFTER, retryAfter)
+                        .setStatusCode(503)
+                        .end(errorJson("Too many requests in flight, retry later"));
+                return;
+            }
+            ctx.addEndHandler(v -> permits.release());
+            handler.handle(ctx);
+        };
     }
 
     /**
      * Generic POST handler manages logic required for publishing messages onto the
      * event bus and getting the response asynchronously.
      *
+     * The body is parsed once here and the resulting JsonNode is passed to the handler
+     * without being serialized again.
+     *
      * @param ctx for request
      * @param route on the event bus to send message to
      */
     private void postHandler(final RoutingContext ctx, final String route) {
-        ctx.request().bodyHandler(handler -> {
-            final String body = new String(handler.getBytes(), StandardCharsets.UTF_8);
-            vertx.eventBus().request(route, body, event -> {
-                if (event.succeeded()) {
-                    ctx.response()
-                            .setStatusCode(200)
-                            .end(event.result().body().toString());
-                } else {
-                    ctx.response()
-                            .setStatusCode(((ReplyException)event.cause()).failureCode())
-                            .end(event.cause().getMessage());
+        readJson(ctx, ctx.currentRoute().getPath(), null).onComplete(read -> {
+            if (read.failed()) {
+                rejectBody(ctx, read.cause());
+                return;
+            }
+            vertx.eventBus().<JobcoinResponse>request(route, read.result(), delivery,
+                    event -> respond(ctx, event));
+        });
+    }
+
+    /**
+     * Parses the request body into a tree as it streams in, see JsonBodyParser. A
+     * Content-Length over the route's limit is rejected before any of the body is read.
+     *
+     * @param ctx for request
+     * @param path of the HTTP route, whose body limit applies
+     * @param checksum updated with the body, null for none
+     * @return tree of the body, failed with a JsonRequestException if it is too large or
+     * not valid json
+     */
+    private Future<JsonNode> readJson(final RoutingContext ctx, final String path, final Checksum checksum) {
+        final HttpServerRequest request = ctx.request();
+        final long maxBytes = config.maxBodyBytes(path);
+        final String contentLength = request.getHeader(CONTENT_LENGTH);
+        if (contentLength != null && contentLength.length() > 0 && exceeds(contentLength, maxBytes)) {
+            return Future.failedFuture(JsonBodyParser.tooLarge(maxBytes));
+        }
+        final JsonBodyParser parser = new JsonBodyParser(mapper, maxBytes, checksum);
+        final Promise<JsonNode> body = Promise.promise();
+        request.handler(chunk -> {
+            if (body.future().isComplete()) {
+                return;     // already rejected, the rest of the body is dropped
+            }
+            try {
+                parser.feed(chunk);
+            } catch (JsonRequestException e) {
+                body.fail(e);
+            }
+        });
+        request.endHandler(v -> {
+            if (body.future().isComplete()) {
+                return;
+            }
+            try {
+                body.complete(parser.end());
+            } catch (JsonRequestException e) {
+                body.fail(e);
+            }
+        });
+        request.exceptionHandler(body::tryFail);
+        return body.future();
+    }
+
+    private static boolean exceeds(final String contentLength, long maxBytes) {
+        try {
+            return Long.parseLong(contentLength) > maxBytes;
+        } catch (NumberFormatException e) {
+            return false;   // left to the codec, the body is still bounded while it is read
+        }
+    }
+
+    /**
+     * Writes the failure of reading a body. A body over the limit may still be arriving,
+     * the connection is closed rather then reading it to the end.
+     */
+    private static void rejectBody(final RoutingContext ctx, final Throwable cause) {
+        if (!(cause instanceof JsonRequestException)) {
+            ctx.response().setStatusCode(400).end(errorJson("Issue processing Json"));
+            return;
+        }
+        final JsonRequestException e = (JsonRequestException) cause;
+        if (e.getStatusCode() == 413) {
+            ctx.response()
+                    .putHeader(CONNECTION, "close")
+                    .setStatusCode(413)
+                    .end(errorJson(e.getMessage()))
+                    .onComplete(v -> ctx.request().connection().close());
+            return;
+        }
+        ctx.response()
+                .setStatusCode(e.getStatusCode())
+                .end(errorJson(e.getMessage()));
+    }
+
+    /**
+     * POST handler for routes which must not run twice for the same client request.
+     * Requests without an Idempotency-Key header are handled like any other POST.
+     *
+     * The first request with a key stores an entry before anything is sent on the event
+     * bus and completes it with the handler's response. Later requests with the key wait
+     * for that response and are answered with it, without reaching the handler. A key
+     * reused with a different payload is rejected with a 422.
+     *
+     * Only final outcomes are kept. A 503 (e.g. the mixer backlog is full) is answered and
+     * its entry removed, so a retry runs the send again. A handler still running after the
+     * reply timeout gets its client a 504 while the entry stays pending until the handler
+     * replies, a retry then gets the send's actual outcome instead of sending twice.
+     *
+     * @param ctx for request
+     * @param route on the event bus to send message to
+     */
+    private void idempotentPostHandler(final RoutingContext ctx, final String route) {
+        final String key = ctx.request().getHeader(IDEMPOTENCY_KEY);
+        if (key == null) {
+            postHandler(ctx, route);
+            return;
+        }
+        if (key.isEmpty() || key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            ctx.response()
+                    .setStatusCode(400)
+                    .end(errorJson(String.format("%s must be between 1 and %d characters",
+                            IDEMPOTENCY_KEY, MAX_IDEMPOTENCY_KEY_LENGTH)));
+            return;
+        }
+        // a body which is too large or not json never reaches the handler, it is not stored
+        final Fingerprint fingerprint = new Fingerprint();
+        readJson(ctx, ctx.currentRoute().getPath(), fingerprint).onComplete(read -> {
+            if (read.failed()) {
+                rejectBody(ctx, read.cause());
+                return;
+            }
+            final IdempotencyCache.Entry entry = new IdempotencyCache.Entry(fingerprint.value());
+            final IdempotencyCache.Entry stored = idempotency.putIfAbsent(key, entry);
+            if (stored != null) {
+                replay(ctx, stored, entry);
+                return;
+            }
+            final long timeout = vertx.setTimer(config.replyTimeoutMs(), id -> write(ctx, stillRunning()));
+            vertx.eventBus().<JobcoinResponse>request(route, read.result(), idempotentDelivery, event -> {
+                // stored even if the client has gone away, its retry gets this response
+                final IdempotencyCache.Response response = reply(event);
+                if (response.statusCode == 503 || response.statusCode == 504) {
+                    idempotency.remove(key, entry);
+                }
+                entry.complete(response);
+                if (vertx.cancelTimer(timeout)) {
+                    write(ctx, response);
                 }
             });
         });
     }
 
+    /**
+     * Answers a request with the response stored under its key, once the request which
+     * stored it has been answered, or with a 504 if that takes longer than the reply
+     * timeout. The response is written on this request's event loop.
+     */
+    private void replay(final RoutingContext ctx,
+                        final IdempotencyCache.Entry stored,
+                        final IdempotencyCache.Entry entry) {
+        if (!stored.matches(entry)) {
+            ctx.response()
+                    .setStatusCode(422)
+                    .end(errorJson(String.format("%s was already used with a different payload", IDEMPOTENCY_KEY)));
+            return;
+        }
+        final Context context = vertx.getOrCreateContext();
+        final long timeout = vertx.setTimer(config.replyTimeoutMs(), id -> write(ctx, stillRunning()));
+        stored.response().thenAccept(response -> context.runOnContext(v -> {
+            if (vertx.cancelTimer(timeout)) {
+                ctx.response().putHeader(IDEMPOTENT_REPLAYED, "true");
+                write(ctx, response);
+            }
+        }));
+    }
+
     /**
      * Generic GET handler manages logic required for publishing messages onto the
      * event bus and getting the response asynchronously.
@@ -111,21 +549,273 @@ public class JobcoinHttpServer extends AbstractVerticle {
         for (Map.Entry<String,String> e : ctx.request().params()) {
             params.put(e.getKey(), e.getValue());
         }
-        ctx.request().bodyHandler(handler -> {
-            final String s = params.toString();
-            vertx.eventBus().request(route, s, event -> {
-                if (event.succeeded()) {
-                    ctx.response()
-                            .setStatusCode(200)
-                            .end(event.result().body().toString());
-                } else {
-                    ctx.response()
-                            .setStatusCode(((ReplyException)event.cause()).failureCode())
-                            .end(event.cause().getMessage());
-                }
-            });
+        ctx.request().bodyHandler(handler -> vertx.eventBus().<JobcoinResponse>request(
+                route, params, delivery, event -> respond(ctx, event)));
+    }
+
+    /**
+     * Mixing status of a single request, looked up and written on the event loop. The
+     * validation and errors match the MixingStatusHandler's.
+     *
+     * @param ctx for request
+     */
+    private void getMixingStatus(final RoutingContext ctx) {
+        final String requestId = requestIdParam(ctx);
+        if (requestId == null) {
+            return;
+        }
+        final Buffer status;
+        try {
+            status = statusLookup.encodedStatus(requestId);
+        } catch (JobcoinException e) {
+            ctx.response()
+                    .setStatusCode(e.getStatusCode())
+                    .end(errorJson(e.getMessage()));
+            return;
+        }
+        ctx.response()
+                .putHeader(CONTENT_TYPE, APPLICATION_JSON)
+                .setStatusCode(200)
+                .end(status);
+    }
+
+    /**
+     * @return the requestId param, null if it is missing or empty in which case a 400 was written
+     */
+    private static String requestIdParam(final RoutingContext ctx) {
+        final String requestId = ctx.request().getParam("requestId");
+        if (requestId == null || requestId.isEmpty()) {
+            ctx.response()
+                    .setStatusCode(400)
+                    .end(errorJson(requestId == null
+                            ? "Payload missing [requestId]"
+                            : "[requestId] is an empty string"));
+            return null;
+        }
+        return requestId;
+    }
+
+    /**
+     * Bulk mixing status lookup with the request ids given as repeated requestId params.
+     *
+     * @param ctx for request
+     */
+    private void getMixingStatuses(final RoutingContext ctx) {
+        final ArrayNode requestIds = JsonNodeFactory.instance.arrayNode();
+        for (String requestId : ctx.request().params().getAll("requestId")) {
+            requestIds.add(requestId);
+        }
+        requestMixingStatuses(ctx, requestIds);
+    }
+
+    /**
+     * Bulk mixing status lookup with the request ids given as a json array body.
+     *
+     * @param ctx for request
+     */
+    private void postMixingStatuses(final RoutingContext ctx) {
+        readJson(ctx, MIXING_STATUS_BATCH_V1, null).onComplete(read -> {
+            if (read.failed()) {
+                rejectBody(ctx, read.cause());
+                return;
+            }
+            requestMixingStatuses(ctx, read.result());
         });
     }
+
+    private void requestMixingStatuses(final RoutingContext ctx, final JsonNode requestIds) {
+        vertx.eventBus().<MixingStatuses>request(MIXING_STATUS_BATCH_VERTX_V1, requestIds, delivery, event -> {
+            if (event.succeeded()) {
+                writeStatuses(ctx.response(), event.result().body());
+            } else {
+                respondError(ctx, (ReplyException) event.cause());
+            }
+        });
+    }
+
+    /**
+     * Small replies are written in one go, larger ones are streamed with chunked encoding
+     * STATUS_CHUNK request ids at a time, only encoding the next chunk once the
+     * connection's write queue has drained.
+     *
+     * @param response to write to
+     * @param statuses to write
+     */
+    static void writeStatuses(final HttpServerResponse response, final MixingStatuses statuses) {
+        response.putHeader(CONTENT_TYPE, APPLICATION_JSON)
+                .setStatusCode(200);
+        if (statuses.size() <= STATUS_CHUNK) {
+            response.end(statuses.encode());
+            return;
+        }
+        response.setChunked(true);
+        writeStatuses(response, statuses, 0);
+    }
+
+    private static void writeStatuses(final HttpServerResponse response,
+                                      final MixingStatuses statuses,
+                                      int from) {
+        while (from < statuses.size()) {
+            if (response.writeQueueFull()) {
+                final int next = from;
+                response.drainHandler(v -> writeStatuses(response, statuses, next));
+                return;
+            }
+            final int to = Math.min(from + STATUS_CHUNK, statuses.size());
+            response.write(statuses.encode(from, to));
+            from = to;
+        }
+        response.end();
+    }
+
+    /**
+     * Server-Sent Events stream of a request's mixing progress, replacing polling of
+     * mixingStatus. The first event is the request's current status, then a progress
+     * event is pushed each time a part is paid out. The stream ends once the request is
+     * complete, or straight away if its early acknowledged send already failed.
+     *
+     * The subscription is registered before the current status is read so no event
+     * published in between is missed. Unknown request ids fail the same way mixingStatus
+     * does.
+     *
+     * @param ctx for request
+     */
+    private void mixingEvents(final RoutingContext ctx) {
+        final String requestId = requestIdParam(ctx);
+        if (requestId == null) {
+            return;
+        }
+        final HttpServerResponse response = ctx.response();
+        final MessageConsumer<MixingEvent> consumer = vertx.eventBus()
+                .<MixingEvent>consumer(MixingEvent.address(requestId))
+                .handler(message -> {
+                    response.write(serverSentEvent("progress", message.body().encode()));
+                    if (message.body().completed()) {
+                        response.end();
+                    }
+                });
+        consumer.pause();   // events are held back until the current status is written
+
+        if (statusLookup != null) {
+            final String status;
+            try {
+                status = statusLookup.status(requestId).get("status").asText();
+            } catch (JobcoinException e) {
+                consumer.unregister();
+                response.setStatusCode(e.getStatusCode()).end(errorJson(e.getMessage()));
+                return;
+            }
+            streamMixingEvents(ctx, consumer, requestId, status);
+            return;
+        }
+        final ObjectNode params = JsonNodeFactory.instance.objectNode().put("requestId", requestId);
+        vertx.eventBus().<JobcoinResponse>request(MIXING_STATUS_VERTX_V1, params, delivery, event -> {
+            if (event.failed()) {
+                consumer.unregister();
+                respondError(ctx, (ReplyException) event.cause());
+                return;
+            }
+            streamMixingEvents(ctx, consumer, requestId,
+                    event.result().body().message().get("status").asText());
+        });
+    }
+
+    private void streamMixingEvents(final RoutingContext ctx,
+                                    final MessageConsumer<MixingEvent> consumer,
+                                    final String requestId,
+                                    final String status) {
+        final HttpServerResponse response = ctx.response();
+        response.putHeader(CONTENT_TYPE, "text/event-stream")
+                .putHeader("Cache-Control", "no-cache")
+                .setChunked(true)
+                .setStatusCode(200)
+                .write(serverSentEvent("status", JsonNodeFactory.instance.objectNode()
+                        .put("requestId", requestId)
+                        .put("status", status)
+                        .toString()));
+        if ("complete".equals(status) || "failed".equals(status)) {
+            consumer.unregister();
+            response.end();
+            return;
+        }
+        final long heartbeat = vertx.setPeriodic(HEARTBEAT_MS, id -> response.write(": heartbeat\n\n"));
+        final Handler<Void> unsubscribe = v -> {
+            vertx.cancelTimer(heartbeat);
+            consumer.unregister();
+        };
+        response.endHandler(unsubscribe)
+                .closeHandler(unsubscribe);
+        consumer.resume();
+    }
+
+    static String serverSentEvent(final String event, final String data) {
+        return "event: " + event + "\ndata: " + data + "\n\n";
+    }
+
+    /**
+     * Writes the handler's reply to the client, this is the only place a response is
+     * serialized to json.
+     *
+     * @param ctx for request
+     * @param event reply from the handler
+     */
+    private static void respond(final RoutingContext ctx,
+                                final AsyncResult<Message<JobcoinResponse>> event) {
+        write(ctx, reply(event));
+    }
+
+    private static void respondError(final RoutingContext ctx, final ReplyException e) {
+        write(ctx, errorReply(e));
+    }
+
+    private static void write(final RoutingContext ctx, final IdempotencyCache.Response response) {
+        ctx.response()
+                .setStatusCode(response.statusCode)
+                .end(response.body);
+    }
+
+    private static IdempotencyCache.Response reply(final AsyncResult<Message<JobcoinResponse>> event) {
+        if (event.succeeded()) {
+            return new IdempotencyCache.Response(event.result().body().statusCode(), event.result().body().encode());
+        }
+        return errorReply((ReplyException) event.cause());
+    }
+
+    /**
+     * A handler's failure keeps the handler's status code, event bus timeouts and
+     * missing handlers are mapped to 504 and 503.
+     *
+     * @param e failure of the request on the event bus
+     * @return response written to the client
+     */
+    private static IdempotencyCache.Response errorReply(final ReplyException e) {
+        final int statusCode;
+        switch (e.failureType()) {
+            case RECIPIENT_FAILURE:
+                statusCode = e.failureCode();
+                break;
+            case TIMEOUT:
+                statusCode = 504;
+                break;
+            default:
+                statusCode = 503;
+                break;
+        }
+        return new IdempotencyCache.Response(statusCode, errorJson(e.getMessage()));
+    }
+
+    private static IdempotencyCache.Response stillRunning() {
+        return new IdempotencyCache.Response(504, errorJson(String.format(
+                "Timed out waiting for the send, retry with the same %s for its outcome", IDEMPOTENCY_KEY)));
+    }
+
+    static String errorJson(final String errorMsg) {
+        return JsonNodeFactory.instance.objectNode()
+                .put("message", errorMsg)
+                .put("status", "failed")
+                .toString();
+    }
+
     /**
      * Returns simple json payload with http code showing Jobcoin app is operational.
      *
@@ -139,10 +829,19 @@ public class JobcoinHttpServer extends AbstractVerticle {
         ctx.response()
                 .putHeader(CONTENT_TYPE, APPLICATION_JSON)
                 .setStatusCode(200)
-                .end(
-                        JsonNodeFactory.instance.objectNode()
-                        .put("Jobcoin Mixer", "All Systems Operational").toString()
-                );
+                .end(STATUS_UP_JSON);
+    }
+
+    /**
+     * Serves every metric of the registry in the Prometheus text exposition format.
+     *
+     * @param ctx for request
+     */
+    void getMetrics(final RoutingContext ctx) {
+        ctx.response()
+                .putHeader(CONTENT_TYPE, PROMETHEUS_TEXT)
+                .setStatusCode(200)
+                .end(metrics.scrape());
     }
 
     /**
@@ -151,11 +850,22 @@ public class JobcoinHttpServer extends AbstractVerticle {
      * @param ctx for request
      */
     void getCommands(final RoutingContext ctx) {
+        ctx.response()
+                .putHeader(CONTENT_TYPE, APPLICATION_JSON)
+                .setStatusCode(200)
+                .end(COMMANDS_JSON);
+    }
+
+    private static String commandsJson() {
 
         final ObjectNode registerJson = JsonNodeFactory.instance.objectNode()
                 .put("payload", " [address 1,address 2 ... address n]")
                 .put("description", "Registers n addresses. Returns a deposit address");
 
+        final ObjectNode registerBatchJson = JsonNodeFactory.instance.objectNode()
+                .put("payload", " [[address 1 ... address n], ... [address 1 ... address m]]")
+                .put("description", "Registers up to 1000 lists of addresses. Returns a deposit address per list, in the same order");
+
         final ObjectNode sendJson = JsonNodeFactory.instance.objectNode()
                 .put("payload", "{ \"fromAddress\" : \"srcAddress\", \"toAddress\" : \"destAddress\", \"amount\" : x.xx }")
                 .put("description", "Sends [amount] from [srcAddress] to [destAddress] will register with mixer and return associated requestId to track state of mixing request, destAddress must be a depositAddress provided by Jobcoin.");
@@ -167,15 +877,60 @@ public class JobcoinHttpServer extends AbstractVerticle {
                 .put("description", "Retrieves status for [reqId], will return error if requestId" +
                         " does not exist, complete if finished, incomplete if still processing");
 
+        final ObjectNode requestIdsJson = JsonNodeFactory.instance.objectNode()
+                .put("payload", " [reqId 1,reqId 2 ... reqId n] (POST) or repeated requestId params (GET)")
+                .put("description", "Retrieves status for up to 100000 requestIds in one response, unknown" +
+                        " if the requestId does not exist, complete if finished, incomplete if still processing");
+
+        final ObjectNode requestEventsJson = JsonNodeFactory.instance.objectNode()
+                .put("description", "Server-Sent Events stream of the status of [reqId], an event is" +
+                        " pushed as each part is paid out and the stream ends once the request is complete");
+
         final ObjectNode node = JsonNodeFactory.instance.objectNode();
         node.set("/v1/register", registerJson);
+        node.set("/v1/register/batch", registerBatchJson);
         node.set("/v1/send", sendJson);
         node.set("/v1/balance?address=<balanceAddress>", balanceJson);
         node.set("/v1/mixingStatus?requestId=<reqId>", requestIdJson);
+        node.set("/v1/mixingStatus/batch", requestIdsJson);
+        node.set("/v1/mixingEvents?requestId=<reqId>", requestEventsJson);
+        return node.toString();
+    }
 
-        ctx.response()
-                .putHeader(CONTENT_TYPE, APPLICATION_JSON)
-                .setStatusCode(200)
-                .end(node.toString());
+    /**
+     * Checksum and length of a payload, telling apart payloads sent with the same key.
+     */
+    private static final class Fingerprint implements Checksum {
+
+        private final CRC32C crc = new CRC32C();
+
+        private long length;
+
+        @Override
+        public void update(int b) {
+            crc.update(b);
+            length++;
+        }
+
+        @Override
+        public void update(final byte[] b, int off, int len) {
+            crc.update(b, off, len);
+            length += len;
+        }
+
+        @Override
+        public long getValue() {
+            return crc.getValue();
+        }
+
+        @Override
+        public void reset() {
+            crc.reset();
+            length = 0;
+        }
+
+        long value() {
+            return length << 32 | crc.getValue();
+        }
     }
 }
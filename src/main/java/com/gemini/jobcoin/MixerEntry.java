@@ -1,59 +1,155 @@
 package com.gemini.jobcoin;
 
-import com.gemini.jobcoin.external.blockchain.AddressGenerator;
-import com.gemini.jobcoin.external.blockchain.JobcoinAddressGenerator;
+import com.gemini.jobcoin.external.blockchain.DepositAddressPool;
+import com.gemini.jobcoin.external.http.CachingGeminiClient;
 import com.gemini.jobcoin.external.http.GeminiClient;
 import com.gemini.jobcoin.external.persistence.InMemoryKVStore;
 import com.gemini.jobcoin.external.persistence.KVStore;
-import com.gemini.jobcoin.external.persistence.RequestIdGenerator;
+import com.gemini.jobcoin.external.persistence.MappedMixingJournal;
+import com.gemini.jobcoin.external.persistence.MixingJournal;
+import com.gemini.jobcoin.external.persistence.RequestStatusStore;
+import com.gemini.jobcoin.external.persistence.SendStage;
+import com.gemini.jobcoin.external.persistence.TimeOrderedIdGenerator;
 import com.gemini.jobcoin.external.persistence.UUIDGenerator;
+import com.gemini.jobcoin.metrics.EventBusMetrics;
+import com.gemini.jobcoin.metrics.MetricsRegistry;
+import com.gemini.jobcoin.metrics.WorkerPoolMetrics;
+import com.gemini.jobcoin.scheduler.SchedulingPolicy;
 import com.gemini.jobcoin.verticles.BalanceHandler;
+import com.gemini.jobcoin.verticles.MixingBacklog;
 import com.gemini.jobcoin.verticles.MixingEngine;
 import com.gemini.jobcoin.verticles.MixingStatusHandler;
+import com.gemini.jobcoin.verticles.MixingStatusLookup;
+import com.gemini.jobcoin.verticles.PayoutRetries;
 import com.gemini.jobcoin.verticles.RegisterHandler;
 import com.gemini.jobcoin.verticles.SendHandler;
 import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
 
+import java.io.IOException;
 import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class MixerEntry {
 
     private final static Logger logger = LoggerFactory.getLogger(MixerEntry.class);
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
 
-        final Vertx vertx = Vertx.vertx();
+        // transport, port, instances and domain socket are read from -Djobcoin.http.* properties
+        final HttpServerConfig httpConfig = HttpServerConfig.fromSystemProperties();
 
-        final GeminiClient geminiClient = new GeminiClient(
+        // scraped from /metrics, every component records into the same registry
+        final MetricsRegistry metrics = new MetricsRegistry();
+
+        final Vertx vertx = Vertx.vertx(new VertxOptions()
+                .setPreferNativeTransport(httpConfig.nativeTransport())
+                .setMetricsOptions(WorkerPoolMetrics.options(metrics)));
+        if (httpConfig.nativeTransport() && !vertx.isNativeTransportEnabled()) {
+            logger.warn("Native transport is not available, falling back to NIO");
+        }
+        EventBusMetrics.install(vertx, metrics);
+
+        // balances are cached for -Djobcoin.balance.ttlMs, transfers through this client invalidate them
+        final GeminiClient geminiClient = CachingGeminiClient.fromSystemProperties(
                 HttpClient.newBuilder()
                         .connectTimeout(Duration.ofSeconds(10))
-                        .build());
-
-        // define your worker config based on hardware etc
-        final DeploymentOptions workerOpts = new DeploymentOptions()
-                .setWorker(true)
-                .setWorkerPoolSize(2)
-                .setInstances(2);
+                        .build(),
+                metrics);
 
         final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
-        final KVStore<String,Boolean> requestStore = new InMemoryKVStore<>();
-        final UUIDGenerator requestIdGenerator = new RequestIdGenerator();
-        final AddressGenerator addressGenerator = new JobcoinAddressGenerator();
+        // request ids are stored as two longs, -Djobcoin.requestStore=map keeps the raw Strings instead
+        final KVStore<String,Boolean> requestStore = RequestStatusStore.fromSystemProperties();
+        // give every instance of the mixer sharing the same stores its own -Djobcoin.node.id
+        final UUIDGenerator requestIdGenerator = TimeOrderedIdGenerator.fromSystemProperties();
+        final DepositAddressPool addressGenerator = new DepositAddressPool();
+        metrics.gauge("jobcoin_deposit_address_pool_available", "Pre-generated deposit addresses ready to hand out",
+                addressGenerator::available);
+        metrics.counter("jobcoin_deposit_address_pool_generated_total", "Deposit addresses generated",
+                addressGenerator::generated);
+        metrics.counter("jobcoin_deposit_address_pool_exhausted_total",
+                "Deposit addresses generated inline because the pool was empty", addressGenerator::exhausted);
+        metrics.counter("jobcoin_deposit_address_pool_low_watermark_breaches_total",
+                "Times the pool dropped below its low watermark", addressGenerator::lowWatermarkBreaches);
+
+        // pending mixing requests are replayed from here on startup, -Djobcoin.journal.path puts it on durable storage
+        final MixingJournal mixingJournal = new MappedMixingJournal(
+                Paths.get(System.getProperty("jobcoin.journal.path", "jobcoin-mixing.journal")));
+
+        // -Djobcoin.send.earlyAck=true answers sends with a 202 once journaled, the transfers run afterwards
+        final boolean earlyAck = Boolean.getBoolean("jobcoin.send.earlyAck");
+        final ConcurrentMap<String, SendStage> sendStages = new ConcurrentHashMap<>();
+
+        if (httpConfig.domainSocketPath() != null) {
+            Files.deleteIfExists(Paths.get(httpConfig.domainSocketPath()));   // left behind by a previous run
+        }
+        // in flight limits per route are read from -Djobcoin.admission.* properties
+        final AdmissionController admission = AdmissionController.fromSystemProperties();
+        admission.exportTo(metrics);
+        // responses of sends by Idempotency-Key, TTL and bound are read from -Djobcoin.idempotency.*
+        final IdempotencyCache idempotency = IdempotencyCache.fromSystemProperties();
+        idempotency.exportTo(metrics);
+
+        // failed payouts back off and are retried per -Djobcoin.mixing.retry.*, status checks report their retries
+        final PayoutRetries payoutRetries = PayoutRetries.fromSystemProperties();
+        payoutRetries.exportTo(metrics);
+
+        // one HTTP server instance per core by default, all sharing the listeners on their own event loop
+        // single mixing status checks are answered on the event loops straight from the stores
+        final MixingStatusLookup statusLookup = new MixingStatusLookup(requestStore, sendStages, payoutRetries);
+        vertx.deployVerticle(() -> JobcoinHttpServer.builder(httpConfig)
+                        .admission(admission)
+                        .metrics(metrics)
+                        .idempotency(idempotency)
+                        .statusLookup(statusLookup)
+                        .build(),
+                new DeploymentOptions().setInstances(httpConfig.instances()))
+                .onFailure(e -> logger.error("Jobcoin HTTP server failed to start", e));
+
+        // every handler gets a worker pool of its own, sizes are read from -Djobcoin.workers.* properties
+        vertx.deployVerticle(() -> new RegisterHandler(depositAddressStore, addressGenerator),
+                WorkerPools.options(WorkerPools.REGISTER, 2, 2));
+        vertx.deployVerticle(() -> new BalanceHandler(geminiClient),
+                WorkerPools.options(WorkerPools.BALANCE, 4, 2));
+        vertx.deployVerticle(() -> new MixingStatusHandler(requestStore, sendStages, payoutRetries),
+                WorkerPools.options(WorkerPools.MIXING_STATUS, 2, 2));
 
-        vertx.deployVerticle(new JobcoinHttpServer());
+        // how long parts wait is picked with -Djobcoin.mixing.policy, the policy is shared by the engine instances
+        final SchedulingPolicy schedulingPolicy = SchedulingPolicy.fromSystemProperties(1000, 20000);
 
-        vertx.deployVerticle(() -> new RegisterHandler(depositAddressStore, addressGenerator), workerOpts);
-        vertx.deployVerticle(() -> new SendHandler(geminiClient, depositAddressStore), workerOpts);
-        vertx.deployVerticle(() -> new BalanceHandler(geminiClient), workerOpts);
-        vertx.deployVerticle(() -> new MixingStatusHandler(requestStore), workerOpts);
+        // sends are rejected once the parts owed pass the -Djobcoin.mixing.highWater.* marks
+        final MixingBacklog backlog = MixingBacklog.fromSystemProperties();
+        backlog.exportTo(metrics);
 
-        vertx.deployVerticle(() -> new MixingEngine(
-                depositAddressStore, requestStore, requestIdGenerator, geminiClient), workerOpts);
+        // sends recovered from the journal register with the engine, so it has to be up first
+        vertx.deployVerticle(() -> MixingEngine.builder(depositAddressStore, requestStore, requestIdGenerator, geminiClient)
+                .journal(mixingJournal)
+                .policy(schedulingPolicy)
+                .backlog(backlog)
+                .retries(payoutRetries)
+                .parts(3, 10)
+                .metrics(metrics)
+                .build(),
+                WorkerPools.options(WorkerPools.MIXING_ENGINE, 2, 2))
+                .compose(id -> vertx.deployVerticle(() -> SendHandler.builder(geminiClient, depositAddressStore)
+                                .earlyAck(earlyAck)
+                                .requestIdGenerator(earlyAck ? requestIdGenerator : null)
+                                .journal(mixingJournal)
+                                .sendStages(sendStages)
+                                .requestStore(requestStore)
+                                .backoff(payoutRetries.backoff())
+                                .backlog(backlog)
+                                .build(),
+                        WorkerPools.options(WorkerPools.SEND, 4, 2)))
+                .onFailure(e -> logger.error("Mixing engine or send handler failed to start", e));
 
         logger.info("Jobcoin mixer is up");
     }
@@ -0,0 +1,55 @@
+package com.gemini.jobcoin;
+
+import io.vertx.core.DeploymentOptions;
+
+/**
+ * Deployment options of the handler verticles, each of which runs on a worker pool of
+ * its own. Handlers waiting on Gemini can then only exhaust their own threads, in memory
+ * lookups such as mixing statuses keep being served while Gemini is slow.
+ *
+ * Pools are named "jobcoin-<name>" and their sizes are read from system properties:
+ *
+ *   -Djobcoin.workers.register=2
+ *   -Djobcoin.workers.send=4
+ *   -Djobcoin.workers.balance=4
+ *   -Djobcoin.workers.mixingStatus=2
+ *   -Djobcoin.workers.mixingEngine=2
+ *
+ * Every pool is exported to /metrics by WorkerPoolMetrics, a pool whose queue keeps
+ * growing while its threads are all in use needs to be larger.
+ */
+public final class WorkerPools {
+
+    public static final String REGISTER = "register";
+
+    public static final String SEND = "send";
+
+    public static final String BALANCE = "balance";
+
+    public static final String MIXING_STATUS = "mixingStatus";
+
+    public static final String MIXING_ENGINE = "mixingEngine";
+
+    private static final String POOL_PREFIX = "jobcoin-";
+
+    private WorkerPools() {
+    }
+
+    /**
+     * @param name of the pool
+     * @param size of the pool, overridden by -Djobcoin.workers.<name>
+     * @param instances of the verticle to deploy, sharing the pool
+     * @return options deploying a worker verticle on its own named pool
+     */
+    public static DeploymentOptions options(final String name, int size, int instances) {
+        final int poolSize = Integer.getInteger("jobcoin.workers." + name, size);
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException(String.format("Worker pool %s must have at least one thread", name));
+        }
+        return new DeploymentOptions()
+                .setWorker(true)
+                .setWorkerPoolName(POOL_PREFIX + name)
+                .setWorkerPoolSize(poolSize)
+                .setInstances(instances);
+    }
+}
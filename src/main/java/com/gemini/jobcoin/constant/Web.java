@@ -5,4 +5,14 @@ public class Web {
     public static final String APPLICATION_JSON = "application/json";
 
     public static final String CONTENT_TYPE = "Content-Type";
+
+    public static final String RETRY_AFTER = "Retry-After";
+
+    public static final String CONTENT_LENGTH = "Content-Length";
+
+    public static final String CONNECTION = "Connection";
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
 }
@@ -0,0 +1,53 @@
+package com.gemini.jobcoin.external.blockchain;
+
+import java.security.SecureRandom;
+
+/**
+ * Turns bulk random bytes into deposit addresses.
+ *
+ * Random bytes are drawn from the SecureRandom a buffer at a time rather than one call
+ * per character. Each byte is masked to 6 bits and bytes which fall past the 62
+ * character charset are rejected, so every character stays equally likely.
+ *
+ * Not thread safe, each thread (or the pool filler) owns its own encoder.
+ */
+final class AddressEncoder {
+
+    static final int ADDRESS_LENGTH = 32;
+
+    private static final char[] CHARSET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private final SecureRandom rnd;
+
+    private final byte[] random;
+
+    private final char[] address = new char[ADDRESS_LENGTH];
+
+    private int position;
+
+    /**
+     * @param rnd to draw random bytes from
+     * @param bufferBytes number of random bytes drawn per call to the SecureRandom
+     */
+    AddressEncoder(final SecureRandom rnd, int bufferBytes) {
+        this.rnd = rnd;
+        this.random = new byte[bufferBytes];
+        this.position = bufferBytes;
+    }
+
+    String nextAddress() {
+        int length = 0;
+        while (length < ADDRESS_LENGTH) {
+            if (position == random.length) {
+                rnd.nextBytes(random);
+                position = 0;
+            }
+            final int index = random[position++] & 0x3F;
+            if (index < CHARSET.length) {
+                address[length++] = CHARSET[index];
+            }
+        }
+        return new String(address);
+    }
+}
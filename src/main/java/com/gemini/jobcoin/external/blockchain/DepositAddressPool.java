@@ -0,0 +1,153 @@
+package com.gemini.jobcoin.external.blockchain;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AddressGenerator which hands out pre-generated deposit addresses.
+ *
+ * A background filler thread draws random bytes in bulk from its own SecureRandom,
+ * encodes them into addresses and keeps a lock free ring topped up, so registering
+ * only pops a ready address and never touches the CSPRNG.
+ *
+ * Once the number of ready addresses drops below the low watermark the filler is woken
+ * up and refills the ring to capacity before parking again. If the ring is ever empty
+ * an address is generated on the calling thread instead, so callers never wait.
+ *
+ * Addresses are not reserved here, the RegisterHandler reserves each popped address
+ * with putIfAbsent against the depositAddressStore which rules out collisions.
+ */
+public class DepositAddressPool implements AddressGenerator, AutoCloseable {
+
+    private final AddressRing ring;
+
+    private final int lowWatermark;
+
+    private final AddressGenerator fallback = new JobcoinAddressGenerator();
+
+    private final Thread filler;
+
+    private final AtomicBoolean refillRequested = new AtomicBoolean();
+
+    private final AtomicInteger minAvailable;
+
+    private final LongAdder lowWatermarkBreaches = new LongAdder();
+
+    private final LongAdder exhausted = new LongAdder();
+
+    private final LongAdder generated = new LongAdder();
+
+    private volatile boolean running = true;
+
+    public DepositAddressPool() {
+        this(4096, 1024);
+    }
+
+    /**
+     * @param capacity number of ready addresses kept, rounded up to a power of two
+     * @param lowWatermark number of ready addresses below which the pool is refilled
+     */
+    public DepositAddressPool(int capacity, int lowWatermark) {
+        if (lowWatermark < 0 || lowWatermark >= capacity) {
+            throw new IllegalArgumentException("lowWatermark must be between 0 and capacity");
+        }
+        this.ring = new AddressRing(capacity);
+        this.lowWatermark = lowWatermark;
+        this.minAvailable = new AtomicInteger(ring.capacity());
+
+        this.filler = new Thread(this::fillLoop, "jobcoin-address-filler");
+        this.filler.setDaemon(true);
+        this.filler.start();
+    }
+
+    /**
+     * Pops a ready address, generating one on the calling thread if the pool is empty.
+     *
+     * @return Jobcoin generated depositAddress
+     */
+    @Override
+    public String generateAddress() {
+        final String address = ring.poll();
+        if (address == null) {
+            exhausted.increment();
+            requestRefill();
+            return fallback.generateAddress();
+        }
+        final int available = ring.size();
+        if (available < minAvailable.get()) {
+            minAvailable.accumulateAndGet(available, Math::min);
+        }
+        if (available < lowWatermark) {
+            requestRefill();
+        }
+        return address;
+    }
+
+    /**
+     * @return number of ready addresses
+     */
+    public int available() {
+        return ring.size();
+    }
+
+    /**
+     * @return fewest ready addresses seen since the pool was created
+     */
+    public int minAvailable() {
+        return minAvailable.get();
+    }
+
+    /**
+     * @return times the ready addresses dropped below the low watermark
+     */
+    public long lowWatermarkBreaches() {
+        return lowWatermarkBreaches.sum();
+    }
+
+    /**
+     * @return pops which found the pool empty and generated an address inline
+     */
+    public long exhausted() {
+        return exhausted.sum();
+    }
+
+    /**
+     * @return addresses generated by the filler
+     */
+    public long generated() {
+        return generated.sum();
+    }
+
+    /**
+     * Stops the filler thread, addresses already in the pool can still be popped.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(filler);
+    }
+
+    private void requestRefill() {
+        if (refillRequested.compareAndSet(false, true)) {
+            lowWatermarkBreaches.increment();
+            LockSupport.unpark(filler);
+        }
+    }
+
+    private void fillLoop() {
+        final AddressEncoder encoder = new AddressEncoder(new SecureRandom(), 4096);
+        while (running) {
+            while (running && ring.offer(encoder.nextAddress())) {
+                generated.increment();
+            }
+            refillRequested.set(false);
+            // re-check the level, a pop may have raced the flag being cleared
+            while (running && !refillRequested.get() && ring.size() >= lowWatermark) {
+                LockSupport.park(this);
+            }
+        }
+    }
+}
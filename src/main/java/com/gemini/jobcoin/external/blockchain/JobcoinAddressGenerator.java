@@ -17,35 +17,21 @@ public class JobcoinAddressGenerator implements AddressGenerator {
 
     public static final String JOBCOIN_HOUSE_ADDRESS = "JOBCOINHOUSEADDRESS";
 
-    private static final String charset = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
-
-    private static final SecureRandom rnd = new SecureRandom();
+    // one SecureRandom per thread so generating threads never contend on a shared lock
+    private static final ThreadLocal<AddressEncoder> encoders =
+            ThreadLocal.withInitial(() -> new AddressEncoder(new SecureRandom(), 256));
 
     /**
      * Creates a deposit address ensuring randomness.
      *
-     * This could be expanded to protect against the unlikelihood that a collision
-     * arises by trying to insert it atomically using putIfAbsent and trying again
-     * if it returns not null (which would indicate the address is there already).
+     * Uniqueness is enforced by the caller, which reserves the address atomically using
+     * putIfAbsent and tries again if it returns not null (which would indicate the
+     * address is there already).
      *
      * @return Jobcoin generated depositAddress
      */
     @Override
     public String generateAddress() {
-        return randomString(32);
-    }
-
-    /**
-     * Creates a random string of specific length
-     *
-     * @param len to create string
-     * @return randomString
-     */
-    private String randomString(int len){
-        StringBuilder sb = new StringBuilder(len);
-        for(int i = 0; i < len; i++) {
-            sb.append(charset.charAt(rnd.nextInt(charset.length())));
-        }
-        return sb.toString();
+        return encoders.get().nextAddress();
     }
 }
@@ -0,0 +1,216 @@
+package com.gemini.jobcoin.external.http;
+
+import com.gemini.jobcoin.exception.GeminiRequestException;
+import com.gemini.jobcoin.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GeminiClient which caches balance lookups for a short time and coalesces concurrent
+ * lookups of the same address into a single call to the Gemini API.
+ *
+ * A lookup for an address with no usable entry installs an in flight entry, any lookup
+ * for the same address arriving before the response shares that call. Once the
+ * response arrives it is served until the TTL expires. Failed lookups are not cached.
+ *
+ * Every transfer made through this client invalidates the balance of both addresses,
+ * once when the transfer is sent and again when it completes, so the SendHandler and
+ * MixingEngine never leave a stale balance behind. Transfers made outside of the mixer
+ * are only picked up once the TTL expires.
+ *
+ * The cache holds at most maxEntries addresses, when full expired entries are swept
+ * and if that is not enough arbitrary entries are dropped.
+ *
+ * Read from system properties:
+ *
+ *   -Djobcoin.balance.ttlMs=1000             how long a balance is served from the cache
+ *   -Djobcoin.balance.maxEntries=10000       most addresses cached
+ */
+public class CachingGeminiClient extends GeminiClient {
+
+    private final Map<String, Entry> balances = new ConcurrentHashMap<>();
+
+    private final long ttlNanos;
+
+    private final int maxEntries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param httpClient to make requests with
+     * @param ttl how long a balance is served from the cache
+     * @param unit of the ttl
+     * @param maxEntries maximum number of addresses cached
+     */
+    public CachingGeminiClient(final HttpClient httpClient,
+                               long ttl,
+                               final TimeUnit unit,
+                               int maxEntries) {
+        this(httpClient, ttl, unit, maxEntries, new MetricsRegistry());
+    }
+
+    /**
+     * @param httpClient to make requests with
+     * @param ttl how long a balance is served from the cache
+     * @param unit of the ttl
+     * @param maxEntries maximum number of addresses cached
+     * @param metrics to record Gemini call latency and the cache's counters in
+     */
+    public CachingGeminiClient(final HttpClient httpClient,
+                               long ttl,
+                               final TimeUnit unit,
+                               int maxEntries,
+                               final MetricsRegistry metrics) {
+        super(httpClient, metrics);
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be greater then 0");
+        }
+        this.ttlNanos = unit.toNanos(ttl);
+        this.maxEntries = maxEntries;
+
+        metrics.counter("jobcoin_balance_cache_hits_total", "Balance lookups served from the cache", this::hits);
+        metrics.counter("jobcoin_balance_cache_misses_total", "Balance lookups sent to Gemini", this::misses);
+        metrics.counter("jobcoin_balance_cache_coalesced_total",
+                "Balance lookups which joined a lookup already in flight", this::coalesced);
+        metrics.gauge("jobcoin_balance_cache_size", "Addresses in the balance cache", this::size);
+    }
+
+    /**
+     * @param httpClient to make requests with
+     * @param metrics to record Gemini call latency and the cache's counters in
+     */
+    public static CachingGeminiClient fromSystemProperties(final HttpClient httpClient,
+                                                           final MetricsRegistry metrics) {
+        return new CachingGeminiClient(
+                httpClient,
+                Long.getLong("jobcoin.balance.ttlMs", 1000), TimeUnit.MILLISECONDS,
+                Integer.getInteger("jobcoin.balance.maxEntries", 10_000),
+                metrics);
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<String>> getBalanceAsync(final String address) {
+        final long now = System.nanoTime();
+        final Entry fresh = new Entry();
+        final Entry entry = balances.compute(address,
+                (key, current) -> current != null && current.usable(now) ? current : fresh);
+
+        if (entry != fresh) {
+            if (entry.response.isDone()) {
+                hits.increment();
+            } else {
+                coalesced.increment();
+            }
+            return entry.response.copy();   // callers can not complete the shared future
+        }
+
+        misses.increment();
+        if (balances.size() > maxEntries) {
+            evict(now);
+        }
+        super.getBalanceAsync(address).whenComplete((response, error) -> {
+            if (error != null) {
+                balances.remove(address, fresh);
+                fresh.response.completeExceptionally(error);
+            } else {
+                fresh.expiresAt = System.nanoTime() + ttlNanos;
+                fresh.response.complete(response);
+            }
+        });
+        return fresh.response.copy();
+    }
+
+    @Override
+    public HttpResponse<String> transferAmount(final String fromAddress,
+                                               final String toAddress,
+                                               long amount)
+            throws IOException, InterruptedException, GeminiRequestException {
+        invalidate(fromAddress, toAddress);
+        try {
+            return super.transferAmount(fromAddress, toAddress, amount);
+        } finally {
+            invalidate(fromAddress, toAddress);
+        }
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<String>> transferAmountAsync(final String fromAddress,
+                                                                       final String toAddress,
+                                                                       long amount) {
+        invalidate(fromAddress, toAddress);
+        return super.transferAmountAsync(fromAddress, toAddress, amount)
+                .whenComplete((response, error) -> invalidate(fromAddress, toAddress));
+    }
+
+    /**
+     * Drops the cached balance of each address, lookups already sharing an in flight
+     * call still receive its result.
+     *
+     * @param addresses to invalidate
+     */
+    public void invalidate(final String... addresses) {
+        for (String address : addresses) {
+            balances.remove(address);
+        }
+    }
+
+    /**
+     * @return lookups served from a cached balance
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return lookups which called the Gemini API
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return lookups which shared a call already in flight for the same address
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return number of addresses currently cached
+     */
+    public int size() {
+        return balances.size();
+    }
+
+    private void evict(long now) {
+        balances.values().removeIf(e -> e.response.isDone() && e.expiresAt - now <= 0);
+        final Iterator<Entry> it = balances.values().iterator();
+        while (balances.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static final class Entry {
+
+        private final CompletableFuture<HttpResponse<String>> response = new CompletableFuture<>();
+
+        private volatile long expiresAt = Long.MAX_VALUE;     // set once the response arrives
+
+        boolean usable(long now) {
+            return !response.isDone() || (!response.isCompletedExceptionally() && expiresAt - now > 0);
+        }
+    }
+}
@@ -1,37 +1,49 @@
 package com.gemini.jobcoin.external.http;
 
 import com.gemini.jobcoin.exception.GeminiRequestException;
+import com.gemini.jobcoin.helper.Amount;
+import com.gemini.jobcoin.metrics.MetricsRegistry;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static com.gemini.jobcoin.constant.Web.APPLICATION_JSON;
 import static com.gemini.jobcoin.constant.Web.CONTENT_TYPE;
 
 public class GeminiClient {
 
+    private static final String REQUEST_DURATION = "jobcoin_gemini_request_duration_seconds";
+
+    private static final String BALANCE = "balance";
+
+    private static final String TRANSFER = "transfer";
+
     private final HttpClient httpClient;
 
+    private final MetricsRegistry metrics;
+
     public GeminiClient(final HttpClient httpClient) {
+        this(httpClient, new MetricsRegistry());
+    }
+
+    /**
+     * @param httpClient to make requests with
+     * @param metrics to record the latency of every call in, by operation and status code
+     */
+    public GeminiClient(final HttpClient httpClient, final MetricsRegistry metrics) {
         this.httpClient = httpClient;
+        this.metrics = metrics;
     }
 
     public HttpResponse<String> getBalance(final String address)
             throws IOException, InterruptedException, GeminiRequestException {
 
-        final String url = String.format(
-                "http://jobcoin.gemini.com/cultivate-duvet/api/addresses/%s", address);
-
-        final HttpResponse<String> response = httpClient.send(
-                HttpRequest.newBuilder()
-                        .uri(URI.create(url))
-                        .GET()
-                        .header(CONTENT_TYPE, APPLICATION_JSON)
-                        .build(),
-                HttpResponse.BodyHandlers.ofString());
+        final HttpResponse<String> response = send(BALANCE, balanceRequest(address));
 
         if (response.statusCode() != 200) {
             throw new GeminiRequestException(response.body(), response.statusCode());
@@ -39,26 +51,114 @@ public class GeminiClient {
         return response;
     }
 
+    /**
+     * @param fromAddress to transfer from
+     * @param toAddress to transfer to
+     * @param amount to transfer in minor units, see {@link Amount}
+     * @return the Gemini response
+     */
     public HttpResponse<String> transferAmount(final String fromAddress,
                                                final String toAddress,
-                                               final String amount)
+                                               long amount)
             throws IOException, InterruptedException, GeminiRequestException {
 
-         final String url = String.format(
-                    "http://jobcoin.gemini.com/cultivate-duvet/api/transactions?fromAddress=%s&toAddress=%s&amount=%s",
-                    fromAddress, toAddress, amount);
-
-        final HttpResponse<String> response = httpClient.send(
-                HttpRequest.newBuilder()
-                        .uri(URI.create(url))
-                        .POST(HttpRequest.BodyPublishers.ofString("{}"))
-                        .header(CONTENT_TYPE, APPLICATION_JSON)
-                        .build(),
-                HttpResponse.BodyHandlers.ofString());
+        final HttpResponse<String> response = send(TRANSFER, transferRequest(fromAddress, toAddress, amount));
 
         if (response.statusCode() != 200) {
             throw new GeminiRequestException(response.body(), response.statusCode());
         }
         return response;
     }
+
+    /**
+     * Non-blocking variant of {@link #getBalance(String)}. The calling thread is released
+     * as soon as the request is handed to the HttpClient, the returned future completes
+     * on the HttpClient's executor.
+     *
+     * A non 200 response completes the future exceptionally with a GeminiRequestException
+     * (wrapped in a CompletionException as is usual for chained futures).
+     *
+     * @param address to look up the balance for
+     * @return future of the Gemini response
+     */
+    public CompletableFuture<HttpResponse<String>> getBalanceAsync(final String address) {
+        return sendAsync(BALANCE, balanceRequest(address))
+                .thenApply(GeminiClient::verifyStatus);
+    }
+
+    /**
+     * Non-blocking variant of {@link #transferAmount(String, String, long)}, see
+     * {@link #getBalanceAsync(String)} for how failures are surfaced.
+     *
+     * @param fromAddress to transfer from
+     * @param toAddress to transfer to
+     * @param amount to transfer in minor units, see {@link Amount}
+     * @return future of the Gemini response
+     */
+    public CompletableFuture<HttpResponse<String>> transferAmountAsync(final String fromAddress,
+                                                                       final String toAddress,
+                                                                       long amount) {
+        return sendAsync(TRANSFER, transferRequest(fromAddress, toAddress, amount))
+                .thenApply(GeminiClient::verifyStatus);
+    }
+
+    private HttpResponse<String> send(final String operation, final HttpRequest request)
+            throws IOException, InterruptedException {
+
+        final long start = System.nanoTime();
+        HttpResponse<String> response = null;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            return response;
+        } finally {
+            record(operation, start, response);
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendAsync(final String operation, final HttpRequest request) {
+        final long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, e) -> record(operation, start, response));
+    }
+
+    /**
+     * Calls which failed without a response are recorded with status "error".
+     */
+    private void record(final String operation, long start, final HttpResponse<String> response) {
+        final String status = response == null ? "error" : Integer.toString(response.statusCode());
+        metrics.histogram(REQUEST_DURATION, "Latency of calls to the Gemini API",
+                "operation", operation, "status", status).recordSince(start);
+    }
+
+    private static HttpResponse<String> verifyStatus(final HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            throw new CompletionException(new GeminiRequestException(response.body(), response.statusCode()));
+        }
+        return response;
+    }
+
+    private static HttpRequest balanceRequest(final String address) {
+        final String url = String.format(
+                "http://jobcoin.gemini.com/cultivate-duvet/api/addresses/%s", address);
+
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .GET()
+                .header(CONTENT_TYPE, APPLICATION_JSON)
+                .build();
+    }
+
+    private static HttpRequest transferRequest(final String fromAddress,
+                                               final String toAddress,
+                                               long amount) {
+        final String url = String.format(
+                "http://jobcoin.gemini.com/cultivate-duvet/api/transactions?fromAddress=%s&toAddress=%s&amount=%s",
+                fromAddress, toAddress, Amount.format(amount));
+
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                .header(CONTENT_TYPE, APPLICATION_JSON)
+                .build();
+    }
 }
@@ -1,5 +1,7 @@
 package com.gemini.jobcoin.external.persistence;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -21,11 +23,40 @@ public class InMemoryKVStore<K,V> implements KVStore<K,V> {
         return map.put(key, value);
     }
 
+    @Override
+    public V putIfAbsent(final K key, V value) {
+        return map.putIfAbsent(key, value);
+    }
+
+    @Override
+    public Map<K, V> putAllIfAbsent(final Map<K, V> entries) {
+        final Map<K, V> present = new HashMap<>();
+        for (Map.Entry<K, V> e : entries.entrySet()) {
+            final V previous = map.putIfAbsent(e.getKey(), e.getValue());
+            if (previous != null) {
+                present.put(e.getKey(), previous);
+            }
+        }
+        return present;
+    }
+
     @Override
     public V get(final K key) {
         return map.get(key);
     }
 
+    @Override
+    public Map<K, V> getAll(final Collection<K> keys) {
+        final Map<K, V> values = new HashMap<>();
+        for (K key : keys) {
+            final V value = map.get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
     @Override
     public boolean containsKey(final K key) {
         return map.containsKey(key);
@@ -0,0 +1,33 @@
+package com.gemini.jobcoin.external.persistence;
+
+import java.util.List;
+
+/**
+ * State of a mixing request as rebuilt from the MixingJournal.
+ */
+public class JournaledRequest {
+
+    public final String requestId;
+
+    public final List<String> userOwnedAddresses;
+
+    /** every part of the request in minor units, in payout order */
+    public final long[] parts;
+
+    /** index of the first part which has not been paid out yet */
+    public final int nextPart;
+
+    public final boolean completed;
+
+    public JournaledRequest(final String requestId,
+                            final List<String> userOwnedAddresses,
+                            final long[] parts,
+                            int nextPart,
+                            boolean completed) {
+        this.requestId = requestId;
+        this.userOwnedAddresses = userOwnedAddresses;
+        this.parts = parts;
+        this.nextPart = nextPart;
+        this.completed = completed;
+    }
+}
@@ -0,0 +1,39 @@
+package com.gemini.jobcoin.external.persistence;
+
+import java.util.List;
+
+/**
+ * State of an early acknowledged send as rebuilt from the MixingJournal, only sends
+ * which had not been registered with the MixingEngine are recovered.
+ */
+public class JournaledSend {
+
+    public final String requestId;
+
+    public final String sourceAddress;
+
+    public final String depositAddress;
+
+    /** the parts are paid out to once the send is registered with the MixingEngine */
+    public final List<String> userOwnedAddresses;
+
+    /** in minor units, see {@link com.gemini.jobcoin.helper.Amount} */
+    public final long amount;
+
+    /** last stage recorded before the restart */
+    public final SendStage stage;
+
+    public JournaledSend(final String requestId,
+                         final String sourceAddress,
+                         final String depositAddress,
+                         final List<String> userOwnedAddresses,
+                         long amount,
+                         final SendStage stage) {
+        this.requestId = requestId;
+        this.sourceAddress = sourceAddress;
+        this.depositAddress = depositAddress;
+        this.userOwnedAddresses = userOwnedAddresses;
+        this.amount = amount;
+        this.stage = stage;
+    }
+}
@@ -1,10 +1,36 @@
 package com.gemini.jobcoin.external.persistence;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface KVStore<K,V> {
 
     V put(final K key, V value);
 
+    /**
+     * Atomically stores the value only if the key is not present
+     *
+     * @return the value already stored, null if the value was stored
+     */
+    V putIfAbsent(final K key, V value);
+
+    /**
+     * Stores every entry whose key is not present, in one operation against the store.
+     * Each entry is stored atomically but the batch as a whole is not.
+     *
+     * @return entries which were not stored mapped to the value already stored, empty
+     * if every entry was stored
+     */
+    Map<K,V> putAllIfAbsent(final Map<K,V> entries);
+
     V get(final K key);
 
+    /**
+     * Looks up every key in one operation against the store.
+     *
+     * @return values of the keys which are present, keys which are not are left out
+     */
+    Map<K,V> getAll(final Collection<K> keys);
+
     boolean containsKey(final K key);
 }
@@ -0,0 +1,534 @@
+package com.gemini.jobcoin.external.persistence;
+
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append only journal backed by a memory mapped file.
+ *
+ * Record layout: [int payloadLength][byte type][payload][int crc32c(type + payload)]
+ *
+ * Amounts are stored as raw minor units (8 byte longs), so recovery does no decimal parsing.
+ *
+ * Appends copy the encoded record into the current mapped segment under a short lock.
+ * Durability is provided by a flusher thread which forces the segment to disk every
+ * flush interval (group commit), so many records share a single msync. The future
+ * returned by an append completes once the flusher has forced past that record.
+ *
+ * On open the file is scanned up to the last record with a valid checksum, anything
+ * after that (a torn write from a crash) is truncated. Recovery decodes the records in
+ * parallel and rebuilds each request's state independently. Requests with a creation
+ * record are handed to the MixingEngine, accepted sends without one to the SendHandler.
+ *
+ * The journal is never compacted, completed requests are kept so their status survives
+ * a restart. A single mapping is used for recovery so the journal is limited to 2GB.
+ */
+public class MappedMixingJournal implements MixingJournal {
+
+    private final static Logger logger = LoggerFactory.getLogger(MappedMixingJournal.class);
+
+    private static final byte CREATED = 1;
+
+    private static final byte PAID_OUT = 2;
+
+    private static final byte COMPLETED = 3;
+
+    private static final byte ACCEPTED = 4;
+
+    private static final byte STAGED = 5;
+
+    private static final int FRAME_BYTES = 4 + 1 + 4;     // length + type + crc
+
+    private final FileChannel channel;
+
+    private final long segmentBytes;
+
+    private final long flushIntervalNanos;
+
+    private final Queue<PendingFlush> pendingFlushes = new ConcurrentLinkedQueue<>();
+
+    private final Object recoveryLock = new Object();
+
+    private final Thread flusher;
+
+    private volatile boolean running = true;
+
+    private MappedByteBuffer segment;   // guarded by this
+
+    private long writePosition;         // guarded by this
+
+    private long durablePosition;       // flusher thread only
+
+    private int[] recordOffsets;        // offsets of records found on open, released once decoded
+
+    private Collection<JournaledRequest> recoveredRequests = Collections.emptyList();   // guarded by recoveryLock
+
+    private Collection<JournaledSend> recoveredSends = Collections.emptyList();         // guarded by recoveryLock
+
+    private int recordCount;
+
+    private final long recordsEnd;      // end of the last record found on open
+
+    public MappedMixingJournal(final Path path) throws IOException {
+        this(path, 64 * 1024 * 1024, 2, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param path of the journal file, created if it does not exist
+     * @param segmentBytes size of each mapped region the file grows by
+     * @param flushInterval maximum time a record waits before being forced to disk
+     * @param unit of the flushInterval
+     */
+    public MappedMixingJournal(final Path path,
+                               long segmentBytes,
+                               long flushInterval,
+                               final TimeUnit unit) throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segmentBytes = segmentBytes;
+        this.flushIntervalNanos = unit.toNanos(flushInterval);
+
+        this.recordsEnd = scan();
+        this.writePosition = recordsEnd;
+        this.durablePosition = writePosition;
+        channel.truncate(writePosition);   // drop any torn record at the tail
+        this.segment = channel.map(FileChannel.MapMode.READ_WRITE, writePosition, segmentBytes);
+
+        this.flusher = new Thread(this::flushLoop, "jobcoin-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public CompletableFuture<Void> created(final String requestId,
+                                           final List<String> userOwnedAddresses,
+                                           final long[] parts,
+                                           int partCount) {
+        final byte[] id = utf8(requestId);
+        final List<byte[]> addresses = userOwnedAddresses.stream()
+                .map(MappedMixingJournal::utf8)
+                .collect(Collectors.toList());
+
+        int size = 2 + id.length + 2 + 2 + 8 * partCount;
+        for (byte[] a : addresses) {
+            size += 2 + a.length;
+        }
+
+        final ByteBuffer payload = ByteBuffer.allocate(size);
+        putBytes(payload, id);
+        payload.putShort((short) addresses.size());
+        addresses.forEach(a -> putBytes(payload, a));
+        payload.putShort((short) partCount);
+        for (int i = 0; i < partCount; i++) {
+            payload.putLong(parts[i]);
+        }
+        return append(CREATED, payload.flip());
+    }
+
+    @Override
+    public CompletableFuture<Void> paidOut(final String requestId, int partIndex) {
+        final byte[] id = utf8(requestId);
+        final ByteBuffer payload = ByteBuffer.allocate(2 + id.length + 4);
+        putBytes(payload, id);
+        payload.putInt(partIndex);
+        return append(PAID_OUT, payload.flip());
+    }
+
+    @Override
+    public CompletableFuture<Void> completed(final String requestId) {
+        final byte[] id = utf8(requestId);
+        final ByteBuffer payload = ByteBuffer.allocate(2 + id.length);
+        putBytes(payload, id);
+        return append(COMPLETED, payload.flip());
+    }
+
+    @Override
+    public CompletableFuture<Void> accepted(final String requestId,
+                                            final String sourceAddress,
+                                            final String depositAddress,
+                                            final List<String> userOwnedAddresses,
+                                            long amount) {
+        final byte[] id = utf8(requestId);
+        final byte[] source = utf8(sourceAddress);
+        final byte[] deposit = utf8(depositAddress);
+        final List<byte[]> addresses = userOwnedAddresses.stream()
+                .map(MappedMixingJournal::utf8)
+                .collect(Collectors.toList());
+
+        int size = 2 + id.length + 2 + source.length + 2 + deposit.length + 2 + 8;
+        for (byte[] a : addresses) {
+            size += 2 + a.length;
+        }
+
+        final ByteBuffer payload = ByteBuffer.allocate(size);
+        putBytes(payload, id);
+        putBytes(payload, source);
+        putBytes(payload, deposit);
+        payload.putShort((short) addresses.size());
+        addresses.forEach(a -> putBytes(payload, a));
+        payload.putLong(amount);
+        return append(ACCEPTED, payload.flip());
+    }
+
+    @Override
+    public CompletableFuture<Void> staged(final String requestId, final SendStage stage) {
+        final byte[] id = utf8(requestId);
+        final ByteBuffer payload = ByteBuffer.allocate(2 + id.length + 1);
+        putBytes(payload, id);
+        payload.put((byte) stage.ordinal());
+        return append(STAGED, payload.flip());
+    }
+
+    @Override
+    public Collection<JournaledRequest> recover() {
+        synchronized (recoveryLock) {
+            decodeRecords();
+            final Collection<JournaledRequest> requests = recoveredRequests;
+            recoveredRequests = Collections.emptyList();
+            return requests;
+        }
+    }
+
+    @Override
+    public Collection<JournaledSend> recoverSends() {
+        synchronized (recoveryLock) {
+            decodeRecords();
+            final Collection<JournaledSend> sends = recoveredSends;
+            recoveredSends = Collections.emptyList();
+            return sends;
+        }
+    }
+
+    /**
+     * Decodes the records found on open the first time either side recovers, so the
+     * file is only read once.
+     */
+    private void decodeRecords() {
+        if (recordOffsets == null) {
+            return;
+        }
+        final int[] offsets = recordOffsets;
+        final int count = recordCount;
+        recordOffsets = null;
+        if (count == 0) {
+            return;
+        }
+
+        try {
+            final MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, recordsEnd);
+
+            final Map<String, List<Record>> byRequest = IntStream.range(0, count)
+                    .parallel()
+                    .mapToObj(i -> decode(data, offsets[i]))
+                    .collect(Collectors.groupingByConcurrent(r -> r.requestId));
+
+            recoveredRequests = byRequest.values()
+                    .parallelStream()
+                    .filter(records -> find(records, CREATED) != null || find(records, ACCEPTED) == null)
+                    .map(MappedMixingJournal::rebuild)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+
+            // a send with a creation record was registered with the engine and is recovered as a request
+            recoveredSends = byRequest.values()
+                    .parallelStream()
+                    .filter(records -> find(records, CREATED) == null && find(records, ACCEPTED) != null)
+                    .map(MappedMixingJournal::rebuildSend)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read mixing journal", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        channel.close();
+    }
+
+    private CompletableFuture<Void> append(byte type, final ByteBuffer payload) {
+        final int length = payload.remaining();
+        final CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(payload.duplicate());
+
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+        synchronized (this) {
+            if (!running) {
+                durable.completeExceptionally(new IllegalStateException("Mixing journal is closed"));
+                return durable;
+            }
+            try {
+                if (segment.remaining() < FRAME_BYTES + length) {
+                    nextSegment(FRAME_BYTES + length);
+                }
+            } catch (IOException e) {
+                durable.completeExceptionally(e);
+                return durable;
+            }
+            segment.putInt(length);
+            segment.put(type);
+            segment.put(payload);
+            segment.putInt((int) crc.getValue());
+            writePosition += FRAME_BYTES + length;
+            pendingFlushes.add(new PendingFlush(writePosition, durable));
+        }
+        return durable;
+    }
+
+    /**
+     * Forces the current segment before mapping the next region of the file, so the
+     * flusher only ever needs to force the latest segment.
+     */
+    private void nextSegment(int minimumBytes) throws IOException {
+        segment.force();
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, writePosition, Math.max(segmentBytes, minimumBytes));
+    }
+
+    private void flushLoop() {
+        while (running) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            flush();
+        }
+    }
+
+    private void flush() {
+        final MappedByteBuffer toForce;
+        final long position;
+        synchronized (this) {
+            toForce = segment;
+            position = writePosition;
+        }
+        if (position > durablePosition) {
+            try {
+                toForce.force();
+                durablePosition = position;
+            } catch (Exception e) {
+                logger.error("Failed to force mixing journal", e);
+                return;
+            }
+        }
+        PendingFlush pending;
+        while ((pending = pendingFlushes.peek()) != null && pending.position <= durablePosition) {
+            pendingFlushes.poll();
+            pending.future.complete(null);
+        }
+    }
+
+    /**
+     * Walks the file record by record to find where the last complete record ends.
+     *
+     * @return position new records should be appended at
+     */
+    private long scan() throws IOException {
+        recordOffsets = new int[1024];
+        final long size = channel.size();
+        if (size == 0) {
+            return 0;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Mixing journal exceeds 2GB and needs to be compacted");
+        }
+        final MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        final CRC32C crc = new CRC32C();
+        int position = 0;
+        while (position + FRAME_BYTES <= size) {
+            final int length = data.getInt(position);
+            if (length <= 0 || position + FRAME_BYTES + (long) length > size) {
+                break;
+            }
+            crc.reset();
+            crc.update(data.duplicate().position(position + 4).limit(position + 5 + length));
+            if ((int) crc.getValue() != data.getInt(position + 5 + length)) {
+                break;
+            }
+            if (recordCount == recordOffsets.length) {
+                recordOffsets = Arrays.copyOf(recordOffsets, recordCount * 2);
+            }
+            recordOffsets[recordCount++] = position;
+            position += FRAME_BYTES + length;
+        }
+        if (position + 4 <= size && data.getInt(position) != 0) {
+            logger.warn(String.format("Mixing journal has a torn record at offset %d, truncating", position));
+        }
+        return position;
+    }
+
+    private static Record decode(final ByteBuffer data, int offset) {
+        final ByteBuffer in = data.duplicate().position(offset + 4);
+        final Record record = new Record(in.get(), getString(in));
+        switch (record.type) {
+            case CREATED:
+                record.userOwnedAddresses = getStrings(in);
+                final int partCount = in.getShort();
+                record.parts = new long[partCount];
+                for (int i = 0; i < partCount; i++) {
+                    record.parts[i] = in.getLong();
+                }
+                break;
+            case PAID_OUT:
+                record.partIndex = in.getInt();
+                break;
+            case ACCEPTED:
+                record.sourceAddress = getString(in);
+                record.depositAddress = getString(in);
+                record.userOwnedAddresses = getStrings(in);
+                record.amount = in.getLong();
+                break;
+            case STAGED:
+                record.stage = SendStage.values()[in.get()];
+                break;
+            default:
+                break;
+        }
+        return record;
+    }
+
+    private static JournaledRequest rebuild(final List<Record> records) {
+        Record created = null;
+        boolean completed = false;
+        final BitSet paid = new BitSet();
+        for (Record r : records) {
+            if (r.type == CREATED) {
+                created = r;
+            } else if (r.type == PAID_OUT) {
+                paid.set(r.partIndex);
+            } else if (r.type == COMPLETED) {
+                completed = true;
+            }
+        }
+        if (created == null) {
+            logger.warn(String.format("Request Id=[%s] has journal entries but no creation record",
+                    records.get(0).requestId));
+            return null;
+        }
+        // parts are paid out in order, so everything from the first unpaid part is owed
+        final int nextPart = Math.min(paid.nextClearBit(0), created.parts.length);
+        return new JournaledRequest(
+                created.requestId,
+                created.userOwnedAddresses,
+                created.parts,
+                nextPart,
+                completed || nextPart == created.parts.length);
+    }
+
+    private static JournaledSend rebuildSend(final List<Record> records) {
+        final Record accepted = find(records, ACCEPTED);
+        SendStage stage = SendStage.ACCEPTED;
+        for (Record r : records) {
+            // stages only move forward, records of one request may be decoded out of order
+            if (r.type == STAGED && r.stage.ordinal() > stage.ordinal()) {
+                stage = r.stage;
+            }
+        }
+        return new JournaledSend(
+                accepted.requestId,
+                accepted.sourceAddress,
+                accepted.depositAddress,
+                accepted.userOwnedAddresses,
+                accepted.amount,
+                stage);
+    }
+
+    private static Record find(final List<Record> records, byte type) {
+        for (Record r : records) {
+            if (r.type == type) {
+                return r;
+            }
+        }
+        return null;
+    }
+
+    private static byte[] utf8(final String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putBytes(final ByteBuffer buffer, final byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> getStrings(final ByteBuffer buffer) {
+        final int count = buffer.getShort();
+        final List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(getString(buffer));
+        }
+        return strings;
+    }
+
+    private static final class Record {
+
+        private final byte type;
+
+        private final String requestId;
+
+        private List<String> userOwnedAddresses;
+
+        private long[] parts;
+
+        private int partIndex;
+
+        private String sourceAddress;
+
+        private String depositAddress;
+
+        private long amount;
+
+        private SendStage stage;
+
+        Record(byte type, final String requestId) {
+            this.type = type;
+            this.requestId = requestId;
+        }
+    }
+
+    private static final class PendingFlush {
+
+        private final long position;
+
+        private final CompletableFuture<Void> future;
+
+        PendingFlush(long position, final CompletableFuture<Void> future) {
+            this.position = position;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.gemini.jobcoin.external.persistence;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Write ahead log of everything the MixingEngine owes users, and of the sends which were
+ * acknowledged before their transfers ran. Each append returns a future which completes
+ * once the record is durable.
+ */
+public interface MixingJournal extends Closeable {
+
+    /**
+     * @param requestId of the new request
+     * @param userOwnedAddresses the parts are paid out to
+     * @param parts in minor units, see {@link com.gemini.jobcoin.helper.Amount}
+     * @param partCount number of entries of parts in use
+     * @return future completing once the record is durable
+     */
+    CompletableFuture<Void> created(final String requestId,
+                                    final List<String> userOwnedAddresses,
+                                    final long[] parts,
+                                    int partCount);
+
+    CompletableFuture<Void> paidOut(final String requestId, int partIndex);
+
+    CompletableFuture<Void> completed(final String requestId);
+
+    /**
+     * @param requestId handed to the client when the send was acknowledged
+     * @param sourceAddress funds are transferred from
+     * @param depositAddress funds are transferred through to the house address
+     * @param userOwnedAddresses the parts are paid out to, the deposit address store is
+     *                           not durable so a recovered send can not look them up
+     * @param amount in minor units, see {@link com.gemini.jobcoin.helper.Amount}
+     * @return future completing once the record is durable
+     */
+    CompletableFuture<Void> accepted(final String requestId,
+                                     final String sourceAddress,
+                                     final String depositAddress,
+                                     final List<String> userOwnedAddresses,
+                                     long amount);
+
+    CompletableFuture<Void> staged(final String requestId, final SendStage stage);
+
+    /**
+     * Rebuilds the state of every request found in the journal. Only the first call
+     * returns the journaled requests, subsequent calls return an empty collection so
+     * multiple engine instances sharing a journal do not schedule the same parts twice.
+     *
+     * @return all requests found in the journal
+     */
+    Collection<JournaledRequest> recover();
+
+    /**
+     * Rebuilds every accepted send which was not registered with the MixingEngine
+     * before the restart, failed sends included so their status survives. Like recover
+     * only the first call returns them.
+     *
+     * @return accepted sends found in the journal without a creation record
+     */
+    Collection<JournaledSend> recoverSends();
+}
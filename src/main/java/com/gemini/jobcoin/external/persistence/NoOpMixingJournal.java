@@ -0,0 +1,61 @@
+package com.gemini.jobcoin.external.persistence;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Journal which records nothing, used when the MixingEngine runs without durability
+ * (e.g. in tests).
+ */
+public class NoOpMixingJournal implements MixingJournal {
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    @Override
+    public CompletableFuture<Void> created(final String requestId,
+                                           final List<String> userOwnedAddresses,
+                                           final long[] parts,
+                                           int partCount) {
+        return DONE;
+    }
+
+    @Override
+    public CompletableFuture<Void> paidOut(final String requestId, int partIndex) {
+        return DONE;
+    }
+
+    @Override
+    public CompletableFuture<Void> completed(final String requestId) {
+        return DONE;
+    }
+
+    @Override
+    public CompletableFuture<Void> accepted(final String requestId,
+                                            final String sourceAddress,
+                                            final String depositAddress,
+                                            final List<String> userOwnedAddresses,
+                                            long amount) {
+        return DONE;
+    }
+
+    @Override
+    public CompletableFuture<Void> staged(final String requestId, final SendStage stage) {
+        return DONE;
+    }
+
+    @Override
+    public Collection<JournaledRequest> recover() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Collection<JournaledSend> recoverSends() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,362 @@
+package com.gemini.jobcoin.external.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * KVStore specialized for the status of mixing requests.
+ *
+ * Request ids are 128 bit values, rather than keeping the String and a boxed Boolean
+ * per request, each id is parsed into two longs and stored in an open addressed table
+ * made of primitive arrays, with a single status byte per slot. A request costs ~17
+ * bytes of table space, ~23 to 45 bytes depending on the load.
+ *
+ * Both TimeOrderedIdGenerator ids and canonical lowercase UUIDs are compacted, the
+ * status byte also records which kind of id the slot holds so the two never collide.
+ * Any other key is kept in a regular map, so the store behaves like any other KVStore
+ * for keys it can not compact.
+ *
+ * Writes take a write lock and grow the table once it is 3/4 full. Reads are lock free
+ * in the common case, they run optimistically and only retry under the read lock if a
+ * write happened at the same time.
+ */
+public class RequestStatusStore implements KVStore<String, Boolean> {
+
+    private static final byte EMPTY = 0;
+
+    private static final byte INCOMPLETE = 1;
+
+    private static final byte COMPLETE = 2;
+
+    private static final byte STATUS_MASK = 0x3;
+
+    private static final byte UUID_ID = 1 << 2;         // kind of id, kept next to the status
+
+    private static final byte ORDERED_ID = 2 << 2;
+
+    private static final byte KIND_MASK = 0xC;
+
+    private static final int UUID_LENGTH = 36;
+
+    private static final byte[] HEX_DIGITS = new byte['f' + 1];
+
+    static {
+        Arrays.fill(HEX_DIGITS, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_DIGITS['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_DIGITS['a' + i] = (byte) (10 + i);
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+
+    private final Map<String, Boolean> fallback = new ConcurrentHashMap<>();
+
+    private Table table;    // guarded by lock
+
+    private int size;       // guarded by lock
+
+    public RequestStatusStore() {
+        this(1024);
+    }
+
+    /**
+     * @param expectedRequests number of requests the table is initially sized for
+     */
+    public RequestStatusStore(int expectedRequests) {
+        if (expectedRequests <= 0) {
+            throw new IllegalArgumentException("expectedRequests must be greater then 0");
+        }
+        this.table = new Table(Integer.highestOneBit(Math.max(16, expectedRequests * 2 - 1)) << 1);
+    }
+
+    /**
+     * Picks the request store from -Djobcoin.requestStore: compact (the default) for this
+     * store, map for an InMemoryKVStore keeping the raw Strings.
+     *
+     * @throws IllegalArgumentException for any other value
+     */
+    public static KVStore<String, Boolean> fromSystemProperties() {
+        final String store = System.getProperty("jobcoin.requestStore", "compact");
+        switch (store) {
+            case "compact":
+                return new RequestStatusStore();
+            case "map":
+                return new InMemoryKVStore<>();
+            default:
+                throw new IllegalArgumentException(String.format(
+                        "jobcoin.requestStore must be compact or map, got %s", store));
+        }
+    }
+
+    @Override
+    public Boolean put(final String key, Boolean value) {
+        return put(key, value, false);
+    }
+
+    @Override
+    public Boolean putIfAbsent(final String key, Boolean value) {
+        return put(key, value, true);
+    }
+
+    @Override
+    public Map<String, Boolean> putAllIfAbsent(final Map<String, Boolean> entries) {
+        final Map<String, Boolean> present = new HashMap<>();
+        for (Map.Entry<String, Boolean> e : entries.entrySet()) {
+            final Boolean previous = put(e.getKey(), e.getValue(), true);
+            if (previous != null) {
+                present.put(e.getKey(), previous);
+            }
+        }
+        return present;
+    }
+
+    @Override
+    public Boolean get(final String key) {
+        return decode(status(key));
+    }
+
+    /**
+     * Every compact id is read in the same optimistic pass over the table, the pass is
+     * only repeated under the read lock if a write happened while it ran.
+     */
+    @Override
+    public Map<String, Boolean> getAll(final Collection<String> keys) {
+        final Map<String, Boolean> values = new HashMap<>();
+        final List<String> compact = new ArrayList<>(keys.size());
+        final long[] ids = new long[keys.size() * 2];
+        final byte[] kinds = new byte[keys.size()];
+        for (String key : keys) {
+            final byte kind = kindOf(key);
+            if (kind == 0) {
+                final Boolean value = fallback.get(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
+                continue;
+            }
+            final int i = compact.size();
+            ids[i << 1] = high(key, kind);
+            ids[(i << 1) + 1] = low(key, kind);
+            kinds[i] = kind;
+            compact.add(key);
+        }
+
+        final byte[] states = new byte[compact.size()];
+        long stamp = lock.tryOptimisticRead();
+        readAll(table, ids, kinds, states);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                readAll(table, ids, kinds, states);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        for (int i = 0; i < states.length; i++) {
+            final Boolean value = decode(states[i]);
+            if (value != null) {
+                values.put(compact.get(i), value);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public boolean containsKey(final String key) {
+        return status(key) != EMPTY;
+    }
+
+    /**
+     * @return number of requests stored
+     */
+    public int size() {
+        final long stamp = lock.readLock();
+        try {
+            return size + fallback.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Boolean put(final String key, Boolean value, boolean onlyIfAbsent) {
+        Objects.requireNonNull(value);
+        final byte kind = kindOf(key);
+        if (kind == 0) {
+            return onlyIfAbsent ? fallback.putIfAbsent(key, value) : fallback.put(key, value);
+        }
+        final long hi = high(key, kind);
+        final long lo = low(key, kind);
+
+        final long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 4L > table.capacity * 3L) {
+                table = table.resize();
+            }
+            final int slot = table.find(hi, lo, kind);
+            final byte previous = table.states[slot];
+            if (previous == EMPTY) {
+                table.keys[slot << 1] = hi;
+                table.keys[(slot << 1) + 1] = lo;
+                size++;
+            } else if (onlyIfAbsent) {
+                return decode(previous);
+            }
+            table.states[slot] = (byte) (kind | (value ? COMPLETE : INCOMPLETE));
+            return decode(previous);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private byte status(final String key) {
+        final byte kind = kindOf(key);
+        if (kind == 0) {
+            final Boolean value = fallback.get(key);
+            return value == null ? EMPTY : value ? COMPLETE : INCOMPLETE;
+        }
+        final long hi = high(key, kind);
+        final long lo = low(key, kind);
+
+        long stamp = lock.tryOptimisticRead();
+        byte status = read(table, hi, lo, kind);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                status = read(table, hi, lo, kind);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return (byte) (status & STATUS_MASK);
+    }
+
+    private static byte read(final Table table, long hi, long lo, byte kind) {
+        return table.states[table.find(hi, lo, kind)];
+    }
+
+    private static void readAll(final Table table, final long[] ids, final byte[] kinds, final byte[] states) {
+        for (int i = 0; i < states.length; i++) {
+            states[i] = read(table, ids[i << 1], ids[(i << 1) + 1], kinds[i]);
+        }
+    }
+
+    private static Boolean decode(byte status) {
+        return (status & STATUS_MASK) == EMPTY ? null : (status & STATUS_MASK) == COMPLETE;
+    }
+
+    /**
+     * @return kind of 128 bit id the key holds, 0 if it can not be compacted
+     */
+    private static byte kindOf(final String key) {
+        if (TimeOrderedIdGenerator.isValid(key)) {
+            return ORDERED_ID;
+        }
+        return isCanonicalUuid(key) ? UUID_ID : 0;
+    }
+
+    private static long high(final String key, byte kind) {
+        return kind == ORDERED_ID
+                ? TimeOrderedIdGenerator.high(key)
+                : hex(key, 0, 8) << 32 | hex(key, 9, 13) << 16 | hex(key, 14, 18);
+    }
+
+    private static long low(final String key, byte kind) {
+        return kind == ORDERED_ID
+                ? TimeOrderedIdGenerator.low(key)
+                : hex(key, 19, 23) << 48 | hex(key, 24, 36);
+    }
+
+    /**
+     * Only the form produced by UUID.toString is accepted, so each id has exactly
+     * one (hi, lo) representation and parses back to the same String.
+     */
+    static boolean isCanonicalUuid(final String key) {
+        return hasUuidShape(key)
+                && (hex(key, 0, 8) | hex(key, 9, 13) | hex(key, 14, 18) | hex(key, 19, 23) | hex(key, 24, 36)) >= 0;
+    }
+
+    private static boolean hasUuidShape(final String key) {
+        return key != null && key.length() == UUID_LENGTH
+                && key.charAt(8) == '-' && key.charAt(13) == '-' && key.charAt(18) == '-' && key.charAt(23) == '-';
+    }
+
+    /**
+     * @return value of the lowercase hex digits in [from, to), or -1 if any other character is found
+     */
+    private static long hex(final String key, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            final char c = key.charAt(i);
+            final int digit = c < HEX_DIGITS.length ? HEX_DIGITS[c] : -1;
+            if (digit < 0) {
+                return -1;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Power of two sized table, slot i keeps its id in keys[2i] and keys[2i + 1] so a
+     * probe touches a single cache line. Linear probing, entries are never removed.
+     */
+    private static final class Table {
+
+        private final long[] keys;
+
+        private final byte[] states;
+
+        private final int capacity;
+
+        private final int mask;
+
+        Table(int capacity) {
+            this.keys = new long[capacity << 1];
+            this.states = new byte[capacity];
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+        }
+
+        /**
+         * @return slot holding the id, or the empty slot it would be stored in
+         */
+        int find(long hi, long lo, byte kind) {
+            int slot = hash(hi, lo) & mask;
+            while (states[slot] != EMPTY && (keys[slot << 1] != hi || keys[(slot << 1) + 1] != lo
+                    || (states[slot] & KIND_MASK) != kind)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        Table resize() {
+            final Table resized = new Table(capacity << 1);
+            for (int i = 0; i < capacity; i++) {
+                if (states[i] != EMPTY) {
+                    final long hi = keys[i << 1];
+                    final long lo = keys[(i << 1) + 1];
+                    final int slot = resized.find(hi, lo, (byte) (states[i] & KIND_MASK));
+                    resized.keys[slot << 1] = hi;
+                    resized.keys[(slot << 1) + 1] = lo;
+                    resized.states[slot] = states[i];
+                }
+            }
+            return resized;
+        }
+
+        private static int hash(long hi, long lo) {
+            final long h = (hi ^ Long.rotateLeft(lo, 32)) * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.gemini.jobcoin.external.persistence;
+
+/**
+ * Stage of a send which was acknowledged before its transfers ran. A send leaves the
+ * pipeline once the MixingEngine has registered it, from then on its status is the
+ * mixing status of the request.
+ */
+public enum SendStage {
+
+    /** durably queued, nothing transferred yet */
+    ACCEPTED("accepted"),
+
+    /** funds moved from the source address to the deposit address */
+    DEPOSITED("deposited"),
+
+    /** funds moved from the deposit address to the house address */
+    TRANSFERRED("transferred"),
+
+    /** Gemini rejected the transfer to the deposit address, no funds were moved */
+    FAILED("failed");
+
+    private final String label;
+
+    SendStage(final String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return name of the stage reported in mixing status
+     */
+    public String label() {
+        return label;
+    }
+}
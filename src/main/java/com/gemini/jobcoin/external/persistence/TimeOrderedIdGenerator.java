@@ -0,0 +1,176 @@
+package com.gemini.jobcoin.external.persistence;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time ordered 128 bit request ids, in the spirit of ULID / Snowflake.
+ *
+ * Binary form, two longs:
+ *   high: [48 bit unix time in ms][16 bit node id]
+ *   low:  [64 bit scrambled sequence]
+ *
+ * The low half is a per generator counter, xored with a random key and passed through
+ * a bijective mix, so every id a generator creates is unique for 2^64 ids regardless of
+ * the clock. The mix is public and invertible, it only keeps ids from looking
+ * sequential: undoing it on two ids of the same generator shows roughly how many ids
+ * were created between them. Ids are neither secrets nor a way to hide request volume.
+ * Generating an id is a single atomic increment, so it is lock free across threads and
+ * never touches a SecureRandom after construction.
+ *
+ * Text form is the 26 character Crockford base32 encoding of the 128 bits. The alphabet
+ * is in ASCII order so sorting ids as Strings sorts them by creation time (to the ms).
+ * Stores can key on high(id) and low(id) directly instead of the String.
+ *
+ * Each instance of the mixer running against shared stores needs its own node id.
+ */
+public class TimeOrderedIdGenerator implements UUIDGenerator {
+
+    public static final int ID_LENGTH = 26;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private static final byte[] DIGITS = new byte['Z' + 1];
+
+    static {
+        Arrays.fill(DIGITS, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DIGITS[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private final long node;
+
+    private final long key;
+
+    private final AtomicLong sequence;
+
+    public TimeOrderedIdGenerator() {
+        this(0);
+    }
+
+    /**
+     * @param nodeId unique id of this instance of the mixer, 0 to 65535
+     */
+    public TimeOrderedIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > 0xFFFF) {
+            throw new IllegalArgumentException(String.format("nodeId must be between 0 and 65535, got %d", nodeId));
+        }
+        final SecureRandom rnd = new SecureRandom();
+        this.node = nodeId;
+        this.key = rnd.nextLong();
+        this.sequence = new AtomicLong(rnd.nextLong());
+    }
+
+    /**
+     * Reads the node id from -Djobcoin.node.id, 0 if it is not set.
+     *
+     * @throws IllegalArgumentException if the node id is not a number from 0 to 65535
+     */
+    public static TimeOrderedIdGenerator fromSystemProperties() {
+        final String nodeId = System.getProperty("jobcoin.node.id", "0");
+        try {
+            return new TimeOrderedIdGenerator(Integer.parseInt(nodeId.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format(
+                    "jobcoin.node.id must be between 0 and 65535, got %s", nodeId));
+        }
+    }
+
+    /**
+     * @return Jobcoin generated request id in its text form
+     */
+    @Override
+    public String generateId() {
+        final long high = System.currentTimeMillis() << 16 | node;
+        final long low = mix(sequence.getAndIncrement() ^ key);
+        return encode(high, low);
+    }
+
+    /**
+     * @return 26 character text form of the id
+     */
+    public static String encode(long high, long low) {
+        final char[] text = new char[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 14; i--) {      // low 60 bits
+            text[i] = ALPHABET[(int) (low & 0x1F)];
+            low >>>= 5;
+        }
+        text[13] = ALPHABET[(int) ((high & 1) << 4 | low)];  // 1 bit of high, 4 of low
+        high >>>= 1;
+        for (int i = 12; i >= 0; i--) {
+            text[i] = ALPHABET[(int) (high & 0x1F)];
+            high >>>= 5;
+        }
+        return new String(text);
+    }
+
+    /**
+     * Only the uppercase form produced by encode is accepted, so each id has exactly
+     * one text form.
+     *
+     * @return true if the text is an id this generator could have created
+     */
+    public static boolean isValid(final String text) {
+        if (text == null || text.length() != ID_LENGTH || text.charAt(0) > '7') {
+            return false;
+        }
+        for (int i = 0; i < ID_LENGTH; i++) {
+            final char c = text.charAt(i);
+            if (c >= DIGITS.length || DIGITS[c] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param text of a valid id
+     * @return high 64 bits of the id
+     */
+    public static long high(final String text) {
+        long high = 0;
+        for (int i = 0; i < 13; i++) {
+            high = high << 5 | DIGITS[text.charAt(i)];
+        }
+        return high << 1 | DIGITS[text.charAt(13)] >>> 4;
+    }
+
+    /**
+     * @param text of a valid id
+     * @return low 64 bits of the id
+     */
+    public static long low(final String text) {
+        long low = DIGITS[text.charAt(13)] & 0xF;
+        for (int i = 14; i < ID_LENGTH; i++) {
+            low = low << 5 | DIGITS[text.charAt(i)];
+        }
+        return low;
+    }
+
+    /**
+     * @param text of a valid id
+     * @return unix time in ms the id was created at
+     */
+    public static long timestamp(final String text) {
+        return high(text) >>> 16;
+    }
+
+    /**
+     * @param text of a valid id
+     * @return node id of the generator which created the id
+     */
+    public static int nodeId(final String text) {
+        return (int) (high(text) & 0xFFFF);
+    }
+
+    /**
+     * Bijective 64 bit finalizer (from SplitMix64), distinct inputs give distinct outputs.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
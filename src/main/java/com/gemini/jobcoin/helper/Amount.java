@@ -0,0 +1,133 @@
+package com.gemini.jobcoin.helper;
+
+import com.gemini.jobcoin.exception.JobcoinException;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed point Jobcoin amount held as a count of minor units (10^-8 Jobcoin) in a long.
+ *
+ * Amounts are converted from their decimal form once when a request is parsed and
+ * only formatted back to a decimal string when sent to the Gemini API, everything in
+ * between (splitting, scheduling, journaling) works on the raw long so sums are exact
+ * and no BigDecimal or double conversions happen per part.
+ *
+ * Hot paths which handle many parts use the static helpers on long[] directly rather
+ * than allocating an Amount per part.
+ */
+public final class Amount implements Comparable<Amount> {
+
+    public static final int SCALE = 8;
+
+    public static final long UNITS_PER_JOBCOIN = 100_000_000L;
+
+    private final long units;
+
+    private Amount(long units) {
+        this.units = units;
+    }
+
+    public static Amount ofUnits(long units) {
+        return new Amount(units);
+    }
+
+    /**
+     * Converts a decimal amount to minor units.
+     *
+     * @param amount to convert
+     * @return the exact amount
+     * @throws JobcoinException if the amount has more then 8 decimal places or does not
+     *                          fit into a long of minor units
+     */
+    public static Amount of(final BigDecimal amount) throws JobcoinException {
+        if (amount.stripTrailingZeros().scale() > SCALE) {
+            throw new JobcoinException(
+                    String.format("Amount cannot have more then %d decimal places", SCALE), 400);
+        }
+        try {
+            return new Amount(amount.movePointRight(SCALE).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new JobcoinException("Amount is too large", 400);
+        }
+    }
+
+    public long units() {
+        return units;
+    }
+
+    public boolean isPositive() {
+        return units > 0;
+    }
+
+    public String toPlainString() {
+        return format(units);
+    }
+
+    /**
+     * Formats minor units as a plain decimal string without trailing zeros, e.g.
+     * 150000000 -> "1.5" and 100000000 -> "1".
+     *
+     * @param units to format
+     * @return decimal representation of the amount
+     */
+    public static String format(long units) {
+        final long whole = units / UNITS_PER_JOBCOIN;
+        long fraction = Math.abs(units % UNITS_PER_JOBCOIN);
+
+        final StringBuilder sb = new StringBuilder(28);
+        if (units < 0 && whole == 0) {
+            sb.append('-');
+        }
+        sb.append(whole);
+        if (fraction == 0) {
+            return sb.toString();
+        }
+        int digits = SCALE;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        sb.append('.');
+        final String f = Long.toString(fraction);
+        for (int i = f.length(); i < digits; i++) {
+            sb.append('0');
+        }
+        return sb.append(f).toString();
+    }
+
+    /**
+     * @param parts minor units to format
+     * @param count number of parts in use
+     * @return parts formatted as a list, e.g. [1.5, 2.25]
+     */
+    public static String format(final long[] parts, int count) {
+        final StringBuilder sb = new StringBuilder().append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(format(parts[i]));
+        }
+        return sb.append(']').toString();
+    }
+
+    @Override
+    public int compareTo(final Amount other) {
+        return Long.compare(units, other.units);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return o instanceof Amount && ((Amount) o).units == units;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(units);
+    }
+
+    @Override
+    public String toString() {
+        return format(units);
+    }
+}
@@ -0,0 +1,24 @@
+package com.gemini.jobcoin.helper;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+public class Futures {
+
+    /**
+     * Chained CompletableFutures wrap the original failure in a CompletionException
+     * (or ExecutionException when joined), this strips that wrapping so callers can
+     * map the underlying exception the same way they would a synchronous one.
+     *
+     * @param error raised by a future
+     * @return the underlying cause of the failure
+     */
+    public static Throwable unwrap(final Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -2,14 +2,11 @@ package com.gemini.jobcoin.helper;
 
 import com.gemini.jobcoin.exception.JobcoinException;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.LinkedList;
 import java.util.concurrent.ThreadLocalRandom;
 
 public class JobcoinMath {
 
-    private static final BigDecimal smallestDividable = new BigDecimal(".01");
+    private static final long smallestDividable = Amount.UNITS_PER_JOBCOIN / 100;   // 0.01
 
     /**
      * Method takes a given amount and splits it up into the requested amount of
@@ -20,13 +17,14 @@ public class JobcoinMath {
      * and the number elected gets used as the remaining. This is to remove the smallest
      * amount from the total each time.
      *
-     * BigDecimal with a scale of 2 is used to protect against floating point precision
-     * errors. If we get to a remaining of 0.01 or a number smaller then 0.01 was entered,
-     * we break out and add that value as the final quantity. There are more performant
-     * way to accomplish this but for simplicity using BigDecimal.
+     * Amounts are minor units (see {@link Amount}) so the parts always sum exactly to the
+     * original amount. Each number elected is a multiple of 0.01 strictly between zero and
+     * what is remaining, so every part is positive. If we get to a remaining of 0.01 or a
+     * number smaller then 0.01 was entered, we break out and add that value as the final
+     * quantity.
      *
-     * This could be expanded to a smaller scale or adding a rule to enforce a minimum
-     * transfer amount that is far greater then the smallest divisible unit we handle.
+     * The parts are written into the caller supplied array so splitting does not allocate,
+     * the array must hold at least max(1, partCount) entries.
      *
      * Sample steps:
 
@@ -38,40 +36,40 @@ public class JobcoinMath {
      *
      * quantities = [37.5, 2.5, 20.5, 9.5, 30]
      *
-     * @param amount of to break up
-     * @param partCount number of doubles to break it up into
-     * @return a list of all the parts it was broken up into
+     * @param amount in minor units to break up
+     * @param partCount number of parts to break it up into
+     * @param parts array the parts are written into
+     * @return number of parts the amount was broken up into
      */
-    public static LinkedList<BigDecimal> breakUpDecimalIntoDecimals(final String amount, int partCount)
+    public static int breakUpAmount(long amount, int partCount, final long[] parts)
             throws JobcoinException {
 
-        BigDecimal remaining = new BigDecimal(amount);
-
-        if (new BigDecimal(amount).compareTo(BigDecimal.ZERO) <= 0) {
+        if (amount <= 0) {
             throw new JobcoinException("Amount specified cannot be zero or below zero", 422);
         }
 
-        final LinkedList<BigDecimal> quantities = new LinkedList<>();
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        long remaining = amount;
+        int count = 0;
 
         for (int i = 0; i < partCount - 1; i++) {
-            if (remaining.compareTo(smallestDividable) <= 0) {  // edge case if we have not hit desired part
-                break;                                          // count but we are at the maximum dividable
+            final long maxSteps = (remaining - 1) / smallestDividable;
+            if (maxSteps == 0) {            // edge case if we have not hit desired part
+                break;                      // count but we are at the maximum dividable
             }
 
-            final double d = ThreadLocalRandom.current().nextDouble(0.0, remaining.doubleValue());
-            final BigDecimal bd = new BigDecimal(d).setScale(2, RoundingMode.CEILING);
-
-            final BigDecimal newRemaining = remaining.subtract(bd);
+            final long d = random.nextLong(1, maxSteps + 1) * smallestDividable;
+            final long newRemaining = remaining - d;
 
-            if (bd.compareTo(newRemaining) < 0) { // always choose smaller to add
-                quantities.add(bd);
+            if (d < newRemaining) {         // always choose smaller to add
+                parts[count++] = d;
                 remaining = newRemaining;
             } else {
-                quantities.add(newRemaining);
-                remaining = bd;
+                parts[count++] = newRemaining;
+                remaining = d;
             }
         }
-        quantities.add(remaining);
-        return quantities;
+        parts[count++] = remaining;
+        return count;
     }
 }
@@ -0,0 +1,210 @@
+package com.gemini.jobcoin.helper;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gemini.jobcoin.exception.JsonRequestException;
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.buffer.Buffer;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.zip.Checksum;
+
+/**
+ * Parses a json request body into a tree as its chunks arrive, with Jackson's non
+ * blocking parser. The body is never held as a whole, only the tree is built, and a body
+ * over the limit or malformed json fails on the chunk it shows up in instead of once the
+ * whole body was received.
+ *
+ * The tree is the same readTree of the mapper would build, except that content after
+ * the root value is rejected. A parser is used for a single body and only from the
+ * thread feeding it.
+ */
+public final class JsonBodyParser {
+
+    private final JsonParser parser;
+
+    private final ByteArrayFeeder feeder;
+
+    private final JsonNodeFactory nodes;
+
+    private final boolean bigDecimals;
+
+    private final long maxBytes;
+
+    private final Checksum checksum;
+
+    private final Deque<JsonNode> containers = new ArrayDeque<>();
+
+    private String fieldName;
+
+    private JsonNode root;
+
+    private long bytes;
+
+    /**
+     * @param mapper whose node factory and float handling the tree is built with
+     * @param maxBytes the body may have, longer bodies fail with a 413
+     * @param checksum updated with every byte of the body, null for none
+     */
+    public JsonBodyParser(final ObjectMapper mapper, long maxBytes, final Checksum checksum) {
+        try {
+            this.parser = mapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        this.nodes = mapper.getNodeFactory();
+        this.bigDecimals = mapper.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        this.maxBytes = maxBytes;
+        this.checksum = checksum;
+    }
+
+    /**
+     * @return failure of a body longer then maxBytes
+     */
+    public static JsonRequestException tooLarge(long maxBytes) {
+        return new JsonRequestException(String.format("Payload is larger then %d bytes", maxBytes), 413);
+    }
+
+    /**
+     * Parses every token the chunk completes.
+     *
+     * @throws JsonRequestException with a 413 once the body is over the limit, a 400 if
+     * it is not valid json
+     */
+    public void feed(final Buffer chunk) throws JsonRequestException {
+        bytes += chunk.length();
+        if (bytes > maxBytes) {
+            throw tooLarge(maxBytes);
+        }
+        // chunks of the HTTP server are heap buffers, their array is fed without a copy
+        final ByteBuf buf = chunk.getByteBuf();
+        final byte[] input;
+        final int offset;
+        if (buf.hasArray()) {
+            input = buf.array();
+            offset = buf.arrayOffset() + buf.readerIndex();
+        } else {
+            input = chunk.getBytes();
+            offset = 0;
+        }
+        final int length = chunk.length();
+        if (checksum != null) {
+            checksum.update(input, offset, length);
+        }
+        try {
+            feeder.feedInput(input, offset, offset + length);
+            drain();
+        } catch (IOException e) {
+            throw invalid();
+        }
+    }
+
+    /**
+     * @return tree of the body, MissingNode if the body was empty
+     * @throws JsonRequestException with a 400 if the body ended before the json did
+     */
+    public JsonNode end() throws JsonRequestException {
+        try {
+            feeder.endOfInput();
+            drain();
+            parser.close();
+        } catch (IOException e) {
+            throw invalid();
+        }
+        if (!containers.isEmpty()) {
+            throw invalid();
+        }
+        return root == null ? MissingNode.getInstance() : root;
+    }
+
+    /**
+     * @return bytes of the body fed so far
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    private void drain() throws IOException, JsonRequestException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (root != null && containers.isEmpty()) {
+                throw invalid();    // content after the root value
+            }
+            switch (token) {
+                case START_OBJECT:
+                    open(nodes.objectNode());
+                    break;
+                case START_ARRAY:
+                    open(nodes.arrayNode());
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    containers.pop();
+                    break;
+                case FIELD_NAME:
+                    fieldName = parser.getCurrentName();
+                    break;
+                case VALUE_STRING:
+                    add(nodes.textNode(parser.getText()));
+                    break;
+                case VALUE_NUMBER_INT:
+                    add(integral());
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    add(bigDecimals ? nodes.numberNode(parser.getDecimalValue()) : nodes.numberNode(parser.getDoubleValue()));
+                    break;
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    add(nodes.booleanNode(token == JsonToken.VALUE_TRUE));
+                    break;
+                case VALUE_NULL:
+                    add(nodes.nullNode());
+                    break;
+                default:
+                    throw invalid();
+            }
+        }
+    }
+
+    private JsonNode integral() throws IOException {
+        switch (parser.getNumberType()) {
+            case INT:
+                return nodes.numberNode(parser.getIntValue());
+            case LONG:
+                return nodes.numberNode(parser.getLongValue());
+            default:
+                return nodes.numberNode(parser.getBigIntegerValue());
+        }
+    }
+
+    private void open(final JsonNode container) {
+        add(container);
+        containers.push(container);
+    }
+
+    private void add(final JsonNode value) {
+        final JsonNode parent = containers.peek();
+        if (parent == null) {
+            root = value;
+        } else if (parent instanceof ObjectNode) {
+            ((ObjectNode) parent).set(fieldName, value);
+        } else {
+            ((ArrayNode) parent).add(value);
+        }
+    }
+
+    private static JsonRequestException invalid() {
+        return new JsonRequestException("Issue processing Json", 400);
+    }
+}
@@ -0,0 +1,58 @@
+package com.gemini.jobcoin.message;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+
+public class Codecs {
+
+    public static final String JSON_CODEC = "jobcoin-json";
+
+    /** options for sending any JsonNode, only read by the event bus so it is safe to share */
+    public static final DeliveryOptions JSON = new DeliveryOptions().setCodecName(JSON_CODEC);
+
+    /**
+     * Registers the local codecs for every type passed between verticles. Every verticle
+     * calls this on start, the first one to do so for a Vertx instance registers them.
+     *
+     * @param vertx whose event bus to register the codecs with
+     */
+    public static void register(final Vertx vertx) {
+        final EventBus eventBus = vertx.eventBus();
+        try {
+            eventBus.registerCodec(new LocalMessageCodec<JsonNode>(JSON_CODEC));
+        } catch (IllegalStateException e) {
+            // already registered by another verticle
+        }
+        registerDefault(eventBus, MixingRequest.class);
+        registerDefault(eventBus, JobcoinResponse.class);
+        registerDefault(eventBus, MixingStatuses.class);
+        registerDefault(eventBus, MixingEvent.class);
+    }
+
+    private static <T> void registerDefault(final EventBus eventBus, final Class<T> type) {
+        try {
+            eventBus.registerDefaultCodec(type, new LocalMessageCodec<>(type.getName()));
+        } catch (IllegalStateException e) {
+            // already registered by another verticle
+        }
+    }
+
+    /**
+     * Handlers receive JsonNode bodies from the HTTP server, anything else (e.g. a String
+     * from a client which does not use the local codec) is parsed.
+     *
+     * @param mapper to parse with if the body is not already a JsonNode
+     * @param body of the message
+     * @return body as json
+     */
+    public static JsonNode json(final ObjectMapper mapper, final Object body) throws JsonProcessingException {
+        if (body instanceof JsonNode) {
+            return (JsonNode) body;
+        }
+        return mapper.readTree(String.valueOf(body));
+    }
+}
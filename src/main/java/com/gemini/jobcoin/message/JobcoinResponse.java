@@ -0,0 +1,53 @@
+package com.gemini.jobcoin.message;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Successful reply from a handler. The payload travels over the event bus as is and is
+ * only serialized when the HTTP server writes the response.
+ */
+public final class JobcoinResponse {
+
+    private final JsonNode message;
+
+    private final int statusCode;
+
+    public JobcoinResponse(final JsonNode message) {
+        this(message, 200);
+    }
+
+    /**
+     * @param message payload of the reply
+     * @param statusCode HTTP status code returned to the client, e.g. 202 for work
+     *                   which was accepted but has not run yet
+     */
+    public JobcoinResponse(final JsonNode message, int statusCode) {
+        this.message = message;
+        this.statusCode = statusCode;
+    }
+
+    public JsonNode message() {
+        return message;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return response body sent to HTTP clients
+     */
+    public String encode() {
+        final ObjectNode response = JsonNodeFactory.instance.objectNode()
+                .put("status", "succeeded")
+                .set("message", message);
+        return response.toString();
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,47 @@
+package com.gemini.jobcoin.message;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+/**
+ * Codec for messages which never leave the JVM. The object sent is handed to the
+ * consumer as is, so nothing is serialized between verticles.
+ *
+ * Objects sent with this codec must not be modified after they are sent. The mixer
+ * does not run clustered, sending one of these types to a remote node fails.
+ *
+ * @param <T> type of message body
+ */
+public class LocalMessageCodec<T> implements MessageCodec<T, T> {
+
+    private final String name;
+
+    public LocalMessageCodec(final String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void encodeToWire(final Buffer buffer, final T t) {
+        throw new UnsupportedOperationException(String.format("Codec %s only supports local delivery", name));
+    }
+
+    @Override
+    public T decodeFromWire(int pos, final Buffer buffer) {
+        throw new UnsupportedOperationException(String.format("Codec %s only supports local delivery", name));
+    }
+
+    @Override
+    public T transform(final T t) {
+        return t;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
@@ -0,0 +1,57 @@
+package com.gemini.jobcoin.message;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import static com.gemini.jobcoin.constant.Routes.MIXING_EVENTS_VERTX_V1;
+
+/**
+ * Published by the MixingEngine each time a part of a request is paid out, the last
+ * event of a request is the one which completes it.
+ *
+ * Events are published to an address per request id, so only subscribers of that
+ * request receive them and publishing for a request nobody follows is a no-op.
+ */
+public final class MixingEvent {
+
+    public final String requestId;
+
+    public final int partsPaid;
+
+    public final int partCount;
+
+    public MixingEvent(final String requestId,
+                       int partsPaid,
+                       int partCount) {
+        this.requestId = requestId;
+        this.partsPaid = partsPaid;
+        this.partCount = partCount;
+    }
+
+    public boolean completed() {
+        return partsPaid >= partCount;
+    }
+
+    /**
+     * @return event bus address the events of the request are published to
+     */
+    public static String address(final String requestId) {
+        return MIXING_EVENTS_VERTX_V1 + requestId;
+    }
+
+    /**
+     * @return json sent to subscribers
+     */
+    public String encode() {
+        return JsonNodeFactory.instance.objectNode()
+                .put("requestId", requestId)
+                .put("partsPaid", partsPaid)
+                .put("parts", partCount)
+                .put("status", completed() ? "complete" : "incomplete")
+                .toString();
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
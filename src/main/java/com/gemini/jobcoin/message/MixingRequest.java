@@ -0,0 +1,57 @@
+package com.gemini.jobcoin.message;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.gemini.jobcoin.helper.Amount;
+
+import java.util.List;
+
+/**
+ * Request sent from the SendHandler to the MixingEngine once the funds have been
+ * moved to the house address.
+ *
+ * Sends which were acknowledged before their transfers ran already handed a requestId
+ * to the client, the engine registers them under that id instead of generating one.
+ * They also carry the user addresses journaled with them, as the deposit address store
+ * does not survive a restart.
+ */
+public final class MixingRequest {
+
+    public final String sourceAddress;
+
+    public final String depositAddress;
+
+    public final Amount amount;
+
+    /** null if the engine should generate the id */
+    public final String requestId;
+
+    /** null if the engine should look them up by the deposit address */
+    public final List<String> userOwnedAddresses;
+
+    public MixingRequest(final String sourceAddress,
+                         final String depositAddress,
+                         final Amount amount) {
+        this(sourceAddress, depositAddress, amount, null, null);
+    }
+
+    public MixingRequest(final String sourceAddress,
+                         final String depositAddress,
+                         final Amount amount,
+                         final String requestId,
+                         final List<String> userOwnedAddresses) {
+        this.sourceAddress = sourceAddress;
+        this.depositAddress = depositAddress;
+        this.amount = amount;
+        this.requestId = requestId;
+        this.userOwnedAddresses = userOwnedAddresses;
+    }
+
+    @Override
+    public String toString() {
+        return JsonNodeFactory.instance.objectNode()
+                .put("sourceAddress", sourceAddress)
+                .put("depositAddress", depositAddress)
+                .put("amount", amount.toPlainString())
+                .toString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.gemini.jobcoin.message;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.vertx.core.buffer.Buffer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reply of a bulk mixing status lookup, the status of each request id in the order they
+ * were asked for. Ids the mixer does not know are reported as unknown.
+ *
+ * Large replies are written to the client in chunks, encode serializes any range of the
+ * ids so the HTTP server never holds the whole response body in memory.
+ */
+public final class MixingStatuses {
+
+    private static final String PREFIX = "{\"status\":\"succeeded\",\"message\":{\"statuses\":{";
+
+    private static final String SUFFIX = "}}}";
+
+    private final List<String> requestIds;
+
+    private final Map<String, Boolean> statuses;
+
+    private final Set<String> failed;
+
+    /**
+     * @param requestIds looked up, without duplicates
+     * @param statuses of the request ids which are known
+     */
+    public MixingStatuses(final List<String> requestIds,
+                          final Map<String, Boolean> statuses) {
+        this(requestIds, statuses, Collections.emptySet());
+    }
+
+    /**
+     * @param requestIds looked up, without duplicates
+     * @param statuses of the request ids which are known
+     * @param failed request ids whose send failed before reaching the engine
+     */
+    public MixingStatuses(final List<String> requestIds,
+                          final Map<String, Boolean> statuses,
+                          final Set<String> failed) {
+        this.requestIds = requestIds;
+        this.statuses = statuses;
+        this.failed = failed;
+    }
+
+    public int size() {
+        return requestIds.size();
+    }
+
+    /**
+     * @return complete, incomplete, failed or unknown
+     */
+    public String status(int i) {
+        final Boolean status = statuses.get(requestIds.get(i));
+        if (status == null) {
+            return failed.contains(requestIds.get(i)) ? "failed" : "unknown";
+        }
+        return status ? "complete" : "incomplete";
+    }
+
+    /**
+     * Encoding every range from 0 to size in order and concatenating the results gives
+     * the full response body sent to HTTP clients.
+     *
+     * @param from index of the first request id to encode, inclusive
+     * @param to index of the last request id to encode, exclusive
+     * @return part of the response body
+     */
+    public Buffer encode(int from, int to) {
+        final StringBuilder json = new StringBuilder((to - from) * 48 + PREFIX.length());
+        if (from == 0) {
+            json.append(PREFIX);
+        }
+        final JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        for (int i = from; i < to; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"');
+            encoder.quoteAsString(requestIds.get(i), json);
+            json.append("\":\"").append(status(i)).append('"');
+        }
+        if (to == requestIds.size()) {
+            json.append(SUFFIX);
+        }
+        return Buffer.buffer(json.toString());
+    }
+
+    public Buffer encode() {
+        return encode(0, requestIds.size());
+    }
+
+    @Override
+    public String toString() {
+        return encode().toString();
+    }
+}
@@ -0,0 +1,54 @@
+package com.gemini.jobcoin.metrics;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.gemini.jobcoin.constant.Routes.MIXING_EVENTS_VERTX_V1;
+
+/**
+ * Times the event bus hop of requests sent to the handlers, from the HTTP server sending
+ * a request to the handler's consumer receiving it. This is the time spent queued for a
+ * worker, the handler's own processing is not included.
+ *
+ * The send time travels as a message header, set by an outbound interceptor and read by
+ * an inbound one. Only point to point messages to the mixer's routes are timed, replies
+ * and published mixing events are not.
+ */
+public final class EventBusMetrics {
+
+    private static final String ROUTE_PREFIX = "/v1/route/";
+
+    private static final String SENT_AT = "jobcoin-sent-at";
+
+    private EventBusMetrics() {
+    }
+
+    public static void install(final Vertx vertx, final MetricsRegistry registry) {
+        final EventBus eventBus = vertx.eventBus();
+        final Map<String, Histogram> hops = new ConcurrentHashMap<>();
+        eventBus.addOutboundInterceptor(ctx -> {
+            if (ctx.send() && timed(ctx.message().address())) {
+                ctx.message().headers().set(SENT_AT, Long.toString(System.nanoTime()));
+            }
+            ctx.next();
+        });
+        eventBus.addInboundInterceptor(ctx -> {
+            final String sentAt = ctx.message().headers().get(SENT_AT);
+            if (sentAt != null) {
+                hops.computeIfAbsent(ctx.message().address(), address -> registry.histogram(
+                        "jobcoin_eventbus_hop_seconds",
+                        "Time from sending a request on the event bus to its handler receiving it",
+                        "address", address))
+                        .recordSince(Long.parseLong(sentAt));
+            }
+            ctx.next();
+        });
+    }
+
+    private static boolean timed(final String address) {
+        return address.startsWith(ROUTE_PREFIX) && !address.startsWith(MIXING_EVENTS_VERTX_V1);
+    }
+}
@@ -0,0 +1,146 @@
+package com.gemini.jobcoin.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free log-linear histogram of non negative longs, in the style of HdrHistogram.
+ *
+ * Values below 32 get a bucket each, above that every power of two is split into 32
+ * linear sub buckets, so any recorded value is reported within 1/32 (~3%) of its actual
+ * value. The whole long range fits in 1888 buckets, recording is one index computation
+ * and one atomic increment, nothing is allocated.
+ *
+ * Requests of the same route take about as long, so concurrent recordings mostly land in
+ * the same bucket. The counts are striped by thread, as LongAdder stripes its cells, so
+ * the event loops do not contend on that bucket; snapshots add the stripes up.
+ *
+ * Durations are recorded in nanoseconds.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    private static final int STRIPES = Math.min(8,
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final AtomicLongArray[] counts = new AtomicLongArray[STRIPES];
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public Histogram() {
+        for (int i = 0; i < STRIPES; i++) {
+            counts[i] = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    /**
+     * @param value to record, negative values are recorded as 0
+     */
+    public void record(long value) {
+        final long v = Math.max(0, value);
+        counts[(int) Thread.currentThread().getId() & (STRIPES - 1)].incrementAndGet(index(v));
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    /**
+     * @param startNanos System.nanoTime() taken when the timed operation started
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public Snapshot snapshot() {
+        final long[] buckets = new long[BUCKETS];
+        long count = 0;
+        for (AtomicLongArray stripe : counts) {
+            for (int i = 0; i < BUCKETS; i++) {
+                final long n = stripe.get(i);
+                buckets[i] += n;
+                count += n;
+            }
+        }
+        return new Snapshot(buckets, count, sum.sum(), max.get());
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * @return largest value recorded into the bucket
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS << 1) {
+            return index;
+        }
+        final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        final long mantissa = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Point in time copy of a histogram. Recording is not blocked while a snapshot is
+     * taken, so a snapshot may miss values recorded concurrently.
+     */
+    public static final class Snapshot {
+
+        private final long[] buckets;
+
+        private final long count;
+
+        private final long sum;
+
+        private final long max;
+
+        Snapshot(final long[] buckets, long count, long sum, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long sum() {
+            return sum;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        /**
+         * @param quantile between 0 and 1
+         * @return value at the quantile, 0 if nothing was recorded
+         */
+        public long valueAt(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(highestEquivalentValue(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.gemini.jobcoin.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * In process registry of the mixer's metrics, scraped in the Prometheus text format from
+ * the HTTP server's /metrics endpoint.
+ *
+ * Metrics are identified by name and labels, asking for the same one twice returns the
+ * same instance, so components look theirs up once and keep the reference. Recording
+ * never takes a lock, only scraping walks the registry.
+ *
+ * Histograms are exported as summaries, durations are recorded in nanoseconds and
+ * exported in seconds. Counters and gauges can also be backed by a function, to export
+ * counts which components already keep.
+ */
+public class MetricsRegistry {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<>();
+
+    /**
+     * @param labels alternating label names and values
+     */
+    public Histogram histogram(final String name, final String help, final String... labels) {
+        return (Histogram) family(name, help, "summary").series
+                .computeIfAbsent(labels(labels), l -> new Histogram());
+    }
+
+    /**
+     * @param labels alternating label names and values
+     */
+    public Counter counter(final String name, final String help, final String... labels) {
+        return (Counter) family(name, help, "counter").series
+                .computeIfAbsent(labels(labels), l -> new Counter());
+    }
+
+    /**
+     * Exports a count kept elsewhere as a counter, registering it again replaces the
+     * function.
+     *
+     * @param labels alternating label names and values
+     */
+    public void counter(final String name, final String help, final LongSupplier count, final String... labels) {
+        family(name, help, "counter").series.put(labels(labels), count);
+    }
+
+    /**
+     * Registering a gauge again replaces its function.
+     *
+     * @param labels alternating label names and values
+     */
+    public void gauge(final String name, final String help, final LongSupplier value, final String... labels) {
+        family(name, help, "gauge").series.put(labels(labels), value);
+    }
+
+    /**
+     * @return every metric in the Prometheus text exposition format
+     */
+    public String scrape() {
+        final StringBuilder text = new StringBuilder(4096);
+        for (Family family : new TreeMap<>(families).values()) {
+            text.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            text.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> series : new TreeMap<>(family.series).entrySet()) {
+                write(text, family.name, series.getKey(), series.getValue());
+            }
+        }
+        return text.toString();
+    }
+
+    private static void write(final StringBuilder text, final String name, final String labels, final Object metric) {
+        if (metric instanceof Histogram) {
+            final Histogram.Snapshot snapshot = ((Histogram) metric).snapshot();
+            for (double quantile : QUANTILES) {
+                final String quantileLabel = "quantile=\"" + quantile + "\"";
+                sample(text, name, labels.isEmpty() ? quantileLabel : labels + "," + quantileLabel,
+                        seconds(snapshot.valueAt(quantile)));
+            }
+            sample(text, name + "_sum", labels, seconds(snapshot.sum()));
+            sample(text, name + "_count", labels, Long.toString(snapshot.count()));
+        } else if (metric instanceof Counter) {
+            sample(text, name, labels, Long.toString(((Counter) metric).get()));
+        } else {
+            sample(text, name, labels, Long.toString(((LongSupplier) metric).getAsLong()));
+        }
+    }
+
+    private static void sample(final StringBuilder text, final String name, final String labels, final String value) {
+        text.append(name);
+        if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private Family family(final String name, final String help, final String type) {
+        final Family family = families.computeIfAbsent(name, n -> new Family(name, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException(String.format("%s is already registered as a %s", name, family.type));
+        }
+        return family;
+    }
+
+    /**
+     * @return labels rendered as they appear between the braces of a sample
+     */
+    private static String labels(final String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name value pairs");
+        }
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(labels[i]).append("=\"");
+            final String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                final char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    text.append('\\').append(c);
+                } else if (c == '\n') {
+                    text.append("\\n");
+                } else {
+                    text.append(c);
+                }
+            }
+            text.append('"');
+        }
+        return text.toString();
+    }
+
+    private static final class Family {
+
+        private final String name;
+
+        private final String help;
+
+        private final String type;
+
+        private final ConcurrentMap<String, Object> series = new ConcurrentHashMap<>();
+
+        private Family(final String name, final String help, final String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.gemini.jobcoin.metrics;
+
+import io.vertx.core.VertxOptions;
+import io.vertx.core.metrics.MetricsOptions;
+import io.vertx.core.spi.VertxMetricsFactory;
+import io.vertx.core.spi.metrics.PoolMetrics;
+import io.vertx.core.spi.metrics.VertxMetrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exports the saturation of every worker pool, Vert.x's default pool and the named pools
+ * of the handler verticles alike. Vert.x reports each task submitted to a pool, when a
+ * thread starts running it and when it is done, from which the tasks queued, the threads
+ * in use and the time tasks wait for a thread are kept per pool.
+ *
+ * Installed through the Vert.x metrics SPI, so it has to be passed in the VertxOptions:
+ *
+ *   Vertx.vertx(new VertxOptions().setMetricsOptions(WorkerPoolMetrics.options(metrics)))
+ */
+public final class WorkerPoolMetrics implements VertxMetricsFactory {
+
+    private static final String WORKER = "worker";
+
+    private final MetricsRegistry registry;
+
+    private WorkerPoolMetrics(final MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public static MetricsOptions options(final MetricsRegistry registry) {
+        return new MetricsOptions()
+                .setEnabled(true)
+                .setFactory(new WorkerPoolMetrics(registry));
+    }
+
+    @Override
+    public VertxMetrics metrics(final VertxOptions options) {
+        return new VertxMetrics() {
+            @Override
+            public PoolMetrics<?> createPoolMetrics(final String poolType, final String poolName, int maxPoolSize) {
+                return WORKER.equals(poolType) ? new Pool(registry, poolName, maxPoolSize) : null;
+            }
+        };
+    }
+
+    /**
+     * Metrics of one pool, the task's submit time is handed back by Vert.x when it starts.
+     */
+    static final class Pool implements PoolMetrics<Long> {
+
+        private final LongAdder queued = new LongAdder();
+
+        private final LongAdder inUse = new LongAdder();
+
+        private final Histogram queueWait;
+
+        private final Counter completed;
+
+        Pool(final MetricsRegistry registry, final String poolName, int maxPoolSize) {
+            registry.gauge("jobcoin_worker_pool_size", "Threads of the worker pool",
+                    () -> maxPoolSize, "pool", poolName);
+            registry.gauge("jobcoin_worker_pool_in_use", "Worker threads running a task",
+                    inUse::sum, "pool", poolName);
+            registry.gauge("jobcoin_worker_pool_queued", "Tasks waiting for a worker thread",
+                    queued::sum, "pool", poolName);
+            this.queueWait = registry.histogram("jobcoin_worker_pool_queue_wait_seconds",
+                    "Time tasks wait for a worker thread", "pool", poolName);
+            this.completed = registry.counter("jobcoin_worker_pool_tasks_total",
+                    "Tasks run by the worker pool", "pool", poolName);
+        }
+
+        @Override
+        public Long submitted() {
+            queued.increment();
+            return System.nanoTime();
+        }
+
+        @Override
+        public void rejected(final Long submittedAt) {
+            queued.decrement();
+        }
+
+        @Override
+        public Long begin(final Long submittedAt) {
+            queued.decrement();
+            inUse.increment();
+            queueWait.recordSince(submittedAt);
+            return submittedAt;
+        }
+
+        @Override
+        public void end(final Long submittedAt, boolean succeeded) {
+            inUse.decrement();
+            completed.increment();
+        }
+    }
+}
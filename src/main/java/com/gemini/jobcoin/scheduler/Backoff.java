@@ -0,0 +1,52 @@
+package com.gemini.jobcoin.scheduler;
+
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * Capped exponential backoff with jitter. The nth retry waits between half and all of
+ * min(capMs, baseMs * 2^(n-1)), so retries of parts which failed together spread out
+ * instead of hitting Gemini again at the same time, and never come back sooner then half
+ * their backoff.
+ */
+public final class Backoff {
+
+    private final long baseMs;
+
+    private final long capMs;
+
+    private final Random random;
+
+    public Backoff(long baseMs, long capMs) {
+        this(baseMs, capMs, new SecureRandom());
+    }
+
+    /**
+     * @param baseMs backoff of the first retry
+     * @param capMs most a retry backs off
+     * @param random jitter is drawn from
+     */
+    public Backoff(long baseMs, long capMs, final Random random) {
+        if (baseMs <= 0 || capMs < baseMs) {
+            throw new IllegalArgumentException(String.format(
+                    "Backoff must satisfy 0 < base <= cap, got base=%d cap=%d", baseMs, capMs));
+        }
+        this.baseMs = baseMs;
+        this.capMs = capMs;
+        this.random = random;
+    }
+
+    /**
+     * @param retry 1 for the first retry
+     * @return ms to wait before the retry
+     */
+    public long delayMillis(int retry) {
+        final int doublings = Math.max(retry, 1) - 1;
+        // shifting any further would overflow, the cap is reached long before
+        final long backoff = doublings >= Long.numberOfLeadingZeros(baseMs)
+                ? capMs
+                : Math.min(capMs, baseMs << doublings);
+        final long half = backoff / 2;
+        return half + (long) (random.nextDouble() * (backoff - half + 1));
+    }
+}
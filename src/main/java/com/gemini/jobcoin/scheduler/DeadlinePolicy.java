@@ -0,0 +1,65 @@
+package com.gemini.jobcoin.scheduler;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds how long a request takes to mix. Every request has a deadline, maxCompletionMs
+ * after it was registered, and its remaining parts split the time left until then.
+ *
+ * A part waits a random delay between minIntervalMs and the smaller of maxIntervalMs and
+ * its share of the time left, (deadline - now) / remainingParts. Requests far from their
+ * deadline are scheduled as the uniform policy would, the closer a request gets to its
+ * deadline the sooner its parts run, so on the timing wheel the request with the earliest
+ * deadline is the first served. Once the share is under minIntervalMs parts wait between
+ * half of it and all of it so they stay random, past the deadline they run straight away.
+ *
+ * Only the time parts wait on the wheel is bounded, a request can still finish late if
+ * Gemini is slow or failing.
+ */
+public final class DeadlinePolicy implements SchedulingPolicy {
+
+    private final int minIntervalMs;
+
+    private final int maxIntervalMs;
+
+    private final long maxCompletionNanos;
+
+    private final Random random;
+
+    public DeadlinePolicy(int minIntervalMs, int maxIntervalMs, long maxCompletionMs) {
+        this(minIntervalMs, maxIntervalMs, maxCompletionMs, new SecureRandom());
+    }
+
+    /**
+     * @param maxCompletionMs after registering a request is due to be mixed by
+     * @param random delays are drawn from, seeded by simulations to be repeatable
+     */
+    public DeadlinePolicy(int minIntervalMs, int maxIntervalMs, long maxCompletionMs, final Random random) {
+        if (minIntervalMs < 0 || maxIntervalMs <= minIntervalMs) {
+            throw new IllegalArgumentException(String.format(
+                    "Intervals must satisfy 0 <= min < max, got min=%d max=%d", minIntervalMs, maxIntervalMs));
+        }
+        if (maxCompletionMs <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Max completion must be positive, got %dms", maxCompletionMs));
+        }
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.maxCompletionNanos = TimeUnit.MILLISECONDS.toNanos(maxCompletionMs);
+        this.random = random;
+    }
+
+    @Override
+    public long delayMillis(final Request request, long nowNanos) {
+        final long left = request.registeredAt() + maxCompletionNanos - nowNanos;
+        final long share = TimeUnit.NANOSECONDS.toMillis(left / Math.max(1, request.remainingParts()));
+        final long hi = Math.min(maxIntervalMs, share);
+        if (hi <= 0) {
+            return 0;
+        }
+        final long lo = Math.min(minIntervalMs, hi / 2);
+        return lo + (long) (random.nextDouble() * (hi - lo));
+    }
+}
@@ -0,0 +1,105 @@
+package com.gemini.jobcoin.scheduler;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares a payout rate equally between the depositors with parts pending, so a depositor
+ * with many or large requests can not crowd out everyone else.
+ *
+ * Every depositor has a next slot on the clock. A part runs at the later of its random
+ * delay and its depositor's slot, the slot then moves on by the depositor's share of the
+ * rate, activeDepositors / partsPerSecond, itself randomized by up to half in either
+ * direction. A depositor alone gets the whole rate, with n depositors pending each gets
+ * a nth of it. Slots do not bank time while a depositor is idle, and a depositor is
+ * forgotten once its last pending part was paid out.
+ */
+public final class FairSharePolicy implements SchedulingPolicy {
+
+    private final int minIntervalMs;
+
+    private final int maxIntervalMs;
+
+    private final long nanosPerPart;
+
+    private final Random random;
+
+    private final ConcurrentMap<String, Share> shares = new ConcurrentHashMap<>();
+
+    public FairSharePolicy(int minIntervalMs, int maxIntervalMs, int partsPerSecond) {
+        this(minIntervalMs, maxIntervalMs, partsPerSecond, new SecureRandom());
+    }
+
+    /**
+     * @param partsPerSecond shared by all depositors, the rate Gemini payouts are sized for
+     * @param random delays are drawn from, seeded by simulations to be repeatable
+     */
+    public FairSharePolicy(int minIntervalMs, int maxIntervalMs, int partsPerSecond, final Random random) {
+        if (minIntervalMs < 0 || maxIntervalMs <= minIntervalMs) {
+            throw new IllegalArgumentException(String.format(
+                    "Intervals must satisfy 0 <= min < max, got min=%d max=%d", minIntervalMs, maxIntervalMs));
+        }
+        if (partsPerSecond <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Parts per second must be positive, got %d", partsPerSecond));
+        }
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.nanosPerPart = TimeUnit.SECONDS.toNanos(1) / partsPerSecond;
+        this.random = random;
+    }
+
+    @Override
+    public void admitted(final Request request) {
+        final int parts = request.remainingParts();
+        shares.compute(request.depositor(), (depositor, share) -> {
+            final Share s = share == null ? new Share() : share;
+            s.pending += parts;
+            return s;
+        });
+    }
+
+    @Override
+    public void paidOut(final Request request) {
+        shares.computeIfPresent(request.depositor(), (depositor, share) -> --share.pending <= 0 ? null : share);
+    }
+
+    @Override
+    public void dropped(final Request request) {
+        final int parts = request.remainingParts();
+        shares.computeIfPresent(request.depositor(), (depositor, share) -> (share.pending -= parts) <= 0 ? null : share);
+    }
+
+    @Override
+    public long delayMillis(final Request request, long nowNanos) {
+        final long jitter = TimeUnit.MILLISECONDS.toNanos(random.nextInt(maxIntervalMs - minIntervalMs) + minIntervalMs);
+        final Share share = shares.get(request.depositor());
+        if (share == null) {                                // never admitted, nothing to share
+            return TimeUnit.NANOSECONDS.toMillis(jitter);
+        }
+        final long stride = nanosPerPart * Math.max(1, shares.size());
+        final long slot;
+        synchronized (share) {
+            slot = Math.max(nowNanos + jitter, share.nextSlot);
+            share.nextSlot = slot + stride / 2 + (long) (random.nextDouble() * stride);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(slot - nowNanos);
+    }
+
+    /**
+     * @return depositors with parts pending
+     */
+    public int depositors() {
+        return shares.size();
+    }
+
+    private static final class Share {
+
+        private int pending;
+
+        private long nextSlot = Long.MIN_VALUE;
+    }
+}
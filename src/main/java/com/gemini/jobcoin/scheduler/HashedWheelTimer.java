@@ -0,0 +1,229 @@
+package com.gemini.jobcoin.scheduler;
+
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel used to fire delayed tasks with O(1) insertion and expiry.
+ *
+ * The wheel is an array of buckets where each bucket covers one tick (by default 1ms).
+ * A task due in n ticks is hashed into bucket (currentTick + n) & mask, delays larger
+ * than one revolution of the wheel are tracked by a remaining rounds counter which is
+ * decremented each time the bucket is visited.
+ *
+ * Callers never touch the buckets directly. New tasks are handed to the single worker
+ * thread through a lock free queue which is drained at the start of every tick, the
+ * worker then owns all bucket state so no locking is required on the hot path.
+ *
+ * Tasks are executed on the worker thread, so they are expected to be short and non
+ * blocking (e.g. kick off an asynchronous request). When there is nothing scheduled the
+ * worker parks until a new task arrives rather than ticking needlessly.
+ */
+public class HashedWheelTimer {
+
+    private final static Logger logger = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong scheduledCount = new AtomicLong();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    private long startTime;
+
+    private long tick;
+
+    public HashedWheelTimer() {
+        this("jobcoin-wheel-timer", 1, TimeUnit.MILLISECONDS, 1024);
+    }
+
+    /**
+     * @param threadName of the worker thread driving the wheel
+     * @param tickDuration resolution of the timer
+     * @param unit of the tickDuration
+     * @param ticksPerWheel number of buckets, rounded up to a power of two
+     */
+    public HashedWheelTimer(final String threadName,
+                            long tickDuration,
+                            final TimeUnit unit,
+                            int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater then 0");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+            throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30");
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * Schedules task to run once after the given delay. The worker thread is started
+     * lazily on the first call.
+     *
+     * @param task to run
+     * @param delay before running the task
+     * @param unit of the delay
+     */
+    public void schedule(final Runnable task, long delay, final TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timer has been stopped");
+        }
+        if (started.compareAndSet(false, true)) {
+            startTime = System.nanoTime();
+            worker.start();
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(Math.max(0, delay));
+        pendingTimeouts.add(new Timeout(task, deadline));
+        if (scheduledCount.getAndIncrement() == 0) {
+            LockSupport.unpark(worker);     // worker may be parked waiting for work
+        }
+    }
+
+    /**
+     * @return number of tasks scheduled which have not run yet
+     */
+    public long pending() {
+        return scheduledCount.get();
+    }
+
+    /**
+     * Stops the worker thread, tasks which have not run yet are dropped.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (running) {
+            if (scheduledCount.get() == 0) {
+                LockSupport.park(this);
+                tick = (System.nanoTime() - startTime) / tickNanos;  // resync after idling
+                continue;
+            }
+            waitForNextTick();
+            transferPendingTimeouts();
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    private void waitForNextTick() {
+        final long deadline = startTime + (tick + 1) * tickNanos;
+        long sleepNanos;
+        while (running && (sleepNanos = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, sleepNanos);
+        }
+    }
+
+    private void transferPendingTimeouts() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            final Timeout timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            final long ticks = Math.max((timeout.deadline - startTime) / tickNanos, tick);
+            timeout.remainingRounds = (ticks - tick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private final class Bucket {
+
+        private Timeout head;
+
+        private Timeout tail;
+
+        void add(final Timeout timeout) {
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                tail = timeout;
+            }
+        }
+
+        void expire() {
+            Timeout previous = null;
+            Timeout timeout = head;
+            while (timeout != null) {
+                final Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    unlink(previous, timeout);
+                    scheduledCount.decrementAndGet();
+                    runTask(timeout.task);
+                } else {
+                    timeout.remainingRounds--;
+                    previous = timeout;
+                }
+                timeout = next;
+            }
+        }
+
+        private void unlink(final Timeout previous, final Timeout timeout) {
+            if (previous == null) {
+                head = timeout.next;
+            } else {
+                previous.next = timeout.next;
+            }
+            if (tail == timeout) {
+                tail = previous;
+            }
+            timeout.next = null;
+        }
+    }
+
+    private static void runTask(final Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            logger.error("Scheduled task threw an exception", t);
+        }
+    }
+
+    private static final class Timeout {
+
+        private final Runnable task;
+
+        private final long deadline;
+
+        private long remainingRounds;
+
+        private Timeout next;
+
+        Timeout(final Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.gemini.jobcoin.scheduler;
+
+/**
+ * Decides how long the next part of a mixing request waits on the timing wheel.
+ *
+ * A policy is shared by every engine instance and called from the engine's worker
+ * threads as well as the wheel's, implementations have to be thread safe. Whatever the
+ * policy, delays keep a random component so parts can not be correlated by timing.
+ *
+ * Policies are picked with -Djobcoin.mixing.policy (uniform, fairShare or deadline),
+ * see {@link #fromSystemProperties(int, int)}.
+ */
+public interface SchedulingPolicy {
+
+    /**
+     * What a policy sees of a mixing request.
+     */
+    interface Request {
+
+        /**
+         * @return who the request is mixed for, parts are shared fairly between depositors
+         */
+        String depositor();
+
+        /**
+         * @return System.nanoTime the request was registered with the engine at
+         */
+        long registeredAt();
+
+        /**
+         * @return parts of the request still to be paid out
+         */
+        int remainingParts();
+    }
+
+    /**
+     * @param request whose next part is scheduled
+     * @param nowNanos System.nanoTime the part is scheduled at
+     * @return ms the part waits before it is paid out
+     */
+    long delayMillis(Request request, long nowNanos);
+
+    /**
+     * Called once a request is registered, before its first part is scheduled.
+     */
+    default void admitted(final Request request) {
+    }
+
+    /**
+     * Called after each part of a request was paid out.
+     */
+    default void paidOut(final Request request) {
+    }
+
+    /**
+     * Called when a request stops being scheduled with parts still to be paid out.
+     */
+    default void dropped(final Request request) {
+    }
+
+    /**
+     * @param minIntervalMs least a part waits, before any policy specific delay
+     * @param maxIntervalMs most a part waits, before any policy specific delay
+     * @return policy named by -Djobcoin.mixing.policy, uniform by default. fairShare
+     * reads its rate from -Djobcoin.mixing.partsPerSecond, deadline its SLA from
+     * -Djobcoin.mixing.maxCompletionSeconds
+     */
+    static SchedulingPolicy fromSystemProperties(int minIntervalMs, int maxIntervalMs) {
+        final String policy = System.getProperty("jobcoin.mixing.policy", "uniform");
+        switch (policy) {
+            case "uniform":
+                return new UniformPolicy(minIntervalMs, maxIntervalMs);
+            case "fairShare":
+                return new FairSharePolicy(minIntervalMs, maxIntervalMs,
+                        Integer.getInteger("jobcoin.mixing.partsPerSecond", 10));
+            case "deadline":
+                return new DeadlinePolicy(minIntervalMs, maxIntervalMs,
+                        Long.getLong("jobcoin.mixing.maxCompletionSeconds", 600) * 1000);
+            default:
+                throw new IllegalArgumentException(String.format("Unknown mixing policy [%s]", policy));
+        }
+    }
+}
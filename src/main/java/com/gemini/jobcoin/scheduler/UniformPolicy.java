@@ -0,0 +1,39 @@
+package com.gemini.jobcoin.scheduler;
+
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * Gives every part a uniformly random delay between minIntervalMs and maxIntervalMs,
+ * whatever the backlog or the size of the request.
+ */
+public final class UniformPolicy implements SchedulingPolicy {
+
+    private final int minIntervalMs;
+
+    private final int maxIntervalMs;
+
+    private final Random random;
+
+    public UniformPolicy(int minIntervalMs, int maxIntervalMs) {
+        this(minIntervalMs, maxIntervalMs, new SecureRandom());
+    }
+
+    /**
+     * @param random delays are drawn from, seeded by simulations to be repeatable
+     */
+    public UniformPolicy(int minIntervalMs, int maxIntervalMs, final Random random) {
+        if (minIntervalMs < 0 || maxIntervalMs <= minIntervalMs) {
+            throw new IllegalArgumentException(String.format(
+                    "Intervals must satisfy 0 <= min < max, got min=%d max=%d", minIntervalMs, maxIntervalMs));
+        }
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.random = random;
+    }
+
+    @Override
+    public long delayMillis(final Request request, long nowNanos) {
+        return random.nextInt(maxIntervalMs - minIntervalMs) + minIntervalMs;
+    }
+}
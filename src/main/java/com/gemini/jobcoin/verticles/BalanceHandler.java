@@ -8,7 +8,9 @@ import com.gemini.jobcoin.JobcoinHttpServer;
 import com.gemini.jobcoin.exception.GeminiRequestException;
 import com.gemini.jobcoin.exception.JsonRequestException;
 import com.gemini.jobcoin.external.http.GeminiClient;
+import com.gemini.jobcoin.helper.Futures;
 import com.gemini.jobcoin.helper.Validator;
+import com.gemini.jobcoin.message.Codecs;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.eventbus.Message;
 
@@ -28,6 +30,7 @@ public class BalanceHandler extends AbstractVerticle {
 
     @Override
     public void start() {
+        Codecs.register(vertx);
         vertx.eventBus().consumer(BALANCE_VERTX_V1, this::consumeMessage);
     }
 
@@ -35,34 +38,58 @@ public class BalanceHandler extends AbstractVerticle {
      * Handler to request the balance for any account. Makes a request to the Gemini
      * API and returns the result back to the caller.
      *
+     * The Gemini call is made asynchronously so the worker thread is released as soon
+     * as the request is in flight, the reply is sent when the response arrives.
+     *
      * @param message to process
      */
     void consumeMessage(final Message<?> message) {
         try {
-            final JsonNode msg = mapper.readTree(message.body().toString());
+            final JsonNode msg = Codecs.json(mapper, message.body());
             final String address = Validator.stringField("address", msg);
 
-            final HttpResponse<String> response = geminiClient.getBalance(address);
+            geminiClient.getBalanceAsync(address).whenComplete((response, error) -> {
+                if (error != null) {
+                    failureResponse(message, error);
+                    return;
+                }
+                try {
+                    replyBalance(message, response);
+                } catch (Exception e) {
+                    failureResponse(message, e);
+                }
+            });
+        } catch (Exception e) {
+            failureResponse(message, e);
+        }
+    }
 
-            final JsonNode geminiMsg = mapper.readTree(response.body());
-            if (!geminiMsg.has("balance")) {
-                throw new JsonRequestException("Gemini response missing balance", 503);
-            }
-            if (!geminiMsg.get("balance").isTextual()) {
-                throw new JsonRequestException("Gemini response balance field is not a string", 503);
-            }
-            JobcoinHttpServer.successResponse(message,
-                    JsonNodeFactory.instance.objectNode()
-                            .set("balance", geminiMsg.get("balance")));
+    private void replyBalance(final Message<?> message, final HttpResponse<String> response)
+            throws JsonProcessingException, JsonRequestException {
 
-        } catch (JsonProcessingException e) {
+        final JsonNode geminiMsg = mapper.readTree(response.body());
+        if (!geminiMsg.has("balance")) {
+            throw new JsonRequestException("Gemini response missing balance", 503);
+        }
+        if (!geminiMsg.get("balance").isTextual()) {
+            throw new JsonRequestException("Gemini response balance field is not a string", 503);
+        }
+        JobcoinHttpServer.successResponse(message,
+                JsonNodeFactory.instance.objectNode()
+                        .set("balance", geminiMsg.get("balance")));
+    }
+
+    private void failureResponse(final Message<?> message, final Throwable error) {
+        final Throwable e = Futures.unwrap(error);
+        if (e instanceof JsonProcessingException) {
             JobcoinHttpServer.errorResponse(message, "Issue processing Json", 400);
-        } catch (JsonRequestException e) {
-            JobcoinHttpServer.errorResponse(message, e.getMessage(), e.getStatusCode());
-        } catch (GeminiRequestException e) {
+        } else if (e instanceof JsonRequestException) {
+            JobcoinHttpServer.errorResponse(message, e.getMessage(), ((JsonRequestException) e).getStatusCode());
+        } else if (e instanceof GeminiRequestException) {
             JobcoinHttpServer.errorResponse(message,
-                    String.format("Gemini API returned an error %s", e.getMessage()), e.getStatusCode());
-        } catch (Exception e) {
+                    String.format("Gemini API returned an error %s", e.getMessage()),
+                    ((GeminiRequestException) e).getStatusCode());
+        } else {
             JobcoinHttpServer.errorResponse(message,
                     String.format("Issue submitting request %s", e.getMessage()), 500);
         }
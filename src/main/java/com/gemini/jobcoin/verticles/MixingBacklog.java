@@ -0,0 +1,150 @@
+package com.gemini.jobcoin.verticles;
+
+import com.gemini.jobcoin.exception.JobcoinException;
+import com.gemini.jobcoin.helper.Amount;
+import com.gemini.jobcoin.metrics.MetricsRegistry;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parts the MixingEngine has scheduled for user addresses and their amount, shared by the
+ * engine instances, which add, pay out and drop parts, and the SendHandler, which stops
+ * taking sends once the backlog is over its high-water mark.
+ *
+ * A send rejected here is rejected before any funds are moved, so while Gemini is slow
+ * or failing the amount held at the house address stops growing instead of piling up
+ * as pending parts. The mark is soft, sends already past the check when it is crossed
+ * still go through.
+ *
+ * Marks are read from system properties, 0 disables a mark:
+ *
+ *   -Djobcoin.mixing.highWater.parts=100000
+ *   -Djobcoin.mixing.highWater.amount=0          in Jobcoins
+ */
+public class MixingBacklog {
+
+    private final long highWaterParts;
+
+    private final long highWaterUnits;
+
+    private final AtomicLong parts = new AtomicLong();
+
+    private final AtomicLong units = new AtomicLong();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param highWaterParts pending parts past which sends are rejected, 0 for no limit
+     * @param highWaterUnits pending amount in minor units past which sends are rejected,
+     *                       0 for no limit
+     */
+    public MixingBacklog(long highWaterParts, long highWaterUnits) {
+        if (highWaterParts < 0 || highWaterUnits < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "High-water marks must not be negative, got parts=%d units=%d", highWaterParts, highWaterUnits));
+        }
+        this.highWaterParts = highWaterParts == 0 ? Long.MAX_VALUE : highWaterParts;
+        this.highWaterUnits = highWaterUnits == 0 ? Long.MAX_VALUE : highWaterUnits;
+    }
+
+    /**
+     * @return backlog which never rejects a send
+     */
+    public static MixingBacklog unbounded() {
+        return new MixingBacklog(0, 0);
+    }
+
+    public static MixingBacklog fromSystemProperties() {
+        final String amount = System.getProperty("jobcoin.mixing.highWater.amount", "0");
+        try {
+            return new MixingBacklog(
+                    Long.getLong("jobcoin.mixing.highWater.parts", 100_000),
+                    Amount.of(new BigDecimal(amount)).units());
+        } catch (JobcoinException | NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid high-water amount [%s]", amount), e);
+        }
+    }
+
+    /**
+     * Adds the parts of a request registered with the engine.
+     *
+     * @param amounts of the parts in minor units
+     * @param from index of the first part still owed
+     * @param count number of entries of amounts in use
+     */
+    public void added(final long[] amounts, int from, int count) {
+        long sum = 0;
+        for (int i = from; i < count; i++) {
+            sum += amounts[i];
+        }
+        parts.addAndGet(count - from);
+        units.addAndGet(sum);
+    }
+
+    /**
+     * Removes the parts of a request the engine stopped scheduling, e.g. dead-lettered
+     * ones. They are added again if the request is recovered on a restart.
+     *
+     * @param amounts of the parts in minor units
+     * @param from index of the first part no longer scheduled
+     * @param count number of entries of amounts in use
+     */
+    public void dropped(final long[] amounts, int from, int count) {
+        long sum = 0;
+        for (int i = from; i < count; i++) {
+            sum += amounts[i];
+        }
+        parts.addAndGet(from - count);
+        units.addAndGet(-sum);
+    }
+
+    /**
+     * @param amount of the part paid out in minor units
+     */
+    public void paidOut(long amount) {
+        parts.decrementAndGet();
+        units.addAndGet(-amount);
+    }
+
+    /**
+     * @throws JobcoinException with a 503 if either high-water mark is reached
+     */
+    public void admit() throws JobcoinException {
+        if (parts.get() >= highWaterParts || units.get() >= highWaterUnits) {
+            rejected.increment();
+            throw new JobcoinException("Mixer backlog is over its high-water mark, try again later", 503);
+        }
+    }
+
+    /**
+     * @return parts scheduled but not yet paid out
+     */
+    public long pendingParts() {
+        return parts.get();
+    }
+
+    /**
+     * @return amount of the pending parts in minor units
+     */
+    public long pendingUnits() {
+        return units.get();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public void exportTo(final MetricsRegistry metrics) {
+        metrics.gauge("jobcoin_mixing_backlog_parts", "Parts scheduled to be paid out to user addresses", parts::get);
+        metrics.gauge("jobcoin_mixing_obligations_units",
+                "Amount scheduled to be paid out to user addresses in minor units (1e-8 Jobcoin)", units::get);
+        metrics.gauge("jobcoin_mixing_backlog_high_water", "High-water mark of the backlog, sends are rejected past it",
+                () -> highWaterParts == Long.MAX_VALUE ? 0 : highWaterParts, "limit", "parts");
+        metrics.gauge("jobcoin_mixing_backlog_high_water", "High-water mark of the backlog, sends are rejected past it",
+                () -> highWaterUnits == Long.MAX_VALUE ? 0 : highWaterUnits, "limit", "units");
+        metrics.counter("jobcoin_send_backlog_rejected_total", "Sends rejected because the mixer backlog was full",
+                rejected::sum);
+    }
+}
@@ -1,26 +1,33 @@
 package com.gemini.jobcoin.verticles;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.gemini.jobcoin.JobcoinHttpServer;
 import com.gemini.jobcoin.external.http.GeminiClient;
+import com.gemini.jobcoin.external.persistence.JournaledRequest;
 import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.external.persistence.MixingJournal;
+import com.gemini.jobcoin.external.persistence.NoOpMixingJournal;
 import com.gemini.jobcoin.external.persistence.UUIDGenerator;
+import com.gemini.jobcoin.helper.Amount;
+import com.gemini.jobcoin.helper.Futures;
 import com.gemini.jobcoin.helper.JobcoinMath;
+import com.gemini.jobcoin.message.Codecs;
+import com.gemini.jobcoin.message.MixingEvent;
+import com.gemini.jobcoin.message.MixingRequest;
+import com.gemini.jobcoin.metrics.Counter;
+import com.gemini.jobcoin.metrics.Histogram;
+import com.gemini.jobcoin.metrics.MetricsRegistry;
+import com.gemini.jobcoin.scheduler.HashedWheelTimer;
+import com.gemini.jobcoin.scheduler.SchedulingPolicy;
+import com.gemini.jobcoin.scheduler.UniformPolicy;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
 
-import java.math.BigDecimal;
 import java.security.SecureRandom;
-import java.util.LinkedList;
+import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import static com.gemini.jobcoin.constant.Routes.MIXER_VERTX_V1;
@@ -30,23 +37,16 @@ public class MixingEngine extends AbstractVerticle {
 
     private final static Logger logger = LoggerFactory.getLogger(MixingEngine.class);
 
-    private static final ObjectMapper mapper = new ObjectMapper();
-
     private static final SecureRandom ran = new SecureRandom();
 
-    private static final ScheduledExecutorService executorService =
-            Executors.newScheduledThreadPool(2);
-
-    private final int maxIntervalMs;
+    private static final HashedWheelTimer timer = new HashedWheelTimer();
 
-    private final int minIntervalMs;
+    private final SchedulingPolicy policy;
 
     private final int maxParts;
 
     private final int minParts;
 
-    private final BlockingQueue<MixingTask> queue = new LinkedBlockingQueue<>();
-
     private final UUIDGenerator requestIdGenerator;
 
     private final KVStore<String,List<String>> depositAddressStore;
@@ -55,19 +55,23 @@ public class MixingEngine extends AbstractVerticle {
 
     private final GeminiClient geminiClient;
 
+    private final MixingJournal journal;
+
+    private final MixingBacklog backlog;
+
+    private final PayoutRetries retries;
+
+    private final Histogram schedulingLag;
+
+    private final Counter payoutsSucceeded;
+
+    private final Counter payoutsFailed;
+
     public MixingEngine(final KVStore<String, List<String>> depositAddressStore,
                         final KVStore<String, Boolean> requestStore,
                         final UUIDGenerator requestIdGenerator,
                         final GeminiClient geminiClient) {
-        this(
-                depositAddressStore,
-                requestStore,
-                requestIdGenerator,
-                geminiClient,
-                20000,
-                1000,
-                10,
-                3);
+        this(builder(depositAddressStore, requestStore, requestIdGenerator, geminiClient));
     }
 
     public MixingEngine(final KVStore<String, List<String>> depositAddressStore,
@@ -78,62 +82,257 @@ public class MixingEngine extends AbstractVerticle {
                         int minIntervalMs,
                         int maxParts,
                         int minParts) {
-        this.depositAddressStore = depositAddressStore;
-        this.requestStore = requestStore;
-        this.requestIdGenerator = requestIdGenerator;
-        this.geminiClient = geminiClient;
-        this.maxIntervalMs = maxIntervalMs;
-        this.minIntervalMs = minIntervalMs;
-        this.maxParts = maxParts;
-        this.minParts = minParts;
-        new Thread(this::mixerScheduler).start();
+        this(builder(depositAddressStore, requestStore, requestIdGenerator, geminiClient)
+                .policy(new UniformPolicy(minIntervalMs, maxIntervalMs))
+                .parts(minParts, maxParts));
+    }
+
+    private MixingEngine(final Builder builder) {
+        this.depositAddressStore = builder.depositAddressStore;
+        this.requestStore = builder.requestStore;
+        this.requestIdGenerator = builder.requestIdGenerator;
+        this.geminiClient = builder.geminiClient;
+        this.journal = builder.journal;
+        this.policy = builder.policy;
+        this.backlog = builder.backlog;
+        this.retries = builder.retries;
+        this.maxParts = builder.maxParts;
+        this.minParts = builder.minParts;
+
+        final MetricsRegistry metrics = builder.metrics;
+        metrics.gauge("jobcoin_mixing_pending_tasks", "Parts waiting on the timing wheel", timer::pending);
+        this.schedulingLag = metrics.histogram("jobcoin_mixing_scheduling_lag_seconds",
+                "How long after its deadline a part started running");
+        this.payoutsSucceeded = metrics.counter("jobcoin_mixing_payouts_total",
+                "Parts sent to user addresses by outcome", "result", "success");
+        this.payoutsFailed = metrics.counter("jobcoin_mixing_payouts_total",
+                "Parts sent to user addresses by outcome", "result", "failure");
+    }
+
+    /**
+     * @return builder of an engine with the given stores and clients, everything else
+     * defaults to the engine of the original mixer: no journal, a uniform 1 to 20s delay
+     * between 3 to 10 parts, an unbounded backlog and the default payout retries
+     */
+    public static Builder builder(final KVStore<String, List<String>> depositAddressStore,
+                                  final KVStore<String, Boolean> requestStore,
+                                  final UUIDGenerator requestIdGenerator,
+                                  final GeminiClient geminiClient) {
+        return new Builder(depositAddressStore, requestStore, requestIdGenerator, geminiClient);
+    }
+
+    /**
+     * Optional collaborators of an engine. Anything shared between engine instances, or
+     * with the handlers reporting on them, has to be passed to the builder of every instance.
+     */
+    public static final class Builder {
+
+        private final KVStore<String, List<String>> depositAddressStore;
+
+        private final KVStore<String, Boolean> requestStore;
+
+        private final UUIDGenerator requestIdGenerator;
+
+        private final GeminiClient geminiClient;
+
+        private MixingJournal journal = new NoOpMixingJournal();
+
+        private SchedulingPolicy policy = new UniformPolicy(1000, 20000);
+
+        private MixingBacklog backlog = MixingBacklog.unbounded();
+
+        private PayoutRetries retries = new PayoutRetries();
+
+        private int minParts = 3;
+
+        private int maxParts = 10;
+
+        private MetricsRegistry metrics = new MetricsRegistry();
+
+        private Builder(final KVStore<String, List<String>> depositAddressStore,
+                        final KVStore<String, Boolean> requestStore,
+                        final UUIDGenerator requestIdGenerator,
+                        final GeminiClient geminiClient) {
+            this.depositAddressStore = depositAddressStore;
+            this.requestStore = requestStore;
+            this.requestIdGenerator = requestIdGenerator;
+            this.geminiClient = geminiClient;
+        }
+
+        /**
+         * @param journal requests are written to before they are acknowledged and
+         *                recovered from on start
+         */
+        public Builder journal(final MixingJournal journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        /**
+         * @param policy deciding how long each part waits
+         */
+        public Builder policy(final SchedulingPolicy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        /**
+         * @param backlog the parts still owed are counted in, shared with the SendHandler
+         *                which stops taking sends once it is full
+         */
+        public Builder backlog(final MixingBacklog backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * @param retries backoff and retry budgets of failed payouts, shared with the
+         *                MixingStatusLookup which reports the retries of a request
+         */
+        public Builder retries(final PayoutRetries retries) {
+            this.retries = retries;
+            return this;
+        }
+
+        /**
+         * @param minParts least parts an amount is split into
+         * @param maxParts bound on the parts an amount is split into, exclusive
+         */
+        public Builder parts(int minParts, int maxParts) {
+            this.minParts = minParts;
+            this.maxParts = maxParts;
+            return this;
+        }
+
+        /**
+         * @param metrics to export the timer's queue depth, how late parts run and the
+         *                payout outcomes in
+         */
+        public Builder metrics(final MetricsRegistry metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public MixingEngine build() {
+            return new MixingEngine(this);
+        }
     }
 
     @Override
     public void start() {
+        Codecs.register(vertx);
+        recover();
         vertx.eventBus().consumer(MIXER_VERTX_V1, this::consumeMessage);
     }
 
+    /**
+     * Rebuilds the engine's pending state from the journal. Completed requests are
+     * restored to the requestStore so their status survives a restart, requests with
+     * parts still owed are rescheduled from the first unpaid part.
+     *
+     * The journal only hands out its contents once, so when several engine instances
+     * share a journal only the first one to start reschedules the pending parts.
+     */
+    void recover() {
+        final long start = System.nanoTime();
+        int pending = 0;
+        final Collection<JournaledRequest> requests = journal.recover();
+        for (JournaledRequest request : requests) {
+            requestStore.put(request.requestId, request.completed);
+            retries.forget(request.requestId);
+            if (!request.completed) {
+                // the journal does not keep the source address, recovered requests share as their own depositor
+                final MixingTask mixingTask = new MixingTask(
+                        request.parts,
+                        request.parts.length,
+                        request.userOwnedAddresses,
+                        request.requestId,
+                        request.requestId,
+                        request.nextPart,
+                        this);
+                backlog.added(request.parts, request.nextPart, request.parts.length);
+                policy.admitted(mixingTask);
+                schedule(mixingTask);
+                pending++;
+            }
+        }
+        if (!requests.isEmpty()) {
+            logger.info(String.format("Recovered %d requests (%d pending) from journal in %dms",
+                    requests.size(), pending, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        }
+    }
+
     /**
      * Consumes a request to start mixing an amount from the associated deposit address.
      *
-     * Method creates a unique id for the request and schedules the mixing task onto
-     * the queue to process.
+     * Method creates a unique id for the request, unless the send already handed one to
+     * the client, and schedules the mixing task onto the timing wheel to process.
      *
      * The unique id is then returned to the caller to have a handle on the request's
-     * mixing lifecycle.
+     * mixing lifecycle. The reply is only sent, and the first part only scheduled, once
+     * the request is durable in the journal.
      *
      * @param message to respond to
      */
     void consumeMessage(final Message<?> message) {
         try {
-            final String requestId = requestIdGenerator.generateId();
-
-            final JsonNode mixingRequest = mapper.readTree(message.body().toString());
+            final MixingRequest mixingRequest = (MixingRequest) message.body();
+
+            // early acknowledged sends already handed their id to the client
+            final String requestId = mixingRequest.requestId != null
+                    ? mixingRequest.requestId
+                    : requestIdGenerator.generateId();
+            if (mixingRequest.requestId != null && requestStore.containsKey(requestId)) {
+                // registered already, a retry after the reply to the send was lost
+                JobcoinHttpServer.successResponse(message, JsonNodeFactory.instance.objectNode()
+                        .put("requestId", requestId));
+                return;
+            }
 
-            final String amount = mixingRequest.get("amount").textValue();
+            final long amount = mixingRequest.amount.units();
             final int partCount = ran.nextInt(maxParts - minParts) + minParts;
 
-            final String depositAddress = mixingRequest.get("depositAddress").asText();
-
-            final LinkedList<BigDecimal> quantities = JobcoinMath.breakUpDecimalIntoDecimals(amount, partCount);
-            final List<String> userOwnedAddresses = depositAddressStore.get(depositAddress);
+            final String depositAddress = mixingRequest.depositAddress;
+
+            final long[] parts = new long[Math.max(1, partCount)];
+            final int count = JobcoinMath.breakUpAmount(amount, partCount, parts);
+            // early acknowledged sends carry their addresses, recovered ones are not in the store after a restart
+            final List<String> userOwnedAddresses = mixingRequest.userOwnedAddresses != null
+                    ? mixingRequest.userOwnedAddresses
+                    : depositAddressStore.get(depositAddress);
+            if (userOwnedAddresses == null || userOwnedAddresses.isEmpty()) {
+                JobcoinHttpServer.errorResponse(message,
+                        String.format("Deposit Address=[%s] has no user addresses to pay out to", depositAddress), 422);
+                return;
+            }
 
             logger.info(String.format("Request Id=[%s] Deposit Address=[%s] Amount=[%s] No Of Parts=[%d] Quantities=%s",
-                    requestId, depositAddress, amount, quantities.size(), quantities.toString()));
-
+                    requestId, depositAddress, Amount.format(amount), count, Amount.format(parts, count)));
 
-            requestStore.put(requestId, false);
 
-            queue.add(new MixingTask(
-                    quantities,
+            final MixingTask mixingTask = new MixingTask(
+                    parts,
+                    count,
                     userOwnedAddresses,
                     requestId,
-                    this));
-
-
-            JobcoinHttpServer.successResponse(message, JsonNodeFactory.instance.objectNode()
-                    .put("requestId", requestId));
+                    mixingRequest.sourceAddress != null ? mixingRequest.sourceAddress : depositAddress,
+                    0,
+                    this);
+
+            journal.created(requestId, userOwnedAddresses, parts, count).whenComplete((durable, error) -> {
+                if (error != null) {
+                    JobcoinHttpServer.errorResponse(message,
+                            String.format("Issue journaling request %s", Futures.unwrap(error).getMessage()), 500);
+                    return;
+                }
+                requestStore.put(requestId, false);
+                backlog.added(parts, 0, count);
+                policy.admitted(mixingTask);
+                schedule(mixingTask);
+
+                JobcoinHttpServer.successResponse(message, JsonNodeFactory.instance.objectNode()
+                        .put("requestId", requestId));
+            });
         } catch (Exception e) {
             JobcoinHttpServer.errorResponse(message,
                     String.format("Issue submitting request %s", e.getMessage()), 500);
@@ -141,23 +340,35 @@ public class MixingEngine extends AbstractVerticle {
     }
 
     /**
-     * Runnable is dedicating to scheduling mixing tasks on a random basis to make
-     * attacks like timing correlation more difficult to achieve.
+     * Schedules a mixing task to run after a delay picked by the scheduling policy, every
+     * policy keeps it random to make attacks like timing correlation more difficult to
+     * achieve.
      *
-     * Uses a blocking queue to wait until mixing tasks become available to process
-     * to avoid churning the CPU needlessly.
+     * Tasks are placed on a timing wheel shared by all engine instances, scheduling is
+     * a constant time insert regardless of how many parts are pending and does not hand
+     * off to another thread.
      *
-     * @return Runnable which has capability of scheduling for random time
+     * @param mixingTask to schedule
      */
-    private Runnable mixerScheduler() {
-        while (true) {
-            try {
-                final MixingTask mixingTask = queue.take();
-                int delay = ran.nextInt(maxIntervalMs - minIntervalMs) + minIntervalMs;
-                executorService.schedule(mixingTask, delay, TimeUnit.MILLISECONDS);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+    void schedule(final MixingTask mixingTask) {
+        final long now = System.nanoTime();
+        schedule(mixingTask, now, policy.delayMillis(mixingTask, now));
+    }
+
+    private void schedule(final MixingTask mixingTask, long now, long delay) {
+        mixingTask.deadline = now + TimeUnit.MILLISECONDS.toNanos(delay);
+        timer.schedule(mixingTask, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Publishes the event to the subscribers of its request, a no-op until the engine is
+     * deployed.
+     *
+     * @param event to publish
+     */
+    void publish(final MixingEvent event) {
+        if (vertx != null) {
+            vertx.eventBus().publish(MixingEvent.address(event.requestId), event);
         }
     }
 
@@ -167,62 +378,166 @@ public class MixingEngine extends AbstractVerticle {
      *
      * Note:
      *      If we get an error back from the Gemini API, we are assuming failure. We
-     *      do not remove the quantity we tried to process from the list and attempt
-     *      to send it again later.
+     *      do not advance past the part we tried to process and attempt to send it
+     *      again later, backing off exponentially, see PayoutRetries. A part which
+     *      keeps failing past its retry budget is dead-lettered and the task stops.
      *
      *      This behavior may not be desirable depending on the constraints of the
      *      application. There are risks to submitting a transaction again if Gemini
      *      reported a failure or the request timed out but in-fact succeeded. Building
      *      guarantees to protect against this are a larger endeavor but worth mentioning.
+     *
+     *      Each successful payout is recorded in the journal, after a restart the task
+     *      resumes from the first part which was not recorded as paid.
+     *
+     *      Each successful payout is also published as a MixingEvent so subscribers are
+     *      pushed the request's progress instead of polling for it.
      */
-    public static class MixingTask implements Runnable {
+    public static class MixingTask implements Runnable, SchedulingPolicy.Request {
 
-        private final LinkedList<BigDecimal> quantities;
+        private final long[] parts;
+        private final int partCount;
         private final List<String> userOwnedAddresses;
         private final String requestId;
+        private final String depositor;
+        private final long registeredAt = System.nanoTime();
         private final MixingEngine mixingEngine;
+        private int nextPart;
+        private int failures;                           // of the next part in a row
+        private long deadline;
 
-        public MixingTask(final LinkedList<BigDecimal> quantities,
+        public MixingTask(final long[] parts,
+                          int partCount,
                           final List<String> userOwnedAddresses,
                           final String requestId,
                           final MixingEngine mixingEngine) {
-            this.quantities = quantities;
+            this(parts, partCount, userOwnedAddresses, requestId, 0, mixingEngine);
+        }
+
+        /**
+         * @param parts in minor units, owned by the task from here on
+         * @param partCount number of entries of parts in use
+         * @param nextPart index of the first part still to be paid, non zero when resuming
+         *                 a request recovered from the journal
+         */
+        public MixingTask(final long[] parts,
+                          int partCount,
+                          final List<String> userOwnedAddresses,
+                          final String requestId,
+                          int nextPart,
+                          final MixingEngine mixingEngine) {
+            this(parts, partCount, userOwnedAddresses, requestId, requestId, nextPart, mixingEngine);
+        }
+
+        /**
+         * @param depositor the request is mixed for, the scheduling policy shares parts
+         *                  fairly between depositors
+         */
+        public MixingTask(final long[] parts,
+                          int partCount,
+                          final List<String> userOwnedAddresses,
+                          final String requestId,
+                          final String depositor,
+                          int nextPart,
+                          final MixingEngine mixingEngine) {
+            this.parts = parts;
+            this.partCount = partCount;
             this.userOwnedAddresses = userOwnedAddresses;
             this.requestId = requestId;
+            this.depositor = depositor;
+            this.nextPart = nextPart;
             this.mixingEngine = mixingEngine;
         }
 
+        @Override
+        public String depositor() {
+            return depositor;
+        }
 
         @Override
-        public void run() {
-            try {
-                if (quantities.isEmpty()) {
-                    return;
-                }
+        public long registeredAt() {
+            return registeredAt;
+        }
+
+        @Override
+        public int remainingParts() {
+            return partCount - nextPart;
+        }
 
-                final BigDecimal quantity = quantities.peek();   // defensively peek the list
 
+        @Override
+        public void run() {
+            if (deadline != 0) {                                // only set once scheduled on the wheel
+                mixingEngine.schedulingLag.recordSince(deadline);
+            }
+            if (nextPart >= partCount) {
+                return;
+            }
+            final long quantity = parts[nextPart];
+            try {
                 int addressIndexToSend = ran.nextInt(userOwnedAddresses.size());
                 final String addressTo = userOwnedAddresses.get(addressIndexToSend);
 
                 logger.info(String.format("Sending=[%s] to User Address=[%s] from Jobcoin House Address",
-                        quantity, addressTo));
+                        Amount.format(quantity), addressTo));
+
+                mixingEngine.geminiClient.transferAmountAsync(
+                        JOBCOIN_HOUSE_ADDRESS, addressTo, quantity)
+                        .whenComplete((response, error) -> {
+                            if (error != null) {
+                                failed(quantity, error);
+                                return;
+                            }
+                            completed();
+                        });
 
-                mixingEngine.geminiClient.transferAmount(
-                        JOBCOIN_HOUSE_ADDRESS, addressTo, quantity.toPlainString());
-
-                quantities.poll(); // we only remove the quantity permanently if Gemini returns a 200
+            } catch (Exception e) {
+                failed(quantity, e);
+            }
+        }
 
-                if (quantities.isEmpty()) {
-                    logger.info(String.format("Request Id=[%s] has completed mixing", requestId));
-                    mixingEngine.requestStore.put(requestId, true);  // mark request id as completed
-                } else {
-                    mixingEngine.queue.add(this);                    // if anything left add task back to queue
-                }
+        /**
+         * Schedules the part again once its backoff passed, or dead-letters it once it
+         * failed past its retry budget.
+         */
+        private void failed(long quantity, final Throwable error) {
+            mixingEngine.payoutsFailed.increment();
+            final Throwable cause = Futures.unwrap(error);
+            final PayoutRetries.Failure failure = PayoutRetries.classify(cause);
+            final long backoff = mixingEngine.retries.failed(requestId, failure, ++failures);
+            if (backoff >= 0) {
+                // the stack trace is only logged once the part is given up on
+                logger.warn(String.format("Request Id=[%s] failed sending=[%s] (%s, %s), retry %d in %dms",
+                        requestId, Amount.format(quantity), failure.label(), cause, failures, backoff));
+                mixingEngine.schedule(this, System.nanoTime(), backoff);
+                return;
+            }
+            logger.error(String.format("Request Id=[%s] part %d dead-lettered after %d failures sending=[%s]",
+                    requestId, nextPart, failures, Amount.format(quantity)), cause);
+            mixingEngine.retries.deadLettered(new PayoutRetries.DeadLetter(
+                    requestId, nextPart, quantity, failure, failures, String.valueOf(cause.getMessage())));
+            mixingEngine.backlog.dropped(parts, nextPart, partCount);
+            mixingEngine.policy.dropped(this);
+        }
 
-            } catch (Exception e) {
-                mixingEngine.queue.add(this); // if an exception is throw we should reschedule this to run
-                e.printStackTrace();
+        private void completed() {
+            failures = 0;
+            mixingEngine.payoutsSucceeded.increment();
+            // we only advance past the part permanently if Gemini returns a 200
+            mixingEngine.journal.paidOut(requestId, nextPart);
+            mixingEngine.backlog.paidOut(parts[nextPart++]);
+            mixingEngine.policy.paidOut(this);
+
+            if (nextPart >= partCount) {
+                logger.info(String.format("Request Id=[%s] has completed mixing", requestId));
+                mixingEngine.journal.completed(requestId);
+                mixingEngine.requestStore.put(requestId, true);  // mark request id as completed
+                mixingEngine.retries.forget(requestId);
+            }
+            // published once the store is updated, a subscriber never sees complete before a poll would
+            mixingEngine.publish(new MixingEvent(requestId, nextPart, partCount));
+            if (nextPart < partCount) {
+                mixingEngine.schedule(this);                     // if anything left reschedule the task
             }
         }
     }
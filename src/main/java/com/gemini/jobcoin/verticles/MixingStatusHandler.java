@@ -3,50 +3,87 @@ package com.gemini.jobcoin.verticles;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.gemini.jobcoin.JobcoinHttpServer;
 import com.gemini.jobcoin.exception.JobcoinException;
 import com.gemini.jobcoin.exception.JsonRequestException;
 import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.external.persistence.SendStage;
 import com.gemini.jobcoin.helper.Validator;
+import com.gemini.jobcoin.message.Codecs;
+import com.gemini.jobcoin.message.MixingStatuses;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.eventbus.Message;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.gemini.jobcoin.constant.Routes.MIXING_STATUS_BATCH_VERTX_V1;
 import static com.gemini.jobcoin.constant.Routes.MIXING_STATUS_VERTX_V1;
 
 public class MixingStatusHandler extends AbstractVerticle {
 
+    static final int MAX_BATCH_SIZE = 100_000;
+
     private final ObjectMapper mapper = new ObjectMapper();
 
     final KVStore<String,Boolean> requestStore;
 
+    final ConcurrentMap<String, SendStage> sendStages;
+
+    private final MixingStatusLookup lookup;
+
     public MixingStatusHandler(final KVStore<String,Boolean> requestStore) {
+        this(requestStore, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @param requestStore completion of the requests registered with the MixingEngine
+     * @param sendStages stage of the early acknowledged sends not yet registered with the
+     *                   MixingEngine, shared with the SendHandler
+     */
+    public MixingStatusHandler(final KVStore<String,Boolean> requestStore,
+                               final ConcurrentMap<String, SendStage> sendStages) {
+        this(requestStore, sendStages, new PayoutRetries());
+    }
+
+    /**
+     * @param retries of the MixingEngine's payouts, reported by single status lookups
+     */
+    public MixingStatusHandler(final KVStore<String,Boolean> requestStore,
+                               final ConcurrentMap<String, SendStage> sendStages,
+                               final PayoutRetries retries) {
         this.requestStore = requestStore;
+        this.sendStages = sendStages;
+        this.lookup = new MixingStatusLookup(requestStore, sendStages, retries);
     }
 
     @Override
     public void start() {
+        Codecs.register(vertx);
         vertx.eventBus().consumer(MIXING_STATUS_VERTX_V1, this::consumeMessage);
+        vertx.eventBus().consumer(MIXING_STATUS_BATCH_VERTX_V1, this::consumeBatchMessage);
     }
 
     /**
-     * Handler to request the balance for any account. Makes a request to the Gemini
-     * API and returns the result back to the caller.
+     * Handler to request the mixing status of a request, see MixingStatusLookup. The HTTP
+     * server answers these itself when it shares the lookup, this handler then only
+     * serves other event bus clients such as mixing event streams.
      *
      * @param message to process
      */
     void consumeMessage(final Message<?> message) {
         try {
-            final JsonNode msg = mapper.readTree(message.body().toString());
+            final JsonNode msg = Codecs.json(mapper, message.body());
             final String requestId = Validator.stringField("requestId", msg);
-
-            if (!requestStore.containsKey(requestId)) {
-                throw new JobcoinException(
-                        String.format("Request Id=[%s] is not recognized by Jobcoin", requestId), 422);
-            }
-            JobcoinHttpServer.successResponse(message,
-                    JsonNodeFactory.instance.objectNode()
-                            .put("status", requestStore.get(requestId) ? "complete" : "incomplete"));
+            JobcoinHttpServer.successResponse(message, lookup.status(requestId));
 
         } catch (JsonProcessingException e) {
             JobcoinHttpServer.errorResponse(message, "Issue processing Json", 400);
@@ -59,4 +96,89 @@ public class MixingStatusHandler extends AbstractVerticle {
                     String.format("Issue submitting request %s", e.getMessage()), 500);
         }
     }
+
+    /**
+     * Bulk variant of consumeMessage, looks up the status of every request id in the
+     * payload with one getAll on the store. Unknown ids do not fail the lookup, they are
+     * reported as unknown. Only ids the store does not know are looked up in the send
+     * pipeline, sends still in it are incomplete and failed sends are reported as failed.
+     *
+     * @param message to process
+     */
+    void consumeBatchMessage(final Message<?> message) {
+        try {
+            final JsonNode msg = Codecs.json(mapper, message.body());
+            final List<String> requestIds = validateAndExtractRequestIds(msg);
+
+            Map<String, Boolean> statuses = requestStore.getAll(requestIds);
+            final Set<String> failed = new HashSet<>();
+            if (statuses.size() < requestIds.size()) {
+                final Map<String, Boolean> pipeline = new HashMap<>();
+                for (String requestId : requestIds) {
+                    if (statuses.containsKey(requestId)) {
+                        continue;
+                    }
+                    // sends still in the pipeline are incomplete, the ones which failed stay failed
+                    final SendStage stage = sendStages.get(requestId);
+                    if (stage == SendStage.FAILED) {
+                        failed.add(requestId);
+                    } else if (stage != null) {
+                        pipeline.put(requestId, false);
+                    } else if (requestStore.containsKey(requestId)) {
+                        // registered with the engine between the two lookups
+                        pipeline.put(requestId, requestStore.get(requestId));
+                    }
+                }
+                if (!pipeline.isEmpty()) {
+                    pipeline.putAll(statuses);
+                    statuses = pipeline;
+                }
+            }
+            message.reply(new MixingStatuses(requestIds, statuses, failed));
+
+        } catch (JsonProcessingException e) {
+            JobcoinHttpServer.errorResponse(message, "Issue processing Json", 400);
+        } catch (JsonRequestException e) {
+            JobcoinHttpServer.errorResponse(message, e.getMessage(), e.getStatusCode());
+        } catch (Exception e) {
+            JobcoinHttpServer.errorResponse(message,
+                    String.format("Issue submitting request %s", e.getMessage()), 500);
+        }
+    }
+
+    /**
+     * Extracts the request ids of a bulk lookup
+     *
+     * Validates:
+     *  Json is valid array of request ids
+     *  Array has between 1 and MAX_BATCH_SIZE request ids
+     *  Each request id is a non empty string
+     *  Duplicate request ids are collapsed, the order is kept
+     *
+     * @param msg to extract request ids from
+     * @return list of validated request ids
+     */
+    private List<String> validateAndExtractRequestIds(final JsonNode msg)
+            throws JsonRequestException {
+
+        if (!(msg instanceof ArrayNode)) {
+            throw new JsonRequestException("Payload is not an array of request ids", 400);
+        }
+        final ArrayNode requestIds = (ArrayNode) msg;
+        if (requestIds.size() < 1) {
+            throw new JsonRequestException("Must look up at least 1 request id", 400);
+        }
+        if (requestIds.size() > MAX_BATCH_SIZE) {
+            throw new JsonRequestException(
+                    String.format("Can look up at most %d request ids per batch", MAX_BATCH_SIZE), 400);
+        }
+        final Set<String> ids = new LinkedHashSet<>(requestIds.size() * 4 / 3 + 1);
+        for (JsonNode n : requestIds) {
+            if (!n.isTextual() || n.asText().isEmpty()) {
+                throw new JsonRequestException(String.format("%s is not a valid request id", n.toString()), 400);
+            }
+            ids.add(n.asText());
+        }
+        return new ArrayList<>(ids);
+    }
 }
@@ -0,0 +1,120 @@
+package com.gemini.jobcoin.verticles;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gemini.jobcoin.exception.JobcoinException;
+import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.external.persistence.SendStage;
+import com.gemini.jobcoin.message.JobcoinResponse;
+import io.vertx.core.buffer.Buffer;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Status of a single mixing request, read from the in memory request store and the
+ * stages of early acknowledged sends. Both are safe to read from any thread, so the
+ * lookup is shared by the MixingStatusHandler and the HTTP server, which answers status
+ * checks on its event loop without an event bus round trip.
+ *
+ * A request can only be in a handful of states, the response of each is encoded once
+ * and the same Buffer is written for every lookup. Only requests whose payouts were
+ * retried are encoded on each lookup, their status carries the number of retries and
+ * the part they were dead-lettered at.
+ */
+public class MixingStatusLookup {
+
+    private static final int INCOMPLETE = SendStage.values().length;
+
+    private static final int COMPLETE = INCOMPLETE + 1;
+
+    // responses by SendStage ordinal, then incomplete and complete
+    private static final Buffer[] ENCODED = encodeAll();
+
+    private final KVStore<String, Boolean> requestStore;
+
+    private final ConcurrentMap<String, SendStage> sendStages;
+
+    private final PayoutRetries retries;
+
+    public MixingStatusLookup(final KVStore<String, Boolean> requestStore,
+                              final ConcurrentMap<String, SendStage> sendStages) {
+        this(requestStore, sendStages, new PayoutRetries());
+    }
+
+    /**
+     * @param requestStore completion of the requests registered with the MixingEngine
+     * @param sendStages stage of the early acknowledged sends not yet registered with the
+     *                   MixingEngine, shared with the SendHandler
+     * @param retries of the MixingEngine's payouts
+     */
+    public MixingStatusLookup(final KVStore<String, Boolean> requestStore,
+                              final ConcurrentMap<String, SendStage> sendStages,
+                              final PayoutRetries retries) {
+        this.requestStore = requestStore;
+        this.sendStages = sendStages;
+        this.retries = retries;
+    }
+
+    /**
+     * @return status of the request
+     * @throws JobcoinException with a 422 if the request id is not known
+     */
+    public ObjectNode status(final String requestId) throws JobcoinException {
+        final ObjectNode status = statusNode(resolve(requestId));
+        final int retried = retries.retries(requestId);
+        if (retried > 0) {
+            status.put("retries", retried);
+        }
+        final PayoutRetries.DeadLetter deadLetter = retries.deadLetter(requestId);
+        if (deadLetter != null) {
+            status.put("deadLetteredPart", deadLetter.part);
+        }
+        return status;
+    }
+
+    /**
+     * @return pre-encoded response body of the request's status, must not be modified
+     * @throws JobcoinException with a 422 if the request id is not known
+     */
+    public Buffer encodedStatus(final String requestId) throws JobcoinException {
+        final int state = resolve(requestId);
+        if (retries.retries(requestId) > 0 || retries.deadLetter(requestId) != null) {
+            return Buffer.buffer(new JobcoinResponse(status(requestId)).encode());
+        }
+        return ENCODED[state];
+    }
+
+    private int resolve(final String requestId) throws JobcoinException {
+        // once registered with the engine a send's stage is stale, even one left failed
+        final Boolean complete = requestStore.get(requestId);
+        if (complete != null) {
+            return complete ? COMPLETE : INCOMPLETE;
+        }
+        // a send still in the pipeline reports its stage, it has no mixing status yet
+        final SendStage stage = sendStages.get(requestId);
+        if (stage == null) {
+            throw new JobcoinException(
+                    String.format("Request Id=[%s] is not recognized by Jobcoin", requestId), 422);
+        }
+        return stage.ordinal();
+    }
+
+    private static ObjectNode statusNode(int state) {
+        if (state == COMPLETE || state == INCOMPLETE) {
+            return JsonNodeFactory.instance.objectNode()
+                    .put("status", state == COMPLETE ? "complete" : "incomplete");
+        }
+        final SendStage stage = SendStage.values()[state];
+        return JsonNodeFactory.instance.objectNode()
+                .put("status", stage == SendStage.FAILED ? "failed" : "incomplete")
+                .put("stage", stage.label());
+    }
+
+    private static Buffer[] encodeAll() {
+        final Buffer[] encoded = new Buffer[COMPLETE + 1];
+        for (int state = 0; state < encoded.length; state++) {
+            encoded[state] = Buffer.buffer(new JobcoinResponse(statusNode(state)).encode());
+        }
+        return encoded;
+    }
+}
@@ -0,0 +1,211 @@
+package com.gemini.jobcoin.verticles;
+
+import com.gemini.jobcoin.exception.GeminiRequestException;
+import com.gemini.jobcoin.helper.Futures;
+import com.gemini.jobcoin.metrics.MetricsRegistry;
+import com.gemini.jobcoin.scheduler.Backoff;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Retry policy and retry state of the MixingEngine's payouts, shared by the engine
+ * instances and the MixingStatusLookup which reports the retries of a request.
+ *
+ * A failed payout is classified first. Gemini rejecting the transfer with a 4xx is
+ * unlikely to go away by itself and gets a small retry budget, 5xx responses, timeouts
+ * and failures without a response are expected to pass and get a larger one. Either way
+ * retries back off exponentially with jitter, so during an outage pending parts do not
+ * keep hitting Gemini at the rate they were scheduled at.
+ *
+ * A part which fails once more after its budget is spent is dead-lettered: the request
+ * stops at that part and is reported with its dead-lettered part until the mixer is
+ * restarted, which resumes it from the part. Later parts are not paid around it, the
+ * journal resumes a request from its first unpaid part so they would be paid twice.
+ *
+ * Read from system properties:
+ *
+ *   -Djobcoin.mixing.retry.baseMs=1000           backoff of the first retry
+ *   -Djobcoin.mixing.retry.capMs=300000          most a retry backs off
+ *   -Djobcoin.mixing.retry.transient=20          retries of 5xx, timeouts and I/O errors
+ *   -Djobcoin.mixing.retry.rejected=3            retries of 4xx
+ */
+public class PayoutRetries {
+
+    /**
+     * How a failed payout is retried.
+     */
+    public enum Failure {
+
+        /** Gemini rejected the transfer with a 4xx other then 408 and 429 */
+        REJECTED("rejected"),
+
+        /** 5xx, 408, 429, timeouts and failures without a response */
+        TRANSIENT("transient");
+
+        private final String label;
+
+        Failure(final String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    private final Backoff backoff;
+
+    private final int transientRetries;
+
+    private final int rejectedRetries;
+
+    private final ConcurrentMap<String, AtomicInteger> retries = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, DeadLetter> deadLetters = new ConcurrentHashMap<>();
+
+    private final LongAdder transientFailures = new LongAdder();
+
+    private final LongAdder rejectedFailures = new LongAdder();
+
+    public PayoutRetries() {
+        this(new Backoff(1000, 300_000), 20, 3);
+    }
+
+    /**
+     * @param backoff retries wait for
+     * @param transientRetries a part is retried after transient failures
+     * @param rejectedRetries a part is retried after Gemini rejected it
+     */
+    public PayoutRetries(final Backoff backoff, int transientRetries, int rejectedRetries) {
+        if (transientRetries < 0 || rejectedRetries < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Retry budgets must not be negative, got transient=%d rejected=%d",
+                    transientRetries, rejectedRetries));
+        }
+        this.backoff = backoff;
+        this.transientRetries = transientRetries;
+        this.rejectedRetries = rejectedRetries;
+    }
+
+    public static PayoutRetries fromSystemProperties() {
+        return new PayoutRetries(
+                new Backoff(
+                        Long.getLong("jobcoin.mixing.retry.baseMs", 1000),
+                        Long.getLong("jobcoin.mixing.retry.capMs", 300_000)),
+                Integer.getInteger("jobcoin.mixing.retry.transient", 20),
+                Integer.getInteger("jobcoin.mixing.retry.rejected", 3));
+    }
+
+    /**
+     * @return backoff payouts are retried with
+     */
+    public Backoff backoff() {
+        return backoff;
+    }
+
+    /**
+     * @param error the payout failed with, may be wrapped in a CompletionException
+     */
+    public static Failure classify(final Throwable error) {
+        final Throwable e = Futures.unwrap(error);
+        if (e instanceof GeminiRequestException) {
+            final int status = ((GeminiRequestException) e).getStatusCode();
+            if (status >= 400 && status < 500 && status != 408 && status != 429) {
+                return Failure.REJECTED;
+            }
+        }
+        return Failure.TRANSIENT;
+    }
+
+    /**
+     * Records the failure of a part.
+     *
+     * @param requestId of the part
+     * @param failure of the part
+     * @param failures of the part in a row, this one included
+     * @return ms to wait before retrying the part, -1 if its retry budget is spent and it
+     * has to be dead-lettered
+     */
+    long failed(final String requestId, final Failure failure, int failures) {
+        (failure == Failure.REJECTED ? rejectedFailures : transientFailures).increment();
+        if (failures > (failure == Failure.REJECTED ? rejectedRetries : transientRetries)) {
+            return -1;
+        }
+        retries.computeIfAbsent(requestId, id -> new AtomicInteger()).incrementAndGet();
+        return backoff.delayMillis(failures);
+    }
+
+    void deadLettered(final DeadLetter deadLetter) {
+        deadLetters.put(deadLetter.requestId, deadLetter);
+    }
+
+    /**
+     * Drops the retry state of a request which completed or is resumed from the journal,
+     * so neither map grows with every request the mixer has seen.
+     */
+    void forget(final String requestId) {
+        retries.remove(requestId);
+        deadLetters.remove(requestId);
+    }
+
+    /**
+     * @return retries of the request's parts so far, 0 if none failed
+     */
+    public int retries(final String requestId) {
+        final AtomicInteger count = retries.get(requestId);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return part the request stopped at, null if it did not
+     */
+    public DeadLetter deadLetter(final String requestId) {
+        return deadLetters.get(requestId);
+    }
+
+    public Collection<DeadLetter> deadLetters() {
+        return Collections.unmodifiableCollection(deadLetters.values());
+    }
+
+    public void exportTo(final MetricsRegistry metrics) {
+        metrics.counter("jobcoin_mixing_payout_failures_total", "Failed payouts by how they are retried",
+                transientFailures::sum, "failure", Failure.TRANSIENT.label());
+        metrics.counter("jobcoin_mixing_payout_failures_total", "Failed payouts by how they are retried",
+                rejectedFailures::sum, "failure", Failure.REJECTED.label());
+        metrics.gauge("jobcoin_mixing_dead_letters", "Parts which failed past their retry budget",
+                deadLetters::size);
+    }
+
+    /**
+     * Part which failed past its retry budget.
+     */
+    public static final class DeadLetter {
+
+        public final String requestId;
+
+        public final int part;
+
+        public final long amount;
+
+        public final Failure failure;
+
+        public final int failures;
+
+        public final String error;
+
+        DeadLetter(final String requestId, int part, long amount, final Failure failure, int failures,
+                   final String error) {
+            this.requestId = requestId;
+            this.part = part;
+            this.amount = amount;
+            this.failure = failure;
+            this.failures = failures;
+            this.error = error;
+        }
+    }
+}
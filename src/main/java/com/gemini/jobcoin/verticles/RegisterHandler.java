@@ -6,21 +6,30 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.gemini.jobcoin.JobcoinHttpServer;
+import com.gemini.jobcoin.exception.JobcoinException;
 import com.gemini.jobcoin.exception.JsonRequestException;
 import com.gemini.jobcoin.external.blockchain.AddressGenerator;
 import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.message.Codecs;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.eventbus.Message;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import static com.gemini.jobcoin.constant.Routes.REGISTER_BATCH_VERTX_V1;
 import static com.gemini.jobcoin.constant.Routes.REGISTER_VERTX_V1;
 
 public class RegisterHandler extends AbstractVerticle {
 
+    private static final int MAX_RESERVE_ATTEMPTS = 3;
+
+    static final int MAX_BATCH_SIZE = 1000;
+
     private final ObjectMapper mapper = new ObjectMapper();
 
     private final AddressGenerator addressGenerator;
@@ -35,7 +44,9 @@ public class RegisterHandler extends AbstractVerticle {
 
     @Override
     public void start() {
+        Codecs.register(vertx);
         vertx.eventBus().consumer(REGISTER_VERTX_V1, this::consumeMessage);
+        vertx.eventBus().consumer(REGISTER_BATCH_VERTX_V1, this::consumeBatchMessage);
     }
 
     /**
@@ -46,11 +57,9 @@ public class RegisterHandler extends AbstractVerticle {
      */
     void consumeMessage(final Message<?> message) {
         try {
-            final JsonNode msg = mapper.readTree(message.body().toString());
+            final JsonNode msg = Codecs.json(mapper, message.body());
             final List<String> userAddresses = validateAndExtractAddresses(msg);
-            final String depositAddress = addressGenerator.generateAddress();
-
-            depositAddressStore.put(depositAddress, userAddresses);
+            final String depositAddress = reserveDepositAddress(userAddresses);
 
             JobcoinHttpServer.successResponse(message,
                     JsonNodeFactory.instance.objectNode()
@@ -60,12 +69,146 @@ public class RegisterHandler extends AbstractVerticle {
             JobcoinHttpServer.errorResponse(message, "Issue processing Json", 400);
         } catch (JsonRequestException e) {
             JobcoinHttpServer.errorResponse(message, e.getMessage(), e.getStatusCode());
+        } catch (JobcoinException e) {
+            JobcoinHttpServer.errorResponse(message, e.getMessage(), e.getStatusCode());
+        } catch (Exception e) {
+            JobcoinHttpServer.errorResponse(message,
+                    String.format("Issue submitting request %s", e.getMessage()), 500);
+        }
+    }
+
+    /**
+     * Batch variant of consumeMessage, registers every list of addresses in the payload
+     * and replies with their deposit addresses in the same order. The lists are
+     * validated in one pass and reserved with one bulk store operation, if any list is
+     * invalid nothing is registered.
+     *
+     * @param message to process
+     */
+    void consumeBatchMessage(final Message<?> message) {
+        try {
+            final JsonNode msg = Codecs.json(mapper, message.body());
+            final List<List<String>> addressLists = validateAndExtractAddressLists(msg);
+            final String[] depositAddresses = reserveDepositAddresses(addressLists);
+
+            final ArrayNode depositAddressesJson = JsonNodeFactory.instance.arrayNode(depositAddresses.length);
+            for (String depositAddress : depositAddresses) {
+                depositAddressesJson.add(depositAddress);
+            }
+            JobcoinHttpServer.successResponse(message,
+                    JsonNodeFactory.instance.objectNode()
+                            .set("depositAddresses", depositAddressesJson));
+
+        } catch (JsonProcessingException e) {
+            JobcoinHttpServer.errorResponse(message, "Issue processing Json", 400);
+        } catch (JsonRequestException e) {
+            JobcoinHttpServer.errorResponse(message, e.getMessage(), e.getStatusCode());
+        } catch (JobcoinException e) {
+            JobcoinHttpServer.errorResponse(message, e.getMessage(), e.getStatusCode());
         } catch (Exception e) {
             JobcoinHttpServer.errorResponse(message,
                     String.format("Issue submitting request %s", e.getMessage()), 500);
         }
     }
 
+    /**
+     * Pops a fresh deposit address and atomically reserves it for the user addresses,
+     * trying again with a new address if it was already registered.
+     *
+     * @param userAddresses to associate with the deposit address
+     * @return reserved deposit address
+     */
+    private String reserveDepositAddress(final List<String> userAddresses) throws JobcoinException {
+        for (int attempt = 0; attempt < MAX_RESERVE_ATTEMPTS; attempt++) {
+            final String depositAddress = addressGenerator.generateAddress();
+            if (depositAddressStore.putIfAbsent(depositAddress, userAddresses) == null) {
+                return depositAddress;
+            }
+        }
+        throw new JobcoinException("Unable to reserve a unique deposit address", 500);
+    }
+
+    /**
+     * Reserves a deposit address for each list of addresses with one putAllIfAbsent per
+     * attempt, only the lists whose deposit address was already registered are retried.
+     *
+     * Deposit addresses reserved before a failure stay registered, they are never handed
+     * out so they are simply unused.
+     *
+     * @param addressLists to associate with deposit addresses
+     * @return reserved deposit addresses, in the order of addressLists
+     */
+    private String[] reserveDepositAddresses(final List<List<String>> addressLists) throws JobcoinException {
+        final String[] depositAddresses = new String[addressLists.size()];
+        List<Integer> unreserved = new ArrayList<>(addressLists.size());
+        for (int i = 0; i < addressLists.size(); i++) {
+            unreserved.add(i);
+        }
+        for (int attempt = 0; attempt < MAX_RESERVE_ATTEMPTS && !unreserved.isEmpty(); attempt++) {
+            final Map<String, Integer> indexes = new HashMap<>();
+            final Map<String, List<String>> batch = new HashMap<>();
+            final List<Integer> retry = new ArrayList<>();
+            for (int i : unreserved) {
+                final String depositAddress = addressGenerator.generateAddress();
+                if (indexes.putIfAbsent(depositAddress, i) == null) {
+                    batch.put(depositAddress, addressLists.get(i));
+                } else {
+                    retry.add(i);
+                }
+            }
+            final Map<String, List<String>> taken = depositAddressStore.putAllIfAbsent(batch);
+            for (Map.Entry<String, Integer> e : indexes.entrySet()) {
+                if (taken.containsKey(e.getKey())) {
+                    retry.add(e.getValue());
+                } else {
+                    depositAddresses[e.getValue()] = e.getKey();
+                }
+            }
+            unreserved = retry;
+        }
+        if (!unreserved.isEmpty()) {
+            throw new JobcoinException("Unable to reserve a unique deposit address", 500);
+        }
+        return depositAddresses;
+    }
+
+    /**
+     * Extracts the validated lists of addresses of a batch register
+     *
+     * Validates:
+     *  Json is valid array of arrays of addresses
+     *  Array has between 1 and MAX_BATCH_SIZE lists
+     *  Each list is valid as per validateAndExtractAddresses, errors name the list's index
+     *
+     * @param msg to extract lists of addresses from
+     * @return lists of validated addresses
+     */
+    private List<List<String>> validateAndExtractAddressLists(final JsonNode msg)
+            throws JsonRequestException {
+
+        if (!(msg instanceof ArrayNode)) {
+            throw new JsonRequestException("Payload is not an array of address lists", 400);
+        }
+        final ArrayNode addressLists = (ArrayNode) msg;
+        if (addressLists.size() < 1) {
+            throw new JsonRequestException("Must register at least 1 address list", 400);
+        }
+        if (addressLists.size() > MAX_BATCH_SIZE) {
+            throw new JsonRequestException(
+                    String.format("Can register at most %d address lists per batch", MAX_BATCH_SIZE), 400);
+        }
+        final List<List<String>> userAddressLists = new ArrayList<>(addressLists.size());
+        for (int i = 0; i < addressLists.size(); i++) {
+            try {
+                userAddressLists.add(validateAndExtractAddresses(addressLists.get(i)));
+            } catch (JsonRequestException e) {
+                throw new JsonRequestException(
+                        String.format("Address list %d: %s", i, e.getMessage()), e.getStatusCode());
+            }
+        }
+        return userAddressLists;
+    }
+
     /**
      * Extracts validated addresses to register with Jobcoin
      *
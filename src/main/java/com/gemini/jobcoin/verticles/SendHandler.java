@@ -1,73 +1,442 @@
 package com.gemini.jobcoin.verticles;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.gemini.jobcoin.JobcoinHttpServer;
 import com.gemini.jobcoin.exception.GeminiRequestException;
+import com.gemini.jobcoin.exception.JobcoinException;
 import com.gemini.jobcoin.exception.JsonRequestException;
 import com.gemini.jobcoin.external.http.GeminiClient;
+import com.gemini.jobcoin.external.persistence.InMemoryKVStore;
+import com.gemini.jobcoin.external.persistence.JournaledSend;
 import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.external.persistence.MixingJournal;
+import com.gemini.jobcoin.external.persistence.NoOpMixingJournal;
+import com.gemini.jobcoin.external.persistence.SendStage;
+import com.gemini.jobcoin.external.persistence.UUIDGenerator;
+import com.gemini.jobcoin.helper.Amount;
+import com.gemini.jobcoin.helper.Futures;
 import com.gemini.jobcoin.helper.Validator;
+import com.gemini.jobcoin.message.Codecs;
+import com.gemini.jobcoin.message.JobcoinResponse;
+import com.gemini.jobcoin.message.MixingRequest;
+import com.gemini.jobcoin.scheduler.Backoff;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
 
+import java.util.Collection;
 import java.util.List;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 import static com.gemini.jobcoin.constant.Routes.MIXER_VERTX_V1;
 import static com.gemini.jobcoin.constant.Routes.SEND_VERTX_V1;
 import static com.gemini.jobcoin.external.blockchain.JobcoinAddressGenerator.JOBCOIN_HOUSE_ADDRESS;
 
+/**
+ * Moves the funds of a send to the house address and registers the send with the
+ * MixingEngine.
+ *
+ * By default the client is answered once the send is registered, which takes two Gemini
+ * round trips. With early acknowledgement, switched on explicitly with Builder.earlyAck,
+ * the send is validated, journaled and answered with a 202 and its requestId straight
+ * away, the transfers and the registration then run as a staged pipeline in the
+ * background. Each stage is journaled before the next one starts and the current stage
+ * is reported by mixingStatus until the engine takes over the request.
+ *
+ * New sends are rejected with a 503 before any funds are moved while the MixingEngine's
+ * backlog is over its high-water mark.
+ *
+ * A stage which fails is retried with backoff, classified as the MixingEngine's payouts
+ * are. Only Gemini rejecting the transfer to the deposit address fails a send, once the
+ * funds have left the source address giving up would strand them, so the later stages
+ * are retried until they succeed.
+ *
+ * Note:
+ *      As with the MixingEngine's payouts, a transfer which succeeded at Gemini but
+ *      whose stage was not journaled before a crash is sent again after the restart.
+ */
 public class SendHandler extends AbstractVerticle {
 
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final static Logger logger = LoggerFactory.getLogger(SendHandler.class);
+
+    // floats are read as BigDecimal so amounts are converted to minor units exactly
+    private final ObjectMapper mapper = new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
 
     private final GeminiClient geminiClient;
 
     private final KVStore<String, List<String>> depositAddressStore;
 
+    private final boolean earlyAck;
+
+    private final UUIDGenerator requestIdGenerator;     // null unless sends are acknowledged early
+
+    private final MixingJournal journal;
+
+    private final ConcurrentMap<String, SendStage> sendStages;
+
+    private final KVStore<String, Boolean> requestStore;
+
+    private final MixingBacklog backlog;
+
+    private final Backoff backoff;
+
     public SendHandler(final GeminiClient geminiClient,
                        final KVStore<String,List<String>> depositAddressStore) {
-        this.geminiClient = geminiClient;
-        this.depositAddressStore = depositAddressStore;
+        this(builder(geminiClient, depositAddressStore));
+    }
+
+    private SendHandler(final Builder builder) {
+        this.geminiClient = builder.geminiClient;
+        this.depositAddressStore = builder.depositAddressStore;
+        this.earlyAck = builder.earlyAck;
+        this.requestIdGenerator = builder.requestIdGenerator;
+        this.journal = builder.journal;
+        this.sendStages = builder.sendStages;
+        this.requestStore = builder.requestStore;
+        this.backlog = builder.backlog;
+        this.backoff = builder.backoff;
+    }
+
+    /**
+     * @return builder of a handler which answers sends once they are registered, without
+     * a backlog limit
+     */
+    public static Builder builder(final GeminiClient geminiClient,
+                                  final KVStore<String, List<String>> depositAddressStore) {
+        return new Builder(geminiClient, depositAddressStore);
+    }
+
+    /**
+     * Optional collaborators of a handler, anything shared with the MixingEngine or the
+     * status handlers has to be passed to the builder of every instance.
+     */
+    public static final class Builder {
+
+        private final GeminiClient geminiClient;
+
+        private final KVStore<String, List<String>> depositAddressStore;
+
+        private boolean earlyAck;
+
+        private UUIDGenerator requestIdGenerator;
+
+        private MixingJournal journal = new NoOpMixingJournal();
+
+        private ConcurrentMap<String, SendStage> sendStages = new ConcurrentHashMap<>();
+
+        private KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+
+        private MixingBacklog backlog = MixingBacklog.unbounded();
+
+        private Backoff backoff = new Backoff(1000, 300_000);
+
+        private Builder(final GeminiClient geminiClient,
+                        final KVStore<String, List<String>> depositAddressStore) {
+            this.geminiClient = geminiClient;
+            this.depositAddressStore = depositAddressStore;
+        }
+
+        /**
+         * @param earlyAck true to answer sends with a 202 and their requestId as soon as they
+         *                 are journaled, the transfers then run in the background
+         */
+        public Builder earlyAck(boolean earlyAck) {
+            this.earlyAck = earlyAck;
+            return this;
+        }
+
+        /**
+         * @param requestIdGenerator to create the requestId returned with the 202, required
+         *                           with early acknowledgement and only allowed with it
+         */
+        public Builder requestIdGenerator(final UUIDGenerator requestIdGenerator) {
+            this.requestIdGenerator = requestIdGenerator;
+            return this;
+        }
+
+        /**
+         * @param journal accepted sends and their stages are recorded in
+         */
+        public Builder journal(final MixingJournal journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        /**
+         * @param sendStages stage of each send in the pipeline, shared with the MixingStatusHandler
+         */
+        public Builder sendStages(final ConcurrentMap<String, SendStage> sendStages) {
+            this.sendStages = sendStages;
+            return this;
+        }
+
+        /**
+         * @param requestStore of the MixingEngine, a send found in it was registered even if
+         *                     the engine's reply was lost
+         */
+        public Builder requestStore(final KVStore<String, Boolean> requestStore) {
+            this.requestStore = requestStore;
+            return this;
+        }
+
+        /**
+         * @param backlog of the MixingEngine, sends are rejected while it is over its high-water mark
+         */
+        public Builder backlog(final MixingBacklog backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * @param backoff failed stages of early acknowledged sends are retried with
+         */
+        public Builder backoff(final Backoff backoff) {
+            this.backoff = backoff;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if a requestIdGenerator is missing with early
+         * acknowledgement or given without it
+         */
+        public SendHandler build() {
+            if (earlyAck != (requestIdGenerator != null)) {
+                throw new IllegalArgumentException(earlyAck
+                        ? "Early acknowledgement needs a requestIdGenerator"
+                        : "A requestIdGenerator is only used with early acknowledgement");
+            }
+            return new SendHandler(this);
+        }
     }
 
     @Override
     public void start() {
+        Codecs.register(vertx);
+        if (earlyAck) {
+            recover();
+        }
         vertx.eventBus().consumer(SEND_VERTX_V1, this::consumeMessage);
     }
 
+    /**
+     * Resumes the sends which were accepted but not registered with the MixingEngine
+     * before the restart, each from the stage after its last journaled one. Failed sends
+     * are only restored so their status survives.
+     */
+    void recover() {
+        final Collection<JournaledSend> sends = journal.recoverSends();
+        for (JournaledSend send : sends) {
+            sendStages.put(send.requestId, send.stage);
+            if (send.stage != SendStage.FAILED) {
+                runPipeline(new MixingRequest(
+                        send.sourceAddress,
+                        send.depositAddress,
+                        Amount.ofUnits(send.amount),
+                        send.requestId,
+                        send.userOwnedAddresses), send.stage);
+            }
+        }
+        if (!sends.isEmpty()) {
+            logger.info(String.format("Recovered %d accepted sends from journal", sends.size()));
+        }
+    }
+
     /**
      * Method constructs url to send request to for transferring Jobcoins
      *
+     * Both transfers are chained asynchronously, the worker thread is released once
+     * the first transfer is in flight and the mixing engine is only registered with
+     * after the funds have reached the house address.
+     *
      * @param message to process
      */
     void consumeMessage(final Message<?> message) {
         try {
-            final JsonNode msg = mapper.readTree(message.body().toString());
+            final JsonNode msg = Codecs.json(mapper, message.body());
             final MixingRequest mixingRequest = buildRequest(msg);
+            backlog.admit();              // before any funds leave the source address
 
+            if (earlyAck) {
+                accept(message, mixingRequest);
+                return;
+            }
             // transfer from source address to deposit address
-            geminiClient.transferAmount(
-                    mixingRequest.sourceAddress, mixingRequest.depositAddress, mixingRequest.amount);
+            geminiClient.transferAmountAsync(
+                    mixingRequest.sourceAddress, mixingRequest.depositAddress, mixingRequest.amount.units())
+                    // from deposit address to house address
+                    .thenCompose(response -> geminiClient.transferAmountAsync(
+                            mixingRequest.depositAddress, JOBCOIN_HOUSE_ADDRESS, mixingRequest.amount.units()))
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            failureResponse(message, error);
+                        } else {
+                            try {
+                                registerToMixingEngine(message, mixingRequest);
+                            } catch (Exception e) {
+                                failureResponse(message, e);
+                            }
+                        }
+                    });
+
+        } catch (Exception e) {
+            failureResponse(message, e);
+        }
+    }
 
-            // from deposit address to house address
-            geminiClient.transferAmount(
-                    mixingRequest.depositAddress, JOBCOIN_HOUSE_ADDRESS, mixingRequest.amount);
+    /**
+     * Journals the send under a new requestId and acknowledges it with a 202 once the
+     * record is durable, then starts the pipeline.
+     *
+     * @param message to respond to
+     * @param mixingRequest validated send
+     */
+    private void accept(final Message<?> message, final MixingRequest mixingRequest) {
+        final String requestId = requestIdGenerator.generateId();
+        final MixingRequest accepted = new MixingRequest(
+                mixingRequest.sourceAddress,
+                mixingRequest.depositAddress,
+                mixingRequest.amount,
+                requestId,
+                depositAddressStore.get(mixingRequest.depositAddress));
 
-            registerToMixingEngine(message, mixingRequest);
+        journal.accepted(requestId, accepted.sourceAddress, accepted.depositAddress, accepted.userOwnedAddresses,
+                accepted.amount.units())
+                .whenComplete((durable, error) -> {
+                    if (error != null) {
+                        JobcoinHttpServer.errorResponse(message,
+                                String.format("Issue journaling request %s", Futures.unwrap(error).getMessage()), 500);
+                        return;
+                    }
+                    sendStages.put(requestId, SendStage.ACCEPTED);
+                    JobcoinHttpServer.acceptedResponse(message, JsonNodeFactory.instance.objectNode()
+                            .put("requestId", requestId));
+                    runPipeline(accepted, SendStage.ACCEPTED);
+                });
+    }
 
-        } catch (GeminiRequestException e) {
+    /**
+     * Runs the stages of an accepted send after the given one: the transfer to the
+     * deposit address, the transfer to the house address and the registration with the
+     * MixingEngine. A stage only starts once the previous one is journaled, failed stages
+     * are retried unless Gemini rejected the transfer to the deposit address.
+     *
+     * @param mixingRequest send carrying its requestId
+     * @param from last stage the send completed
+     */
+    void runPipeline(final MixingRequest mixingRequest, final SendStage from) {
+        final String requestId = mixingRequest.requestId;
+        final long amount = mixingRequest.amount.units();
+
+        CompletableFuture<Void> stages = CompletableFuture.completedFuture(null);
+        if (from == SendStage.ACCEPTED) {
+            stages = stages
+                    .thenCompose(v -> retried(requestId, "deposit", () -> geminiClient.transferAmountAsync(
+                            mixingRequest.sourceAddress, mixingRequest.depositAddress, amount), true))
+                    .thenCompose(v -> advance(requestId, SendStage.DEPOSITED));
+        }
+        if (from != SendStage.TRANSFERRED) {
+            stages = stages
+                    .thenCompose(v -> retried(requestId, "transfer", () -> geminiClient.transferAmountAsync(
+                            mixingRequest.depositAddress, JOBCOIN_HOUSE_ADDRESS, amount), false))
+                    .thenCompose(v -> advance(requestId, SendStage.TRANSFERRED));
+        }
+        // a registration whose reply timed out may still have gone through
+        stages.thenCompose(v -> retried(requestId, "registration", () -> requestStore.containsKey(requestId)
+                        ? CompletableFuture.completedFuture(null)
+                        : registerAccepted(mixingRequest), false))
+                .whenComplete((v, error) -> {
+                    if (error != null) {
+                        logger.error(String.format("Request Id=[%s] send rejected", requestId), Futures.unwrap(error));
+                        sendStages.put(requestId, SendStage.FAILED);
+                        journal.staged(requestId, SendStage.FAILED);
+                    } else {
+                        // the engine has stored the request, its mixing status takes over
+                        sendStages.remove(requestId);
+                    }
+                });
+    }
+
+    /**
+     * @param stage name of the stage logged with its failures
+     * @param attempt runs the stage once
+     * @param rejectable true if a rejection by Gemini fails the stage instead of being retried
+     * @return completes once an attempt succeeded, or with the rejection
+     */
+    private CompletableFuture<Void> retried(final String requestId,
+                                            final String stage,
+                                            final Supplier<CompletableFuture<?>> attempt,
+                                            boolean rejectable) {
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        attempt(requestId, stage, attempt, rejectable, 1, done);
+        return done;
+    }
+
+    private void attempt(final String requestId,
+                         final String stage,
+                         final Supplier<CompletableFuture<?>> attempt,
+                         boolean rejectable,
+                         int attempts,
+                         final CompletableFuture<Void> done) {
+        CompletableFuture<?> attempted;
+        try {
+            attempted = attempt.get();
+        } catch (Exception e) {
+            attempted = CompletableFuture.failedFuture(e);
+        }
+        attempted.whenComplete((result, error) -> {
+            if (error == null) {
+                done.complete(null);
+            } else if (rejectable && PayoutRetries.classify(error) == PayoutRetries.Failure.REJECTED) {
+                done.completeExceptionally(error);
+            } else {
+                final long delay = backoff.delayMillis(attempts);
+                logger.warn(String.format("Request Id=[%s] %s failed %d times, retrying in %dms",
+                        requestId, stage, attempts, delay), Futures.unwrap(error));
+                vertx.setTimer(delay, id -> attempt(requestId, stage, attempt, rejectable, attempts + 1, done));
+            }
+        });
+    }
+
+    private CompletableFuture<Void> advance(final String requestId, final SendStage stage) {
+        sendStages.put(requestId, stage);
+        return journal.staged(requestId, stage);
+    }
+
+    private CompletableFuture<Void> registerAccepted(final MixingRequest mixingRequest) {
+        final CompletableFuture<Void> registered = new CompletableFuture<>();
+        vertx.eventBus().<JobcoinResponse>request(MIXER_VERTX_V1, mixingRequest, event -> {
+            if (event.succeeded()) {
+                registered.complete(null);
+            } else {
+                registered.completeExceptionally(event.cause());
+            }
+        });
+        return registered;
+    }
+
+    private void failureResponse(final Message<?> message, final Throwable error) {
+        final Throwable e = Futures.unwrap(error);
+        if (e instanceof GeminiRequestException) {
             JobcoinHttpServer.errorResponse(message,
-                    String.format("Gemini API returned an error %s", e.getMessage()), e.getStatusCode());
-        } catch (JsonRequestException e) {
-            JobcoinHttpServer.errorResponse(message, e.getMessage(), e.getStatusCode());
-        } catch (JsonProcessingException e) {
+                    String.format("Gemini API returned an error %s", e.getMessage()),
+                    ((GeminiRequestException) e).getStatusCode());
+        } else if (e instanceof JsonRequestException) {
+            JobcoinHttpServer.errorResponse(message, e.getMessage(), ((JsonRequestException) e).getStatusCode());
+        } else if (e instanceof JobcoinException) {
+            JobcoinHttpServer.errorResponse(message, e.getMessage(), ((JobcoinException) e).getStatusCode());
+        } else if (e instanceof JsonProcessingException) {
             JobcoinHttpServer.errorResponse(message, "Issue processing Json", 400);
-        } catch (Exception e) {
+        } else {
             JobcoinHttpServer.errorResponse(message,
                     String.format("Issue submitting request %s", e.getMessage()), 500);
         }
@@ -77,28 +446,18 @@ public class SendHandler extends AbstractVerticle {
      * Registers request to mixing engine which will return an id that
      * can be used to track state of mixing
      *
+     * The request and the engine's reply are passed as objects, the reply is forwarded
+     * to the caller as is.
+     *
      * @param message to respond to
      * @param mixingRequest we are sending to engine
      */
     private void registerToMixingEngine(final Message<?> message, final MixingRequest mixingRequest) {
-        vertx.eventBus().request(MIXER_VERTX_V1, mixingRequest.toString(), event -> {
+        vertx.eventBus().<JobcoinResponse>request(MIXER_VERTX_V1, mixingRequest, event -> {
             if (event.succeeded()) {
-                try {
-                    final ObjectNode msg = (ObjectNode) mapper.readTree((String)event.result().body());
-                    JobcoinHttpServer.successResponse(message, msg.get("message").toString());
-                } catch (Exception e) {
-                    JobcoinHttpServer.errorResponse(message, String.format(
-                            "Issue processing mixing engine response %s", event.result().body()), 500);
-                }
+                message.reply(event.result().body());
             } else {
-                try {
-                    final ObjectNode msg = (ObjectNode) mapper.readTree(event.cause().getMessage());
-                    JobcoinHttpServer.errorResponse(message, msg.get("message").asText(), 500);
-                } catch (Exception e) {
-                    JobcoinHttpServer.errorResponse(message, String.format(
-                            "Issue processing mixing engine response %s", event.cause().getMessage()), 500);
-                }
-
+                JobcoinHttpServer.errorResponse(message, event.cause().getMessage(), 500);
             }
         });
     }
@@ -114,11 +473,12 @@ public class SendHandler extends AbstractVerticle {
      *      be associated with a set of addresses where the mixer will
      *      ultimately send all the money to.
      *  Each address is at least 1 character in length
+     *  Amount is positive with at most 8 decimal places
      *
      * @param msg extract fields and build the mixing request with
      * @return request used to send to mixing engine
      **/
-    private MixingRequest buildRequest(final JsonNode msg) throws JsonRequestException {
+    private MixingRequest buildRequest(final JsonNode msg) throws JsonRequestException, JobcoinException {
 
         if (!(msg instanceof ObjectNode)) {
             throw new JsonRequestException("Payload is not json object", 400);
@@ -135,8 +495,8 @@ public class SendHandler extends AbstractVerticle {
         if (!msg.get("amount").isNumber()) {
             throw new JsonRequestException("Amount needs to be a number", 400);
         }
-        final String amount = msg.get("amount").toString();
-        if (Double.compare(msg.get("amount").doubleValue(), 0.0) <= 0) {
+        final Amount amount = Amount.of(msg.get("amount").decimalValue());
+        if (!amount.isPositive()) {
             throw new JsonRequestException("Amount needs to be greater then 0.0", 400);
         }
 
@@ -146,30 +506,4 @@ public class SendHandler extends AbstractVerticle {
                 amount
         );
     }
-
-    static class MixingRequest {
-
-        public final String sourceAddress;
-
-        public final String depositAddress;
-
-        public final String amount;
-
-        public MixingRequest(final String sourceAddress,
-                             final String depositAddress,
-                             final String amount) {
-            this.sourceAddress = sourceAddress;
-            this.depositAddress = depositAddress;
-            this.amount = amount;
-        }
-
-        @Override
-        public String toString() {
-            return JsonNodeFactory.instance.objectNode()
-                    .put("sourceAddress", sourceAddress)
-                    .put("depositAddress", depositAddress)
-                    .put("amount", amount)
-                    .toString();
-        }
-    }
 }
@@ -0,0 +1,87 @@
+package com.gemini.jobcoin;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.gemini.jobcoin.constant.Routes.BALANCE_V1;
+import static com.gemini.jobcoin.constant.Routes.SEND_V1;
+
+public class AdmissionControllerTest {
+
+    @Test
+    public void testLimitIsEnforced() {
+        final AdmissionController admission = new AdmissionController(Collections.singletonMap(SEND_V1, 2), 1);
+        final AdmissionController.Permits permits = admission.permits(SEND_V1);
+
+        Assert.assertTrue(permits.tryAcquire());
+        Assert.assertTrue(permits.tryAcquire());
+        Assert.assertFalse(permits.tryAcquire());
+        Assert.assertFalse(permits.tryAcquire());
+        Assert.assertEquals(2, permits.inFlight());
+        Assert.assertEquals(2, permits.rejected());
+
+        permits.release();
+        Assert.assertTrue(permits.tryAcquire());
+        Assert.assertEquals(2, permits.rejected());
+    }
+
+    @Test
+    public void testRoutesWithoutLimit() {
+        final AdmissionController admission = new AdmissionController(Collections.singletonMap(SEND_V1, 0), 1);
+
+        for (AdmissionController.Permits permits : new AdmissionController.Permits[]{
+                admission.permits(SEND_V1), admission.permits(BALANCE_V1)}) {
+            for (int i = 0; i < 10_000; i++) {
+                Assert.assertTrue(permits.tryAcquire());
+            }
+            Assert.assertEquals(0, permits.rejected());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit() {
+        new AdmissionController(Collections.singletonMap(SEND_V1, -1), 1);
+    }
+
+    @Test
+    public void testLimitHoldsUnderContention() throws InterruptedException {
+        final AdmissionController.Permits permits =
+                new AdmissionController(Collections.singletonMap(SEND_V1, 3), 1).permits(SEND_V1);
+        final AtomicInteger admitted = new AtomicInteger();
+        final AtomicBoolean exceeded = new AtomicBoolean();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 100_000; i++) {
+                    if (permits.tryAcquire()) {
+                        if (admitted.incrementAndGet() > 3) {
+                            exceeded.set(true);
+                        }
+                        admitted.decrementAndGet();
+                        permits.release();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertFalse(exceeded.get());
+        Assert.assertEquals(0, permits.inFlight());
+    }
+}
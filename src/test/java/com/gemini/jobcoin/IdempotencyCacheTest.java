@@ -0,0 +1,70 @@
+package com.gemini.jobcoin;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class IdempotencyCacheTest {
+
+    @Test
+    public void testFirstEntryIsKept() {
+        final IdempotencyCache cache = new IdempotencyCache(1, TimeUnit.MINUTES, 16);
+        final IdempotencyCache.Entry first = new IdempotencyCache.Entry(1);
+        final IdempotencyCache.Entry second = new IdempotencyCache.Entry(1);
+
+        Assert.assertNull(cache.putIfAbsent("key", first));
+        Assert.assertSame(first, cache.putIfAbsent("key", second));
+        Assert.assertTrue(first.matches(second));
+        Assert.assertFalse(first.matches(new IdempotencyCache.Entry(2)));
+        Assert.assertEquals(1, cache.replayed());
+        Assert.assertEquals(1, cache.size());
+
+        first.complete(new IdempotencyCache.Response(200, "{}"));
+        Assert.assertEquals(200, cache.putIfAbsent("key", second).response().join().statusCode);
+    }
+
+    @Test
+    public void testRemovedEntryIsReplaced() {
+        final IdempotencyCache cache = new IdempotencyCache(1, TimeUnit.MINUTES, 16);
+        final IdempotencyCache.Entry first = new IdempotencyCache.Entry(1);
+        final IdempotencyCache.Entry second = new IdempotencyCache.Entry(1);
+        Assert.assertNull(cache.putIfAbsent("key", first));
+
+        Assert.assertFalse(cache.remove("key", second));
+        Assert.assertTrue(cache.remove("key", first));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertNull(cache.putIfAbsent("key", second));
+        // a stale entry does not remove the one which replaced it
+        Assert.assertFalse(cache.remove("key", first));
+        Assert.assertSame(second, cache.putIfAbsent("key", first));
+    }
+
+    @Test
+    public void testEntriesExpire() throws InterruptedException {
+        final IdempotencyCache cache = new IdempotencyCache(50, TimeUnit.MILLISECONDS, 16);
+        final IdempotencyCache.Entry first = new IdempotencyCache.Entry(1);
+        Assert.assertNull(cache.putIfAbsent("key", first));
+
+        Thread.sleep(100);
+        Assert.assertNull(cache.putIfAbsent("key", new IdempotencyCache.Entry(1)));
+        Assert.assertEquals(0, cache.replayed());
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        final IdempotencyCache cache = new IdempotencyCache(1, TimeUnit.MINUTES, 64);
+        for (int i = 0; i < 10_000; i++) {
+            Assert.assertNull(cache.putIfAbsent("key-" + i, new IdempotencyCache.Entry(i)));
+        }
+        Assert.assertTrue(cache.size() <= 64);
+        // the most recent key is still held, the oldest were dropped
+        Assert.assertNotNull(cache.putIfAbsent("key-9999", new IdempotencyCache.Entry(9999)));
+        Assert.assertNull(cache.putIfAbsent("key-0", new IdempotencyCache.Entry(0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooFewEntries() {
+        new IdempotencyCache(1, TimeUnit.MINUTES, 8);
+    }
+}
@@ -1,15 +1,57 @@
 package com.gemini.jobcoin;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gemini.jobcoin.external.persistence.InMemoryKVStore;
+import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.external.persistence.SendStage;
+import com.gemini.jobcoin.message.JobcoinResponse;
+import com.gemini.jobcoin.message.MixingEvent;
+import com.gemini.jobcoin.metrics.EventBusMetrics;
+import com.gemini.jobcoin.metrics.MetricsRegistry;
+import com.gemini.jobcoin.verticles.MixingStatusHandler;
+import com.gemini.jobcoin.verticles.MixingStatusLookup;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.net.SocketAddress;
 import io.vertx.ext.web.RoutingContext;
 import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.gemini.jobcoin.constant.Routes.BALANCE_V1;
+import static com.gemini.jobcoin.constant.Routes.BALANCE_VERTX_V1;
+import static com.gemini.jobcoin.constant.Routes.REGISTER_V1;
+import static com.gemini.jobcoin.constant.Routes.REGISTER_VERTX_V1;
+import static com.gemini.jobcoin.constant.Routes.SEND_V1;
+import static com.gemini.jobcoin.constant.Routes.SEND_VERTX_V1;
+import static com.gemini.jobcoin.constant.Web.IDEMPOTENCY_KEY;
+import static com.gemini.jobcoin.constant.Web.IDEMPOTENT_REPLAYED;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
@@ -17,15 +59,22 @@ import static org.mockito.Mockito.verify;
 
 public class JobcoinHttpServerTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testCommandsPayload() {
 
-        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Buffer> captor = ArgumentCaptor.forClass(Buffer.class);
 
         final ObjectNode registerJson = JsonNodeFactory.instance.objectNode()
                 .put("payload", " [address 1,address 2 ... address n]")
                 .put("description", "Registers n addresses. Returns a deposit address");
 
+        final ObjectNode registerBatchJson = JsonNodeFactory.instance.objectNode()
+                .put("payload", " [[address 1 ... address n], ... [address 1 ... address m]]")
+                .put("description", "Registers up to 1000 lists of addresses. Returns a deposit address per list, in the same order");
+
         final ObjectNode sendJson = JsonNodeFactory.instance.objectNode()
                 .put("payload", "{ \"fromAddress\" : \"srcAddress\", \"toAddress\" : \"destAddress\", \"amount\" : x.xx }")
                 .put("description", "Sends [amount] from [srcAddress] to [destAddress] will register with mixer and return associated requestId to track state of mixing request, destAddress must be a depositAddress provided by Jobcoin.");
@@ -37,11 +86,23 @@ public class JobcoinHttpServerTest {
                 .put("description", "Retrieves status for [reqId], will return error if requestId" +
                         " does not exist, complete if finished, incomplete if still processing");
 
+        final ObjectNode requestIdsJson = JsonNodeFactory.instance.objectNode()
+                .put("payload", " [reqId 1,reqId 2 ... reqId n] (POST) or repeated requestId params (GET)")
+                .put("description", "Retrieves status for up to 100000 requestIds in one response, unknown" +
+                        " if the requestId does not exist, complete if finished, incomplete if still processing");
+
+        final ObjectNode requestEventsJson = JsonNodeFactory.instance.objectNode()
+                .put("description", "Server-Sent Events stream of the status of [reqId], an event is" +
+                        " pushed as each part is paid out and the stream ends once the request is complete");
+
         final ObjectNode node = JsonNodeFactory.instance.objectNode();
         node.set("/v1/register", registerJson);
+        node.set("/v1/register/batch", registerBatchJson);
         node.set("/v1/send", sendJson);
         node.set("/v1/balance?address=<balanceAddress>", balanceJson);
         node.set("/v1/mixingStatus?requestId=<reqId>", requestIdJson);
+        node.set("/v1/mixingStatus/batch", requestIdsJson);
+        node.set("/v1/mixingEvents?requestId=<reqId>", requestEventsJson);
 
         final JobcoinHttpServer httpServer = new JobcoinHttpServer();
 
@@ -57,13 +118,13 @@ public class JobcoinHttpServerTest {
 
         verify(response).end(captor.capture());
 
-        Assert.assertEquals(node.toString(), captor.getValue());
+        Assert.assertEquals(node.toString(), captor.getValue().toString());
     }
 
     @Test
     public void testStatusUpPayload() {
 
-        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Buffer> captor = ArgumentCaptor.forClass(Buffer.class);
 
         final JobcoinHttpServer httpServer = new JobcoinHttpServer();
 
@@ -80,6 +141,507 @@ public class JobcoinHttpServerTest {
         verify(response).end(captor.capture());
 
         Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("Jobcoin Mixer", "All Systems Operational").toString(), captor.getValue());
+                .put("Jobcoin Mixer", "All Systems Operational").toString(), captor.getValue().toString());
+    }
+
+    @Test
+    public void testErrorPayload() {
+        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
+                .put("message", "Issue processing Json")
+                .put("status", "failed").toString(), JobcoinHttpServer.errorJson("Issue processing Json"));
+    }
+
+    @Test
+    public void testInstancesShareThePort() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final AtomicInteger created = new AtomicInteger();
+            vertx.deployVerticle(() -> {
+                created.incrementAndGet();
+                return new JobcoinHttpServer(18112);
+            }, new DeploymentOptions().setInstances(3))
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(3, created.get());
+
+            final HttpClient client = vertx.createHttpClient();
+            for (int i = 0; i < 6; i++) {
+                final String body = client.request(HttpMethod.GET, 18112, "localhost", "/status")
+                        .compose(request -> request.send())
+                        .compose(response -> response.body())
+                        .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+                        .toString();
+                Assert.assertEquals(JsonNodeFactory.instance.objectNode()
+                        .put("Jobcoin Mixer", "All Systems Operational").toString(), body);
+            }
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testLargeMixingStatusBatchIsStreamed() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+            final ArrayNode requestIds = JsonNodeFactory.instance.arrayNode();
+            for (int i = 0; i < JobcoinHttpServer.STATUS_CHUNK * 5 / 2; i++) {
+                requestIds.add("requestId" + i);
+                requestStore.put("requestId" + i, i % 2 == 0);
+            }
+            requestIds.add("unknownRequestId");
+
+            vertx.deployVerticle(new MixingStatusHandler(requestStore))
+                    .compose(id -> vertx.deployVerticle(new JobcoinHttpServer(18117)))
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+            // the body handler is set as soon as the headers arrive so no chunk is missed
+            final CompletableFuture<HttpClientResponse> headers = new CompletableFuture<>();
+            final Buffer buffer = vertx.createHttpClient()
+                    .request(HttpMethod.POST, 18117, "localhost", "/v1/mixingStatus/batch")
+                    .compose(request -> request.send(requestIds.toString()))
+                    .compose(r -> {
+                        headers.complete(r);
+                        return r.body();
+                    })
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            final HttpClientResponse response = headers.get();
+            final JsonNode body = new ObjectMapper().readTree(buffer.getBytes());
+
+            Assert.assertEquals(200, response.statusCode());
+            Assert.assertEquals("chunked", response.getHeader("transfer-encoding"));
+            final JsonNode statuses = body.get("message").get("statuses");
+            Assert.assertEquals(requestIds.size(), statuses.size());
+            Assert.assertEquals("complete", statuses.get("requestId0").asText());
+            Assert.assertEquals("incomplete", statuses.get("requestId2559").asText());
+            Assert.assertEquals("unknown", statuses.get("unknownRequestId").asText());
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testMixingEventsArePushed() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+            requestStore.put("requestId1", false);
+            vertx.deployVerticle(new MixingStatusHandler(requestStore))
+                    .compose(id -> vertx.deployVerticle(new JobcoinHttpServer(18119)))
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+            final CompletableFuture<HttpClientResponse> headers = new CompletableFuture<>();
+            final CompletableFuture<Buffer> stream = vertx.createHttpClient()
+                    .request(HttpMethod.GET, 18119, "localhost", "/v1/mixingEvents?requestId=requestId1")
+                    .compose(request -> request.send())
+                    .compose(r -> {
+                        headers.complete(r);
+                        return r.body();
+                    })
+                    .toCompletionStage().toCompletableFuture();
+            final HttpClientResponse response = headers.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(200, response.statusCode());
+            Assert.assertEquals("text/event-stream", response.getHeader("content-type"));
+
+            vertx.eventBus().publish(MixingEvent.address("requestId1"), new MixingEvent("requestId1", 1, 2));
+            vertx.eventBus().publish(MixingEvent.address("requestId2"), new MixingEvent("requestId2", 1, 1));
+            vertx.eventBus().publish(MixingEvent.address("requestId1"), new MixingEvent("requestId1", 2, 2));
+
+            // the stream ends after the event completing the request
+            final String body = stream.get(5, TimeUnit.SECONDS).toString();
+            Assert.assertEquals(
+                    "event: status\ndata: {\"requestId\":\"requestId1\",\"status\":\"incomplete\"}\n\n" +
+                    "event: progress\ndata: " + new MixingEvent("requestId1", 1, 2).encode() + "\n\n" +
+                    "event: progress\ndata: " + new MixingEvent("requestId1", 2, 2).encode() + "\n\n", body);
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testMixingEventsOfUnknownRequest() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            vertx.deployVerticle(new MixingStatusHandler(new InMemoryKVStore<>()))
+                    .compose(id -> vertx.deployVerticle(new JobcoinHttpServer(18120)))
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+            final int statusCode = vertx.createHttpClient()
+                    .request(HttpMethod.GET, 18120, "localhost", "/v1/mixingEvents?requestId=requestId1")
+                    .compose(request -> request.send())
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+                    .statusCode();
+            Assert.assertEquals(422, statusCode);
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testMixingStatusIsServedOnTheEventLoop() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+            requestStore.put("requestId1", true);
+            final ConcurrentMap<String, SendStage> sendStages = new ConcurrentHashMap<>();
+            sendStages.put("requestId2", SendStage.DEPOSITED);
+            // no MixingStatusHandler is deployed, the event bus is not involved
+            vertx.deployVerticle(JobcoinHttpServer.builder(HttpServerConfig.tcp(18124))
+                    .idempotency(new IdempotencyCache(1, TimeUnit.MINUTES, 16))
+                    .statusLookup(new MixingStatusLookup(requestStore, sendStages))
+                    .build())
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+            final HttpClient client = vertx.createHttpClient();
+            final String complete = new JobcoinResponse(JsonNodeFactory.instance.objectNode()
+                    .put("status", "complete")).encode();
+            // the pre-encoded body can be written again and again
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals(complete, get(client, 18124, "/v1/mixingStatus?requestId=requestId1").toString());
+            }
+            Assert.assertEquals(new JobcoinResponse(JsonNodeFactory.instance.objectNode()
+                            .put("status", "incomplete")
+                            .put("stage", "deposited")).encode(),
+                    get(client, 18124, "/v1/mixingStatus?requestId=requestId2").toString());
+
+            final int unknown = client.request(HttpMethod.GET, 18124, "localhost", "/v1/mixingStatus?requestId=requestId3")
+                    .compose(request -> request.send())
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+                    .statusCode();
+            Assert.assertEquals(422, unknown);
+            final int missing = client.request(HttpMethod.GET, 18124, "localhost", "/v1/mixingStatus")
+                    .compose(request -> request.send())
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+                    .statusCode();
+            Assert.assertEquals(400, missing);
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static Buffer get(final HttpClient client, int port, final String uri) throws Exception {
+        return client.request(HttpMethod.GET, port, "localhost", uri)
+                .compose(request -> request.send())
+                .compose(response -> response.body())
+                .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testBodiesOverTheLimitAreRejected() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final AtomicInteger registers = new AtomicInteger();
+            vertx.eventBus().<Object>consumer(REGISTER_VERTX_V1, message -> {
+                registers.incrementAndGet();
+                message.reply(new JobcoinResponse(JsonNodeFactory.instance.objectNode()));
+            });
+            final HttpServerConfig config = new HttpServerConfig(18125, 1, false, null,
+                    Collections.singletonMap(REGISTER_V1, 64L), HttpServerConfig.DEFAULT_REPLY_TIMEOUT_MS);
+            vertx.deployVerticle(JobcoinHttpServer.builder(config).build())
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+            final HttpClient client = vertx.createHttpClient();
+            Assert.assertEquals(200, post(client, 18125, REGISTER_V1, "[\"address 1\",\"address 2\"]"));
+            Assert.assertEquals(413, post(client, 18125, REGISTER_V1,
+                    "[\"address 1\",\"address 2\",\"address 3\",\"address 4\",\"address 5\",\"address 6\"]"));
+            Assert.assertEquals(400, post(client, 18125, REGISTER_V1, "[\"address 1\","));
+            Assert.assertEquals(1, registers.get());
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static int post(final HttpClient client, int port, final String uri, final String body) throws Exception {
+        return client.request(HttpMethod.POST, port, "localhost", uri)
+                .compose(request -> request.send(body))
+                .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+                .statusCode();
+    }
+
+    @Test
+    public void testRequestsOverTheLimitAreShed() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            // replies are held back so the first request stays in flight
+            final List<Message<Object>> held = new CopyOnWriteArrayList<>();
+            vertx.eventBus().consumer(BALANCE_VERTX_V1, held::add);
+            final AdmissionController admission = new AdmissionController(Collections.singletonMap(BALANCE_V1, 1), 2);
+            vertx.deployVerticle(JobcoinHttpServer.builder(HttpServerConfig.tcp(18121)).admission(admission).build())
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+            final HttpClient client = vertx.createHttpClient();
+            final CompletableFuture<HttpClientResponse> first = client
+                    .request(HttpMethod.GET, 18121, "localhost", "/v1/balance?address=Alice")
+                    .compose(request -> request.send())
+                    .toCompletionStage().toCompletableFuture();
+            while (held.isEmpty()) {
+                Thread.sleep(10);
+            }
+
+            final HttpClientResponse rejected = client
+                    .request(HttpMethod.GET, 18121, "localhost", "/v1/balance?address=Bob")
+                    .compose(request -> request.send())
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(503, rejected.statusCode());
+            Assert.assertEquals("2", rejected.getHeader("Retry-After"));
+            Assert.assertEquals(1, admission.permits(BALANCE_V1).rejected());
+
+            held.get(0).reply(new JobcoinResponse(JsonNodeFactory.instance.objectNode()));
+            Assert.assertEquals(200, first.get(5, TimeUnit.SECONDS).statusCode());
+            while (admission.permits(BALANCE_V1).inFlight() > 0) {
+                Thread.sleep(10);
+            }
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testMetricsAreScraped() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final MetricsRegistry metrics = new MetricsRegistry();
+            EventBusMetrics.install(vertx, metrics);
+            vertx.eventBus().<Object>consumer(BALANCE_VERTX_V1,
+                    message -> message.reply(new JobcoinResponse(JsonNodeFactory.instance.objectNode())));
+            vertx.deployVerticle(JobcoinHttpServer.builder(HttpServerConfig.tcp(18122)).metrics(metrics).build())
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+            final HttpClient client = vertx.createHttpClient();
+            final int statusCode = client.request(HttpMethod.GET, 18122, "localhost", "/v1/balance?address=Alice")
+                    .compose(request -> request.send())
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+                    .statusCode();
+            Assert.assertEquals(200, statusCode);
+
+            final CompletableFuture<HttpClientResponse> headers = new CompletableFuture<>();
+            final String text = client.request(HttpMethod.GET, 18122, "localhost", "/metrics")
+                    .compose(request -> request.send())
+                    .compose(response -> {
+                        headers.complete(response);
+                        return response.body();
+                    })
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+                    .toString();
+            Assert.assertTrue(headers.get().getHeader("Content-Type").startsWith("text/plain; version=0.0.4"));
+            Assert.assertTrue(text, text.contains(
+                    "jobcoin_http_request_duration_seconds_count{method=\"GET\",route=\"/v1/balance\"} 1\n"));
+            Assert.assertTrue(text, text.contains(
+                    "jobcoin_eventbus_hop_seconds_count{address=\"/v1/route/balance\"} 1\n"));
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testIdempotentSendRunsOnce() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final AtomicInteger sends = new AtomicInteger();
+            vertx.eventBus().<Object>consumer(SEND_VERTX_V1, message -> {
+                final int send = sends.incrementAndGet();
+                // slow enough for the duplicate to arrive while the first send is in flight
+                vertx.setTimer(200, id -> message.reply(new JobcoinResponse(
+                        JsonNodeFactory.instance.objectNode().put("send", send))));
+            });
+            vertx.deployVerticle(JobcoinHttpServer.builder(HttpServerConfig.tcp(18123))
+                    .idempotency(new IdempotencyCache(1, TimeUnit.MINUTES, 16))
+                    .build())
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+            final HttpClient client = vertx.createHttpClient();
+            final String payload = "{\"fromAddress\":\"Alice\",\"amount\":\"1.5\"}";
+            final CompletableFuture<HttpClientResponse> first = new CompletableFuture<>();
+            final CompletableFuture<HttpClientResponse> duplicate = new CompletableFuture<>();
+            final CompletableFuture<Buffer> firstBody = send(client, "key-1", payload, first);
+            final CompletableFuture<Buffer> duplicateBody = send(client, "key-1", payload, duplicate);
+
+            Assert.assertEquals(sent(1), firstBody.get(5, TimeUnit.SECONDS).toString());
+            Assert.assertEquals(sent(1), duplicateBody.get(5, TimeUnit.SECONDS).toString());
+            Assert.assertEquals(200, first.get().statusCode());
+            Assert.assertEquals(200, duplicate.get().statusCode());
+            // only one of them ran, the other was answered with its response
+            Assert.assertEquals(1, (first.get().getHeader(IDEMPOTENT_REPLAYED) == null ? 0 : 1)
+                    + (duplicate.get().getHeader(IDEMPOTENT_REPLAYED) == null ? 0 : 1));
+
+            final CompletableFuture<HttpClientResponse> retry = new CompletableFuture<>();
+            Assert.assertEquals(sent(1),
+                    send(client, "key-1", payload, retry).get(5, TimeUnit.SECONDS).toString());
+            Assert.assertEquals("true", retry.get().getHeader(IDEMPOTENT_REPLAYED));
+            Assert.assertEquals(1, sends.get());
+
+            final CompletableFuture<HttpClientResponse> reused = new CompletableFuture<>();
+            send(client, "key-1", "{\"fromAddress\":\"Bob\",\"amount\":\"1.5\"}", reused)
+                    .get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(422, reused.get().statusCode());
+
+            final CompletableFuture<HttpClientResponse> other = new CompletableFuture<>();
+            Assert.assertEquals(sent(2),
+                    send(client, "key-2", payload, other).get(5, TimeUnit.SECONDS).toString());
+            Assert.assertEquals(sent(3),
+                    send(client, null, payload, new CompletableFuture<>()).get(5, TimeUnit.SECONDS).toString());
+            Assert.assertEquals(3, sends.get());
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testUnavailableSendIsNotStored() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final AtomicInteger sends = new AtomicInteger();
+            vertx.eventBus().<Object>consumer(SEND_VERTX_V1, message -> {
+                final int send = sends.incrementAndGet();
+                if (send == 1) {
+                    message.fail(503, "Mixer backlog is over its high-water mark, try again later");
+                    return;
+                }
+                message.reply(new JobcoinResponse(JsonNodeFactory.instance.objectNode().put("send", send)));
+            });
+            vertx.deployVerticle(JobcoinHttpServer.builder(HttpServerConfig.tcp(18126))
+                    .idempotency(new IdempotencyCache(1, TimeUnit.MINUTES, 16))
+                    .build())
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+            final HttpClient client = vertx.createHttpClient();
+            final String payload = "{\"fromAddress\":\"Alice\",\"amount\":\"1.5\"}";
+            final CompletableFuture<HttpClientResponse> rejected = new CompletableFuture<>();
+            send(client, 18126, "key-1", payload, rejected).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(503, rejected.get().statusCode());
+
+            // the retry runs the send again instead of being answered with the 503
+            final CompletableFuture<HttpClientResponse> retry = new CompletableFuture<>();
+            Assert.assertEquals(sent(2),
+                    send(client, 18126, "key-1", payload, retry).get(5, TimeUnit.SECONDS).toString());
+            Assert.assertEquals(200, retry.get().statusCode());
+            Assert.assertNull(retry.get().getHeader(IDEMPOTENT_REPLAYED));
+            Assert.assertEquals(2, sends.get());
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testTimedOutSendKeepsItsOutcome() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final AtomicInteger sends = new AtomicInteger();
+            final CompletableFuture<Void> replied = new CompletableFuture<>();
+            vertx.eventBus().<Object>consumer(SEND_VERTX_V1, message -> {
+                final int send = sends.incrementAndGet();
+                // replies well after the reply timeout
+                vertx.setTimer(600, id -> {
+                    message.reply(new JobcoinResponse(JsonNodeFactory.instance.objectNode().put("send", send)));
+                    replied.complete(null);
+                });
+            });
+            final HttpServerConfig config = new HttpServerConfig(18127, 1, false, null,
+                    HttpServerConfig.defaultMaxBodyBytes(), 200);
+            vertx.deployVerticle(JobcoinHttpServer.builder(config)
+                    .idempotency(new IdempotencyCache(1, TimeUnit.MINUTES, 16))
+                    .build())
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+            final HttpClient client = vertx.createHttpClient();
+            final String payload = "{\"fromAddress\":\"Alice\",\"amount\":\"1.5\"}";
+            final CompletableFuture<HttpClientResponse> timedOut = new CompletableFuture<>();
+            send(client, 18127, "key-1", payload, timedOut).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(504, timedOut.get().statusCode());
+
+            // a retry while the send is still running waits on it rather then sending again
+            final CompletableFuture<HttpClientResponse> early = new CompletableFuture<>();
+            send(client, 18127, "key-1", payload, early).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(504, early.get().statusCode());
+
+            replied.get(5, TimeUnit.SECONDS);
+            final CompletableFuture<HttpClientResponse> retry = new CompletableFuture<>();
+            Assert.assertEquals(sent(1),
+                    send(client, 18127, "key-1", payload, retry).get(5, TimeUnit.SECONDS).toString());
+            Assert.assertEquals(200, retry.get().statusCode());
+            Assert.assertEquals("true", retry.get().getHeader(IDEMPOTENT_REPLAYED));
+            Assert.assertEquals(1, sends.get());
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static String sent(int send) {
+        return new JobcoinResponse(JsonNodeFactory.instance.objectNode().put("send", send)).encode();
+    }
+
+    private static CompletableFuture<Buffer> send(final HttpClient client,
+                                                  final String key,
+                                                  final String payload,
+                                                  final CompletableFuture<HttpClientResponse> headers) {
+        return send(client, 18123, key, payload, headers);
+    }
+
+    private static CompletableFuture<Buffer> send(final HttpClient client,
+                                                  int port,
+                                                  final String key,
+                                                  final String payload,
+                                                  final CompletableFuture<HttpClientResponse> headers) {
+        return client.request(HttpMethod.POST, port, "localhost", SEND_V1)
+                .compose(request -> {
+                    if (key != null) {
+                        request.putHeader(IDEMPOTENCY_KEY, key);
+                    }
+                    return request.send(payload);
+                })
+                .compose(response -> {
+                    headers.complete(response);
+                    return response.body();
+                })
+                .toCompletionStage().toCompletableFuture();
+    }
+
+    @Test
+    public void testDomainSocketListener() throws Exception {
+        final Vertx vertx = Vertx.vertx(new VertxOptions().setPreferNativeTransport(true));
+        try {
+            Assume.assumeTrue("native transport is only available on Linux", vertx.isNativeTransportEnabled());
+
+            final Path socket = folder.getRoot().toPath().resolve("jobcoin.sock");
+            vertx.deployVerticle(() -> JobcoinHttpServer.builder(
+                    new HttpServerConfig(18114, 2, true, socket.toString())).build(), new DeploymentOptions().setInstances(2))
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+            final HttpClient client = vertx.createHttpClient();
+            for (SocketAddress address : new SocketAddress[]{
+                    SocketAddress.domainSocketAddress(socket.toString()),
+                    SocketAddress.inetSocketAddress(18114, "localhost")}) {
+                final String body = client.request(new RequestOptions()
+                        .setMethod(HttpMethod.GET)
+                        .setServer(address)
+                        .setURI("/status"))
+                        .compose(request -> request.send())
+                        .compose(response -> response.body())
+                        .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)
+                        .toString();
+                Assert.assertEquals(JsonNodeFactory.instance.objectNode()
+                        .put("Jobcoin Mixer", "All Systems Operational").toString(), body);
+            }
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testDomainSocketNeedsNativeTransport() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final HttpServerConfig config = new HttpServerConfig(18115, 1, true, "jobcoin.sock");
+            final Throwable cause = vertx.deployVerticle(JobcoinHttpServer.builder(config).build())
+                    .toCompletionStage().toCompletableFuture()
+                    .handle((id, e) -> e).get(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(cause);
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDomainSocketConfigNeedsNativeTransport() {
+        new HttpServerConfig(8111, 1, false, "jobcoin.sock");
     }
 }
@@ -0,0 +1,85 @@
+package com.gemini.jobcoin;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.gemini.jobcoin.external.http.GeminiClient;
+import com.gemini.jobcoin.external.persistence.InMemoryKVStore;
+import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.metrics.MetricsRegistry;
+import com.gemini.jobcoin.metrics.WorkerPoolMetrics;
+import com.gemini.jobcoin.verticles.BalanceHandler;
+import com.gemini.jobcoin.verticles.MixingStatusHandler;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.gemini.jobcoin.constant.Routes.BALANCE_VERTX_V1;
+import static com.gemini.jobcoin.constant.Routes.MIXING_STATUS_VERTX_V1;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+
+public class WorkerPoolsTest {
+
+    @Test
+    public void testStatusLookupsAreNotStuckBehindGemini() throws Exception {
+        final MetricsRegistry metrics = new MetricsRegistry();
+        final Vertx vertx = Vertx.vertx(new VertxOptions().setMetricsOptions(WorkerPoolMetrics.options(metrics)));
+        try {
+            final HttpResponse<?> response = Mockito.mock(HttpResponse.class);
+            doReturn("{\"balance\":\"1\"}").when(response).body();
+            // a Gemini client which holds the worker thread for the whole call
+            final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+            doAnswer(invocation -> {
+                Thread.sleep(300);
+                return CompletableFuture.completedFuture(response);
+            }).when(geminiClient).getBalanceAsync(anyString());
+
+            final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+            requestStore.put("request1", false);
+
+            vertx.deployVerticle(new BalanceHandler(geminiClient), WorkerPools.options(WorkerPools.BALANCE, 1, 1))
+                    .compose(id -> vertx.deployVerticle(new MixingStatusHandler(requestStore),
+                            WorkerPools.options(WorkerPools.MIXING_STATUS, 1, 1)))
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+            final String balanceRequest = JsonNodeFactory.instance.objectNode().put("address", "Alice").toString();
+            final List<Future> balances = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                balances.add(vertx.eventBus().request(BALANCE_VERTX_V1, balanceRequest));
+            }
+            Thread.sleep(100);
+
+            final String text = metrics.scrape();
+            Assert.assertTrue(text, text.contains("jobcoin_worker_pool_size{pool=\"jobcoin-balance\"} 1\n"));
+            Assert.assertTrue(text, text.contains("jobcoin_worker_pool_in_use{pool=\"jobcoin-balance\"} 1\n"));
+            Assert.assertTrue(text, text.contains("jobcoin_worker_pool_queued{pool=\"jobcoin-balance\"} 3\n"));
+
+            // the balance pool is busy for another second, the status pool is idle
+            final long start = System.nanoTime();
+            vertx.eventBus().request(MIXING_STATUS_VERTX_V1,
+                    JsonNodeFactory.instance.objectNode().put("requestId", "request1").toString())
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            final long statusMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assert.assertTrue(String.format("status lookup took %dms", statusMillis), statusMillis < 250);
+
+            CompositeFuture.all(balances).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPool() {
+        WorkerPools.options(WorkerPools.SEND, 0, 1);
+    }
+}
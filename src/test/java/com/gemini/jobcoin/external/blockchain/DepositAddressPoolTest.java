@@ -0,0 +1,78 @@
+package com.gemini.jobcoin.external.blockchain;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class DepositAddressPoolTest {
+
+    @Test
+    public void testPoolFillsAndServesUniqueAddresses() throws InterruptedException {
+        try (DepositAddressPool pool = new DepositAddressPool(64, 16)) {
+            awaitAvailable(pool, 64);
+
+            final Set<String> addresses = new HashSet<>();
+            for (int i = 0; i < 1000; i++) {
+                final String address = pool.generateAddress();
+                Assert.assertEquals(32, address.length());
+                Assert.assertTrue(address.matches("[0-9A-Za-z]+"));
+                Assert.assertTrue(addresses.add(address));
+            }
+            Assert.assertTrue(pool.lowWatermarkBreaches() > 0);
+            Assert.assertTrue(pool.minAvailable() < 16);
+        }
+    }
+
+    @Test
+    public void testRefillsAfterDrain() throws InterruptedException {
+        try (DepositAddressPool pool = new DepositAddressPool(64, 16)) {
+            awaitAvailable(pool, 64);
+            for (int i = 0; i < 60; i++) {
+                pool.generateAddress();
+            }
+            awaitAvailable(pool, 64);
+            Assert.assertTrue(pool.generated() >= 124);
+        }
+    }
+
+    @Test
+    public void testEmptyPoolGeneratesInline() {
+        final DepositAddressPool pool = new DepositAddressPool(64, 16);
+        pool.close();
+        for (int i = 0; i < 200; i++) {
+            Assert.assertEquals(32, pool.generateAddress().length());
+        }
+        Assert.assertTrue(pool.exhausted() > 0);
+    }
+
+    @Test
+    public void testRing() {
+        final AddressRing ring = new AddressRing(3);
+        Assert.assertEquals(4, ring.capacity());
+        Assert.assertNull(ring.poll());
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(ring.offer("address" + i));
+        }
+        Assert.assertFalse(ring.offer("address4"));
+        Assert.assertEquals(4, ring.size());
+
+        Assert.assertEquals("address0", ring.poll());
+        Assert.assertTrue(ring.offer("address4"));
+        for (int i = 1; i < 5; i++) {
+            Assert.assertEquals("address" + i, ring.poll());
+        }
+        Assert.assertNull(ring.poll());
+        Assert.assertEquals(0, ring.size());
+    }
+
+    private static void awaitAvailable(final DepositAddressPool pool, int available) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (pool.available() < available && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(available, pool.available());
+    }
+}
@@ -0,0 +1,153 @@
+package com.gemini.jobcoin.external.http;
+
+import com.gemini.jobcoin.metrics.MetricsRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CachingGeminiClientTest {
+
+    @Test
+    public void testHitWithinTtl() {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        final HttpResponse<String> response = response(200);
+        doReturn(CompletableFuture.completedFuture(response)).when(httpClient).sendAsync(any(), any());
+
+        final CachingGeminiClient client = new CachingGeminiClient(httpClient, 1, TimeUnit.MINUTES, 100);
+
+        Assert.assertSame(response, client.getBalanceAsync("erick").join());
+        Assert.assertSame(response, client.getBalanceAsync("erick").join());
+        Assert.assertSame(response, client.getBalanceAsync("erick").join());
+
+        verify(httpClient, times(1)).sendAsync(any(), any());
+        Assert.assertEquals(1, client.misses());
+        Assert.assertEquals(2, client.hits());
+        Assert.assertEquals(0, client.coalesced());
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneCall() {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        final CompletableFuture<HttpResponse<String>> inFlight = new CompletableFuture<>();
+        doReturn(inFlight).when(httpClient).sendAsync(any(), any());
+
+        final CachingGeminiClient client = new CachingGeminiClient(httpClient, 1, TimeUnit.MINUTES, 100);
+
+        final CompletableFuture<HttpResponse<String>> first = client.getBalanceAsync("erick");
+        final CompletableFuture<HttpResponse<String>> second = client.getBalanceAsync("erick");
+        Assert.assertFalse(second.isDone());
+
+        final HttpResponse<String> response = response(200);
+        inFlight.complete(response);
+
+        Assert.assertSame(response, first.join());
+        Assert.assertSame(response, second.join());
+        verify(httpClient, times(1)).sendAsync(any(), any());
+        Assert.assertEquals(1, client.misses());
+        Assert.assertEquals(1, client.coalesced());
+    }
+
+    @Test
+    public void testTransferInvalidates() {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        doReturn(CompletableFuture.completedFuture(response(200))).when(httpClient).sendAsync(any(), any());
+
+        final CachingGeminiClient client = new CachingGeminiClient(httpClient, 1, TimeUnit.MINUTES, 100);
+
+        client.getBalanceAsync("erick").join();
+        client.getBalanceAsync("mark").join();
+        client.getBalanceAsync("alice").join();
+        client.transferAmountAsync("erick", "mark", 100).join();
+        Assert.assertEquals(1, client.size());
+
+        client.getBalanceAsync("erick").join();
+        client.getBalanceAsync("mark").join();
+        client.getBalanceAsync("alice").join();
+
+        Assert.assertEquals(5, client.misses());
+        Assert.assertEquals(1, client.hits());
+    }
+
+    @Test
+    public void testFailureIsNotCached() {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        doReturn(CompletableFuture.completedFuture(response(500))).when(httpClient).sendAsync(any(), any());
+
+        final CachingGeminiClient client = new CachingGeminiClient(httpClient, 1, TimeUnit.MINUTES, 100);
+
+        Assert.assertTrue(client.getBalanceAsync("erick").isCompletedExceptionally());
+        Assert.assertTrue(client.getBalanceAsync("erick").isCompletedExceptionally());
+
+        verify(httpClient, times(2)).sendAsync(any(), any());
+        Assert.assertEquals(0, client.size());
+    }
+
+    @Test
+    public void testExpiredAfterTtl() throws InterruptedException {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        doReturn(CompletableFuture.completedFuture(response(200))).when(httpClient).sendAsync(any(), any());
+
+        final CachingGeminiClient client = new CachingGeminiClient(httpClient, 20, TimeUnit.MILLISECONDS, 100);
+
+        client.getBalanceAsync("erick").join();
+        Thread.sleep(50);
+        client.getBalanceAsync("erick").join();
+
+        verify(httpClient, times(2)).sendAsync(any(), any());
+    }
+
+    @Test
+    public void testBounded() {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        doReturn(CompletableFuture.completedFuture(response(200))).when(httpClient).sendAsync(any(), any());
+
+        final CachingGeminiClient client = new CachingGeminiClient(httpClient, 1, TimeUnit.MINUTES, 10);
+
+        for (int i = 0; i < 100; i++) {
+            client.getBalanceAsync("address" + i).join();
+        }
+        Assert.assertTrue(client.size() <= 11);
+    }
+
+    @Test
+    public void testFromSystemProperties() throws InterruptedException {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        doReturn(CompletableFuture.completedFuture(response(200))).when(httpClient).sendAsync(any(), any());
+
+        final CachingGeminiClient client;
+        try {
+            System.setProperty("jobcoin.balance.ttlMs", "20");
+            System.setProperty("jobcoin.balance.maxEntries", "10");
+            client = CachingGeminiClient.fromSystemProperties(httpClient, new MetricsRegistry());
+        } finally {
+            System.clearProperty("jobcoin.balance.ttlMs");
+            System.clearProperty("jobcoin.balance.maxEntries");
+        }
+
+        for (int i = 0; i < 100; i++) {
+            client.getBalanceAsync("address" + i).join();
+        }
+        Assert.assertTrue(client.size() <= 11);
+
+        client.getBalanceAsync("erick").join();
+        Thread.sleep(50);
+        client.getBalanceAsync("erick").join();
+        verify(httpClient, times(102)).sendAsync(any(), any());
+    }
+
+    private static HttpResponse<String> response(int statusCode) {
+        final HttpResponse<String> response = (HttpResponse<String>) Mockito.mock(HttpResponse.class);
+        Mockito.when(response.statusCode()).thenReturn(statusCode);
+        return response;
+    }
+}
@@ -1,6 +1,7 @@
 package com.gemini.jobcoin.external.http;
 
 import com.gemini.jobcoin.exception.GeminiRequestException;
+import com.gemini.jobcoin.helper.Amount;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -10,6 +11,8 @@ import java.io.IOException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
@@ -59,7 +62,7 @@ public class GeminiClientTest {
         boolean threwError = false;
         try {
             final GeminiClient geminiClient = new GeminiClient(httpClient);
-            geminiClient.transferAmount("fromerick", "tomark", "100");
+            geminiClient.transferAmount("fromerick", "tomark", 100 * Amount.UNITS_PER_JOBCOIN);
         } catch (Exception e) {
             threwError = true;
         }
@@ -94,6 +97,50 @@ public class GeminiClientTest {
         doReturn(response).when(httpClient).send(any(), any());
 
         final GeminiClient geminiClient = new GeminiClient(httpClient);
-        Assert.assertNotNull(geminiClient.transferAmount("fromerick", "tomark", "100"));
+        Assert.assertNotNull(geminiClient.transferAmount("fromerick", "tomark", 100 * Amount.UNITS_PER_JOBCOIN));
+    }
+
+    @Test
+    public void testErrorCodeTransferAsync() {
+
+        ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        ArgumentCaptor< HttpResponse.BodyHandler<String>> captor1 = ArgumentCaptor.forClass(HttpResponse.BodyHandler.class);
+
+        final HttpResponse<String> response = (HttpResponse<String>)Mockito.mock(HttpResponse.class);
+        Mockito.when(response.statusCode()).thenReturn(400);
+        Mockito.when(response.body()).thenReturn("insufficient funds");
+
+        HttpClient httpClient = Mockito.mock(HttpClient.class);
+        doReturn(CompletableFuture.completedFuture(response)).when(httpClient).sendAsync(any(), any());
+
+        final GeminiClient geminiClient = new GeminiClient(httpClient);
+
+        Throwable error = null;
+        try {
+            geminiClient.transferAmountAsync("fromerick", "tomark", 100 * Amount.UNITS_PER_JOBCOIN).join();
+        } catch (CompletionException e) {
+            error = e.getCause();
+        }
+        Assert.assertTrue(error instanceof GeminiRequestException);
+        Assert.assertEquals(400, ((GeminiRequestException) error).getStatusCode());
+        Assert.assertEquals("insufficient funds", error.getMessage());
+
+        verify(httpClient).sendAsync(captor.capture(), captor1.capture());
+
+        Assert.assertEquals("http://jobcoin.gemini.com/cultivate-duvet/api/transactions?fromAddress=fromerick&toAddress=tomark&amount=100",
+                captor.getValue().uri().toString());
+    }
+
+    @Test
+    public void testBalanceAsync() {
+
+        final HttpResponse<String> response = (HttpResponse<String>)Mockito.mock(HttpResponse.class);
+        Mockito.when(response.statusCode()).thenReturn(200);
+
+        HttpClient httpClient = Mockito.mock(HttpClient.class);
+        doReturn(CompletableFuture.completedFuture(response)).when(httpClient).sendAsync(any(), any());
+
+        final GeminiClient geminiClient = new GeminiClient(httpClient);
+        Assert.assertSame(response, geminiClient.getBalanceAsync("fromerick").join());
     }
 }
@@ -0,0 +1,162 @@
+package com.gemini.jobcoin.external.persistence;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class MappedMixingJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecoverPendingAndCompleted() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("journal");
+
+        try (MappedMixingJournal journal = new MappedMixingJournal(path, 4096, 1, TimeUnit.MILLISECONDS)) {
+            journal.created("REQ1", Arrays.asList("ADDR1", "ADDR2"),
+                    new long[]{150_000_000L, 225_000_000L, 25_000_000L, 0L}, 3);
+            journal.created("REQ2", Arrays.asList("ADDR3"), new long[]{500_000_000L}, 1);
+            journal.paidOut("REQ1", 0);
+            journal.paidOut("REQ2", 0);
+            journal.completed("REQ2").get(5, TimeUnit.SECONDS);
+        }
+
+        try (MappedMixingJournal journal = new MappedMixingJournal(path, 4096, 1, TimeUnit.MILLISECONDS)) {
+            final Map<String, JournaledRequest> recovered = byId(journal.recover());
+
+            Assert.assertEquals(2, recovered.size());
+
+            final JournaledRequest req1 = recovered.get("REQ1");
+            Assert.assertFalse(req1.completed);
+            Assert.assertEquals(1, req1.nextPart);
+            Assert.assertEquals(Arrays.asList("ADDR1", "ADDR2"), req1.userOwnedAddresses);
+            Assert.assertArrayEquals(new long[]{150_000_000L, 225_000_000L, 25_000_000L}, req1.parts);
+
+            Assert.assertTrue(recovered.get("REQ2").completed);
+            Assert.assertEquals(1, recovered.get("REQ2").nextPart);
+
+            // only the first caller gets the journaled requests
+            Assert.assertTrue(journal.recover().isEmpty());
+        }
+    }
+
+    @Test
+    public void testRecoverAcceptedSends() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("journal");
+
+        try (MappedMixingJournal journal = new MappedMixingJournal(path, 4096, 1, TimeUnit.MILLISECONDS)) {
+            journal.accepted("REQ1", "FROM1", "DEPOSIT1", Arrays.asList("ADDR1", "ADDR11"), 150_000_000L);
+            journal.accepted("REQ2", "FROM2", "DEPOSIT2", Arrays.asList("ADDR2", "ADDR22"), 250_000_000L);
+            journal.accepted("REQ3", "FROM3", "DEPOSIT3", Arrays.asList("ADDR3", "ADDR33"), 350_000_000L);
+            journal.staged("REQ1", SendStage.DEPOSITED);
+            journal.staged("REQ1", SendStage.TRANSFERRED);
+            journal.staged("REQ2", SendStage.FAILED);
+            journal.staged("REQ3", SendStage.DEPOSITED);
+            journal.staged("REQ3", SendStage.TRANSFERRED);
+            // registered with the engine, REQ3 is recovered as a request from here on
+            journal.created("REQ3", Arrays.asList("ADDR1"), new long[]{350_000_000L}, 1).get(5, TimeUnit.SECONDS);
+        }
+
+        try (MappedMixingJournal journal = new MappedMixingJournal(path, 4096, 1, TimeUnit.MILLISECONDS)) {
+            final Map<String, JournaledSend> sends = journal.recoverSends().stream()
+                    .collect(Collectors.toMap(s -> s.requestId, Function.identity()));
+
+            Assert.assertEquals(2, sends.size());
+            final JournaledSend req1 = sends.get("REQ1");
+            Assert.assertEquals("FROM1", req1.sourceAddress);
+            Assert.assertEquals("DEPOSIT1", req1.depositAddress);
+            Assert.assertEquals(Arrays.asList("ADDR1", "ADDR11"), req1.userOwnedAddresses);
+            Assert.assertEquals(150_000_000L, req1.amount);
+            Assert.assertEquals(SendStage.TRANSFERRED, req1.stage);
+            Assert.assertEquals(SendStage.FAILED, sends.get("REQ2").stage);
+
+            Assert.assertEquals(Collections.singleton("REQ3"), byId(journal.recover()).keySet());
+
+            // only the first caller gets the journaled sends
+            Assert.assertTrue(journal.recoverSends().isEmpty());
+        }
+    }
+
+    @Test
+    public void testAppendsAcrossSegmentsAfterReopen() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("journal");
+
+        try (MappedMixingJournal journal = new MappedMixingJournal(path, 256, 1, TimeUnit.MILLISECONDS)) {
+            for (int i = 0; i < 50; i++) {
+                journal.created("REQ" + i, Arrays.asList("ADDR"), new long[]{100_000_000L}, 1);
+            }
+        }
+        try (MappedMixingJournal journal = new MappedMixingJournal(path, 256, 1, TimeUnit.MILLISECONDS)) {
+            journal.completed("REQ7").get(5, TimeUnit.SECONDS);
+        }
+        try (MappedMixingJournal journal = new MappedMixingJournal(path, 256, 1, TimeUnit.MILLISECONDS)) {
+            final Map<String, JournaledRequest> recovered = byId(journal.recover());
+            Assert.assertEquals(50, recovered.size());
+            Assert.assertTrue(recovered.get("REQ7").completed);
+            Assert.assertFalse(recovered.get("REQ8").completed);
+        }
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("journal");
+
+        long validEnd;
+        try (MappedMixingJournal journal = new MappedMixingJournal(path, 4096, 1, TimeUnit.MILLISECONDS)) {
+            journal.created("REQ1", Arrays.asList("ADDR1"), new long[]{100_000_000L}, 1).get(5, TimeUnit.SECONDS);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            validEnd = findEnd(file);
+            file.seek(validEnd);
+            file.writeInt(40);              // length of a record which was never fully written
+            file.writeByte(2);
+            file.writeInt(12345);
+        }
+        try (MappedMixingJournal journal = new MappedMixingJournal(path, 4096, 1, TimeUnit.MILLISECONDS)) {
+            journal.paidOut("REQ1", 0).get(5, TimeUnit.SECONDS);
+        }
+        try (MappedMixingJournal journal = new MappedMixingJournal(path, 4096, 1, TimeUnit.MILLISECONDS)) {
+            final JournaledRequest req1 = byId(journal.recover()).get("REQ1");
+            Assert.assertTrue(req1.completed);
+            Assert.assertEquals(1, req1.nextPart);
+        }
+    }
+
+    @Test
+    public void testAppendAfterCloseFails() throws IOException {
+        final MappedMixingJournal journal = new MappedMixingJournal(
+                folder.getRoot().toPath().resolve("journal"), 4096, 1, TimeUnit.MILLISECONDS);
+        journal.close();
+        Assert.assertTrue(journal.completed("REQ1").isCompletedExceptionally());
+    }
+
+    private static long findEnd(final RandomAccessFile file) throws IOException {
+        long position = 0;
+        while (position + 4 <= file.length()) {
+            file.seek(position);
+            final int length = file.readInt();
+            if (length <= 0) {
+                break;
+            }
+            position += 9 + length;
+        }
+        return position;
+    }
+
+    private static Map<String, JournaledRequest> byId(final Collection<JournaledRequest> requests) {
+        return requests.stream().collect(Collectors.toMap(r -> r.requestId, Function.identity()));
+    }
+}
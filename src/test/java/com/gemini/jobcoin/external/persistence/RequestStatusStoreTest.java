@@ -0,0 +1,213 @@
+package com.gemini.jobcoin.external.persistence;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class RequestStatusStoreTest {
+
+    @Test
+    public void testPutAndGet() {
+        final RequestStatusStore store = new RequestStatusStore();
+        final String requestId = UUID.randomUUID().toString();
+
+        Assert.assertFalse(store.containsKey(requestId));
+        Assert.assertNull(store.get(requestId));
+
+        Assert.assertNull(store.put(requestId, false));
+        Assert.assertTrue(store.containsKey(requestId));
+        Assert.assertFalse(store.get(requestId));
+
+        Assert.assertEquals(false, store.put(requestId, true));
+        Assert.assertTrue(store.get(requestId));
+        Assert.assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testGrowsPastInitialSize() {
+        final RequestStatusStore store = new RequestStatusStore(16);
+        final List<String> requestIds = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            final String requestId = UUID.randomUUID().toString();
+            requestIds.add(requestId);
+            store.put(requestId, i % 2 == 0);
+        }
+
+        Assert.assertEquals(10_000, store.size());
+        for (int i = 0; i < requestIds.size(); i++) {
+            Assert.assertEquals(i % 2 == 0, store.get(requestIds.get(i)));
+        }
+        Assert.assertFalse(store.containsKey(UUID.randomUUID().toString()));
+    }
+
+    @Test
+    public void testNonCanonicalIdsAreKept() {
+        final RequestStatusStore store = new RequestStatusStore();
+        final String requestId = UUID.randomUUID().toString();
+        final String upperCase = requestId.toUpperCase();
+
+        store.put(requestId, false);
+        store.put(upperCase, true);
+        store.put("REQ1", true);
+
+        Assert.assertFalse(store.get(requestId));
+        Assert.assertTrue(store.get(upperCase));
+        Assert.assertTrue(store.get("REQ1"));
+        Assert.assertFalse(store.containsKey("REQ2"));
+        Assert.assertEquals(3, store.size());
+    }
+
+    @Test
+    public void testTimeOrderedIds() {
+        final RequestStatusStore store = new RequestStatusStore(16);
+        final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+        final List<String> requestIds = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final String requestId = generator.generateId();
+            requestIds.add(requestId);
+            store.put(requestId, i % 3 == 0);
+        }
+        for (int i = 0; i < requestIds.size(); i++) {
+            Assert.assertEquals(i % 3 == 0, store.get(requestIds.get(i)));
+        }
+        Assert.assertFalse(store.containsKey(generator.generateId()));
+    }
+
+    @Test
+    public void testKindsOfIdDoNotCollide() {
+        final RequestStatusStore store = new RequestStatusStore();
+        final String uuid = "00000000-0000-0000-0000-000000000001";
+        final String orderedId = TimeOrderedIdGenerator.encode(0L, 1L);
+
+        store.put(uuid, true);
+        Assert.assertFalse(store.containsKey(orderedId));
+
+        store.put(orderedId, false);
+        Assert.assertTrue(store.get(uuid));
+        Assert.assertFalse(store.get(orderedId));
+        Assert.assertEquals(2, store.size());
+    }
+
+    @Test
+    public void testPutIfAbsent() {
+        final RequestStatusStore store = new RequestStatusStore();
+        final String requestId = UUID.randomUUID().toString();
+
+        Assert.assertNull(store.putIfAbsent(requestId, false));
+        Assert.assertEquals(false, store.putIfAbsent(requestId, true));
+        Assert.assertFalse(store.get(requestId));
+
+        Assert.assertNull(store.putIfAbsent("REQ1", true));
+        Assert.assertEquals(true, store.putIfAbsent("REQ1", false));
+    }
+
+    @Test
+    public void testPutAllIfAbsent() {
+        final RequestStatusStore store = new RequestStatusStore();
+        final String present = UUID.randomUUID().toString();
+        final String absent = UUID.randomUUID().toString();
+        store.put(present, true);
+
+        final Map<String, Boolean> entries = new HashMap<>();
+        entries.put(present, false);
+        entries.put(absent, false);
+        entries.put("REQ1", false);
+
+        Assert.assertEquals(Collections.singletonMap(present, true), store.putAllIfAbsent(entries));
+        Assert.assertTrue(store.get(present));
+        Assert.assertFalse(store.get(absent));
+        Assert.assertFalse(store.get("REQ1"));
+        Assert.assertEquals(3, store.size());
+    }
+
+    @Test
+    public void testGetAll() {
+        final RequestStatusStore store = new RequestStatusStore();
+        final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+        final String uuid = UUID.randomUUID().toString();
+        final String orderedId = generator.generateId();
+        store.put(uuid, true);
+        store.put(orderedId, false);
+        store.put("REQ1", true);
+
+        final Map<String, Boolean> expected = new HashMap<>();
+        expected.put(uuid, true);
+        expected.put(orderedId, false);
+        expected.put("REQ1", true);
+
+        Assert.assertEquals(expected, store.getAll(Arrays.asList(
+                uuid, UUID.randomUUID().toString(), orderedId, generator.generateId(), "REQ1", "REQ2")));
+        Assert.assertTrue(store.getAll(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testCanonicalUuid() {
+        Assert.assertTrue(RequestStatusStore.isCanonicalUuid("123e4567-e89b-12d3-a456-426614174000"));
+        Assert.assertFalse(RequestStatusStore.isCanonicalUuid("123E4567-E89B-12D3-A456-426614174000"));
+        Assert.assertFalse(RequestStatusStore.isCanonicalUuid("123e4567e89b-12d3-a456-4266141740000"));
+        Assert.assertFalse(RequestStatusStore.isCanonicalUuid("123e4567-e89b-12d3-a456-42661417400g"));
+        Assert.assertFalse(RequestStatusStore.isCanonicalUuid(""));
+        Assert.assertFalse(RequestStatusStore.isCanonicalUuid(null));
+    }
+
+    @Test
+    public void testReadsDuringResize() throws InterruptedException {
+        final RequestStatusStore store = new RequestStatusStore(16);
+        final String[] known = new String[64];
+        for (int i = 0; i < known.length; i++) {
+            known[i] = UUID.randomUUID().toString();
+            store.put(known[i], true);
+        }
+
+        final AtomicBoolean missing = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread reader = new Thread(() -> {
+            while (done.getCount() > 0) {
+                for (String requestId : known) {
+                    if (!Boolean.TRUE.equals(store.get(requestId))) {
+                        missing.set(true);
+                    }
+                }
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < 100_000; i++) {
+            store.put(UUID.randomUUID().toString(), false);
+        }
+        done.countDown();
+        reader.join();
+
+        Assert.assertFalse(missing.get());
+    }
+
+    @Test
+    public void testFromSystemProperties() {
+        try {
+            Assert.assertTrue(RequestStatusStore.fromSystemProperties() instanceof RequestStatusStore);
+            System.setProperty("jobcoin.requestStore", "compact");
+            Assert.assertTrue(RequestStatusStore.fromSystemProperties() instanceof RequestStatusStore);
+            System.setProperty("jobcoin.requestStore", "map");
+            Assert.assertTrue(RequestStatusStore.fromSystemProperties() instanceof InMemoryKVStore);
+
+            System.setProperty("jobcoin.requestStore", "redis");
+            try {
+                RequestStatusStore.fromSystemProperties();
+                Assert.fail("an unknown request store must be rejected");
+            } catch (IllegalArgumentException e) {
+                Assert.assertEquals("jobcoin.requestStore must be compact or map, got redis", e.getMessage());
+            }
+        } finally {
+            System.clearProperty("jobcoin.requestStore");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.gemini.jobcoin.external.persistence;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TimeOrderedIdGeneratorTest {
+
+    @Test
+    public void testRoundTrip() {
+        final long[][] ids = {
+                {0L, 0L},
+                {-1L, -1L},
+                {Long.MIN_VALUE, 1L},
+                {0x0123456789ABCDEFL, 0xFEDCBA9876543210L}};
+        for (long[] id : ids) {
+            final String text = TimeOrderedIdGenerator.encode(id[0], id[1]);
+            Assert.assertEquals(26, text.length());
+            Assert.assertTrue(TimeOrderedIdGenerator.isValid(text));
+            Assert.assertEquals(id[0], TimeOrderedIdGenerator.high(text));
+            Assert.assertEquals(id[1], TimeOrderedIdGenerator.low(text));
+        }
+        Assert.assertEquals("00000000000000000000000000", TimeOrderedIdGenerator.encode(0L, 0L));
+        Assert.assertEquals("7ZZZZZZZZZZZZZZZZZZZZZZZZZ", TimeOrderedIdGenerator.encode(-1L, -1L));
+    }
+
+    @Test
+    public void testTimestampAndNode() {
+        final long before = System.currentTimeMillis();
+        final String id = new TimeOrderedIdGenerator(42).generateId();
+        final long after = System.currentTimeMillis();
+
+        Assert.assertTrue(TimeOrderedIdGenerator.timestamp(id) >= before);
+        Assert.assertTrue(TimeOrderedIdGenerator.timestamp(id) <= after);
+        Assert.assertEquals(42, TimeOrderedIdGenerator.nodeId(id));
+    }
+
+    @Test
+    public void testTextSortsByTime() throws InterruptedException {
+        final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(generator.generateId());
+            Thread.sleep(2);
+        }
+        for (int i = 1; i < ids.size(); i++) {
+            Assert.assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0);
+        }
+    }
+
+    @Test
+    public void testUniqueAcrossThreads() throws InterruptedException {
+        final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+        final Set<String> ids = ConcurrentHashMap.newKeySet();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 25_000; i++) {
+                    ids.add(generator.generateId());
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(100_000, ids.size());
+    }
+
+    @Test
+    public void testInvalid() {
+        Assert.assertFalse(TimeOrderedIdGenerator.isValid(null));
+        Assert.assertFalse(TimeOrderedIdGenerator.isValid("0000000000000000000000000"));
+        Assert.assertFalse(TimeOrderedIdGenerator.isValid("80000000000000000000000000"));  // past 128 bits
+        Assert.assertFalse(TimeOrderedIdGenerator.isValid("0000000000000000000000000I"));
+        Assert.assertFalse(TimeOrderedIdGenerator.isValid("0000000000000000000000000a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNodeIdOutOfRange() {
+        new TimeOrderedIdGenerator(65536);
+    }
+
+    @Test
+    public void testNodeIdFromSystemProperties() {
+        try {
+            System.setProperty("jobcoin.node.id", "65535");
+            Assert.assertEquals(65535, TimeOrderedIdGenerator.nodeId(
+                    TimeOrderedIdGenerator.fromSystemProperties().generateId()));
+
+            for (String nodeId : new String[]{"-1", "65536", "node1"}) {
+                System.setProperty("jobcoin.node.id", nodeId);
+                try {
+                    TimeOrderedIdGenerator.fromSystemProperties();
+                    Assert.fail("jobcoin.node.id=" + nodeId + " must be rejected");
+                } catch (IllegalArgumentException e) {
+                    // expected
+                }
+            }
+        } finally {
+            System.clearProperty("jobcoin.node.id");
+        }
+        Assert.assertEquals(0, TimeOrderedIdGenerator.nodeId(TimeOrderedIdGenerator.fromSystemProperties().generateId()));
+    }
+}
@@ -0,0 +1,54 @@
+package com.gemini.jobcoin.helper;
+
+import com.gemini.jobcoin.exception.JobcoinException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+public class AmountTest {
+
+    @Test
+    public void testOf() throws JobcoinException {
+        Assert.assertEquals(100_000_000L, Amount.of(new BigDecimal("1")).units());
+        Assert.assertEquals(12_501_400_000L, Amount.of(new BigDecimal("125.014")).units());
+        Assert.assertEquals(1L, Amount.of(new BigDecimal("0.00000001")).units());
+        Assert.assertEquals(1L, Amount.of(new BigDecimal("1E-8")).units());
+        Assert.assertEquals(150_000_000L, Amount.of(new BigDecimal("1.5000000000")).units());
+        Assert.assertEquals(-100_000_000L, Amount.of(new BigDecimal("-1.0")).units());
+    }
+
+    @Test
+    public void testTooManyDecimals() {
+        try {
+            Amount.of(new BigDecimal("0.000000001"));
+            Assert.fail();
+        } catch (JobcoinException e) {
+            Assert.assertEquals("Amount cannot have more then 8 decimal places", e.getMessage());
+            Assert.assertEquals(400, e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void testTooLarge() {
+        try {
+            Amount.of(new BigDecimal("1000000000000"));
+            Assert.fail();
+        } catch (JobcoinException e) {
+            Assert.assertEquals("Amount is too large", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFormat() {
+        Assert.assertEquals("0", Amount.format(0));
+        Assert.assertEquals("1", Amount.format(100_000_000L));
+        Assert.assertEquals("1.5", Amount.format(150_000_000L));
+        Assert.assertEquals("125.014", Amount.format(12_501_400_000L));
+        Assert.assertEquals("0.00000001", Amount.format(1));
+        Assert.assertEquals("0.0001", Amount.format(10_000));
+        Assert.assertEquals("-0.5", Amount.format(-50_000_000L));
+        Assert.assertEquals("-2.25", Amount.format(-225_000_000L));
+        Assert.assertEquals("[1.5, 0.01]", Amount.format(new long[]{150_000_000L, 1_000_000L, 7}, 2));
+    }
+}
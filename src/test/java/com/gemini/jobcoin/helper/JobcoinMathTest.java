@@ -6,7 +6,7 @@ import org.junit.Test;
 
 import java.math.BigDecimal;
 import java.security.SecureRandom;
-import java.util.List;
+import java.util.Arrays;
 
 public class JobcoinMathTest {
 
@@ -16,7 +16,7 @@ public class JobcoinMathTest {
         boolean threw = false;
 
         try {
-            JobcoinMath.breakUpDecimalIntoDecimals("0", 3);
+            JobcoinMath.breakUpAmount(0, 3, new long[3]);
         } catch (JobcoinException e) {
             threw = true;
         }
@@ -26,7 +26,7 @@ public class JobcoinMathTest {
         boolean threw1 = false;
 
         try {
-            JobcoinMath.breakUpDecimalIntoDecimals("-0.01", 3);
+            JobcoinMath.breakUpAmount(units("-0.01"), 3, new long[3]);
         } catch (JobcoinException e) {
             threw1 = true;
         }
@@ -37,13 +37,19 @@ public class JobcoinMathTest {
 
     @Test
     public void undividable() throws JobcoinException {
-        List<BigDecimal> l1 = JobcoinMath.breakUpDecimalIntoDecimals("0.01", 5);
-        Assert.assertEquals(l1.size(), 1);
-        Assert.assertEquals(l1.get(0), new BigDecimal(".01"));
+        long[] l1 = breakUp("0.01", 5);
+        Assert.assertEquals(l1.length, 1);
+        Assert.assertEquals(l1[0], units(".01"));
 
-        List<BigDecimal> l2 = JobcoinMath.breakUpDecimalIntoDecimals("0.0001", 5);
-        Assert.assertEquals(l2.size(), 1);
-        Assert.assertEquals(l2.get(0), new BigDecimal(".0001"));
+        long[] l2 = breakUp("0.0001", 5);
+        Assert.assertEquals(l2.length, 1);
+        Assert.assertEquals(l2[0], units(".0001"));
+    }
+
+    @Test
+    public void smallestPossibleSplit() throws JobcoinException {
+        // only 0.01 fits strictly below 0.014, leaving 0.004 which is the smaller of the two
+        Assert.assertArrayEquals(new long[]{units("0.004"), units("0.01")}, breakUp("0.014", 5));
     }
 
 
@@ -51,16 +57,13 @@ public class JobcoinMathTest {
     public void testing100Random() throws JobcoinException {
         boolean someLargerThenOne = false;
         for (int i = 0; i < 100; i++) {
-            List<BigDecimal> l1 = JobcoinMath.breakUpDecimalIntoDecimals("100", new SecureRandom().nextInt(5));
-            Assert.assertTrue(l1.size() >= 1 && l1.size() <= 5);
-            if (l1.size() > 1) {
+            long[] l1 = breakUp("100", new SecureRandom().nextInt(5));
+            Assert.assertTrue(l1.length >= 1 && l1.length <= 5);
+            if (l1.length > 1) {
                 someLargerThenOne = true;
             }
-            BigDecimal total = BigDecimal.ZERO;
-            for (BigDecimal bd : l1) {
-                total = total.add(bd);
-            }
-            Assert.assertEquals(new BigDecimal("100").compareTo(total), 0);
+            assertPositive(l1);
+            Assert.assertEquals(units("100"), Arrays.stream(l1).sum());
         }
         Assert.assertTrue(someLargerThenOne);
     }
@@ -69,32 +72,42 @@ public class JobcoinMathTest {
     public void testingRandomDecimal() throws JobcoinException {
         boolean someLargerThenOne = false;
         for (int i = 0; i < 100; i++) {
-            List<BigDecimal> l1 = JobcoinMath.breakUpDecimalIntoDecimals("125.014", new SecureRandom().nextInt(5));
-            Assert.assertTrue(l1.size() >= 1 && l1.size() <= 5);
-            if (l1.size() > 1) {
+            long[] l1 = breakUp("125.014", new SecureRandom().nextInt(5));
+            Assert.assertTrue(l1.length >= 1 && l1.length <= 5);
+            if (l1.length > 1) {
                 someLargerThenOne = true;
             }
-            BigDecimal total = BigDecimal.ZERO;
-            for (BigDecimal bd : l1) {
-                total = total.add(bd);
-            }
-            Assert.assertEquals(new BigDecimal("125.014").compareTo(total), 0);
+            assertPositive(l1);
+            Assert.assertEquals(units("125.014"), Arrays.stream(l1).sum());
         }
         Assert.assertTrue(someLargerThenOne);
 
         boolean someLargerThenOne1 = false;
         for (int i = 0; i < 100; i++) {
-            List<BigDecimal> l1 = JobcoinMath.breakUpDecimalIntoDecimals("0.014", new SecureRandom().nextInt(5));
-            Assert.assertTrue(l1.size() >= 1 && l1.size() <= 5);
-            if (l1.size() > 1) {
+            long[] l1 = breakUp("0.014", new SecureRandom().nextInt(5));
+            Assert.assertTrue(l1.length >= 1 && l1.length <= 5);
+            if (l1.length > 1) {
                 someLargerThenOne1 = true;
             }
-            BigDecimal total = BigDecimal.ZERO;
-            for (BigDecimal bd : l1) {
-                total = total.add(bd);
-            }
-            Assert.assertEquals(new BigDecimal("0.014").compareTo(total), 0);
+            assertPositive(l1);
+            Assert.assertEquals(units("0.014"), Arrays.stream(l1).sum());
         }
         Assert.assertTrue(someLargerThenOne1);
     }
+
+    private static long[] breakUp(final String amount, int partCount) throws JobcoinException {
+        final long[] parts = new long[Math.max(1, partCount)];
+        final int count = JobcoinMath.breakUpAmount(units(amount), partCount, parts);
+        return Arrays.copyOf(parts, count);
+    }
+
+    private static long units(final String amount) throws JobcoinException {
+        return Amount.of(new BigDecimal(amount)).units();
+    }
+
+    private static void assertPositive(final long[] parts) {
+        for (long part : parts) {
+            Assert.assertTrue(part > 0);
+        }
+    }
 }
@@ -0,0 +1,109 @@
+package com.gemini.jobcoin.helper;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gemini.jobcoin.exception.JsonRequestException;
+import io.vertx.core.buffer.Buffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+public class JsonBodyParserTest {
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    @Test
+    public void testTreeMatchesReadTreeAtEverySplit() throws Exception {
+        final String[] payloads = {
+                "{\"fromAddress\":\"Alice\",\"toAddress\":\"5gJkRk2e\",\"amount\":125.0140}",
+                "[\"address 1\",\"address 2\",\"\\u00e9t\\u00e9\"]",
+                "[[\"a\",\"b\"],[],[\"c\"]]",
+                "{\"n\":[1,-2,4294967296,123456789012345678901234567890,1e3,true,false,null],\"o\":{}}",
+                "  \"text\"  ",
+                "42"
+        };
+        for (String payload : payloads) {
+            final byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+            final JsonNode expected = mapper.readTree(bytes);
+            for (int split = 0; split <= bytes.length; split++) {
+                final JsonBodyParser parser = new JsonBodyParser(mapper, 1024, null);
+                parser.feed(Buffer.buffer().appendBytes(bytes, 0, split));
+                parser.feed(Buffer.buffer().appendBytes(bytes, split, bytes.length - split));
+                Assert.assertEquals(payload, expected, parser.end());
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyBody() throws Exception {
+        Assert.assertTrue(new JsonBodyParser(mapper, 1024, null).end().isMissingNode());
+    }
+
+    @Test
+    public void testBodyOverTheLimit() throws Exception {
+        final JsonBodyParser parser = new JsonBodyParser(mapper, 16, null);
+        parser.feed(Buffer.buffer("[\"0123456789\","));
+        try {
+            parser.feed(Buffer.buffer("\"0123456789\"]"));
+            Assert.fail();
+        } catch (JsonRequestException e) {
+            Assert.assertEquals(413, e.getStatusCode());
+            Assert.assertEquals("Payload is larger then 16 bytes", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testInvalidJsonFailsOnTheChunkItIsIn() throws Exception {
+        final JsonBodyParser parser = new JsonBodyParser(mapper, 1024, null);
+        parser.feed(Buffer.buffer("[\"a\","));
+        assertInvalid(() -> parser.feed(Buffer.buffer("junk")));
+    }
+
+    @Test
+    public void testTruncatedBody() throws Exception {
+        final JsonBodyParser parser = new JsonBodyParser(mapper, 1024, null);
+        parser.feed(Buffer.buffer("{\"a\":[1,2"));
+        assertInvalid(parser::end);
+    }
+
+    @Test
+    public void testContentAfterTheRootValue() throws Exception {
+        final JsonBodyParser parser = new JsonBodyParser(mapper, 1024, null);
+        assertInvalid(() -> {
+            parser.feed(Buffer.buffer("{\"a\":1} {\"b\":2}"));
+            parser.end();
+        });
+    }
+
+    @Test
+    public void testChecksumCoversTheBody() throws Exception {
+        final CRC32C checksum = new CRC32C();
+        final JsonBodyParser parser = new JsonBodyParser(mapper, 1024, checksum);
+        parser.feed(Buffer.buffer("{\"a\":"));
+        parser.feed(Buffer.buffer("1}"));
+        parser.end();
+
+        final CRC32C expected = new CRC32C();
+        expected.update("{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(expected.getValue(), checksum.getValue());
+        Assert.assertEquals(7, parser.bytes());
+    }
+
+    private interface Parse {
+        void run() throws JsonRequestException;
+    }
+
+    private static void assertInvalid(final Parse parse) {
+        try {
+            parse.run();
+            Assert.fail();
+        } catch (JsonRequestException e) {
+            Assert.assertEquals(400, e.getStatusCode());
+            Assert.assertEquals("Issue processing Json", e.getMessage());
+        }
+    }
+}
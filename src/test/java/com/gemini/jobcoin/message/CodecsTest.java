@@ -0,0 +1,68 @@
+package com.gemini.jobcoin.message;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gemini.jobcoin.helper.Amount;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class CodecsTest {
+
+    @Test
+    public void testObjectsArePassedWithoutCopying() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            Codecs.register(vertx);
+            Codecs.register(vertx);     // every verticle registers, repeats are ignored
+
+            final MixingRequest request = new MixingRequest("FROM123", "TO456", Amount.ofUnits(100));
+            final CompletableFuture<Object> received = new CompletableFuture<>();
+            vertx.eventBus().consumer("test", message -> {
+                received.complete(message.body());
+                message.reply(new JobcoinResponse(JsonNodeFactory.instance.objectNode().put("requestId", "ID123")));
+            });
+
+            final CompletableFuture<JobcoinResponse> reply = new CompletableFuture<>();
+            vertx.eventBus().<JobcoinResponse>request("test", request, event ->
+                    reply.complete(event.result().body()));
+
+            Assert.assertSame(request, received.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals("{\"status\":\"succeeded\",\"message\":{\"requestId\":\"ID123\"}}",
+                    reply.get(5, TimeUnit.SECONDS).encode());
+        } finally {
+            vertx.close();
+        }
+    }
+
+    @Test
+    public void testJsonIsPassedWithoutCopying() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            Codecs.register(vertx);
+
+            final ObjectNode params = JsonNodeFactory.instance.objectNode().put("requestId", "ID123");
+            final CompletableFuture<Object> received = new CompletableFuture<>();
+            vertx.eventBus().consumer("test", (Message<Object> message) -> received.complete(message.body()));
+            vertx.eventBus().send("test", params, Codecs.JSON);
+
+            Assert.assertSame(params, received.get(5, TimeUnit.SECONDS));
+        } finally {
+            vertx.close();
+        }
+    }
+
+    @Test
+    public void testJsonParsesStrings() throws Exception {
+        final ObjectMapper mapper = new ObjectMapper();
+        final ObjectNode params = JsonNodeFactory.instance.objectNode().put("requestId", "ID123");
+
+        Assert.assertSame(params, Codecs.json(mapper, params));
+        Assert.assertEquals(params, Codecs.json(mapper, params.toString()));
+    }
+}
@@ -0,0 +1,31 @@
+package com.gemini.jobcoin.message;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MixingStatusesTest {
+
+    @Test
+    public void testChunksAddUpToTheFullBody() {
+        final Map<String, Boolean> known = new HashMap<>();
+        known.put("requestId1", true);
+        known.put("requestId\"2", false);
+        final MixingStatuses statuses = new MixingStatuses(
+                Arrays.asList("requestId1", "requestId\"2", "requestId3"), known);
+
+        final String full = "{\"status\":\"succeeded\",\"message\":{\"statuses\":{"
+                + "\"requestId1\":\"complete\",\"requestId\\\"2\":\"incomplete\",\"requestId3\":\"unknown\"}}}";
+        Assert.assertEquals(full, statuses.encode().toString());
+
+        final Buffer chunked = Buffer.buffer()
+                .appendBuffer(statuses.encode(0, 1))
+                .appendBuffer(statuses.encode(1, 2))
+                .appendBuffer(statuses.encode(2, 3));
+        Assert.assertEquals(full, chunked.toString());
+    }
+}
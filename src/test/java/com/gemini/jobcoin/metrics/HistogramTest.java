@@ -0,0 +1,68 @@
+package com.gemini.jobcoin.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class HistogramTest {
+
+    @Test
+    public void testBucketsCoverTheirValues() {
+        final long[] values = {0, 1, 31, 32, 33, 63, 64, 65, 1000, 123_456_789L, Long.MAX_VALUE};
+        for (long value : values) {
+            final int index = Histogram.index(value);
+            Assert.assertTrue(index < Histogram.BUCKETS);
+            Assert.assertTrue(value <= Histogram.highestEquivalentValue(index));
+            if (index > 0) {
+                Assert.assertTrue(value > Histogram.highestEquivalentValue(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testQuantilesWithinPrecision() {
+        final Histogram histogram = new Histogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v * 1000);
+        }
+        final Histogram.Snapshot snapshot = histogram.snapshot();
+
+        Assert.assertEquals(100_000, snapshot.count());
+        Assert.assertEquals(100_000_000L, snapshot.max());
+        Assert.assertEquals(5_000_050_000_000L, snapshot.sum());
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            final double expected = quantile * 100_000_000L;
+            Assert.assertEquals(expected, snapshot.valueAt(quantile), expected / 32);
+        }
+        Assert.assertEquals(100_000_000L, snapshot.valueAt(1.0));
+    }
+
+    @Test
+    public void testEmptyAndNegative() {
+        final Histogram histogram = new Histogram();
+        Assert.assertEquals(0, histogram.snapshot().valueAt(0.99));
+
+        histogram.record(-5);
+        Assert.assertEquals(1, histogram.snapshot().count());
+        Assert.assertEquals(0, histogram.snapshot().valueAt(0.5));
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        final Histogram histogram = new Histogram();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(ThreadLocalRandom.current().nextLong(1_000_000));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(400_000, histogram.snapshot().count());
+    }
+}
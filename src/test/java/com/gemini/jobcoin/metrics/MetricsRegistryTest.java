@@ -0,0 +1,59 @@
+package com.gemini.jobcoin.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testSameMetricIsReturned() {
+        final MetricsRegistry registry = new MetricsRegistry();
+
+        Assert.assertSame(registry.histogram("latency", "help", "route", "/a"),
+                registry.histogram("latency", "help", "route", "/a"));
+        Assert.assertNotSame(registry.histogram("latency", "help", "route", "/a"),
+                registry.histogram("latency", "help", "route", "/b"));
+        Assert.assertSame(registry.counter("total", "help"), registry.counter("total", "help"));
+    }
+
+    @Test
+    public void testScrape() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("jobcoin_payouts_total", "Payouts", "result", "success").add(3);
+        registry.gauge("jobcoin_pending", "Pending", () -> 7);
+        registry.histogram("jobcoin_latency_seconds", "Latency", "route", "/v1/send").record(2_000_000_000L);
+
+        final String text = registry.scrape();
+
+        Assert.assertTrue(text.contains("# HELP jobcoin_payouts_total Payouts\n"));
+        Assert.assertTrue(text.contains("# TYPE jobcoin_payouts_total counter\n"));
+        Assert.assertTrue(text.contains("jobcoin_payouts_total{result=\"success\"} 3\n"));
+        Assert.assertTrue(text.contains("# TYPE jobcoin_pending gauge\njobcoin_pending 7\n"));
+        Assert.assertTrue(text.contains("# TYPE jobcoin_latency_seconds summary\n"));
+        Assert.assertTrue(text.contains("jobcoin_latency_seconds{route=\"/v1/send\",quantile=\"0.99\"} 2.0\n"));
+        Assert.assertTrue(text.contains("jobcoin_latency_seconds_sum{route=\"/v1/send\"} 2.0\n"));
+        Assert.assertTrue(text.contains("jobcoin_latency_seconds_count{route=\"/v1/send\"} 1\n"));
+        // families are sorted by name
+        Assert.assertTrue(text.indexOf("jobcoin_latency_seconds") < text.indexOf("jobcoin_payouts_total"));
+    }
+
+    @Test
+    public void testLabelValuesAreEscaped() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("total", "help", "address", "a\"b\\c\nd").increment();
+
+        Assert.assertTrue(registry.scrape().contains("total{address=\"a\\\"b\\\\c\\nd\"} 1\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeMismatch() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("jobcoin_total", "help");
+        registry.histogram("jobcoin_total", "help");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnpairedLabels() {
+        new MetricsRegistry().counter("jobcoin_total", "help", "route");
+    }
+}
@@ -0,0 +1,39 @@
+package com.gemini.jobcoin.scheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class BackoffTest {
+
+    @Test
+    public void testBackoffDoublesUpToTheCap() {
+        final Backoff backoff = new Backoff(100, 1000, new Random(1));
+        final long[] expected = {100, 200, 400, 800, 1000, 1000};
+        for (int retry = 1; retry <= expected.length; retry++) {
+            long min = Long.MAX_VALUE;
+            long max = 0;
+            for (int i = 0; i < 200; i++) {
+                final long delay = backoff.delayMillis(retry);
+                min = Math.min(min, delay);
+                max = Math.max(max, delay);
+            }
+            // jittered between half and all of the backoff
+            final long full = expected[retry - 1];
+            Assert.assertTrue("retry " + retry + " min " + min, min >= full / 2);
+            Assert.assertTrue("retry " + retry + " max " + max, max <= full);
+            Assert.assertTrue("retry " + retry + " is not jittered", min < max);
+        }
+        // no overflow however often a part failed
+        for (int retry : new int[]{63, 64, 100, Integer.MAX_VALUE}) {
+            final long delay = backoff.delayMillis(retry);
+            Assert.assertTrue(delay >= 500 && delay <= 1000);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapBelowBase() {
+        new Backoff(100, 10);
+    }
+}
@@ -0,0 +1,62 @@
+package com.gemini.jobcoin.scheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.gemini.jobcoin.scheduler.FairSharePolicyTest.request;
+
+public class DeadlinePolicyTest {
+
+    @Test
+    public void testDelaysFitTheDeadline() {
+        // parts wait 1 to 20s, requests are due within a minute
+        final DeadlinePolicy policy = new DeadlinePolicy(1000, 20000, 60_000, new Random(1));
+
+        // far from the deadline delays are the uniform ones
+        for (int i = 0; i < 100; i++) {
+            final long delay = policy.delayMillis(request("a", 0, 2), 0);
+            Assert.assertTrue("delay " + delay, delay >= 1000 && delay < 20000);
+        }
+        // 10 parts left 50s before the deadline get at most 5s each
+        final long at = TimeUnit.SECONDS.toNanos(10);
+        for (int i = 0; i < 100; i++) {
+            final long delay = policy.delayMillis(request("a", 0, 10), at);
+            Assert.assertTrue("delay " + delay, delay >= 1000 && delay <= 5000);
+        }
+        // under minIntervalMs per part delays stay random within the share
+        final long close = TimeUnit.SECONDS.toNanos(59);
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 0; i < 100; i++) {
+            final long delay = policy.delayMillis(request("a", 0, 4), close);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        Assert.assertTrue(min >= 125 && max <= 250 && min < max);
+
+        // overdue parts run straight away
+        Assert.assertEquals(0, policy.delayMillis(request("a", 0, 1), TimeUnit.MINUTES.toNanos(2)));
+    }
+
+    @Test
+    public void testPolicyFromSystemProperties() {
+        Assert.assertTrue(SchedulingPolicy.fromSystemProperties(1, 2) instanceof UniformPolicy);
+        System.setProperty("jobcoin.mixing.policy", "deadline");
+        try {
+            Assert.assertTrue(SchedulingPolicy.fromSystemProperties(1, 2) instanceof DeadlinePolicy);
+            System.setProperty("jobcoin.mixing.policy", "fairShare");
+            Assert.assertTrue(SchedulingPolicy.fromSystemProperties(1, 2) instanceof FairSharePolicy);
+            System.setProperty("jobcoin.mixing.policy", "lottery");
+            try {
+                SchedulingPolicy.fromSystemProperties(1, 2);
+                Assert.fail("unknown policy was accepted");
+            } catch (IllegalArgumentException expected) {
+            }
+        } finally {
+            System.clearProperty("jobcoin.mixing.policy");
+        }
+    }
+}
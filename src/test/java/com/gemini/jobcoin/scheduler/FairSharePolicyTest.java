@@ -0,0 +1,84 @@
+package com.gemini.jobcoin.scheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class FairSharePolicyTest {
+
+    @Test
+    public void testDepositorsShareTheRate() {
+        // 10 parts a second, delays without the rate would be 1 to 2ms
+        final FairSharePolicy policy = new FairSharePolicy(1, 2, 10, new Random(1));
+        final SchedulingPolicy.Request whale = request("whale", 100);
+        policy.admitted(whale);
+
+        long now = 0;
+        long last = 0;
+        for (int i = 0; i < 10; i++) {
+            last = policy.delayMillis(whale, now);
+        }
+        // alone the whale gets the whole rate, its 10th part around a second out
+        Assert.assertTrue("delay " + last, last >= 450 && last <= 1600);
+
+        // with a second depositor pending the whale's slots space out twice as far
+        final SchedulingPolicy.Request small = request("small", 1);
+        policy.admitted(small);
+        Assert.assertEquals(2, policy.depositors());
+        Assert.assertTrue("small waits behind the whale", policy.delayMillis(small, now) <= 2);
+
+        final long before = policy.delayMillis(whale, now);   // slot taken while the whale was alone
+        last = policy.delayMillis(whale, now);
+        Assert.assertTrue("spacing " + (last - before), last - before >= 100);
+
+        // the small depositor is forgotten once its part was paid out
+        policy.paidOut(small);
+        Assert.assertEquals(1, policy.depositors());
+    }
+
+    @Test
+    public void testIdleDepositorsBankNoTime() {
+        final FairSharePolicy policy = new FairSharePolicy(1, 2, 1, new Random(1));
+        final SchedulingPolicy.Request request = request("depositor", 3);
+        policy.admitted(request);
+        Assert.assertTrue(policy.delayMillis(request, 0) <= 2);
+
+        // long after its slot the part only waits its random delay
+        final long later = TimeUnit.MINUTES.toNanos(10);
+        Assert.assertTrue(policy.delayMillis(request, later) <= 2);
+        Assert.assertTrue(policy.delayMillis(request, later) >= 500);
+
+        // never admitted, never throttled
+        Assert.assertTrue(policy.delayMillis(request("unknown", 1), later) <= 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRate() {
+        new FairSharePolicy(1, 2, 0);
+    }
+
+    static SchedulingPolicy.Request request(final String depositor, int remainingParts) {
+        return request(depositor, 0, remainingParts);
+    }
+
+    static SchedulingPolicy.Request request(final String depositor, long registeredAt, int remainingParts) {
+        return new SchedulingPolicy.Request() {
+            @Override
+            public String depositor() {
+                return depositor;
+            }
+
+            @Override
+            public long registeredAt() {
+                return registeredAt;
+            }
+
+            @Override
+            public int remainingParts() {
+                return remainingParts;
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package com.gemini.jobcoin.scheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class HashedWheelTimerTest {
+
+    @Test
+    public void testTasksFireAfterDelay() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer("test-timer", 1, TimeUnit.MILLISECONDS, 16);
+        final CountDownLatch latch = new CountDownLatch(3);
+        final ConcurrentLinkedQueue<Long> lateness = new ConcurrentLinkedQueue<>();
+
+        for (long delay : new long[]{5, 40, 100}) {     // 40 and 100 wrap around a 16 tick wheel
+            final long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            timer.schedule(() -> {
+                lateness.add(System.nanoTime() - due);
+                latch.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (long l : lateness) {
+            Assert.assertTrue("task fired early", l >= 0);
+        }
+        Assert.assertEquals(0, timer.pending());
+        timer.stop();
+    }
+
+    @Test
+    public void testOrderingAndIdleRestart() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer();
+        final ConcurrentLinkedQueue<Integer> order = new ConcurrentLinkedQueue<>();
+
+        final CountDownLatch first = new CountDownLatch(1);
+        timer.schedule(first::countDown, 1, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(first.await(5, TimeUnit.SECONDS));
+
+        Thread.sleep(20);   // let the worker park with nothing scheduled
+
+        final CountDownLatch latch = new CountDownLatch(3);
+        timer.schedule(() -> { order.add(3); latch.countDown(); }, 30, TimeUnit.MILLISECONDS);
+        timer.schedule(() -> { order.add(1); latch.countDown(); }, 0, TimeUnit.MILLISECONDS);
+        timer.schedule(() -> { order.add(2); latch.countDown(); }, 15, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertArrayEquals(new Integer[]{1, 2, 3}, order.toArray(new Integer[0]));
+        timer.stop();
+    }
+
+    @Test
+    public void testTaskExceptionDoesNotKillTimer() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        timer.schedule(() -> { throw new RuntimeException("boom"); }, 1, TimeUnit.MILLISECONDS);
+        timer.schedule(latch::countDown, 5, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        timer.stop();
+    }
+}
@@ -3,6 +3,7 @@ package com.gemini.jobcoin.verticles;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.gemini.jobcoin.exception.GeminiRequestException;
 import com.gemini.jobcoin.external.http.GeminiClient;
+import com.gemini.jobcoin.message.JobcoinResponse;
 import io.vertx.core.eventbus.Message;
 import org.junit.Assert;
 import org.junit.Test;
@@ -11,10 +12,10 @@ import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 
 public class BalanceHandlerTest {
@@ -36,9 +37,7 @@ public class BalanceHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Issue processing Json")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Issue processing Json", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -58,9 +57,7 @@ public class BalanceHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Issue submitting request null")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Issue submitting request null", captor.getValue());
         Assert.assertEquals(500, (int) statusCodeCaptor.getValue());
     }
 
@@ -72,9 +69,9 @@ public class BalanceHandlerTest {
 
         final Message<?> message = Mockito.mock(Message.class);
         final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
-        doThrow(new GeminiRequestException("Error with request", 500))
+        doReturn(CompletableFuture.failedFuture(new GeminiRequestException("Error with request", 500)))
                 .when(geminiClient)
-                .getBalance(anyString());
+                .getBalanceAsync(anyString());
 
         final BalanceHandler balanceHandler = new BalanceHandler(geminiClient);
 
@@ -86,9 +83,7 @@ public class BalanceHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Gemini API returned an error Error with request")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Gemini API returned an error Error with request", captor.getValue());
         Assert.assertEquals(500, (int) statusCodeCaptor.getValue());
     }
 
@@ -106,9 +101,9 @@ public class BalanceHandlerTest {
                 .when(response)
                 .body();
 
-        doReturn(response)
+        doReturn(CompletableFuture.completedFuture(response))
                 .when(geminiClient)
-                .getBalance(anyString());
+                .getBalanceAsync(anyString());
 
         doReturn(JsonNodeFactory.instance.objectNode().put("address", "testaddress1").toString())
                 .when(message)
@@ -120,9 +115,7 @@ public class BalanceHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Gemini response missing balance")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Gemini response missing balance", captor.getValue());
         Assert.assertEquals(503, (int) statusCodeCaptor.getValue());
     }
 
@@ -140,9 +133,9 @@ public class BalanceHandlerTest {
                 .when(response)
                 .body();
 
-        doReturn(response)
+        doReturn(CompletableFuture.completedFuture(response))
                 .when(geminiClient)
-                .getBalance(anyString());
+                .getBalanceAsync(anyString());
 
         doReturn(JsonNodeFactory.instance.objectNode().put("address", "testaddress1").toString())
                 .when(message)
@@ -154,15 +147,13 @@ public class BalanceHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Gemini response balance field is not a string")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Gemini response balance field is not a string", captor.getValue());
         Assert.assertEquals(503, (int) statusCodeCaptor.getValue());
     }
 
     @Test
     public void testSuccessfulResponse() throws InterruptedException, GeminiRequestException, IOException {
-        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<JobcoinResponse> captor = ArgumentCaptor.forClass(JobcoinResponse.class);
 
         final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
         final Message<?> message = Mockito.mock(Message.class);
@@ -173,9 +164,9 @@ public class BalanceHandlerTest {
                 .when(response)
                 .body();
 
-        doReturn(response)
+        doReturn(CompletableFuture.completedFuture(response))
                 .when(geminiClient)
-                .getBalance(anyString());
+                .getBalanceAsync(anyString());
 
         doReturn(JsonNodeFactory.instance.objectNode().put("address", "testaddress1").toString())
                 .when(message)
@@ -190,6 +181,6 @@ public class BalanceHandlerTest {
         Assert.assertEquals(JsonNodeFactory.instance.objectNode()
                 .put("status", "succeeded")
                 .set("message", JsonNodeFactory.instance.objectNode()
-                        .put("balance", "100.0")).toString(), captor.getValue());
+                        .put("balance", "100.0")).toString(), captor.getValue().encode());
     }
 }
@@ -0,0 +1,62 @@
+package com.gemini.jobcoin.verticles;
+
+import com.gemini.jobcoin.exception.JobcoinException;
+import com.gemini.jobcoin.helper.Amount;
+import com.gemini.jobcoin.metrics.MetricsRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MixingBacklogTest {
+
+    @Test
+    public void testHighWaterMarks() throws JobcoinException {
+        final MixingBacklog backlog = new MixingBacklog(4, 2 * Amount.UNITS_PER_JOBCOIN);
+
+        // a recovered request only adds the parts still owed
+        backlog.added(new long[]{Amount.UNITS_PER_JOBCOIN, 30, 40, 0}, 1, 3);
+        Assert.assertEquals(2, backlog.pendingParts());
+        Assert.assertEquals(70, backlog.pendingUnits());
+        backlog.admit();
+
+        backlog.added(new long[]{Amount.UNITS_PER_JOBCOIN, Amount.UNITS_PER_JOBCOIN}, 0, 2);
+        assertRejected(backlog);                        // 4 parts
+        backlog.paidOut(30);
+        assertRejected(backlog);                        // 2 Jobcoins and 40 units
+        backlog.paidOut(Amount.UNITS_PER_JOBCOIN);
+        backlog.admit();
+
+        Assert.assertEquals(2, backlog.pendingParts());
+        Assert.assertEquals(Amount.UNITS_PER_JOBCOIN + 40, backlog.pendingUnits());
+        Assert.assertEquals(2, backlog.rejected());
+
+        backlog.added(new long[]{10, 20, 30}, 0, 3);
+        backlog.dropped(new long[]{10, 20, 30}, 1, 3);      // the first part was paid out
+        backlog.paidOut(10);
+        Assert.assertEquals(2, backlog.pendingParts());
+        Assert.assertEquals(Amount.UNITS_PER_JOBCOIN + 40, backlog.pendingUnits());
+
+        final MetricsRegistry metrics = new MetricsRegistry();
+        backlog.exportTo(metrics);
+        final String scrape = metrics.scrape();
+        Assert.assertTrue(scrape, scrape.contains("jobcoin_mixing_backlog_parts 2\n"));
+        Assert.assertTrue(scrape, scrape.contains("jobcoin_mixing_obligations_units 100000040\n"));
+        Assert.assertTrue(scrape, scrape.contains("jobcoin_mixing_backlog_high_water{limit=\"parts\"} 4\n"));
+        Assert.assertTrue(scrape, scrape.contains("jobcoin_send_backlog_rejected_total 2\n"));
+    }
+
+    @Test
+    public void testUnbounded() throws JobcoinException {
+        final MixingBacklog backlog = MixingBacklog.unbounded();
+        backlog.added(new long[]{Long.MAX_VALUE / 2}, 0, 1);
+        backlog.admit();
+    }
+
+    private static void assertRejected(final MixingBacklog backlog) {
+        try {
+            backlog.admit();
+            Assert.fail("send was admitted over the high-water mark");
+        } catch (JobcoinException e) {
+            Assert.assertEquals(503, e.getStatusCode());
+        }
+    }
+}
@@ -1,21 +1,41 @@
 package com.gemini.jobcoin.verticles;
 
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.gemini.jobcoin.exception.GeminiRequestException;
 import com.gemini.jobcoin.external.http.GeminiClient;
 import com.gemini.jobcoin.external.persistence.InMemoryKVStore;
+import com.gemini.jobcoin.external.persistence.JournaledRequest;
 import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.external.persistence.MappedMixingJournal;
+import com.gemini.jobcoin.external.persistence.MixingJournal;
+import com.gemini.jobcoin.helper.Amount;
+import com.gemini.jobcoin.message.MixingEvent;
+import com.gemini.jobcoin.message.MixingRequest;
+import com.gemini.jobcoin.scheduler.Backoff;
+import com.gemini.jobcoin.scheduler.FairSharePolicy;
+import com.gemini.jobcoin.scheduler.UniformPolicy;
+import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.Message;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static com.gemini.jobcoin.constant.Routes.MIXER_VERTX_V1;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doReturn;
@@ -23,6 +43,9 @@ import static org.mockito.Mockito.verify;
 
 public class MixingEngineTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testInboundMixingRequest() throws InterruptedException, IOException, GeminiRequestException {
 
@@ -31,15 +54,16 @@ public class MixingEngineTest {
 
         final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
         final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+        doReturn(CompletableFuture.completedFuture(null))
+                .when(geminiClient)
+                .transferAmountAsync(anyString(), anyString(), anyLong());
 
         final MixingEngine engine = new MixingEngine(depositAddressStore, requestStore, () -> "REQUEST123",
             geminiClient, 50, 10, 15, 14);
 
         final Message<?> message = Mockito.mock(Message.class);
 
-        doReturn(JsonNodeFactory.instance.objectNode()
-                .put("depositAddress", "TO456")
-                .put("amount", "100").toString())
+        doReturn(new MixingRequest("FROM123", "TO456", Amount.ofUnits(100 * Amount.UNITS_PER_JOBCOIN)))
                 .when(message)
                 .body();
 
@@ -53,13 +77,244 @@ public class MixingEngineTest {
             Thread.sleep(10);
         }
 
-        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Long> captor = ArgumentCaptor.forClass(Long.class);
 
-        verify(geminiClient, atLeastOnce()).transferAmount(anyString(), anyString(), captor.capture());
+        verify(geminiClient, atLeastOnce()).transferAmountAsync(anyString(), anyString(), captor.capture());
 
         Assert.assertEquals(captor.getAllValues().size(), 14);
-        final BigDecimal bd = captor.getAllValues().stream().map(BigDecimal::new).reduce(BigDecimal::add).get();
-        Assert.assertEquals(0.0, bd.compareTo(new BigDecimal("100")), 0.0);
+        final long total = captor.getAllValues().stream().mapToLong(Long::longValue).sum();
+        Assert.assertEquals(100 * Amount.UNITS_PER_JOBCOIN, total);
+
+    }
+
+    @Test
+    public void testPolicyAndBacklogFollowPayouts() throws InterruptedException {
+
+        final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
+        depositAddressStore.put("TO456", Arrays.asList("USERADDRESS1"));
+
+        final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+        final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+        doReturn(CompletableFuture.completedFuture(null))
+                .when(geminiClient)
+                .transferAmountAsync(anyString(), anyString(), anyLong());
+
+        final FairSharePolicy policy = new FairSharePolicy(10, 50, 1000);
+        final MixingBacklog backlog = MixingBacklog.unbounded();
+        final MixingEngine engine = MixingEngine.builder(depositAddressStore, requestStore, () -> "REQUEST123",
+                geminiClient)
+                .policy(policy)
+                .backlog(backlog)
+                .parts(3, 4)
+                .build();
+
+        final Message<?> message = Mockito.mock(Message.class);
+        doReturn(new MixingRequest("FROM123", "TO456", Amount.ofUnits(Amount.UNITS_PER_JOBCOIN)))
+                .when(message)
+                .body();
+
+        engine.consumeMessage(message);
+        Assert.assertEquals(1, policy.depositors());
+        Assert.assertEquals(3, backlog.pendingParts());
+        Assert.assertEquals(Amount.UNITS_PER_JOBCOIN, backlog.pendingUnits());
+
+        while (!Boolean.TRUE.equals(requestStore.get("REQUEST123"))) {
+            Thread.sleep(10);
+        }
+        // every part was reported as paid out, the depositor is no longer sharing the rate
+        Assert.assertEquals(0, policy.depositors());
+        Assert.assertEquals(0, backlog.pendingParts());
+        Assert.assertEquals(0, backlog.pendingUnits());
+    }
+
+    @Test
+    public void testFailedPayoutsBackOffAndDeadLetter() throws Exception {
+
+        final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
+        depositAddressStore.put("TO456", Arrays.asList("USERADDRESS1"));
+
+        final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+        final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+        // the first part times out once and is then paid, the second is rejected for good
+        Mockito.when(geminiClient.transferAmountAsync(anyString(), anyString(), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new HttpTimeoutException("request timed out")))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.failedFuture(new GeminiRequestException("Insufficient Funds", 422)));
+
+        final PayoutRetries retries = new PayoutRetries(new Backoff(5, 20), 3, 1);
+        final FairSharePolicy policy = new FairSharePolicy(10, 20, 1000);
+        final MixingBacklog backlog = MixingBacklog.unbounded();
+        final MixingEngine engine = MixingEngine.builder(depositAddressStore, requestStore, () -> "REQUEST123",
+                geminiClient)
+                .policy(policy)
+                .backlog(backlog)
+                .retries(retries)
+                .parts(3, 4)
+                .build();
+
+        final Message<?> message = Mockito.mock(Message.class);
+        doReturn(new MixingRequest("FROM123", "TO456", Amount.ofUnits(Amount.UNITS_PER_JOBCOIN)))
+                .when(message)
+                .body();
+        engine.consumeMessage(message);
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (retries.deadLetter("REQUEST123") == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        final PayoutRetries.DeadLetter deadLetter = retries.deadLetter("REQUEST123");
+        Assert.assertNotNull(deadLetter);
+        Assert.assertEquals(1, deadLetter.part);
+        Assert.assertEquals(PayoutRetries.Failure.REJECTED, deadLetter.failure);
+        Assert.assertEquals(2, deadLetter.failures);
+        Assert.assertEquals("Insufficient Funds", deadLetter.error);
+
+        // the timeout and the first rejection were retried, the request stopped at the dead letter
+        Thread.sleep(100);
+        verify(geminiClient, Mockito.times(4)).transferAmountAsync(anyString(), anyString(), anyLong());
+        Assert.assertFalse(requestStore.get("REQUEST123"));
+        Assert.assertEquals(2, retries.retries("REQUEST123"));
+        // the parts left are no longer scheduled, they do not hold up new sends
+        Assert.assertEquals(0, backlog.pendingParts());
+        Assert.assertEquals(0, backlog.pendingUnits());
+        Assert.assertEquals(0, policy.depositors());
+
+        final ObjectNode status = new MixingStatusLookup(requestStore, new ConcurrentHashMap<>(), retries)
+                .status("REQUEST123");
+        Assert.assertEquals("incomplete", status.get("status").asText());
+        Assert.assertEquals(2, status.get("retries").asInt());
+        Assert.assertEquals(1, status.get("deadLetteredPart").asInt());
+    }
+
+    @Test
+    public void testRetriesAreForgottenOnCompletion() throws Exception {
 
+        final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
+        depositAddressStore.put("TO456", Arrays.asList("USERADDRESS1"));
+
+        final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+        final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+        Mockito.when(geminiClient.transferAmountAsync(anyString(), anyString(), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new HttpTimeoutException("request timed out")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        final PayoutRetries retries = new PayoutRetries(new Backoff(5, 20), 3, 1);
+        final MixingEngine engine = MixingEngine.builder(depositAddressStore, requestStore, () -> "REQUEST123",
+                geminiClient)
+                .policy(new UniformPolicy(10, 50))
+                .retries(retries)
+                .parts(1, 2)
+                .build();
+
+        final Message<?> message = Mockito.mock(Message.class);
+        doReturn(new MixingRequest("FROM123", "TO456", Amount.ofUnits(Amount.UNITS_PER_JOBCOIN)))
+                .when(message)
+                .body();
+        engine.consumeMessage(message);
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Boolean.TRUE.equals(requestStore.get("REQUEST123")) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(requestStore.get("REQUEST123"));
+        verify(geminiClient, Mockito.times(2)).transferAmountAsync(anyString(), anyString(), anyLong());
+        Assert.assertEquals(0, retries.retries("REQUEST123"));
+    }
+
+    @Test
+    public void testRecoverFromJournal() throws Exception {
+
+        final Path path = folder.getRoot().toPath().resolve("journal");
+        try (MixingJournal journal = new MappedMixingJournal(path, 4096, 1, TimeUnit.MILLISECONDS)) {
+            journal.created("REQUEST123", Arrays.asList("USERADDRESS1"),
+                    new long[]{10, 20, 30}, 3);
+            journal.paidOut("REQUEST123", 0);
+            journal.created("REQUEST456", Arrays.asList("USERADDRESS2"), new long[]{5}, 1);
+            journal.paidOut("REQUEST456", 0);
+            journal.completed("REQUEST456");
+        }
+
+        final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+        final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+        doReturn(CompletableFuture.completedFuture(null))
+                .when(geminiClient)
+                .transferAmountAsync(anyString(), anyString(), anyLong());
+
+        // left over from before the request was resumed
+        final PayoutRetries retries = new PayoutRetries();
+        retries.failed("REQUEST123", PayoutRetries.Failure.REJECTED, 1);
+        retries.deadLettered(new PayoutRetries.DeadLetter(
+                "REQUEST123", 1, 20, PayoutRetries.Failure.REJECTED, 2, "Insufficient Funds"));
+
+        try (MixingJournal journal = new MappedMixingJournal(path, 4096, 1, TimeUnit.MILLISECONDS)) {
+            final MixingEngine engine = MixingEngine.builder(new InMemoryKVStore<>(), requestStore, () -> "UNUSED",
+                    geminiClient)
+                    .journal(journal)
+                    .policy(new UniformPolicy(10, 50))
+                    .retries(retries)
+                    .parts(14, 15)
+                    .build();
+
+            engine.recover();
+
+            Assert.assertNull(retries.deadLetter("REQUEST123"));
+            Assert.assertEquals(0, retries.retries("REQUEST123"));
+            Assert.assertTrue(requestStore.get("REQUEST456"));
+            while (!requestStore.get("REQUEST123")) {
+                Thread.sleep(10);
+            }
+        }
+
+        ArgumentCaptor<Long> captor = ArgumentCaptor.forClass(Long.class);
+        verify(geminiClient, atLeastOnce()).transferAmountAsync(anyString(), anyString(), captor.capture());
+        Assert.assertEquals(Arrays.asList(20L, 30L), captor.getAllValues());
+
+        // the parts paid after recovery are journaled, nothing is left to replay
+        try (MixingJournal journal = new MappedMixingJournal(path, 4096, 1, TimeUnit.MILLISECONDS)) {
+            for (JournaledRequest request : journal.recover()) {
+                Assert.assertTrue(request.completed);
+            }
+        }
+    }
+
+    @Test
+    public void testPaidPartsArePublished() throws Exception {
+
+        final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
+        depositAddressStore.put("TO456", Arrays.asList("USERADDRESS1"));
+
+        final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+        final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+        doReturn(CompletableFuture.completedFuture(null))
+                .when(geminiClient)
+                .transferAmountAsync(anyString(), anyString(), anyLong());
+
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final List<MixingEvent> events = new CopyOnWriteArrayList<>();
+            final CountDownLatch completed = new CountDownLatch(1);
+            vertx.eventBus().<MixingEvent>consumer(MixingEvent.address("REQUEST123"), message -> {
+                events.add(message.body());
+                if (message.body().completed()) {
+                    completed.countDown();
+                }
+            });
+
+            final MixingEngine engine = new MixingEngine(depositAddressStore, requestStore, () -> "REQUEST123",
+                    geminiClient, 50, 10, 15, 14);
+            vertx.deployVerticle(engine).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            vertx.eventBus().request(MIXER_VERTX_V1,
+                    new MixingRequest("FROM123", "TO456", Amount.ofUnits(100 * Amount.UNITS_PER_JOBCOIN)));
+
+            Assert.assertTrue(completed.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(14, events.size());
+            for (int i = 0; i < events.size(); i++) {
+                Assert.assertEquals(i + 1, events.get(i).partsPaid);
+                Assert.assertEquals(14, events.get(i).partCount);
+            }
+            Assert.assertTrue(requestStore.get("REQUEST123"));
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
     }
 }
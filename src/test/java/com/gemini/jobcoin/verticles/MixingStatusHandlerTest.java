@@ -3,6 +3,9 @@ package com.gemini.jobcoin.verticles;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.gemini.jobcoin.external.persistence.InMemoryKVStore;
 import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.external.persistence.SendStage;
+import com.gemini.jobcoin.message.JobcoinResponse;
+import com.gemini.jobcoin.message.MixingStatuses;
 import io.vertx.core.eventbus.Message;
 import org.junit.Assert;
 import org.junit.Test;
@@ -10,6 +13,8 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.net.http.HttpResponse;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.verify;
@@ -34,9 +39,7 @@ public class MixingStatusHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Issue processing Json")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Issue processing Json", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -58,9 +61,7 @@ public class MixingStatusHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Request Id=[ID123] is not recognized by Jobcoin")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Request Id=[ID123] is not recognized by Jobcoin", captor.getValue());
         Assert.assertEquals(422, (int) statusCodeCaptor.getValue());
     }
 
@@ -80,9 +81,7 @@ public class MixingStatusHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Issue submitting request null")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Issue submitting request null", captor.getValue());
         Assert.assertEquals(500, (int) statusCodeCaptor.getValue());
     }
 
@@ -107,15 +106,13 @@ public class MixingStatusHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Payload missing [requestId]")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Payload missing [requestId]", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
     @Test
     public void testSuccessfulResponse() {
-        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<JobcoinResponse> captor = ArgumentCaptor.forClass(JobcoinResponse.class);
 
         final Message<?> message = Mockito.mock(Message.class);
         final HttpResponse<String> response = (HttpResponse<String>)Mockito.mock(HttpResponse.class);
@@ -137,6 +134,139 @@ public class MixingStatusHandlerTest {
         Assert.assertEquals(JsonNodeFactory.instance.objectNode()
                 .put("status", "succeeded")
                 .set("message", JsonNodeFactory.instance.objectNode()
-                        .put("status", "complete")).toString(), captor.getValue());
+                        .put("status", "complete")).toString(), captor.getValue().encode());
+    }
+
+    @Test
+    public void testBatchStatuses() {
+        ArgumentCaptor<MixingStatuses> captor = ArgumentCaptor.forClass(MixingStatuses.class);
+
+        final KVStore<String, Boolean> kvStore = new InMemoryKVStore<>();
+        kvStore.put("requestId1", true);
+        kvStore.put("requestId2", false);
+
+        final Message<?> message = Mockito.mock(Message.class);
+        final MixingStatusHandler mixingStatusHandler = new MixingStatusHandler(kvStore);
+
+        doReturn(JsonNodeFactory.instance.arrayNode()
+                .add("requestId2").add("requestId3").add("requestId1").add("requestId2"))
+                .when(message)
+                .body();
+
+        mixingStatusHandler.consumeBatchMessage(message);
+
+        verify(message).reply(captor.capture());
+
+        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
+                .put("status", "succeeded")
+                .set("message", JsonNodeFactory.instance.objectNode()
+                        .set("statuses", JsonNodeFactory.instance.objectNode()
+                                .put("requestId2", "incomplete")
+                                .put("requestId3", "unknown")
+                                .put("requestId1", "complete"))).toString(), captor.getValue().toString());
+    }
+
+    @Test
+    public void testSendStageIsReported() {
+        ArgumentCaptor<JobcoinResponse> captor = ArgumentCaptor.forClass(JobcoinResponse.class);
+
+        final ConcurrentMap<String, SendStage> sendStages = new ConcurrentHashMap<>();
+        sendStages.put("requestId1", SendStage.DEPOSITED);
+        sendStages.put("requestId2", SendStage.FAILED);
+        final MixingStatusHandler mixingStatusHandler = new MixingStatusHandler(new InMemoryKVStore<>(), sendStages);
+
+        for (String requestId : new String[]{"requestId1", "requestId2"}) {
+            final Message<?> message = Mockito.mock(Message.class);
+            doReturn(JsonNodeFactory.instance.objectNode().put("requestId", requestId).toString())
+                    .when(message)
+                    .body();
+
+            mixingStatusHandler.consumeMessage(message);
+
+            verify(message).reply(captor.capture());
+        }
+
+        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
+                .put("status", "incomplete")
+                .put("stage", "deposited"), captor.getAllValues().get(0).message());
+        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
+                .put("status", "failed")
+                .put("stage", "failed"), captor.getAllValues().get(1).message());
+    }
+
+    @Test
+    public void testBatchStatusesOfSendsInPipeline() {
+        ArgumentCaptor<MixingStatuses> captor = ArgumentCaptor.forClass(MixingStatuses.class);
+
+        final KVStore<String, Boolean> kvStore = new InMemoryKVStore<>();
+        kvStore.put("requestId1", true);
+        final ConcurrentMap<String, SendStage> sendStages = new ConcurrentHashMap<>();
+        sendStages.put("requestId2", SendStage.TRANSFERRED);
+        sendStages.put("requestId3", SendStage.FAILED);
+
+        final Message<?> message = Mockito.mock(Message.class);
+        final MixingStatusHandler mixingStatusHandler = new MixingStatusHandler(kvStore, sendStages);
+
+        doReturn(JsonNodeFactory.instance.arrayNode()
+                .add("requestId1").add("requestId2").add("requestId3").add("requestId4"))
+                .when(message)
+                .body();
+
+        mixingStatusHandler.consumeBatchMessage(message);
+
+        verify(message).reply(captor.capture());
+
+        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
+                .put("status", "succeeded")
+                .set("message", JsonNodeFactory.instance.objectNode()
+                        .set("statuses", JsonNodeFactory.instance.objectNode()
+                                .put("requestId1", "complete")
+                                .put("requestId2", "incomplete")
+                                .put("requestId3", "failed")
+                                .put("requestId4", "unknown"))).toString(), captor.getValue().toString());
+    }
+
+    @Test
+    public void testBatchInvalidRequestIdError() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Integer> statusCodeCaptor = ArgumentCaptor.forClass(Integer.class);
+
+        final KVStore<String, Boolean> kvStore = new InMemoryKVStore<>();
+
+        final Message<?> message = Mockito.mock(Message.class);
+        final MixingStatusHandler mixingStatusHandler = new MixingStatusHandler(kvStore);
+
+        doReturn(JsonNodeFactory.instance.arrayNode().add("requestId1").add(""))
+                .when(message)
+                .body();
+
+        mixingStatusHandler.consumeBatchMessage(message);
+
+        verify(message).fail(statusCodeCaptor.capture(), captor.capture());
+
+        Assert.assertEquals("\"\" is not a valid request id", captor.getValue());
+        Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
+    }
+
+    @Test
+    public void testBatchEmptyError() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Integer> statusCodeCaptor = ArgumentCaptor.forClass(Integer.class);
+
+        final KVStore<String, Boolean> kvStore = new InMemoryKVStore<>();
+
+        final Message<?> message = Mockito.mock(Message.class);
+        final MixingStatusHandler mixingStatusHandler = new MixingStatusHandler(kvStore);
+
+        doReturn(JsonNodeFactory.instance.arrayNode())
+                .when(message)
+                .body();
+
+        mixingStatusHandler.consumeBatchMessage(message);
+
+        verify(message).fail(statusCodeCaptor.capture(), captor.capture());
+
+        Assert.assertEquals("Must look up at least 1 request id", captor.getValue());
+        Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 }
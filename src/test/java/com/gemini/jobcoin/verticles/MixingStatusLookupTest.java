@@ -0,0 +1,63 @@
+package com.gemini.jobcoin.verticles;
+
+import com.gemini.jobcoin.exception.JobcoinException;
+import com.gemini.jobcoin.external.persistence.InMemoryKVStore;
+import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.external.persistence.SendStage;
+import com.gemini.jobcoin.message.JobcoinResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public class MixingStatusLookupTest {
+
+    @Test
+    public void testEncodedStatusMatchesStatus() throws JobcoinException {
+        final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+        requestStore.put("complete", true);
+        requestStore.put("incomplete", false);
+        final ConcurrentMap<String, SendStage> sendStages = new ConcurrentHashMap<>();
+        for (SendStage stage : SendStage.values()) {
+            sendStages.put(stage.label(), stage);
+        }
+        final MixingStatusLookup lookup = new MixingStatusLookup(requestStore, sendStages);
+
+        for (String requestId : new String[]{"complete", "incomplete", "accepted", "deposited", "transferred", "failed"}) {
+            Assert.assertEquals(new JobcoinResponse(lookup.status(requestId)).encode(),
+                    lookup.encodedStatus(requestId).toString());
+        }
+        Assert.assertEquals("complete", lookup.status("complete").get("status").asText());
+        Assert.assertEquals("failed", lookup.status("failed").get("status").asText());
+        Assert.assertEquals("transferred", lookup.status("transferred").get("stage").asText());
+        // the same Buffer is handed out for every lookup of a state
+        Assert.assertSame(lookup.encodedStatus("complete"), lookup.encodedStatus("complete"));
+    }
+
+    @Test
+    public void testRegisteredRequestHidesItsStage() throws JobcoinException {
+        final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+        final ConcurrentMap<String, SendStage> sendStages = new ConcurrentHashMap<>();
+        // the registration's reply was lost after the engine had stored the request
+        sendStages.put("requestId1", SendStage.FAILED);
+        requestStore.put("requestId1", false);
+        final MixingStatusLookup lookup = new MixingStatusLookup(requestStore, sendStages);
+
+        Assert.assertEquals("incomplete", lookup.status("requestId1").get("status").asText());
+        Assert.assertFalse(lookup.status("requestId1").has("stage"));
+        Assert.assertSame(lookup.encodedStatus("requestId1"), lookup.encodedStatus("requestId1"));
+    }
+
+    @Test
+    public void testUnknownRequest() {
+        final MixingStatusLookup lookup = new MixingStatusLookup(new InMemoryKVStore<>(), new ConcurrentHashMap<>());
+        try {
+            lookup.encodedStatus("requestId1");
+            Assert.fail();
+        } catch (JobcoinException e) {
+            Assert.assertEquals(422, e.getStatusCode());
+            Assert.assertEquals("Request Id=[requestId1] is not recognized by Jobcoin", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.gemini.jobcoin.verticles;
+
+import com.gemini.jobcoin.exception.GeminiRequestException;
+import com.gemini.jobcoin.metrics.MetricsRegistry;
+import com.gemini.jobcoin.scheduler.Backoff;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CompletionException;
+
+import static com.gemini.jobcoin.verticles.PayoutRetries.Failure.REJECTED;
+import static com.gemini.jobcoin.verticles.PayoutRetries.Failure.TRANSIENT;
+
+public class PayoutRetriesTest {
+
+    @Test
+    public void testClassify() {
+        Assert.assertEquals(REJECTED, PayoutRetries.classify(new GeminiRequestException("Insufficient Funds", 422)));
+        Assert.assertEquals(REJECTED, PayoutRetries.classify(
+                new CompletionException(new GeminiRequestException("Bad Request", 400))));
+        Assert.assertEquals(TRANSIENT, PayoutRetries.classify(new GeminiRequestException("Timeout", 408)));
+        Assert.assertEquals(TRANSIENT, PayoutRetries.classify(new GeminiRequestException("Slow down", 429)));
+        Assert.assertEquals(TRANSIENT, PayoutRetries.classify(new GeminiRequestException("Error", 500)));
+        Assert.assertEquals(TRANSIENT, PayoutRetries.classify(new GeminiRequestException("Unavailable", 503)));
+        Assert.assertEquals(TRANSIENT, PayoutRetries.classify(
+                new CompletionException(new HttpTimeoutException("request timed out"))));
+        Assert.assertEquals(TRANSIENT, PayoutRetries.classify(new IllegalStateException()));
+    }
+
+    @Test
+    public void testRetryBudgets() {
+        final PayoutRetries retries = new PayoutRetries(new Backoff(10, 40), 3, 1);
+
+        Assert.assertTrue(retries.failed("REQUEST123", REJECTED, 1) >= 5);
+        Assert.assertEquals(-1, retries.failed("REQUEST123", REJECTED, 2));
+
+        for (int failures = 1; failures <= 3; failures++) {
+            final long backoff = retries.failed("REQUEST456", TRANSIENT, failures);
+            Assert.assertTrue(backoff >= 5 && backoff <= 40);
+        }
+        Assert.assertEquals(-1, retries.failed("REQUEST456", TRANSIENT, 4));
+
+        // only failures which are retried count as retries
+        Assert.assertEquals(1, retries.retries("REQUEST123"));
+        Assert.assertEquals(3, retries.retries("REQUEST456"));
+        Assert.assertEquals(0, retries.retries("REQUEST789"));
+
+        retries.deadLettered(new PayoutRetries.DeadLetter("REQUEST123", 2, 30, REJECTED, 2, "Insufficient Funds"));
+        Assert.assertEquals(2, retries.deadLetter("REQUEST123").part);
+        Assert.assertNull(retries.deadLetter("REQUEST456"));
+
+        final MetricsRegistry metrics = new MetricsRegistry();
+        retries.exportTo(metrics);
+        final String scrape = metrics.scrape();
+        Assert.assertTrue(scrape, scrape.contains("jobcoin_mixing_payout_failures_total{failure=\"rejected\"} 2\n"));
+        Assert.assertTrue(scrape, scrape.contains("jobcoin_mixing_payout_failures_total{failure=\"transient\"} 4\n"));
+        Assert.assertTrue(scrape, scrape.contains("jobcoin_mixing_dead_letters 1\n"));
+
+        retries.forget("REQUEST123");
+        Assert.assertEquals(0, retries.retries("REQUEST123"));
+        Assert.assertNull(retries.deadLetter("REQUEST123"));
+        Assert.assertEquals(3, retries.retries("REQUEST456"));
+        Assert.assertTrue(retries.deadLetters().isEmpty());
+    }
+}
@@ -1,14 +1,20 @@
 package com.gemini.jobcoin.verticles;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.gemini.jobcoin.external.persistence.InMemoryKVStore;
 import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.message.JobcoinResponse;
 import io.vertx.core.eventbus.Message;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.mockito.Mockito.doReturn;
@@ -34,9 +40,7 @@ public class RegisterHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Issue processing Json")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Issue processing Json", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -58,9 +62,7 @@ public class RegisterHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Payload is not an array of addresses")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Payload is not an array of addresses", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -82,9 +84,7 @@ public class RegisterHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Must register at least 1 address")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Must register at least 1 address", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -106,9 +106,7 @@ public class RegisterHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "123 is not a valid address")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("123 is not a valid address", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -130,9 +128,7 @@ public class RegisterHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Provided an address which is an empty string")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Provided an address which is an empty string", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -154,14 +150,12 @@ public class RegisterHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Issue submitting request null")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Issue submitting request null", captor.getValue());
         Assert.assertEquals(500, (int) statusCodeCaptor.getValue());
     }
     @Test
     public void testValidDoubleAddressRegisterSuccess() {
-        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<JobcoinResponse> captor = ArgumentCaptor.forClass(JobcoinResponse.class);
 
         final KVStore<String, List<String>> kvStore = new InMemoryKVStore<>();
 
@@ -179,11 +173,194 @@ public class RegisterHandlerTest {
         Assert.assertEquals(JsonNodeFactory.instance.objectNode()
                 .put("status", "succeeded")
                 .set("message", JsonNodeFactory.instance.objectNode()
-                        .put("depositAddress", "depositAddress1")).toString(), captor.getValue());
+                        .put("depositAddress", "depositAddress1")).toString(), captor.getValue().encode());
 
         Assert.assertEquals(kvStore.get("depositAddress1").size(), 2);
         Assert.assertEquals(kvStore.get("depositAddress1").get(0), "userAddress1");
         Assert.assertEquals(kvStore.get("depositAddress1").get(1), "userAddress2");
     }
 
+    @Test
+    public void testJsonNodeBodyRegisterSuccess() {
+        ArgumentCaptor<JobcoinResponse> captor = ArgumentCaptor.forClass(JobcoinResponse.class);
+
+        final KVStore<String, List<String>> kvStore = new InMemoryKVStore<>();
+
+        final Message<?> message = Mockito.mock(Message.class);
+        final RegisterHandler registerHandler = new RegisterHandler(kvStore, () -> "depositAddress1");
+
+        // the HTTP server sends the already parsed body
+        doReturn(JsonNodeFactory.instance.arrayNode().add("userAddress1"))
+                .when(message)
+                .body();
+
+        registerHandler.consumeMessage(message);
+
+        verify(message).reply(captor.capture());
+
+        Assert.assertEquals("depositAddress1", captor.getValue().message().get("depositAddress").asText());
+        Assert.assertEquals(kvStore.get("depositAddress1").get(0), "userAddress1");
+    }
+
+    @Test
+    public void testCollidingDepositAddressIsSkipped() {
+        ArgumentCaptor<JobcoinResponse> captor = ArgumentCaptor.forClass(JobcoinResponse.class);
+
+        final KVStore<String, List<String>> kvStore = new InMemoryKVStore<>();
+        kvStore.put("depositAddress1", Collections.singletonList("someoneElse"));
+
+        final Iterator<String> addresses = Arrays.asList("depositAddress1", "depositAddress2").iterator();
+        final Message<?> message = Mockito.mock(Message.class);
+        final RegisterHandler registerHandler = new RegisterHandler(kvStore, addresses::next);
+
+        doReturn(JsonNodeFactory.instance.arrayNode().add("userAddress1"))
+                .when(message)
+                .body();
+
+        registerHandler.consumeMessage(message);
+
+        verify(message).reply(captor.capture());
+
+        Assert.assertEquals("depositAddress2", captor.getValue().message().get("depositAddress").asText());
+        Assert.assertEquals(Collections.singletonList("someoneElse"), kvStore.get("depositAddress1"));
+        Assert.assertEquals(Collections.singletonList("userAddress1"), kvStore.get("depositAddress2"));
+    }
+
+    @Test
+    public void testNoUniqueDepositAddressError() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Integer> statusCodeCaptor = ArgumentCaptor.forClass(Integer.class);
+
+        final KVStore<String, List<String>> kvStore = new InMemoryKVStore<>();
+        kvStore.put("depositAddress1", Collections.singletonList("someoneElse"));
+
+        final Message<?> message = Mockito.mock(Message.class);
+        final RegisterHandler registerHandler = new RegisterHandler(kvStore, () -> "depositAddress1");
+
+        doReturn(JsonNodeFactory.instance.arrayNode().add("userAddress1"))
+                .when(message)
+                .body();
+
+        registerHandler.consumeMessage(message);
+
+        verify(message).fail(statusCodeCaptor.capture(), captor.capture());
+
+        Assert.assertEquals("Unable to reserve a unique deposit address", captor.getValue());
+        Assert.assertEquals(500, (int) statusCodeCaptor.getValue());
+        Assert.assertEquals(Collections.singletonList("someoneElse"), kvStore.get("depositAddress1"));
+    }
+
+    @Test
+    public void testBatchRegisterSuccess() {
+        ArgumentCaptor<JobcoinResponse> captor = ArgumentCaptor.forClass(JobcoinResponse.class);
+
+        final KVStore<String, List<String>> kvStore = new InMemoryKVStore<>();
+
+        final Iterator<String> addresses = Arrays.asList("depositAddress1", "depositAddress2").iterator();
+        final Message<?> message = Mockito.mock(Message.class);
+        final RegisterHandler registerHandler = new RegisterHandler(kvStore, addresses::next);
+
+        doReturn(JsonNodeFactory.instance.arrayNode()
+                .add(JsonNodeFactory.instance.arrayNode().add("userAddress1").add("userAddress2"))
+                .add(JsonNodeFactory.instance.arrayNode().add("userAddress3")))
+                .when(message)
+                .body();
+
+        registerHandler.consumeBatchMessage(message);
+
+        verify(message).reply(captor.capture());
+
+        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
+                .put("status", "succeeded")
+                .set("message", JsonNodeFactory.instance.objectNode()
+                        .set("depositAddresses", JsonNodeFactory.instance.arrayNode()
+                                .add("depositAddress1")
+                                .add("depositAddress2"))).toString(), captor.getValue().encode());
+
+        Assert.assertEquals(Arrays.asList("userAddress1", "userAddress2"), kvStore.get("depositAddress1"));
+        Assert.assertEquals(Collections.singletonList("userAddress3"), kvStore.get("depositAddress2"));
+    }
+
+    @Test
+    public void testBatchCollidingDepositAddressIsRetried() {
+        ArgumentCaptor<JobcoinResponse> captor = ArgumentCaptor.forClass(JobcoinResponse.class);
+
+        final KVStore<String, List<String>> kvStore = new InMemoryKVStore<>();
+        kvStore.put("depositAddress1", Collections.singletonList("someoneElse"));
+
+        // the second list is first given an address someone else registered, then the one
+        // the first list just reserved
+        final Iterator<String> addresses = Arrays.asList(
+                "depositAddress2", "depositAddress1", "depositAddress2", "depositAddress3").iterator();
+        final Message<?> message = Mockito.mock(Message.class);
+        final RegisterHandler registerHandler = new RegisterHandler(kvStore, addresses::next);
+
+        doReturn(JsonNodeFactory.instance.arrayNode()
+                .add(JsonNodeFactory.instance.arrayNode().add("userAddress1"))
+                .add(JsonNodeFactory.instance.arrayNode().add("userAddress2")))
+                .when(message)
+                .body();
+
+        registerHandler.consumeBatchMessage(message);
+
+        verify(message).reply(captor.capture());
+
+        final JsonNode depositAddresses = captor.getValue().message().get("depositAddresses");
+        Assert.assertEquals("depositAddress2", depositAddresses.get(0).asText());
+        Assert.assertEquals("depositAddress3", depositAddresses.get(1).asText());
+        Assert.assertEquals(Collections.singletonList("someoneElse"), kvStore.get("depositAddress1"));
+        Assert.assertEquals(Collections.singletonList("userAddress1"), kvStore.get("depositAddress2"));
+        Assert.assertEquals(Collections.singletonList("userAddress2"), kvStore.get("depositAddress3"));
+    }
+
+    @Test
+    public void testBatchInvalidListError() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Integer> statusCodeCaptor = ArgumentCaptor.forClass(Integer.class);
+
+        final KVStore<String, List<String>> kvStore = new InMemoryKVStore<>();
+
+        final Message<?> message = Mockito.mock(Message.class);
+        final RegisterHandler registerHandler = new RegisterHandler(kvStore, () -> "depositAddress1");
+
+        doReturn(JsonNodeFactory.instance.arrayNode()
+                .add(JsonNodeFactory.instance.arrayNode().add("userAddress1"))
+                .add(JsonNodeFactory.instance.arrayNode().add("")))
+                .when(message)
+                .body();
+
+        registerHandler.consumeBatchMessage(message);
+
+        verify(message).fail(statusCodeCaptor.capture(), captor.capture());
+
+        Assert.assertEquals("Address list 1: Provided an address which is an empty string", captor.getValue());
+        Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
+        Assert.assertFalse(kvStore.containsKey("depositAddress1"));
+    }
+
+    @Test
+    public void testBatchTooLargeError() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Integer> statusCodeCaptor = ArgumentCaptor.forClass(Integer.class);
+
+        final KVStore<String, List<String>> kvStore = new InMemoryKVStore<>();
+
+        final Message<?> message = Mockito.mock(Message.class);
+        final RegisterHandler registerHandler = new RegisterHandler(kvStore, () -> "depositAddress1");
+
+        final ArrayNode addressLists = JsonNodeFactory.instance.arrayNode();
+        for (int i = 0; i <= RegisterHandler.MAX_BATCH_SIZE; i++) {
+            addressLists.add(JsonNodeFactory.instance.arrayNode().add("userAddress" + i));
+        }
+        doReturn(addressLists)
+                .when(message)
+                .body();
+
+        registerHandler.consumeBatchMessage(message);
+
+        verify(message).fail(statusCodeCaptor.capture(), captor.capture());
+
+        Assert.assertEquals("Can register at most 1000 address lists per batch", captor.getValue());
+        Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
+    }
 }
@@ -5,25 +5,50 @@ import com.gemini.jobcoin.exception.GeminiRequestException;
 import com.gemini.jobcoin.external.http.GeminiClient;
 import com.gemini.jobcoin.external.persistence.InMemoryKVStore;
 import com.gemini.jobcoin.external.persistence.KVStore;
+import com.gemini.jobcoin.external.persistence.MappedMixingJournal;
+import com.gemini.jobcoin.external.persistence.MixingJournal;
+import com.gemini.jobcoin.external.persistence.SendStage;
+import com.gemini.jobcoin.message.JobcoinResponse;
+import com.gemini.jobcoin.message.MixingRequest;
+import com.gemini.jobcoin.scheduler.Backoff;
+import com.gemini.jobcoin.scheduler.UniformPolicy;
+import io.vertx.core.Verticle;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.Message;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.gemini.jobcoin.constant.Routes.MIXER_VERTX_V1;
+import static com.gemini.jobcoin.external.blockchain.JobcoinAddressGenerator.JOBCOIN_HOUSE_ADDRESS;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class SendHandlerTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testJsonError() {
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
@@ -40,9 +65,7 @@ public class SendHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Issue processing Json")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Issue processing Json", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -64,9 +87,7 @@ public class SendHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Issue submitting request null")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Issue submitting request null", captor.getValue());
         Assert.assertEquals(500, (int) statusCodeCaptor.getValue());
     }
 
@@ -86,9 +107,7 @@ public class SendHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Payload missing [fromAddress]")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Payload missing [fromAddress]", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -109,9 +128,7 @@ public class SendHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Payload missing [toAddress]")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Payload missing [toAddress]", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -131,9 +148,7 @@ public class SendHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Payload is not json object")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Payload is not json object", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -156,9 +171,7 @@ public class SendHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "[TO456] is not an address registered to Jobcoin")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("[TO456] is not an address registered to Jobcoin", captor.getValue());
         Assert.assertEquals(422, (int) statusCodeCaptor.getValue());
     }
 
@@ -182,9 +195,7 @@ public class SendHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Payload missing amount")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Payload missing amount", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -209,9 +220,7 @@ public class SendHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Amount needs to be a number")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Amount needs to be a number", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -236,9 +245,7 @@ public class SendHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Amount needs to be greater then 0.0")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Amount needs to be greater then 0.0", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -264,9 +271,60 @@ public class SendHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Amount needs to be greater then 0.0")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Amount needs to be greater then 0.0", captor.getValue());
+        Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
+    }
+
+    @Test
+    public void testBacklogOverHighWaterMark() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Integer> statusCodeCaptor = ArgumentCaptor.forClass(Integer.class);
+
+        final KVStore<String, List<String>> kvStore = new InMemoryKVStore<>();
+        kvStore.put("TO456", new LinkedList<>());
+        final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+        final MixingBacklog backlog = new MixingBacklog(2, 0);
+        backlog.added(new long[]{10, 20}, 0, 2);
+        final Message<?> message = Mockito.mock(Message.class);
+        final SendHandler sendHandler = SendHandler.builder(geminiClient, kvStore).backlog(backlog).build();
+
+        doReturn(JsonNodeFactory.instance.objectNode()
+                .put("fromAddress", "FROM123")
+                .put("toAddress", "TO456")
+                .put("amount", 1.0).toString())
+                .when(message)
+                .body();
+
+        sendHandler.consumeMessage(message);
+
+        verify(message).fail(statusCodeCaptor.capture(), captor.capture());
+
+        Assert.assertEquals("Mixer backlog is over its high-water mark, try again later", captor.getValue());
+        Assert.assertEquals(503, (int) statusCodeCaptor.getValue());
+        // rejected before any funds were moved
+        Mockito.verifyNoInteractions(geminiClient);
+        Assert.assertEquals(1, backlog.rejected());
+    }
+
+    @Test
+    public void testAmountTooManyDecimalsError() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Integer> statusCodeCaptor = ArgumentCaptor.forClass(Integer.class);
+
+        final KVStore<String, List<String>> kvStore = new InMemoryKVStore<>();
+        kvStore.put("TO456", new LinkedList<>());
+        final Message<?> message = Mockito.mock(Message.class);
+        final SendHandler sendHandler = new SendHandler(null, kvStore);
+
+        doReturn("{\"fromAddress\":\"FROM123\",\"toAddress\":\"TO456\",\"amount\":1.000000001}")
+                .when(message)
+                .body();
+
+        sendHandler.consumeMessage(message);
+
+        verify(message).fail(statusCodeCaptor.capture(), captor.capture());
+
+        Assert.assertEquals("Amount cannot have more then 8 decimal places", captor.getValue());
         Assert.assertEquals(400, (int) statusCodeCaptor.getValue());
     }
 
@@ -278,9 +336,9 @@ public class SendHandlerTest {
         final Message<?> message = Mockito.mock(Message.class);
         final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
 
-        doThrow(new GeminiRequestException("Error with request", 500))
+        doReturn(CompletableFuture.failedFuture(new GeminiRequestException("Error with request", 500)))
                 .when(geminiClient)
-                .transferAmount(anyString(), anyString(), anyString());
+                .transferAmountAsync(anyString(), anyString(), anyLong());
 
         final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
         depositAddressStore.put("TO456", Arrays.asList("USERADDRESS1", "USERADDRESS2"));
@@ -298,18 +356,19 @@ public class SendHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Gemini API returned an error Error with request")
-                .put("status", "failed").toString(), captor.getValue());
+        Assert.assertEquals("Gemini API returned an error Error with request", captor.getValue());
         Assert.assertEquals(500, (int) statusCodeCaptor.getValue());
     }
 
     @Test
-    public void testSuccessfulMixingEngineResponse() throws InterruptedException {
+    public void testSuccessfulMixingEngineResponse() throws Exception {
         // deploy vertx
         final Vertx vertx = Vertx.vertx();
 
         final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+        doReturn(CompletableFuture.completedFuture(null))
+                .when(geminiClient)
+                .transferAmountAsync(anyString(), anyString(), anyLong());
 
         final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
         depositAddressStore.put("TO456", Arrays.asList("USERADDRESS1", "USERADDRESS2"));
@@ -318,10 +377,10 @@ public class SendHandlerTest {
 
         final SendHandler sendHandler = new SendHandler(geminiClient, depositAddressStore);
 
-        vertx.deployVerticle(new MixingEngine(depositAddressStore, requestStore, () -> "REQUEST123", geminiClient, 1000, 500, 2, 1));
-        vertx.deployVerticle(sendHandler);
+        deploy(vertx, new MixingEngine(depositAddressStore, requestStore, () -> "REQUEST123", geminiClient, 1000, 500, 2, 1));
+        deploy(vertx, sendHandler);
 
-        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<JobcoinResponse> captor = ArgumentCaptor.forClass(JobcoinResponse.class);
 
         final Message<?> message = Mockito.mock(Message.class);
 
@@ -345,19 +404,22 @@ public class SendHandlerTest {
 
         verify(message).reply(captor.capture());
 
+        // the engine's reply is forwarded as is, the message is a json object rather than a string
         Assert.assertEquals(JsonNodeFactory.instance.objectNode()
                 .put("status", "succeeded")
-                .put("message", JsonNodeFactory.instance.objectNode()
-                .put("requestId", "REQUEST123").toString())
-                .toString(), captor.getValue());
+                .set("message", JsonNodeFactory.instance.objectNode()
+                        .put("requestId", "REQUEST123")).toString(), captor.getValue().encode());
     }
 
     @Test
-    public void testFailedMixingEngineResponse() throws InterruptedException {
+    public void testFailedMixingEngineResponse() throws Exception {
         // deploy vertx
         final Vertx vertx = Vertx.vertx();
 
         final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+        doReturn(CompletableFuture.completedFuture(null))
+                .when(geminiClient)
+                .transferAmountAsync(anyString(), anyString(), anyLong());
 
         final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
         depositAddressStore.put("TO456", Arrays.asList("USERADDRESS1", "USERADDRESS2"));
@@ -366,9 +428,9 @@ public class SendHandlerTest {
 
         final SendHandler sendHandler = new SendHandler(geminiClient, depositAddressStore);
 
-        vertx.deployVerticle(new MixingEngine(null, requestStore, () -> "REQUEST123", geminiClient,
+        deploy(vertx, new MixingEngine(null, requestStore, () -> "REQUEST123", geminiClient,
                 1000, 500, 2, 1));
-        vertx.deployVerticle(sendHandler);
+        deploy(vertx, sendHandler);
 
         ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
         ArgumentCaptor<Integer> statusCodeCaptor = ArgumentCaptor.forClass(Integer.class);
@@ -390,11 +452,275 @@ public class SendHandlerTest {
 
         verify(message).fail(statusCodeCaptor.capture(), captor.capture());
 
-        Assert.assertEquals(JsonNodeFactory.instance.objectNode()
-                .put("message", "Issue submitting request null")
-                .put("status", "failed")
-                .toString(), captor.getValue());
+        Assert.assertEquals("Issue submitting request null", captor.getValue());
 
         Assert.assertEquals(500, (int) statusCodeCaptor.getValue());
     }
+
+    @Test
+    public void testEarlyAcknowledgedSend() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            // the first transfer is held back so the send is acknowledged before any funds move
+            final CompletableFuture<HttpResponse<String>> deposited = new CompletableFuture<>();
+            final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+            doReturn(CompletableFuture.completedFuture(null))
+                    .when(geminiClient)
+                    .transferAmountAsync(anyString(), anyString(), anyLong());
+            doReturn(deposited)
+                    .when(geminiClient)
+                    .transferAmountAsync("FROM123", "TO456", 100_000_000L);
+
+            final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
+            depositAddressStore.put("TO456", Arrays.asList("USERADDRESS1", "USERADDRESS2"));
+            final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+            final ConcurrentMap<String, SendStage> sendStages = new ConcurrentHashMap<>();
+
+            final SendHandler sendHandler = SendHandler.builder(geminiClient, depositAddressStore)
+                    .earlyAck(true)
+                    .requestIdGenerator(() -> "EARLY123")
+                    .sendStages(sendStages)
+                    .build();
+
+            deploy(vertx, new MixingEngine(depositAddressStore, requestStore, () -> "UNUSED", geminiClient,
+                    1000, 500, 2, 1));
+            deploy(vertx, sendHandler);
+
+            ArgumentCaptor<JobcoinResponse> captor = ArgumentCaptor.forClass(JobcoinResponse.class);
+            final Message<?> message = Mockito.mock(Message.class);
+            doReturn(JsonNodeFactory.instance.objectNode()
+                    .put("fromAddress", "FROM123")
+                    .put("toAddress", "TO456")
+                    .put("amount", 1.0).toString())
+                    .when(message)
+                    .body();
+
+            sendHandler.consumeMessage(message);
+
+            verify(message).reply(captor.capture());
+            Assert.assertEquals(202, captor.getValue().statusCode());
+            Assert.assertEquals("EARLY123", captor.getValue().message().get("requestId").asText());
+            Assert.assertEquals(SendStage.ACCEPTED, sendStages.get("EARLY123"));
+            Assert.assertFalse(requestStore.containsKey("EARLY123"));
+
+            deposited.complete(null);
+
+            // the engine registers the send under the id the client was given and the pipeline lets go of it
+            while (!requestStore.containsKey("EARLY123") || sendStages.containsKey("EARLY123")) {
+                Thread.sleep(10);
+            }
+            Assert.assertFalse(requestStore.containsKey("UNUSED"));
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testRecoverAcceptedSend() throws Exception {
+        final Path path = folder.getRoot().toPath().resolve("journal");
+        try (MixingJournal journal = new MappedMixingJournal(path, 4096, 1, TimeUnit.MILLISECONDS)) {
+            journal.accepted("EARLY123", "FROM123", "TO456", Arrays.asList("USERADDRESS1"), 100_000_000L);
+            journal.staged("EARLY123", SendStage.DEPOSITED).get(5, TimeUnit.SECONDS);
+        }
+
+        final Vertx vertx = Vertx.vertx();
+        try (MixingJournal journal = new MappedMixingJournal(path, 4096, 1, TimeUnit.MILLISECONDS)) {
+            final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+            doReturn(CompletableFuture.completedFuture(null))
+                    .when(geminiClient)
+                    .transferAmountAsync(anyString(), anyString(), anyLong());
+
+            // the deposit addresses registered before the restart are gone
+            final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
+            final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+            final ConcurrentMap<String, SendStage> sendStages = new ConcurrentHashMap<>();
+
+            deploy(vertx, MixingEngine.builder(depositAddressStore, requestStore, () -> "UNUSED", geminiClient)
+                    .journal(journal)
+                    .policy(new UniformPolicy(10, 50))
+                    .parts(1, 2)
+                    .build());
+            deploy(vertx, SendHandler.builder(geminiClient, depositAddressStore)
+                    .earlyAck(true)
+                    .requestIdGenerator(() -> "UNUSED")
+                    .journal(journal)
+                    .sendStages(sendStages)
+                    .build());
+
+            // resumed after the deposit, registered and paid out to the journaled address
+            verify(geminiClient, timeout(5000))
+                    .transferAmountAsync(JOBCOIN_HOUSE_ADDRESS, "USERADDRESS1", 100_000_000L);
+            verify(geminiClient).transferAmountAsync("TO456", JOBCOIN_HOUSE_ADDRESS, 100_000_000L);
+            verify(geminiClient, never()).transferAmountAsync("FROM123", "TO456", 100_000_000L);
+            Assert.assertTrue(requestStore.containsKey("EARLY123"));
+            Assert.assertFalse(sendStages.containsKey("EARLY123"));
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testEarlyAcknowledgedSendFails() {
+        // rejected before any funds moved, the send fails without being retried
+        final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+        doReturn(CompletableFuture.failedFuture(new GeminiRequestException("Insufficient funds", 422)))
+                .when(geminiClient)
+                .transferAmountAsync("FROM123", "TO456", 100_000_000L);
+
+        final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
+        depositAddressStore.put("TO456", Arrays.asList("USERADDRESS1", "USERADDRESS2"));
+        final ConcurrentMap<String, SendStage> sendStages = new ConcurrentHashMap<>();
+
+        final SendHandler sendHandler = SendHandler.builder(geminiClient, depositAddressStore)
+                .earlyAck(true)
+                .requestIdGenerator(() -> "EARLY123")
+                .sendStages(sendStages)
+                .build();
+
+        ArgumentCaptor<JobcoinResponse> captor = ArgumentCaptor.forClass(JobcoinResponse.class);
+        final Message<?> message = Mockito.mock(Message.class);
+        doReturn(JsonNodeFactory.instance.objectNode()
+                .put("fromAddress", "FROM123")
+                .put("toAddress", "TO456")
+                .put("amount", 1.0).toString())
+                .when(message)
+                .body();
+
+        sendHandler.consumeMessage(message);
+
+        // the client was already answered, the failure is only visible in the send's stage
+        verify(message).reply(captor.capture());
+        Assert.assertEquals(202, captor.getValue().statusCode());
+        Assert.assertEquals(SendStage.FAILED, sendStages.get("EARLY123"));
+        verify(geminiClient).transferAmountAsync("FROM123", "TO456", 100_000_000L);
+        verify(geminiClient, never()).transferAmountAsync(anyString(), eq(JOBCOIN_HOUSE_ADDRESS), anyLong());
+    }
+
+    @Test
+    public void testEarlyAcknowledgedSendRetriesTransientFailure() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            // the funds already reached the deposit address, an outage must not strand them there
+            final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+            doReturn(CompletableFuture.completedFuture(null))
+                    .when(geminiClient)
+                    .transferAmountAsync(anyString(), anyString(), anyLong());
+            doReturn(CompletableFuture.failedFuture(new GeminiRequestException("Error with request", 500)),
+                    CompletableFuture.failedFuture(new GeminiRequestException("Error with request", 503)),
+                    CompletableFuture.completedFuture(null))
+                    .when(geminiClient)
+                    .transferAmountAsync("TO456", JOBCOIN_HOUSE_ADDRESS, 100_000_000L);
+
+            final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
+            depositAddressStore.put("TO456", Arrays.asList("USERADDRESS1", "USERADDRESS2"));
+            final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+            final ConcurrentMap<String, SendStage> sendStages = new ConcurrentHashMap<>();
+
+            final SendHandler sendHandler = SendHandler.builder(geminiClient, depositAddressStore)
+                    .earlyAck(true)
+                    .requestIdGenerator(() -> "EARLY123")
+                    .sendStages(sendStages)
+                    .requestStore(requestStore)
+                    .backoff(new Backoff(5, 20))
+                    .build();
+            deploy(vertx, new MixingEngine(depositAddressStore, requestStore, () -> "UNUSED", geminiClient,
+                    1000, 500, 2, 1));
+            deploy(vertx, sendHandler);
+
+            final Message<?> message = Mockito.mock(Message.class);
+            doReturn(JsonNodeFactory.instance.objectNode()
+                    .put("fromAddress", "FROM123")
+                    .put("toAddress", "TO456")
+                    .put("amount", 1.0).toString())
+                    .when(message)
+                    .body();
+
+            sendHandler.consumeMessage(message);
+
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            SendStage stage;
+            while ((stage = sendStages.get("EARLY123")) != null && stage != SendStage.FAILED
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertNull(String.valueOf(stage), stage);
+            Assert.assertTrue(requestStore.containsKey("EARLY123"));
+            verify(geminiClient, times(3)).transferAmountAsync("TO456", JOBCOIN_HOUSE_ADDRESS, 100_000_000L);
+            verify(geminiClient, times(1)).transferAmountAsync("FROM123", "TO456", 100_000_000L);
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testRegisteredSendIsNotFailedByLostReply() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final GeminiClient geminiClient = Mockito.mock(GeminiClient.class);
+            doReturn(CompletableFuture.completedFuture(null))
+                    .when(geminiClient)
+                    .transferAmountAsync(anyString(), anyString(), anyLong());
+
+            final KVStore<String, List<String>> depositAddressStore = new InMemoryKVStore<>();
+            depositAddressStore.put("TO456", Arrays.asList("USERADDRESS1", "USERADDRESS2"));
+            final KVStore<String, Boolean> requestStore = new InMemoryKVStore<>();
+            final ConcurrentMap<String, SendStage> sendStages = new ConcurrentHashMap<>();
+
+            final SendHandler sendHandler = SendHandler.builder(geminiClient, depositAddressStore)
+                    .earlyAck(true)
+                    .requestIdGenerator(() -> "EARLY123")
+                    .sendStages(sendStages)
+                    .requestStore(requestStore)
+                    .build();
+            deploy(vertx, sendHandler);
+
+            // the engine registers the send but its reply never makes it back
+            vertx.eventBus().<MixingRequest>consumer(MIXER_VERTX_V1, m -> {
+                requestStore.put(m.body().requestId, false);
+                m.fail(500, "reply lost");
+            });
+
+            final Message<?> message = Mockito.mock(Message.class);
+            doReturn(JsonNodeFactory.instance.objectNode()
+                    .put("fromAddress", "FROM123")
+                    .put("toAddress", "TO456")
+                    .put("amount", 1.0).toString())
+                    .when(message)
+                    .body();
+
+            sendHandler.consumeMessage(message);
+
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            SendStage stage;
+            while ((stage = sendStages.get("EARLY123")) != null && stage != SendStage.FAILED
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertNull(String.valueOf(stage), stage);
+            Assert.assertTrue(requestStore.containsKey("EARLY123"));
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testEarlyAckModeIsExplicit() {
+        try {
+            SendHandler.builder(null, new InMemoryKVStore<>()).requestIdGenerator(() -> "EARLY123").build();
+            Assert.fail("a requestIdGenerator alone must not switch to early acknowledgement");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("A requestIdGenerator is only used with early acknowledgement", e.getMessage());
+        }
+        try {
+            SendHandler.builder(null, new InMemoryKVStore<>()).earlyAck(true).build();
+            Assert.fail("early acknowledgement needs a requestIdGenerator");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Early acknowledgement needs a requestIdGenerator", e.getMessage());
+        }
+    }
+
+    // codecs are registered when a verticle starts, so wait for it before sending to it
+    private static void deploy(final Vertx vertx, final Verticle verticle) throws Exception {
+        vertx.deployVerticle(verticle).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
 }